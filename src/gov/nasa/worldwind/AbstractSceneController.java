@@ -12,6 +12,7 @@ import gov.nasa.worldwind.geom.Position;
 import gov.nasa.worldwind.layers.Layer;
 import gov.nasa.worldwind.pick.*;
 import gov.nasa.worldwind.render.*;
+import gov.nasa.worldwind.retrieve.BasicRetrievalService;
 import gov.nasa.worldwind.terrain.*;
 import gov.nasa.worldwind.util.*;
 
@@ -83,7 +84,7 @@ public abstract class AbstractSceneController extends WWObjectImpl implements Sc
     protected SurfaceObjectTileBuilder surfaceObjectTileBuilder = new SurfaceObjectTileBuilder();
     /** The display name for the surface object tile count performance statistic. */
     protected static final String SURFACE_OBJECT_TILE_COUNT_NAME = "Surface Object Tiles";
-    protected ClutterFilter clutterFilter = new BasicClutterFilter();
+    protected ClutterFilter clutterFilter = new GridClutterFilter();
     //protected Map<String, GroupingFilter> groupingFilters = new HashMap<String, GroupingFilter>();
     protected boolean deferOrderedRendering;
 
@@ -403,6 +404,7 @@ public abstract class AbstractSceneController extends WWObjectImpl implements Sc
         this.glRuntimeCaps.initialize(GLContext.getCurrent());
         this.initializeDrawContext(this.dc);
         this.doRepaint(this.dc);
+        this.cancelUnrequestedRetrievals();
 
         ++this.frame;
         long time = System.currentTimeMillis();
@@ -426,6 +428,13 @@ public abstract class AbstractSceneController extends WWObjectImpl implements Sc
             this.dc.setPerFrameStatistics(WorldWind.getMemoryCacheSet().getPerformanceStatistics());
         }
 
+        if (perfKeys.contains(PerformanceStatistic.RETRIEVAL_SERVICE) || perfKeys.contains(PerformanceStatistic.ALL))
+        {
+            if (WorldWind.getRetrievalService() instanceof BasicRetrievalService)
+                this.dc.setPerFrameStatistics(
+                    ((BasicRetrievalService) WorldWind.getRetrievalService()).getPerformanceStatistics());
+        }
+
         if (perfKeys.contains(PerformanceStatistic.TEXTURE_CACHE) || perfKeys.contains(PerformanceStatistic.ALL))
         {
             if (dc.getTextureCache() != null)
@@ -448,6 +457,16 @@ public abstract class AbstractSceneController extends WWObjectImpl implements Sc
 
     abstract protected void doRepaint(DrawContext dc);
 
+    /**
+     * Cancels the queued retrievals that layers and elevation models have stopped requesting, typically because the
+     * view has moved away from the tiles they retrieve. Called once per frame, after the frame is drawn.
+     */
+    protected void cancelUnrequestedRetrievals()
+    {
+        if (WorldWind.getRetrievalService() instanceof BasicRetrievalService)
+            ((BasicRetrievalService) WorldWind.getRetrievalService()).cancelUnrequestedRetrievers();
+    }
+
     protected void initializeDrawContext(DrawContext dc)
     {
         dc.initialize(GLContext.getCurrent());
@@ -122,6 +122,36 @@ public final class WorldWind
         return instance.memoryCacheSet.getCache(key);
     }
 
+    /**
+     * Creates a new {@link MemoryCache} of the class specified by the {@link AVKey#MEMORY_CACHE_CLASS_NAME}
+     * configuration property, or a {@link BasicMemoryCache} if that property is not specified. The class must provide a
+     * public constructor taking the low water level and the capacity as <code>long</code> arguments.
+     *
+     * @param loWater  the low water level of the new cache.
+     * @param capacity the capacity of the new cache.
+     *
+     * @return the new cache.
+     *
+     * @throws WWRuntimeException if the configured class cannot be instantiated.
+     */
+    public static MemoryCache createMemoryCache(long loWater, long capacity)
+    {
+        String className = Configuration.getStringValue(AVKey.MEMORY_CACHE_CLASS_NAME);
+        if (className == null || className.trim().length() == 0)
+            return new BasicMemoryCache(loWater, capacity);
+
+        try
+        {
+            Class<?> c = Class.forName(className.trim());
+            return (MemoryCache) c.getConstructor(long.class, long.class).newInstance(loWater, capacity);
+        }
+        catch (Exception e)
+        {
+            Logging.logger().log(Level.SEVERE, "WorldWind.ExceptionCreatingComponent", className);
+            throw new WWRuntimeException(Logging.getMessage("WorldWind.ExceptionCreatingComponent", className), e);
+        }
+    }
+
     public static FileStore getDataFileStore()
     {
         return instance.dataFileStore;
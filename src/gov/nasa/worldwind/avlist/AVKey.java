@@ -44,6 +44,11 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String BOUNDS = "gov.nasa.worldwind.avkey.Bounds";
 
     final String CACHE_CONTENT_TYPES = "gov.nasa.worldwind.avkey.CacheContentTypes";
+    /**
+     * Indicates whether the statistics of World Wind's memory caches are published as JMX MBeans. See {@link
+     * gov.nasa.worldwind.cache.CacheStatisticsMBeans}.
+     */
+    final String CACHE_STATISTICS_JMX_ENABLED = "gov.nasa.worldwind.avkey.CacheStatisticsJMXEnabled";
     final String CENTER = "gov.nasa.worldwind.avkey.Center";
 
     final String CLASS_LEVEL = "gov.nasa.worldwind.avkey.ClassLevel";
@@ -115,11 +120,17 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String ELEVATION = "gov.nasa.worldwind.avkey.Elevation";
     final String ELEVATION_EXTREMES_FILE = "gov.nasa.worldwind.avkey.ElevationExtremesFileKey";
     final String ELEVATION_EXTREMES_LOOKUP_CACHE_SIZE = "gov.nasa.worldwind.avkey.ElevationExtremesLookupCacheSize";
+    /** The capacity in bytes of the cache of memory-mapped elevation tiles. */
+    final String ELEVATION_MAPPED_TILE_CACHE_SIZE = "gov.nasa.worldwind.avkey.ElevationMappedTileCacheSize";
     final String ELEVATION_MIN = "gov.nasa.worldwind.avkey.ElevationMinKey";
     final String ELEVATION_MAX = "gov.nasa.worldwind.avkey.ElevationMaxKey";
     final String ELEVATION_MODEL = "gov.nasa.worldwind.avkey.ElevationModel";
     final String ELEVATION_MODEL_FACTORY = "gov.nasa.worldwind.avkey.ElevationModelFactory";
     final String ELEVATION_TILE_CACHE_SIZE = "gov.nasa.worldwind.avkey.ElevationTileCacheSize";
+    /** Indicates whether an elevation model maps local tile files into memory rather than reading them. */
+    final String ELEVATION_TILE_MAPPING_ENABLED = "gov.nasa.worldwind.avkey.ElevationTileMappingEnabled";
+    /** The path of an {@link gov.nasa.worldwind.terrain.ElevationTilePack} serving an elevation model's tiles. */
+    final String ELEVATION_TILE_PACK_FILE = "gov.nasa.worldwind.avkey.ElevationTilePackFile";
     final String ELEVATION_UNIT = "gov.nasa.worldwind.avkey.ElevationUnit";
 
     final String END = "gov.nasa.worldwind.avkey.End";
@@ -135,6 +146,11 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String FILE_NAME = "gov.nasa.worldwind.avkey.FileName";
     final String FILE_SIZE = "gov.nasa.worldwind.avkey.FileSize";
     final String FILE_STORE = "gov.nasa.worldwind.avkey.FileStore";
+    /**
+     * Indicates whether the data file store keeps an in-memory index of its contents. See {@link
+     * gov.nasa.worldwind.cache.FileStoreIndex}.
+     */
+    final String FILE_STORE_INDEX_ENABLED = "gov.nasa.worldwind.avkey.FileStoreIndexEnabled";
     final String FILE_STORE_LOCATION = "gov.nasa.worldwind.avkey.FileStoreLocation";
     final String FLOAT32 = "gov.nasa.worldwind.avkey.Float32";
     final String FLOAT64 = "gov.nasa.worldwind.avkey.Float64";
@@ -192,6 +208,9 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String INT32 = "gov.nasa.worldwind.avkey.Int32";
     final String INT64 = "gov.nasa.worldwind.avkey.Int64";
 
+    final String KML_RESOURCE_MAX_REQUESTS_PER_HOST = "gov.nasa.worldwind.avkey.KMLResourceMaxRequestsPerHost";
+    final String KML_RESOURCE_POOL_SIZE = "gov.nasa.worldwind.avkey.KMLResourcePoolSize";
+
     final String LABEL = "gov.nasa.worldwind.avkey.Label";
     final String LAST_UPDATE = "gov.nasa.worldwind.avkey.LastUpdateKey";
     final String LAYER = "gov.nasa.worldwind.avkey.LayerObject";
@@ -228,6 +247,14 @@ public interface AVKey // TODO: Eliminate unused constants, if any
 
     final String MAX_ACTIVE_ALTITUDE = "gov.nasa.worldwind.avkey.MaxActiveAltitude";
     final String MAX_MESSAGE_REPEAT = "gov.nasa.worldwind.avkey.MaxMessageRepeat";
+    /**
+     * Indicates the {@link gov.nasa.worldwind.cache.MemoryCache} implementation created by {@link
+     * gov.nasa.worldwind.WorldWind#createMemoryCache(long, long)}. The class must provide a constructor taking the low
+     * water level and the capacity.
+     */
+    final String MEMORY_CACHE_CLASS_NAME = "gov.nasa.worldwind.avkey.MemoryCacheClassName";
+    /** Indicates the number of independently locked segments of a {@link gov.nasa.worldwind.cache.ConcurrentMemoryCache}. */
+    final String MEMORY_CACHE_CONCURRENCY_LEVEL = "gov.nasa.worldwind.avkey.MemoryCacheConcurrencyLevel";
     final String MEMORY_CACHE_SET_CLASS_NAME = "gov.nasa.worldwind.avkey.MemoryCacheSetClassName";
     /**
      * Indicates the location that MIL-STD-2525 tactical symbols and tactical point graphics retrieve their icons from.
@@ -345,6 +372,7 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String RASTER_PIXEL = "gov.nasa.worldwind.avkey.RasterPixel";
     final String RASTER_PIXEL_IS_AREA = "gov.nasa.worldwind.avkey.RasterPixelIsArea";
     final String RASTER_PIXEL_IS_POINT = "gov.nasa.worldwind.avkey.RasterPixelIsPoint";
+    final String RASTER_SERVER_LOADER_POOL_SIZE = "gov.nasa.worldwind.avkey.RasterServerLoaderPoolSize";
     final String RECTANGULAR_TESSELLATOR_MAX_LEVEL = "gov.nasa.worldwind.avkey.RectangularTessellatorMaxLevel";
     final String REPAINT = "gov.nasa.worldwind.avkey.Repaint";
     final String REPEAT_NONE = "gov.nasa.worldwind.avkey.RepeatNone";
@@ -363,10 +391,17 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     /** Does not modify the item size when the window changes size. */
     final String RESIZE_KEEP_FIXED_SIZE = "gov.nasa.worldwind.CompassLayer.ResizeKeepFixedSize";
     final String RETAIN_LEVEL_ZERO_TILES = "gov.nasa.worldwind.avkey.RetainLevelZeroTiles";
+    final String RETRIEVAL_MAX_CONCURRENT_REQUESTS = "gov.nasa.worldwind.avkey.RetrievalMaxConcurrentRequests";
     final String RETRIEVAL_POOL_SIZE = "gov.nasa.worldwind.avkey.RetrievalPoolSize";
     final String RETRIEVE_PROPERTIES_FROM_SERVICE = "gov.nasa.worldwind.avkey.RetrievePropertiesFromService";
     final String RETRIEVAL_QUEUE_SIZE = "gov.nasa.worldwind.avkey.RetrievalQueueSize";
     final String RETRIEVAL_QUEUE_STALE_REQUEST_LIMIT = "gov.nasa.worldwind.avkey.RetrievalStaleRequestLimit";
+    final String RETRIEVAL_QUEUE_UNREQUESTED_LIMIT = "gov.nasa.worldwind.avkey.RetrievalUnrequestedLimit";
+    /**
+     * Indicates that a retriever is submitted once rather than every frame, so it is never cancelled for not being
+     * requested again.
+     */
+    final String RETRIEVAL_REQUESTED_ONCE = "gov.nasa.worldwind.avkey.RetrievalRequestedOnce";
     final String RETRIEVAL_SERVICE_CLASS_NAME = "gov.nasa.worldwind.avkey.RetrievalServiceClassName";
     final String RETRIEVER_FACTORY_LOCAL = "gov.nasa.worldwind.avkey.RetrieverFactoryLocal";
     final String RETRIEVER_FACTORY_REMOTE = "gov.nasa.worldwind.avkey.RetrieverFactoryRemote";
@@ -403,6 +438,7 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String SERVICE_NAME_OFFLINE = "Offline";
     final String SESSION_CACHE_CLASS_NAME = "gov.nasa.worldwind.avkey.SessionCacheClassName";
     final String SHAPE_ATTRIBUTES = "gov.nasa.worldwind.avkey.ShapeAttributes";
+    final String SHAPE_GEOMETRY_FRAME_BUDGET = "gov.nasa.worldwind.avkey.ShapeGeometryFrameBudget";
     final String SHAPE_CIRCLE = "gov.nasa.worldwind.avkey.ShapeCircle";
     final String SHAPE_ELLIPSE = "gov.nasa.worldwind.avkey.ShapeEllipse";
     final String SHAPE_LINE = "gov.nasa.worldwind.avkey.ShapeLine";
@@ -415,6 +451,7 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String SHAPE_TRIANGLE = "gov.nasa.worldwind.avkey.ShapeTriangle";
     final String SHAPEFILE_GEOMETRY_CACHE_SIZE = "gov.nasa.worldwind.avkey.ShapefileGeometryCacheSize";
     final String SHAPEFILE_LAYER_FACTORY = "gov.nasa.worldwind.avkey.ShapefileLayerFactory";
+    final String SHAPEFILE_PAGE_RECORDS = "gov.nasa.worldwind.avkey.ShapefilePageRecords";
     final String SHORT_DESCRIPTION = "gov.nasa.worldwind.avkey.Server.ShortDescription";
     final String SIZE_FIT_TEXT = "gov.nasa.worldwind.avkey.SizeFitText";
     final String SIZE_FIXED = "gov.nasa.worldwind.avkey.SizeFixed";
@@ -460,6 +497,8 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String TILED_RASTER_PRODUCER_LARGE_DATASET_THRESHOLD =
         "gov.nasa.worldwind.avkey.TiledRasterProducerLargeDatasetThreshold";
     final String TILED_RASTER_PRODUCER_LIMIT_MAX_LEVEL = "gov.nasa.worldwind.avkey.TiledRasterProducer.LimitMaxLevel";
+    final String TILED_RASTER_PRODUCER_THREAD_POOL_SIZE =
+        "gov.nasa.worldwind.avkey.TiledRasterProducer.ThreadPoolSize";
     final String TILT = "gov.nasa.worldwind.avkey.Tilt";
     final String TITLE = "gov.nasa.worldwind.avkey.Title";
     final String TOP = "gov.nasa.worldwind.avkey.Top";
@@ -70,6 +70,8 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
     protected final java.util.List<StoreLocation> readLocations =
         new java.util.concurrent.CopyOnWriteArrayList<StoreLocation>();
     protected StoreLocation writeLocation = null;
+    /** The index of the file store's contents, or null if the file store probes the file system on each lookup. */
+    protected FileStoreIndex index = null;
     private final Object fileLock = new Object();
 
     //**************************************************************//
@@ -103,6 +105,15 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
                 Logging.logger().severe(message);
                 throw new IllegalStateException(message);
             }
+
+            if (Configuration.getBooleanValue(AVKey.FILE_STORE_INDEX_ENABLED, false))
+            {
+                this.index = new FileStoreIndex();
+                for (StoreLocation location : this.readLocations)
+                {
+                    this.index.indexLocationLater(location.getFile());
+                }
+            }
         }
         catch (javax.xml.parsers.ParserConfigurationException e)
         {
@@ -404,6 +415,9 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
         java.io.File newFile = new java.io.File(newPath);
         StoreLocation newLocation = new StoreLocation(newFile, isInstall);
         this.readLocations.add(index, newLocation);
+
+        if (this.index != null)
+            this.index.indexLocationLater(newFile);
     }
 
     public void removeLocation(String path)
@@ -428,6 +442,9 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
         }
 
         this.readLocations.remove(location);
+
+        if (this.index != null)
+            this.index.removeLocation(location.getFile());
     }
 
     public boolean isInstallLocation(String path)
@@ -475,7 +492,12 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
             else
                 file = makeAbsoluteFile(dir, fileName);
 
-            if (file.exists())
+            if (this.index != null && this.index.isLocationIndexed(dir))
+            {
+                if (this.index.contains(file))
+                    return true;
+            }
+            else if (file.exists())
                 return true;
         }
 
@@ -520,18 +542,20 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
         for (StoreLocation location : this.readLocations)
         {
             java.io.File dir = location.getFile();
-            if (!dir.exists())
+            boolean indexed = this.index != null && this.index.isLocationIndexed(dir);
+            if (!indexed && !dir.exists())
                 continue;
 
             java.io.File file = new java.io.File(makeAbsolutePath(dir, fileName));
-            if (file.exists())
+            if (indexed ? this.index.contains(file) : file.exists())
             {
                 try
                 {
-                    if (location.isMarkWhenUsed())
-                        markFileUsed(file);
+                    java.io.File usedFile = location.isMarkWhenUsed() ? file : file.getParentFile();
+                    if (this.index != null)
+                        this.index.markUsed(usedFile);
                     else
-                        markFileUsed(file.getParentFile());
+                        markFileUsed(usedFile);
 
                     return file.toURI().toURL();
                 }
@@ -600,7 +624,12 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
             }
 
             if (canCreateFile)
+            {
+                if (this.index != null)
+                    this.index.fileCreated(file);
+
                 return file;
+            }
             else
             {
                 String msg = Logging.getMessage("generic.CannotCreateFile", fullPath);
@@ -636,16 +665,19 @@ public abstract class AbstractFileStore extends WWObjectImpl implements FileStor
             // wakes up, file.delete() fails.
             synchronized (this.fileLock)
             {
-                if (file.exists())
-                {
-                    // Don't remove files outside the cache or temp directory.
-                    String parent = file.getParent();
-                    if (!(parent.startsWith(this.getWriteLocation().getPath())
-                        || parent.startsWith(Configuration.getSystemTempDirectory())))
-                        return;
+                // Don't remove files outside the cache or temp directory.
+                String parent = file.getParent();
+                if (parent == null || !(parent.startsWith(this.getWriteLocation().getPath())
+                    || parent.startsWith(Configuration.getSystemTempDirectory())))
+                    return;
 
+                if (file.exists())
                     file.delete();
-                }
+
+                // Remove the file from the index even if it no longer exists, since it may have been deleted outside
+                // the file store.
+                if (this.index != null)
+                    this.index.fileRemoved(file);
             }
         }
         catch (java.net.URISyntaxException e)
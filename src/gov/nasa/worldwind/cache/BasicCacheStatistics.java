@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link CacheStatistics} kept by {@link BasicMemoryCache} and {@link ConcurrentMemoryCache}. Counters are
+ * updated without locking. Percentiles of the time spent making space are computed over a window of the most recent
+ * invocations.
+ */
+public class BasicCacheStatistics implements CacheStatistics
+{
+    /** The number of most recent make-space durations the percentiles are computed from. */
+    protected static final int MAKE_SPACE_SAMPLE_WINDOW = 1024;
+
+    protected final MemoryCache cache;
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder adds = new LongAdder();
+    protected final LongAdder capacityEvictions = new LongAdder();
+    protected final LongAdder replacementEvictions = new LongAdder();
+    protected final LongAdder evictedSize = new LongAdder();
+    protected final long[] makeSpaceSamples = new long[MAKE_SPACE_SAMPLE_WINDOW];
+    protected long makeSpaceCount;
+
+    /**
+     * Creates statistics for the specified cache, which provides the capacity, size and name values.
+     *
+     * @param cache the cache the statistics are kept for.
+     */
+    public BasicCacheStatistics(MemoryCache cache)
+    {
+        this.cache = cache;
+    }
+
+    public void recordHit()
+    {
+        this.hits.increment();
+    }
+
+    public void recordMiss()
+    {
+        this.misses.increment();
+    }
+
+    public void recordAdd()
+    {
+        this.adds.increment();
+    }
+
+    public void recordCapacityEviction(long size)
+    {
+        this.capacityEvictions.increment();
+        this.evictedSize.add(size);
+    }
+
+    public void recordReplacement()
+    {
+        this.replacementEvictions.increment();
+    }
+
+    public void recordMakeSpace(long nanos)
+    {
+        synchronized (this.makeSpaceSamples)
+        {
+            this.makeSpaceSamples[(int) (this.makeSpaceCount++ % MAKE_SPACE_SAMPLE_WINDOW)] = nanos;
+        }
+    }
+
+    public String getName()
+    {
+        return this.cache.getName();
+    }
+
+    public long getCapacity()
+    {
+        return this.cache.getCapacity();
+    }
+
+    public long getUsedCapacity()
+    {
+        return this.cache.getUsedCapacity();
+    }
+
+    public int getNumObjects()
+    {
+        return this.cache.getNumObjects();
+    }
+
+    public long getHitCount()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return this.misses.sum();
+    }
+
+    public double getHitRate()
+    {
+        long hits = this.hits.sum();
+        long lookups = hits + this.misses.sum();
+
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    public long getAddCount()
+    {
+        return this.adds.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return this.capacityEvictions.sum() + this.replacementEvictions.sum();
+    }
+
+    public long getCapacityEvictionCount()
+    {
+        return this.capacityEvictions.sum();
+    }
+
+    public long getReplacementEvictionCount()
+    {
+        return this.replacementEvictions.sum();
+    }
+
+    public long getEvictedSize()
+    {
+        return this.evictedSize.sum();
+    }
+
+    public long getMakeSpaceCount()
+    {
+        synchronized (this.makeSpaceSamples)
+        {
+            return this.makeSpaceCount;
+        }
+    }
+
+    public long getMakeSpaceTimeP50()
+    {
+        return this.getMakeSpaceTimePercentile(0.5);
+    }
+
+    public long getMakeSpaceTimeP99()
+    {
+        return this.getMakeSpaceTimePercentile(0.99);
+    }
+
+    /**
+     * Returns the specified percentile of the time spent making space, over the most recent invocations.
+     *
+     * @param fraction the percentile as a fraction in the range [0, 1].
+     *
+     * @return the percentile in nanoseconds, or 0 if the cache never had to make space.
+     */
+    public long getMakeSpaceTimePercentile(double fraction)
+    {
+        long[] samples;
+        synchronized (this.makeSpaceSamples)
+        {
+            int n = (int) Math.min(this.makeSpaceCount, MAKE_SPACE_SAMPLE_WINDOW);
+            samples = Arrays.copyOf(this.makeSpaceSamples, n);
+        }
+
+        if (samples.length == 0)
+            return 0;
+
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(fraction * samples.length) - 1;
+
+        return samples[Math.max(0, Math.min(index, samples.length - 1))];
+    }
+
+    public void reset()
+    {
+        this.hits.reset();
+        this.misses.reset();
+        this.adds.reset();
+        this.capacityEvictions.reset();
+        this.replacementEvictions.reset();
+        this.evictedSize.reset();
+
+        synchronized (this.makeSpaceSamples)
+        {
+            this.makeSpaceCount = 0;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheStatistics " + this.getName() + " hits = " + this.getHitCount() + " misses = "
+            + this.getMissCount() + " adds = " + this.getAddCount() + " evictions = " + this.getEvictionCount()
+            + " evicted size = " + this.getEvictedSize();
+    }
+}
@@ -15,6 +15,7 @@ import java.io.*;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Basic implementation of {@link FileStore}.
@@ -39,7 +40,13 @@ public class BasicDataFileStore extends AbstractFileStore
     );
 
     /** The map of cached entries. */
-    protected BasicMemoryCache db = new BasicMemoryCache((long) 3e5, (long) 5e5);
+    protected MemoryCache db = new ConcurrentMemoryCache((long) 3e5, (long) 5e5);
+    /**
+     * The futures of the retrievals in progress, keyed by address. A request for an address that is already being
+     * retrieved joins the existing retrieval rather than starting another one.
+     */
+    protected ConcurrentHashMap<String, CompletableFuture<URL>> pendingRequests =
+        new ConcurrentHashMap<String, CompletableFuture<URL>>();
     /**
      * Absent-resource list to keep track of resources that were requested by requestFile but failed. The default list
      * holds a maximum of 2000 entries, allows 3 attempts separated by 500 milliseconds before marking a resource
@@ -191,7 +198,10 @@ public class BasicDataFileStore extends AbstractFileStore
         return entry != null ? entry.expiration : 0;
     }
 
-    /** Holds information for entries in the cache database. */
+    /**
+     * Holds information for entries in the cache database. Entries are read without locking, so writers must assign
+     * <code>state</code> last.
+     */
     protected static class DBEntry implements Cacheable
     {
         protected final static int NONE = 0;
@@ -199,11 +209,11 @@ public class BasicDataFileStore extends AbstractFileStore
         protected final static int LOCAL = 2;
 
         protected String name;
-        protected String contentType;
-        protected long expiration;
-        protected URL localUrl;
-        protected long lastUpdateTime;
-        protected int state;
+        protected volatile String contentType;
+        protected volatile long expiration;
+        protected volatile URL localUrl;
+        protected volatile long lastUpdateTime;
+        protected volatile int state;
 
         public DBEntry(String name)
         {
@@ -219,7 +229,7 @@ public class BasicDataFileStore extends AbstractFileStore
     }
 
     /** {@inheritDoc} */
-    public synchronized void removeFile(String address)
+    public void removeFile(String address)
     {
         if (address == null)
         {
@@ -240,7 +250,7 @@ public class BasicDataFileStore extends AbstractFileStore
     }
 
     /** {@inheritDoc} */
-    public synchronized URL requestFile(String address)
+    public URL requestFile(String address)
     {
         if (address == null)
         {
@@ -254,8 +264,14 @@ public class BasicDataFileStore extends AbstractFileStore
         return this.requestFile(address, true);
     }
 
-    /** {@inheritDoc} */
-    public synchronized URL requestFile(String address, boolean cacheRemoteFile)
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This method is safe to call concurrently. Requests for files already known to be local are answered from the
+     * file store's in-memory database without locking, and concurrent requests for the same remote file share a single
+     * retrieval.
+     */
+    public URL requestFile(String address, boolean cacheRemoteFile)
     {
         if (address == null)
         {
@@ -264,6 +280,56 @@ public class BasicDataFileStore extends AbstractFileStore
             throw new IllegalStateException(message);
         }
 
+        return this.doRequestFile(address, cacheRemoteFile);
+    }
+
+    /**
+     * Requests a file and returns a future that completes when the file is available locally. If the file exists
+     * locally the returned future is already complete. Otherwise this initiates a retrieval of the file, or joins a
+     * retrieval already in progress, and the future completes with the URL of the retrieved file when the retrieval
+     * finishes. The future completes with null if the file cannot be retrieved.
+     * <p/>
+     * The future also completes with null when the retrieval service rejects the retrieval or cancels it, for example
+     * because it remained queued too long. If the service is already running a retrieval of the same URL, the request
+     * stays pending until that retrieval completes it, or until a later request restarts it after the request timeout.
+     * Retrieval services whose futures don't support {@link RetrievalFuture#whenDone(Runnable)} complete the future
+     * only when the retrieval is post-processed, so callers of those services should apply a timeout to the returned
+     * future.
+     *
+     * @param address         the file address: either a local file, a URL, or a path relative to the root of the file
+     *                        store.
+     * @param cacheRemoteFile <code>true</code> to store remote files in the World Wind cache, or <code>false</code> to
+     *                        store remote files in a temporary location. Has no effect if the address is a local file.
+     *
+     * @return a future for the file's local URL.
+     *
+     * @throws IllegalArgumentException if the <code>address</code> is <code>null</code>.
+     */
+    public CompletableFuture<URL> requestFileAsync(String address, boolean cacheRemoteFile)
+    {
+        if (address == null)
+        {
+            String message = Logging.getMessage("nullValue.AddressIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        URL url = this.doRequestFile(address, cacheRemoteFile);
+        if (url != null)
+            return CompletableFuture.completedFuture(url);
+
+        CompletableFuture<URL> future = this.pendingRequests.get(address);
+        if (future != null)
+            return future;
+
+        // Either the resource is marked absent, or the request could not be started. Check once more in case the
+        // retrieval completed in the meantime.
+        DBEntry entry = (DBEntry) this.db.getObject(address);
+        return CompletableFuture.completedFuture(entry != null && entry.state == DBEntry.LOCAL ? entry.localUrl : null);
+    }
+
+    protected URL doRequestFile(String address, boolean cacheRemoteFile)
+    {
         if (this.getAbsentResourceList().isResourceAbsent(address))
             return null;
 
@@ -320,7 +386,7 @@ public class BasicDataFileStore extends AbstractFileStore
      *
      * @throws IllegalArgumentException if the specified address is null.
      */
-    protected synchronized URL getLocalFileUrl(String address, URL retrievalUrl, boolean searchLocalCache)
+    protected URL getLocalFileUrl(String address, URL retrievalUrl, boolean searchLocalCache)
     {
         if (address == null)
         {
@@ -443,19 +509,90 @@ public class BasicDataFileStore extends AbstractFileStore
      * @param saveInLocalCache <code>true</code> to add the file to the cache, or <code>false</code> to save it in a
      *                         temporary location.
      */
-    protected synchronized void makeLocal(String address, URL url, boolean saveInLocalCache)
+    protected void makeLocal(String address, URL url, boolean saveInLocalCache)
     {
         if (WorldWind.getNetworkStatus().isHostUnavailable(url) || !WorldWind.getRetrievalService().isAvailable())
             return;
 
+        // Only the thread that registers the pending request starts the retrieval. A pending request that has timed out
+        // is restarted, but keeps its future so that callers waiting on it are notified when the new attempt finishes.
+        CompletableFuture<URL> future = new CompletableFuture<URL>();
+        CompletableFuture<URL> existing = this.pendingRequests.putIfAbsent(address, future);
+        if (existing != null)
+        {
+            if (!this.isRequestTimedOut(address))
+                return; // a retrieval is in progress
+
+            synchronized (existing)
+            {
+                // Another thread may have restarted or finished the retrieval while this one waited.
+                if (this.pendingRequests.get(address) == existing && this.isRequestTimedOut(address))
+                    this.startRetrieval(address, url, saveInLocalCache);
+            }
+
+            return;
+        }
+
+        // Start the retrieval while holding the future's monitor, so that a thread that sees the future before the
+        // retrieval's database entry exists waits for it rather than starting a second retrieval.
+        synchronized (future)
+        {
+            this.startRetrieval(address, url, saveInLocalCache);
+        }
+    }
+
+    protected boolean isRequestTimedOut(String address)
+    {
+        DBEntry entry = (DBEntry) this.db.getObject(address);
+
+        return entry == null || entry.state != DBEntry.PENDING
+            || System.currentTimeMillis() - entry.lastUpdateTime > TIMEOUT;
+    }
+
+    protected void startRetrieval(final String address, URL url, boolean saveInLocalCache)
+    {
         DBEntry newEntry = new DBEntry(address);
-        this.db.add(address, newEntry);
         newEntry.state = DBEntry.PENDING;
+        this.db.add(address, newEntry);
 
         Retriever retriever = URLRetriever.createRetriever(url, new PostProcessor(address, url, saveInLocalCache));
+        if (retriever == null)
+        {
+            this.completeRequest(address, null);
+            return;
+        }
+
+        // Requests are not submitted again while pending, so the retrieval must not be cancelled as unrequested.
+        retriever.setValue(AVKey.RETRIEVAL_REQUESTED_ONCE, true);
 
-        if (retriever != null && !WorldWind.getRetrievalService().contains(retriever))
-            WorldWind.getRetrievalService().runRetriever(retriever);
+        // The retrieval service returns null if it's already running a retrieval of the same URL. That retrieval
+        // completes the request, so the request is left pending. Otherwise complete the request when the retrieval is
+        // done, which covers retrievals the service rejects or cancels without post-processing them.
+        RetrievalFuture future = WorldWind.getRetrievalService().runRetriever(retriever);
+        if (future != null)
+        {
+            future.whenDone(new Runnable()
+            {
+                public void run()
+                {
+                    DBEntry entry = (DBEntry) db.getObject(address);
+                    completeRequest(address, entry != null && entry.state == DBEntry.LOCAL ? entry.localUrl : null);
+                }
+            });
+        }
+    }
+
+    /**
+     * Completes the pending request for the specified address, if any.
+     *
+     * @param address  the address of the request.
+     * @param localUrl the URL of the retrieved file, or null if the retrieval failed.
+     */
+    protected void completeRequest(String address, URL localUrl)
+    {
+        CompletableFuture<URL> future = this.pendingRequests.remove(address);
+        if (future != null)
+            future.complete(localUrl);
     }
 
     protected class PostProcessor extends AbstractRetrievalPostProcessor
@@ -473,6 +610,20 @@ public class BasicDataFileStore extends AbstractFileStore
             this.saveInLocalCache = saveInLocalCache;
         }
 
+        @Override
+        public ByteBuffer run(Retriever retriever)
+        {
+            try
+            {
+                return super.run(retriever);
+            }
+            finally
+            {
+                DBEntry entry = (DBEntry) db.getObject(this.address);
+                completeRequest(this.address, entry != null && entry.state == DBEntry.LOCAL ? entry.localUrl : null);
+            }
+        }
+
         @Override
         protected boolean overwriteExistingFile()
         {
@@ -563,17 +714,17 @@ public class BasicDataFileStore extends AbstractFileStore
      * @param expiration   time (in milliseconds since the Epoch) at which this entry expires, or zero to indicate that
      *                     there is no expiration time.
      */
-    protected synchronized void updateEntry(String address, URL localFileUrl, long expiration)
+    protected void updateEntry(String address, URL localFileUrl, long expiration)
     {
         DBEntry entry = (DBEntry) this.db.getObject(address);
         if (entry == null)
             return;
 
-        entry.state = DBEntry.LOCAL;
         entry.localUrl = localFileUrl;
         entry.contentType = WWIO.makeMimeTypeForSuffix(WWIO.getSuffix(localFileUrl.getPath()));
         entry.expiration = expiration;
         entry.lastUpdateTime = System.currentTimeMillis();
+        entry.state = DBEntry.LOCAL; // assigned last so that unsynchronized readers see a complete entry
     }
 
     /**
@@ -7,6 +7,8 @@
 package gov.nasa.worldwind.cache;
 
 import com.jogamp.opengl.util.texture.Texture;
+import gov.nasa.worldwind.Configuration;
+import gov.nasa.worldwind.avlist.AVKey;
 import gov.nasa.worldwind.util.Logging;
 
 import com.jogamp.opengl.*;
@@ -72,6 +74,9 @@ public class BasicGpuResourceCache implements GpuResourceCache
                 Logging.logger().log(Level.INFO, msg);
             }
         });
+
+        if (Configuration.getBooleanValue(AVKey.CACHE_STATISTICS_JMX_ENABLED, false))
+            CacheStatisticsMBeans.register(this.resources.getName(), this.resources.getStatistics());
     }
 
     @SuppressWarnings({"UnusedParameters"})
@@ -220,6 +225,11 @@ public class BasicGpuResourceCache implements GpuResourceCache
         return this.resources.getLowWater();
     }
 
+    public CacheStatistics getStatistics()
+    {
+        return this.resources.getStatistics();
+    }
+
     protected long computeEntrySize(CacheEntry entry)
     {
         if (entry.resourceType == TEXTURE)
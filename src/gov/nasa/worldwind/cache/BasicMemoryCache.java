@@ -54,6 +54,7 @@ public class BasicMemoryCache implements MemoryCache
     protected AtomicLong currentUsedCapacity = new AtomicLong();
     protected Long lowWater;
     protected String name = "";
+    protected BasicCacheStatistics statistics = new BasicCacheStatistics(this);
 
     protected final Object lock = new Object();
 
@@ -253,6 +254,7 @@ public class BasicMemoryCache implements MemoryCache
             if (existing != null) // replacing
             {
                 this.removeEntry(existing);
+                this.statistics.recordReplacement();
             }
 
             if (this.currentUsedCapacity.get() + clientObjectSize > cap)
@@ -264,6 +266,8 @@ public class BasicMemoryCache implements MemoryCache
             this.entries.putIfAbsent(entry.key, entry);
         }
 
+        this.statistics.recordAdd();
+
         return true;
     }
 
@@ -322,16 +326,26 @@ public class BasicMemoryCache implements MemoryCache
             entry = this.entries.get(key);
 
             if (entry == null)
+            {
+                this.statistics.recordMiss();
                 return null;
+            }
 
             entry.lastUsed = System.nanoTime(); // nanoTime overflows once every 292 years
             // which will result in a slowing of the cache
             // until ww is restarted or the cache is cleared.
         }
 
+        this.statistics.recordHit();
+
         return entry.clientObject;
     }
 
+    public CacheStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
     /** Empties the cache. */
     public void clear()
     {
@@ -383,6 +397,8 @@ public class BasicMemoryCache implements MemoryCache
         if (spaceRequired > this.capacity.get() || spaceRequired < 0)
             return;
 
+        long start = System.nanoTime();
+
         CacheEntry[] timeOrderedEntries = new CacheEntry[this.entries.size()];
         java.util.Arrays.sort(this.entries.values().toArray(timeOrderedEntries)); // TODO
 
@@ -391,9 +407,13 @@ public class BasicMemoryCache implements MemoryCache
         {
             if (i < timeOrderedEntries.length)
             {
-                this.removeEntry(timeOrderedEntries[i++]);
+                CacheEntry entry = timeOrderedEntries[i++];
+                this.removeEntry(entry);
+                this.statistics.recordCapacityEviction(entry.clientObjectSize);
             }
         }
+
+        this.statistics.recordMakeSpace(System.nanoTime() - start);
     }
 
     /**
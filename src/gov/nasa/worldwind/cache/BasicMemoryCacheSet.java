@@ -5,6 +5,8 @@
  */
 package gov.nasa.worldwind.cache;
 
+import gov.nasa.worldwind.Configuration;
+import gov.nasa.worldwind.avlist.AVKey;
 import gov.nasa.worldwind.util.*;
 
 import java.util.*;
@@ -60,6 +62,9 @@ public class BasicMemoryCacheSet implements MemoryCacheSet
 
         this.caches.put(key, cache);
 
+        if (Configuration.getBooleanValue(AVKey.CACHE_STATISTICS_JMX_ENABLED, false))
+            CacheStatisticsMBeans.register(key, cache.getStatistics());
+
         return cache;
     }
 
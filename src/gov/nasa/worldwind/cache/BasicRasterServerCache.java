@@ -9,6 +9,7 @@ package gov.nasa.worldwind.cache;
 import gov.nasa.worldwind.util.Logging;
 
 import java.lang.ref.*;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -28,6 +29,12 @@ import java.util.concurrent.locks.ReentrantLock;
  * an internal <code>MemoryMonitorThread</code>. Once the phantom reference is added to the reference queue, the entire
  * cached content will be released. This approach allows to use almost entire available heap memory to cache rasters and
  * release memory when more memory is needed to the application itself.
+ * <p/>
+ * The cache accounts for its entries in a {@link MemoryBudget}, which components loading rasters share to reserve
+ * memory before decoding a raster. When a reservation does not fit in the budget, the cache evicts entries by a
+ * cost-aware policy: entries that are cheap to reload relative to their size, and that have not been used recently, are
+ * evicted first. The cost of an entry is the time taken to load it, specified via {@link #add(Object, Object, long,
+ * long)}.
  */
 public class BasicRasterServerCache extends BasicMemoryCache
 {
@@ -41,6 +48,7 @@ public class BasicRasterServerCache extends BasicMemoryCache
     protected Reference<Object> lowMemorySemaphore = null;
 
     protected long timeoutLeastRecentUseInNanoSeconds = DEFAULT_LEAST_RECENTLY_USED_TIMEOUT_NSEC;
+    protected final MemoryBudget memoryBudget;
 
     private final ReentrantLock removalLock = new ReentrantLock();
 
@@ -53,6 +61,17 @@ public class BasicRasterServerCache extends BasicMemoryCache
         super(0L,
             Runtime.getRuntime().freeMemory() + Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory());
 
+        // Leave room for the memory the application needs apart from rasters, including the low memory semaphore.
+        this.memoryBudget = new MemoryBudget(Math.max(this.getCapacity() - DEFAULT_INACCESSIBLE_MEMORY_SIZE,
+            this.getCapacity() / 2));
+        this.memoryBudget.setReclaimer(new MemoryBudget.Reclaimer()
+        {
+            public long reclaim(long bytes)
+            {
+                return BasicRasterServerCache.this.reclaim(bytes);
+            }
+        });
+
         new Thread(new MemoryMonitorThread()).start();
         new Thread(new CachePrunerThread()).start();
     }
@@ -63,10 +82,38 @@ public class BasicRasterServerCache extends BasicMemoryCache
         this.inaccessibleMemorySize.set(inaccessibleMemorySize);
     }
 
+    /**
+     * Returns the budget in which this cache accounts for its entries. Components loading rasters into this cache
+     * should reserve memory in the budget before decoding a raster, and release it once the raster is added to the
+     * cache.
+     *
+     * @return this cache's memory budget.
+     */
+    public MemoryBudget getMemoryBudget()
+    {
+        return this.memoryBudget;
+    }
+
     @Override
     public boolean add(Object key, Object clientObject, long clientObjectSize)
     {
-        BasicMemoryCache.CacheEntry entry = new BasicMemoryCache.CacheEntry(key, clientObject, clientObjectSize);
+        return this.add(key, clientObject, clientObjectSize, clientObjectSize);
+    }
+
+    /**
+     * Adds an object to the cache, specifying the cost of loading the object again if it is evicted. Entries with a
+     * lower cost per byte are evicted before those with a higher cost per byte when memory is needed.
+     *
+     * @param key              the unique reference key that identifies this object.
+     * @param clientObject     the actual object to be cached.
+     * @param clientObjectSize the size of the object in bytes.
+     * @param cost             the cost of loading the object, in nanoseconds.
+     *
+     * @return true if the object was added, otherwise false.
+     */
+    public boolean add(Object key, Object clientObject, long clientObjectSize, long cost)
+    {
+        CostEntry entry = new CostEntry(key, clientObject, clientObjectSize, cost);
 
         synchronized (this.lock)
         {
@@ -76,16 +123,96 @@ public class BasicRasterServerCache extends BasicMemoryCache
             if (existing != null) // replacing
             {
                 this.removeEntry(existing);
+                this.statistics.recordReplacement();
             }
 
             this.currentUsedCapacity.addAndGet(clientObjectSize);
             this.entries.putIfAbsent(entry.key, entry);
+            this.memoryBudget.forceReserve(clientObjectSize);
             this.updateMemorySemaphore();
         }
 
+        this.statistics.recordAdd();
+
         return true;
     }
 
+    @Override
+    protected void removeEntry(CacheEntry entry) // MUST BE CALLED WITHIN SYNCHRONIZED
+    {
+        if (this.entries.containsKey(entry.key))
+        {
+            super.removeEntry(entry);
+            this.memoryBudget.release(entry.clientObjectSize);
+        }
+    }
+
+    /**
+     * Evicts entries until at least the specified number of bytes are freed or the cache is empty. Entries are evicted
+     * in increasing order of their retention score, see {@link #computeRetentionScore(BasicMemoryCache.CacheEntry,
+     * long)}.
+     *
+     * @param bytes the number of bytes needed.
+     *
+     * @return the number of bytes freed.
+     */
+    protected long reclaim(long bytes)
+    {
+        long freed = 0;
+
+        synchronized (this.lock)
+        {
+            final long now = System.nanoTime();
+            CacheEntry[] candidates = this.entries.values().toArray(new CacheEntry[this.entries.size()]);
+            final double[] scores = new double[candidates.length];
+            Integer[] order = new Integer[candidates.length];
+            for (int i = 0; i < candidates.length; i++)
+            {
+                scores[i] = this.computeRetentionScore(candidates[i], now);
+                order[i] = i;
+            }
+
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                public int compare(Integer a, Integer b)
+                {
+                    return Double.compare(scores[a], scores[b]);
+                }
+            });
+
+            for (int i = 0; i < order.length && freed < bytes; i++)
+            {
+                CacheEntry entry = candidates[order[i]];
+                if (this.entries.get(entry.key) != entry)
+                    continue;
+
+                this.removeEntry(entry);
+                this.statistics.recordCapacityEviction(entry.clientObjectSize);
+                freed += entry.clientObjectSize;
+            }
+        }
+
+        return freed;
+    }
+
+    /**
+     * Computes how valuable it is to keep an entry in the cache. The score is the entry's load cost per byte, divided
+     * by one plus the number of seconds since the entry was last used.
+     *
+     * @param entry the entry to score.
+     * @param now   the current time, in nanoseconds.
+     *
+     * @return the entry's retention score. Entries with lower scores are evicted first.
+     */
+    protected double computeRetentionScore(CacheEntry entry, long now)
+    {
+        long cost = (entry instanceof CostEntry) ? ((CostEntry) entry).cost : entry.clientObjectSize;
+        double costPerByte = (double) cost / Math.max(entry.clientObjectSize, 1);
+        double idleSeconds = Math.max(now - entry.lastUsed, 0) / 1e9;
+
+        return costPerByte / (1 + idleSeconds);
+    }
+
     protected void updateMemorySemaphore()
     {
         try
@@ -137,6 +264,17 @@ public class BasicRasterServerCache extends BasicMemoryCache
         }
     }
 
+    protected static class CostEntry extends CacheEntry
+    {
+        protected long cost;
+
+        public CostEntry(Object key, Object clientObject, long clientObjectSize, long cost)
+        {
+            super(key, clientObject, clientObjectSize);
+            this.cost = cost;
+        }
+    }
+
     private class MemoryMonitorThread implements Runnable
     {
         public void run()
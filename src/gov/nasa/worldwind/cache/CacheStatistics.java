@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+/**
+ * Usage counters of a {@link MemoryCache} or {@link GpuResourceCache}. Counters accumulate from the creation of the
+ * cache or from the last call to {@link #reset()}. Sizes are in cache units, which for most World Wind caches are
+ * bytes.
+ * <p/>
+ * The getters follow the JavaBeans naming conventions so that instances can be published as JMX MBeans, see {@link
+ * CacheStatisticsMBeans}.
+ */
+public interface CacheStatistics
+{
+    /** @return the name of the cache. */
+    String getName();
+
+    /** @return the capacity of the cache. */
+    long getCapacity();
+
+    /** @return the capacity currently used by cached entries. */
+    long getUsedCapacity();
+
+    /** @return the number of entries currently in the cache. */
+    int getNumObjects();
+
+    /** @return the number of lookups that found an entry. */
+    long getHitCount();
+
+    /** @return the number of lookups that did not find an entry. */
+    long getMissCount();
+
+    /** @return the ratio of hits to lookups, or 0 if there were no lookups. */
+    double getHitRate();
+
+    /** @return the number of entries added to the cache. */
+    long getAddCount();
+
+    /** @return the number of entries removed by the cache, either to make space or because they were replaced. */
+    long getEvictionCount();
+
+    /** @return the number of entries removed to make space for new entries. */
+    long getCapacityEvictionCount();
+
+    /** @return the number of entries removed because an entry with the same key was added. */
+    long getReplacementEvictionCount();
+
+    /** @return the total size of the entries removed to make space for new entries. */
+    long getEvictedSize();
+
+    /** @return the number of times the cache had to make space for a new entry. */
+    long getMakeSpaceCount();
+
+    /** @return the median time in nanoseconds spent making space, over the most recent invocations. */
+    long getMakeSpaceTimeP50();
+
+    /** @return the 99th percentile time in nanoseconds spent making space, over the most recent invocations. */
+    long getMakeSpaceTimeP99();
+
+    /** Sets all counters to zero. */
+    void reset();
+}
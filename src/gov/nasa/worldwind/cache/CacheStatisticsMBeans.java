@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.Logging;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+
+/**
+ * Publishes {@link CacheStatistics} as MBeans of the platform MBean server, under the object name
+ * <code>gov.nasa.worldwind:type=Cache,name=&lt;cache key&gt;</code>. Registration is enabled by setting the {@link
+ * gov.nasa.worldwind.avlist.AVKey#CACHE_STATISTICS_JMX_ENABLED} configuration property to true.
+ */
+public class CacheStatisticsMBeans
+{
+    protected static final String DOMAIN = "gov.nasa.worldwind";
+
+    /**
+     * Registers the statistics under the specified key, replacing any MBean previously registered under that key.
+     * Registration failures are logged and otherwise ignored.
+     *
+     * @param key        the key identifying the cache.
+     * @param statistics the statistics to publish.
+     */
+    public static void register(String key, CacheStatistics statistics)
+    {
+        if (key == null || statistics == null)
+            return;
+
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = createObjectName(key);
+
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+
+            server.registerMBean(new StandardMBean(statistics, CacheStatistics.class), name);
+        }
+        catch (Exception e)
+        {
+            Logging.logger().log(Level.WARNING, Logging.getMessage("CacheStatistics.RegistrationFailed", key), e);
+        }
+    }
+
+    /**
+     * Removes the MBean registered under the specified key, if any.
+     *
+     * @param key the key identifying the cache.
+     */
+    public static void unregister(String key)
+    {
+        if (key == null)
+            return;
+
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = createObjectName(key);
+
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+        }
+        catch (Exception e)
+        {
+            Logging.logger().log(Level.WARNING, Logging.getMessage("CacheStatistics.RegistrationFailed", key), e);
+        }
+    }
+
+    protected static ObjectName createObjectName(String key) throws MalformedObjectNameException
+    {
+        return new ObjectName(DOMAIN + ":type=Cache,name=" + ObjectName.quote(key));
+    }
+}
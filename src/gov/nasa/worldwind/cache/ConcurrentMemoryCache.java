@@ -0,0 +1,611 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.Configuration;
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MemoryCache} that partitions its entries into independently locked segments. Each segment keeps its entries
+ * in least-recently-used order, so lookups only contend with other operations on the same segment and evicting an
+ * entry costs a constant amount of work per segment rather than a sort of the whole cache. Capacity and low water have
+ * the same meaning as in {@link BasicMemoryCache}: when an add would exceed the capacity, the least recently used
+ * entries of all segments are removed until the requested space is free and the used capacity is at or below the low
+ * water level.
+ * <p/>
+ * {@link MemoryCache.CacheListener}s are notified on the thread that removed the entry unless a listener executor is
+ * specified via {@link #setListenerExecutor(java.util.concurrent.Executor)}, in which case notifications are dispatched
+ * through that executor. Listeners that must run on a particular thread, such as those releasing OpenGL resources,
+ * should not be used with an asynchronous executor.
+ * <p/>
+ * The implementation used for World Wind's shared caches is selected through the {@link
+ * gov.nasa.worldwind.avlist.AVKey#MEMORY_CACHE_CLASS_NAME} configuration property, see {@link
+ * gov.nasa.worldwind.WorldWind#createMemoryCache(long, long)}.
+ */
+public class ConcurrentMemoryCache implements MemoryCache
+{
+    /** The number of segments used when none is specified and none is configured. */
+    protected static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    protected static class CacheEntry
+    {
+        protected final Object key;
+        protected final Object clientObject;
+        protected final long clientObjectSize;
+        protected long lastUsed;
+
+        public CacheEntry(Object key, Object clientObject, long clientObjectSize)
+        {
+            this.key = key;
+            this.clientObject = clientObject;
+            this.clientObjectSize = clientObjectSize;
+            this.lastUsed = System.nanoTime();
+        }
+
+        public String toString()
+        {
+            return key.toString() + " " + clientObject.toString() + " " + lastUsed + " " + clientObjectSize;
+        }
+    }
+
+    /**
+     * A segment of the cache. Iteration order of the underlying map is access order, so the first entry is always the
+     * least recently used one of the segment. All access must be synchronized on the segment.
+     */
+    protected static class Segment extends LinkedHashMap<Object, CacheEntry>
+    {
+        private static final long serialVersionUID = 1L;
+
+        public Segment()
+        {
+            super(16, 0.75f, true);
+        }
+
+        /** @return the least recently used entry of this segment, or null if the segment is empty. */
+        public CacheEntry eldest()
+        {
+            return this.isEmpty() ? null : this.values().iterator().next();
+        }
+    }
+
+    protected final Segment[] segments;
+    protected final int segmentMask;
+    protected final Object evictionLock = new Object();
+    protected CopyOnWriteArrayList<MemoryCache.CacheListener> listeners =
+        new CopyOnWriteArrayList<MemoryCache.CacheListener>();
+    protected AtomicLong capacity = new AtomicLong();
+    protected AtomicLong currentUsedCapacity = new AtomicLong();
+    protected volatile long lowWater;
+    protected volatile Executor listenerExecutor;
+    protected String name = "";
+    protected BasicCacheStatistics statistics = new BasicCacheStatistics(this);
+
+    /**
+     * Constructs a new cache using <code>capacity</code> for maximum size, and <code>loWater</code> for the low water.
+     * The number of segments is taken from the {@link gov.nasa.worldwind.avlist.AVKey#MEMORY_CACHE_CONCURRENCY_LEVEL}
+     * configuration property, or is 16 if that property is not specified.
+     *
+     * @param loWater  the low water level.
+     * @param capacity the maximum capacity.
+     */
+    public ConcurrentMemoryCache(long loWater, long capacity)
+    {
+        this(loWater, capacity,
+            Configuration.getIntegerValue(AVKey.MEMORY_CACHE_CONCURRENCY_LEVEL, DEFAULT_CONCURRENCY_LEVEL));
+    }
+
+    /**
+     * Constructs a new cache using <code>capacity</code> for maximum size, <code>loWater</code> for the low water and
+     * the specified number of independently locked segments. The number of segments is rounded up to the next power of
+     * two.
+     *
+     * @param loWater          the low water level.
+     * @param capacity         the maximum capacity.
+     * @param concurrencyLevel the estimated number of threads concurrently accessing the cache.
+     *
+     * @throws IllegalArgumentException if <code>concurrencyLevel</code> is less than 1.
+     */
+    public ConcurrentMemoryCache(long loWater, long capacity, int concurrencyLevel)
+    {
+        if (concurrencyLevel < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "concurrencyLevel < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        int numSegments = 1;
+        while (numSegments < concurrencyLevel)
+        {
+            numSegments <<= 1;
+        }
+
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++)
+        {
+            this.segments[i] = new Segment();
+        }
+        this.segmentMask = numSegments - 1;
+
+        this.capacity.set(capacity);
+        this.lowWater = loWater;
+    }
+
+    /**
+     * Returns the executor used to notify cache listeners of removed entries.
+     *
+     * @return the listener executor, or null if listeners are notified on the thread removing the entry.
+     */
+    public Executor getListenerExecutor()
+    {
+        return this.listenerExecutor;
+    }
+
+    /**
+     * Specifies the executor used to notify cache listeners of removed entries. If null, listeners are notified
+     * synchronously on the thread that removed the entry, which is the default.
+     *
+     * @param executor the listener executor. May be null.
+     */
+    public void setListenerExecutor(Executor executor)
+    {
+        this.listenerExecutor = executor;
+    }
+
+    /** @return the number of objects currently stored in this cache. */
+    public int getNumObjects()
+    {
+        int count = 0;
+
+        for (Segment segment : this.segments)
+        {
+            synchronized (segment)
+            {
+                count += segment.size();
+            }
+        }
+
+        return count;
+    }
+
+    /** @return the capacity of the cache. */
+    public long getCapacity()
+    {
+        return this.capacity.get();
+    }
+
+    /** @return the number of cache units that the cache currently holds. */
+    public long getUsedCapacity()
+    {
+        return this.currentUsedCapacity.get();
+    }
+
+    /** @return the amount of free space left in the cache (in cache units). */
+    public long getFreeCapacity()
+    {
+        return Math.max(this.capacity.get() - this.currentUsedCapacity.get(), 0);
+    }
+
+    public void setName(String name)
+    {
+        this.name = name != null ? name : "";
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Adds a cache listener, which is notified whenever an item is removed from the cache.
+     *
+     * @param listener The new <code>CacheListener</code>.
+     *
+     * @throws IllegalArgumentException is <code>listener</code> is null.
+     */
+    public void addCacheListener(MemoryCache.CacheListener listener)
+    {
+        if (listener == null)
+        {
+            String message = Logging.getMessage("BasicMemoryCache.nullListenerAdded");
+            Logging.logger().warning(message);
+            throw new IllegalArgumentException(message);
+        }
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a cache listener, objects using this listener will no longer receive notification of cache events.
+     *
+     * @param listener The <code>CacheListener</code> to remove.
+     *
+     * @throws IllegalArgumentException if <code>listener</code> is null.
+     */
+    public void removeCacheListener(MemoryCache.CacheListener listener)
+    {
+        if (listener == null)
+        {
+            String message = Logging.getMessage("BasicMemoryCache.nullListenerRemoved");
+            Logging.logger().warning(message);
+            throw new IllegalArgumentException(message);
+        }
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Sets the new capacity for the cache. As with {@link BasicMemoryCache#setCapacity(long)}, entries are not removed
+     * until the next add, and the low water level remains unchanged.
+     *
+     * @param newCapacity the new capacity of the cache.
+     */
+    public void setCapacity(long newCapacity)
+    {
+        this.capacity.set(newCapacity);
+    }
+
+    /**
+     * Sets the new low water level in cache units. When the cache fills, it removes items until it reaches the low
+     * water level. The value is ignored if it is negative or not less than the current capacity.
+     *
+     * @param loWater the new low water level.
+     */
+    public void setLowWater(long loWater)
+    {
+        if (loWater < this.capacity.get() && loWater >= 0)
+        {
+            this.lowWater = loWater;
+        }
+    }
+
+    /**
+     * Returns the low water level in cache units.
+     *
+     * @return the low water level.
+     */
+    public long getLowWater()
+    {
+        return this.lowWater;
+    }
+
+    /**
+     * Returns true if the cache contains the item referenced by key. This does not mark the item as used.
+     *
+     * @param key The key of a specific object.
+     *
+     * @return true if the cache holds the item referenced by key.
+     *
+     * @throws IllegalArgumentException if <code>key</code> is null.
+     */
+    public boolean contains(Object key)
+    {
+        if (key == null)
+        {
+            String msg = Logging.getMessage("nullValue.KeyIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        Segment segment = this.segmentFor(key);
+        synchronized (segment)
+        {
+            return segment.containsKey(key);
+        }
+    }
+
+    /**
+     * Adds an object to the cache. The add fails if the object or key is null, or if the size is zero, negative or
+     * greater than the maximum capacity.
+     *
+     * @param key              The unique reference key that identifies this object.
+     * @param clientObject     The actual object to be cached.
+     * @param clientObjectSize The size of the object in cache units.
+     *
+     * @return returns true if clientObject was added, false otherwise.
+     */
+    public boolean add(Object key, Object clientObject, long clientObjectSize)
+    {
+        long cap = this.capacity.get();
+
+        if (key == null || clientObject == null || clientObjectSize <= 0 || clientObjectSize > cap)
+        {
+            String message = Logging.getMessage("BasicMemoryCache.CacheItemNotAdded");
+
+            if (clientObjectSize > cap)
+            {
+                message += " - " + Logging.getMessage("BasicMemoryCache.ItemTooLargeForCache");
+            }
+
+            Logging.logger().warning(message);
+
+            return false;
+        }
+
+        // Remove a replaced entry first so that its space is available to the new one.
+        if (this.removeEntry(key))
+            this.statistics.recordReplacement();
+
+        if (this.currentUsedCapacity.get() + clientObjectSize > cap)
+        {
+            this.makeSpace(clientObjectSize);
+        }
+
+        CacheEntry entry = new CacheEntry(key, clientObject, clientObjectSize);
+        CacheEntry replaced;
+
+        Segment segment = this.segmentFor(key);
+        synchronized (segment)
+        {
+            replaced = segment.put(key, entry);
+            this.currentUsedCapacity.addAndGet(clientObjectSize);
+            if (replaced != null) // another thread added the same key concurrently
+                this.currentUsedCapacity.addAndGet(-replaced.clientObjectSize);
+        }
+
+        if (replaced != null)
+        {
+            this.statistics.recordReplacement();
+            this.notifyRemoval(replaced);
+        }
+
+        this.statistics.recordAdd();
+
+        // Concurrent adds may have overrun the capacity between the check above and the insertion.
+        if (this.currentUsedCapacity.get() > cap)
+            this.makeSpace(0);
+
+        return true;
+    }
+
+    public boolean add(Object key, Cacheable clientObject)
+    {
+        return this.add(key, clientObject, clientObject.getSizeInBytes());
+    }
+
+    /**
+     * Remove the object reference by key from the cache. If no object with the corresponding key is found, this method
+     * returns immediately.
+     *
+     * @param key the key of the object to be removed.
+     */
+    public void remove(Object key)
+    {
+        if (key == null)
+        {
+            Logging.logger().finer("nullValue.KeyIsNull");
+
+            return;
+        }
+
+        this.removeEntry(key);
+    }
+
+    /**
+     * Removes the entry with the specified key and notifies the cache listeners.
+     *
+     * @param key the key of the entry to remove.
+     *
+     * @return true if an entry was removed, false if the cache does not contain the key.
+     */
+    protected boolean removeEntry(Object key)
+    {
+        CacheEntry entry;
+
+        Segment segment = this.segmentFor(key);
+        synchronized (segment)
+        {
+            entry = segment.remove(key);
+            if (entry != null)
+                this.currentUsedCapacity.addAndGet(-entry.clientObjectSize);
+        }
+
+        if (entry != null)
+            this.notifyRemoval(entry);
+
+        return entry != null;
+    }
+
+    /**
+     * Obtain the object referenced by key without removing it, and mark it as the most recently used entry of its
+     * segment.
+     *
+     * @param key The key for the object to be found.
+     *
+     * @return the object referenced by key if it is present, null otherwise.
+     */
+    public Object getObject(Object key)
+    {
+        if (key == null)
+        {
+            Logging.logger().finer("nullValue.KeyIsNull");
+
+            return null;
+        }
+
+        Segment segment = this.segmentFor(key);
+        synchronized (segment)
+        {
+            CacheEntry entry = segment.get(key); // moves the entry to the tail of the segment's access order
+            if (entry == null)
+            {
+                this.statistics.recordMiss();
+                return null;
+            }
+
+            entry.lastUsed = System.nanoTime();
+            this.statistics.recordHit();
+
+            return entry.clientObject;
+        }
+    }
+
+    public CacheStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
+    /** Empties the cache. */
+    public void clear()
+    {
+        for (Segment segment : this.segments)
+        {
+            ArrayList<CacheEntry> removed;
+
+            synchronized (segment)
+            {
+                removed = new ArrayList<CacheEntry>(segment.values());
+                segment.clear();
+                for (CacheEntry entry : removed)
+                {
+                    this.currentUsedCapacity.addAndGet(-entry.clientObjectSize);
+                }
+            }
+
+            for (CacheEntry entry : removed)
+            {
+                this.notifyRemoval(entry);
+            }
+        }
+    }
+
+    protected Segment segmentFor(Object key)
+    {
+        // Spread the hash so that keys differing only in their upper bits fall into different segments.
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+
+        return this.segments[h & this.segmentMask];
+    }
+
+    /**
+     * Makes at least <code>spaceRequired</code> space in the cache, and continues to remove entries until the used
+     * capacity is at or below the low water level. Entries are removed in least recently used order across all
+     * segments. Only one thread evicts at a time; others adding concurrently wait for it to finish.
+     *
+     * @param spaceRequired the amount of space required.
+     */
+    protected void makeSpace(long spaceRequired)
+    {
+        if (spaceRequired > this.capacity.get() || spaceRequired < 0)
+            return;
+
+        synchronized (this.evictionLock)
+        {
+            long start = System.nanoTime();
+
+            while (this.getFreeCapacity() < spaceRequired || this.getUsedCapacity() > this.lowWater)
+            {
+                if (!this.evictEldest())
+                    break; // cache is empty
+            }
+
+            this.statistics.recordMakeSpace(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Removes the least recently used entry in the cache. The segment heads are each a segment's least recently used
+     * entry, so this inspects one entry per segment.
+     *
+     * @return true if an entry was removed, false if the cache is empty.
+     */
+    protected boolean evictEldest()
+    {
+        // Try a few times in case concurrent access moves the selected entry before it can be removed.
+        for (int attempt = 0; attempt < 4; attempt++)
+        {
+            Segment victimSegment = null;
+            CacheEntry victim = null;
+
+            for (Segment segment : this.segments)
+            {
+                synchronized (segment)
+                {
+                    CacheEntry eldest = segment.eldest();
+                    if (eldest != null && (victim == null || eldest.lastUsed < victim.lastUsed))
+                    {
+                        victim = eldest;
+                        victimSegment = segment;
+                    }
+                }
+            }
+
+            if (victim == null)
+                return false;
+
+            boolean removed;
+            synchronized (victimSegment)
+            {
+                removed = victimSegment.get(victim.key) == victim && victimSegment.remove(victim.key) != null;
+                if (removed)
+                    this.currentUsedCapacity.addAndGet(-victim.clientObjectSize);
+            }
+
+            if (removed)
+            {
+                this.statistics.recordCapacityEviction(victim.clientObjectSize);
+                this.notifyRemoval(victim);
+                return true;
+            }
+        }
+
+        return this.currentUsedCapacity.get() > 0;
+    }
+
+    protected void notifyRemoval(final CacheEntry entry)
+    {
+        if (this.listeners.isEmpty())
+            return;
+
+        Executor executor = this.listenerExecutor;
+        if (executor == null)
+        {
+            this.doNotifyRemoval(entry);
+            return;
+        }
+
+        executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                doNotifyRemoval(entry);
+            }
+        });
+    }
+
+    protected void doNotifyRemoval(CacheEntry entry)
+    {
+        for (MemoryCache.CacheListener listener : this.listeners)
+        {
+            try
+            {
+                listener.entryRemoved(entry.key, entry.clientObject);
+            }
+            catch (Exception e)
+            {
+                listener.removalException(e, entry.key, entry.clientObject);
+            }
+        }
+    }
+
+    /**
+     * a <code>String</code> representation of this object is returned.&nbsp; This representation consists of maximum
+     * size, current used capacity and number of currently cached items.
+     *
+     * @return a <code>String</code> representation of this object.
+     */
+    @Override
+    public String toString()
+    {
+        return "MemoryCache " + this.name + " max size = " + this.getCapacity() + " current size = "
+            + this.currentUsedCapacity.get() + " number of items: " + this.getNumObjects();
+    }
+}
@@ -8,6 +8,7 @@ package gov.nasa.worldwind.cache;
 import gov.nasa.worldwind.WWObject;
 
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Tom Gaskins
@@ -237,4 +238,25 @@ public interface FileStore extends WWObject
      * @throws IllegalArgumentException if the <code>address</code> is <code>null</code>.
      */
     URL requestFile(String address, boolean cacheRemoteFile);
+
+    /**
+     * Requests a file and returns a future for its local URL, rather than requiring the caller to call {@link
+     * #requestFile(String, boolean)} until the file is available. The future is already complete if the file exists
+     * locally, and otherwise completes when a retrieval of the remote file finishes. It completes with
+     * <code>null</code> if the file cannot be retrieved.
+     *
+     * @param address         the file address: either a local file, a URL, or a path relative to the root of the file
+     *                        store.
+     * @param cacheRemoteFile <code>true</code> to store remote files in the World Wind cache, or <code>false</code> to
+     *                        store remote files in a temporary location. Has no effect if the address is a local file.
+     *
+     * @return a future for the file's local URL.
+     *
+     * @throws IllegalArgumentException if the <code>address</code> is <code>null</code>.
+     */
+    default CompletableFuture<URL> requestFileAsync(String address, boolean cacheRemoteFile)
+    {
+        // File stores that don't track their retrievals complete the future with the current state of the file.
+        return CompletableFuture.completedFuture(this.requestFile(address, cacheRemoteFile));
+    }
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.Configuration;
+import gov.nasa.worldwind.util.Logging;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * An in-memory index of the files in the locations of a {@link AbstractFileStore}. Each location is indexed by a single
+ * directory walk, after which existence checks for that location are hash lookups instead of file system probes. The
+ * file store keeps the index current as it creates and removes files. Files created by {@link
+ * AbstractFileStore#newFile(String)} are recorded as unconfirmed until a lookup finds them on disk, since the caller
+ * may not have written them yet.
+ * <p/>
+ * The index also batches the last-used time stamps the file store maintains for its files, and writes them from a
+ * background thread at a fixed interval rather than on every lookup.
+ * <p/>
+ * Files written into a location by means other than the file store are not seen until the location is indexed again.
+ */
+public class FileStoreIndex
+{
+    /** The interval in milliseconds at which batched last-used time stamps are written. */
+    protected static final long MARK_FLUSH_INTERVAL = 10000;
+
+    /** Maps the normalized absolute path of each known file to whether the file has been seen on disk. */
+    protected final ConcurrentHashMap<String, Boolean> files = new ConcurrentHashMap<String, Boolean>();
+    /** The normalized paths of the locations whose walk has completed. */
+    protected final Set<String> indexedLocations = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** The files and directories to mark as used, mapped to the time they were used. */
+    protected final ConcurrentHashMap<File, Long> pendingMarks = new ConcurrentHashMap<File, Long>();
+    protected final ScheduledExecutorService markService;
+
+    public FileStoreIndex()
+    {
+        this.markService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "World Wind File Store Index");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+
+        this.markService.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
+            {
+                flushMarks();
+            }
+        }, MARK_FLUSH_INTERVAL, MARK_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Indexes the specified location on a background thread. Until the walk completes {@link
+     * #isLocationIndexed(java.io.File)} returns false for the location, and the file store probes the file system.
+     *
+     * @param location the location directory.
+     */
+    public void indexLocationLater(final File location)
+    {
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                indexLocation(location);
+            }
+        }, "World Wind File Store Indexer " + location.getPath());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Walks the specified location and adds all regular files in it to the index.
+     *
+     * @param location the location directory.
+     */
+    public void indexLocation(File location)
+    {
+        String locationKey = makeKey(location.getAbsolutePath());
+        this.indexedLocations.remove(locationKey);
+
+        long start = System.currentTimeMillis();
+        int count = 0;
+
+        if (location.exists())
+        {
+            final int[] counter = new int[1];
+            try
+            {
+                Files.walkFileTree(location.toPath(), new SimpleFileVisitor<Path>()
+                {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    {
+                        if (attrs.isRegularFile())
+                        {
+                            files.put(makeKey(file.toAbsolutePath().toString()), Boolean.TRUE);
+                            counter[0]++;
+                        }
+
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e)
+                    {
+                        return FileVisitResult.CONTINUE; // skip unreadable entries
+                    }
+                });
+            }
+            catch (IOException e)
+            {
+                String message = Logging.getMessage("FileStore.ExceptionIndexingLocation", location.getPath());
+                Logging.logger().log(Level.WARNING, message, e);
+                return; // leave the location unindexed so that lookups fall back to the file system
+            }
+            count = counter[0];
+        }
+
+        this.indexedLocations.add(locationKey);
+
+        Logging.logger().fine(Logging.getMessage("FileStore.LocationIndexed", location.getPath(), count,
+            System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Indicates whether the walk of the specified location has completed.
+     *
+     * @param location the location directory.
+     *
+     * @return true if lookups for the location can be answered by the index, otherwise false.
+     */
+    public boolean isLocationIndexed(File location)
+    {
+        return this.indexedLocations.contains(makeKey(location.getAbsolutePath()));
+    }
+
+    /**
+     * Removes the specified location and all files in it from the index.
+     *
+     * @param location the location directory.
+     */
+    public void removeLocation(File location)
+    {
+        String locationKey = makeKey(location.getAbsolutePath());
+        this.indexedLocations.remove(locationKey);
+
+        String prefix = locationKey + "/";
+        for (Iterator<String> iter = this.files.keySet().iterator(); iter.hasNext(); )
+        {
+            if (iter.next().startsWith(prefix))
+                iter.remove();
+        }
+    }
+
+    /**
+     * Indicates whether the index contains the specified file. Files that have been created but not yet seen on disk
+     * are checked once against the file system.
+     *
+     * @param file the file to look up.
+     *
+     * @return true if the file is known to exist, otherwise false.
+     */
+    public boolean contains(File file)
+    {
+        String key = makeKey(file.getAbsolutePath());
+        Boolean confirmed = this.files.get(key);
+
+        if (confirmed == null)
+            return false;
+
+        if (confirmed)
+            return true;
+
+        if (!file.exists())
+            return false;
+
+        this.files.replace(key, Boolean.FALSE, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Records a file that the file store is about to create.
+     *
+     * @param file the new file.
+     */
+    public void fileCreated(File file)
+    {
+        this.files.putIfAbsent(makeKey(file.getAbsolutePath()), Boolean.FALSE);
+    }
+
+    /**
+     * Removes a deleted file from the index.
+     *
+     * @param file the removed file.
+     */
+    public void fileRemoved(File file)
+    {
+        this.files.remove(makeKey(file.getAbsolutePath()));
+        this.pendingMarks.remove(file);
+    }
+
+    /**
+     * Schedules the specified file or directory to be marked as used at the next flush.
+     *
+     * @param file the file or directory to mark.
+     */
+    public void markUsed(File file)
+    {
+        if (file != null)
+            this.pendingMarks.put(file, System.currentTimeMillis());
+    }
+
+    /** Writes the pending last-used time stamps. */
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    public void flushMarks()
+    {
+        try
+        {
+            HashMap<File, Long> directories = new HashMap<File, Long>();
+
+            for (Iterator<Map.Entry<File, Long>> iter = this.pendingMarks.entrySet().iterator(); iter.hasNext(); )
+            {
+                Map.Entry<File, Long> entry = iter.next();
+                iter.remove();
+
+                File file = entry.getKey();
+                if (file.canWrite())
+                    file.setLastModified(entry.getValue());
+
+                // Mark each parent directory once per flush, with the most recent time of its files.
+                File parent = file.isDirectory() ? null : file.getParentFile();
+                if (parent != null)
+                {
+                    Long time = directories.get(parent);
+                    if (time == null || time < entry.getValue())
+                        directories.put(parent, entry.getValue());
+                }
+            }
+
+            for (Map.Entry<File, Long> entry : directories.entrySet())
+            {
+                if (entry.getKey().canWrite())
+                    entry.getKey().setLastModified(entry.getValue());
+            }
+        }
+        catch (Exception e)
+        {
+            Logging.logger().log(Level.FINE, e.getMessage(), e); // time stamps are advisory only
+        }
+    }
+
+    /** Writes any pending time stamps and stops the background thread. */
+    public void dispose()
+    {
+        this.markService.shutdown();
+        this.flushMarks();
+    }
+
+    protected static String makeKey(String path)
+    {
+        String key = path.replace('\\', '/');
+
+        while (key.contains("//"))
+        {
+            key = key.replace("//", "/");
+        }
+
+        if (key.endsWith("/"))
+            key = key.substring(0, key.length() - 1);
+
+        return Configuration.isWindowsOS() ? key.toLowerCase() : key;
+    }
+}
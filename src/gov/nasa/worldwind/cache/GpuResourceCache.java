@@ -162,4 +162,15 @@ public interface GpuResourceCache
      * @see #setLowWater(long)
      */
     long getLowWater();
+
+    /**
+     * Returns the hit, miss and eviction counters of this cache. Caches that don't count their usage return {@link
+     * UnsupportedCacheStatistics}, which is the default.
+     *
+     * @return this cache's statistics.
+     */
+    default CacheStatistics getStatistics()
+    {
+        return new UnsupportedCacheStatistics(null, this.getCapacity(), this.getUsedCapacity(), this.getNumObjects());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.Logging;
+
+/**
+ * Accounts for memory against a fixed number of bytes, so that components holding or about to allocate large objects
+ * can coordinate how much memory they use. Memory is reserved before it is allocated and released once it is no longer
+ * used. When a reservation does not fit in the budget, the budget's {@link Reclaimer} is asked to free memory, such as
+ * by evicting entries of a cache that shares the budget. Reservations that still do not fit either fail immediately
+ * ({@link #tryReserve(long)}) or wait for other reservations to be released ({@link #reserve(long, long)}).
+ * <p/>
+ * The reclaimer is never called while the budget's monitor is held, so it may release memory back to the budget from
+ * any thread.
+ */
+public class MemoryBudget
+{
+    /** Frees memory accounted for in a budget, typically by evicting cached objects. */
+    public interface Reclaimer
+    {
+        /**
+         * Frees memory accounted for in the budget, releasing it to the budget via {@link MemoryBudget#release(long)}.
+         *
+         * @param bytes the number of bytes needed.
+         *
+         * @return the number of bytes freed, which may be less or more than the number needed.
+         */
+        long reclaim(long bytes);
+    }
+
+    protected long capacity;
+    protected long used;
+    protected Reclaimer reclaimer;
+
+    /**
+     * Constructs a budget of the specified number of bytes.
+     *
+     * @param capacity the number of bytes in the budget.
+     *
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public MemoryBudget(long capacity)
+    {
+        if (capacity < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "capacity < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.capacity = capacity;
+    }
+
+    /** @return the number of bytes in this budget. */
+    public synchronized long getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * Specifies the number of bytes in this budget. Reducing the capacity below the memory currently reserved does not
+     * release any reservations, but prevents new ones until enough memory is released.
+     *
+     * @param capacity the number of bytes in the budget.
+     *
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public synchronized void setCapacity(long capacity)
+    {
+        if (capacity < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "capacity < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.capacity = capacity;
+        this.notifyAll();
+    }
+
+    /** @return the number of bytes currently reserved. */
+    public synchronized long getUsed()
+    {
+        return this.used;
+    }
+
+    /** @return the number of bytes that can be reserved without reclaiming memory. */
+    public synchronized long getAvailable()
+    {
+        return Math.max(this.capacity - this.used, 0);
+    }
+
+    public synchronized Reclaimer getReclaimer()
+    {
+        return this.reclaimer;
+    }
+
+    /**
+     * Specifies the reclaimer asked to free memory when a reservation does not fit in this budget.
+     *
+     * @param reclaimer the reclaimer. May be null, in which case memory is only freed by releasing reservations.
+     */
+    public synchronized void setReclaimer(Reclaimer reclaimer)
+    {
+        this.reclaimer = reclaimer;
+    }
+
+    /**
+     * Reserves memory if it fits in this budget, asking the reclaimer to free memory if it does not fit in the memory
+     * currently available. Does not wait for other reservations to be released.
+     *
+     * @param bytes the number of bytes to reserve.
+     *
+     * @return true if the memory is reserved, otherwise false.
+     *
+     * @throws IllegalArgumentException if the number of bytes is negative.
+     */
+    public boolean tryReserve(long bytes)
+    {
+        if (bytes < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "bytes < 0");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        Reclaimer r;
+        long shortfall;
+        synchronized (this)
+        {
+            if (bytes > this.capacity)
+                return false;
+
+            if (this.reserveAvailable(bytes))
+                return true;
+
+            r = this.reclaimer;
+            shortfall = bytes - this.getAvailable();
+        }
+
+        if (r == null || r.reclaim(shortfall) <= 0)
+            return false;
+
+        synchronized (this)
+        {
+            return this.reserveAvailable(bytes);
+        }
+    }
+
+    /**
+     * Reserves memory, waiting up to a specified time for other reservations to be released if the memory does not fit
+     * in this budget after reclaiming memory. Reservations larger than the budget's capacity fail immediately.
+     *
+     * @param bytes         the number of bytes to reserve.
+     * @param timeoutMillis the maximum time to wait, in milliseconds.
+     *
+     * @return true if the memory is reserved, otherwise false.
+     *
+     * @throws IllegalArgumentException if the number of bytes is negative.
+     * @throws InterruptedException     if the current thread is interrupted while waiting.
+     */
+    public boolean reserve(long bytes, long timeoutMillis) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+
+        while (!this.tryReserve(bytes))
+        {
+            synchronized (this)
+            {
+                if (bytes > this.capacity)
+                    return false;
+
+                if (this.reserveAvailable(bytes))
+                    return true;
+
+                long remaining = (deadline - System.nanoTime()) / 1000000L;
+                if (remaining <= 0)
+                    return false;
+
+                this.wait(remaining);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reserves memory regardless of whether it fits in this budget. This accounts for memory that is already
+     * allocated, such as objects added to a cache after they are created.
+     *
+     * @param bytes the number of bytes to reserve.
+     */
+    public synchronized void forceReserve(long bytes)
+    {
+        this.used += bytes;
+    }
+
+    /**
+     * Releases memory previously reserved, and wakes threads waiting for memory.
+     *
+     * @param bytes the number of bytes to release.
+     */
+    public synchronized void release(long bytes)
+    {
+        this.used = Math.max(this.used - bytes, 0);
+        this.notifyAll();
+    }
+
+    protected boolean reserveAvailable(long bytes) // MUST BE CALLED WITHIN SYNCHRONIZED
+    {
+        if (this.used + bytes > this.capacity)
+            return false;
+
+        this.used += bytes;
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MemoryBudget used = " + this.getUsed() + " capacity = " + this.getCapacity();
+    }
+}
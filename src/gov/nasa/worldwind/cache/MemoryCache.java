@@ -188,4 +188,16 @@ public interface MemoryCache
      * @param capacity the new capacity.
      */
     void setCapacity(long capacity);
+
+    /**
+     * Returns the hit, miss and eviction counters of this cache. Caches that don't count their usage return {@link
+     * UnsupportedCacheStatistics}, which is the default.
+     *
+     * @return this cache's statistics.
+     */
+    default CacheStatistics getStatistics()
+    {
+        return new UnsupportedCacheStatistics(this.getName(), this.getCapacity(), this.getUsedCapacity(),
+            this.getNumObjects());
+    }
 }
@@ -26,4 +26,21 @@ public interface MemoryCacheSet
     void clear();
 
     Map<String, MemoryCache> getAllCaches();
+
+    /**
+     * Returns the statistics of all caches in this set.
+     *
+     * @return a map of the statistics of each cache, keyed by the cache's key in this set.
+     */
+    default Map<String, CacheStatistics> getCacheStatistics()
+    {
+        Map<String, CacheStatistics> stats = new HashMap<String, CacheStatistics>();
+
+        for (Map.Entry<String, MemoryCache> entry : this.getAllCaches().entrySet())
+        {
+            stats.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+
+        return stats;
+    }
 }
@@ -270,6 +270,32 @@ public class ShapeDataCache implements Iterable<ShapeDataCache.ShapeDataCacheEnt
         entry.lastUsed = System.currentTimeMillis();
     }
 
+    /**
+     * Replaces an entry in the cache with another entry for the same globe.
+     *
+     * @param oldEntry the entry to replace.
+     * @param newEntry the entry replacing it. If null, the cache remains unchanged.
+     *
+     * @return true if the entry was replaced, or false if the entry to replace is not in the cache.
+     */
+    public boolean replaceEntry(ShapeDataCacheEntry oldEntry, ShapeDataCacheEntry newEntry)
+    {
+        if (oldEntry == null || newEntry == null)
+            return false;
+
+        for (Map.Entry<GlobeStateKey, ShapeDataCacheEntry> entry : this.entries.entrySet())
+        {
+            if (entry.getValue() == oldEntry)
+            {
+                entry.setValue(newEntry);
+                newEntry.lastUsed = System.currentTimeMillis();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Retrieves a specified entry from the cache.
      * <p/>
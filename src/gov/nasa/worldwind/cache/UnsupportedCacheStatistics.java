@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+/**
+ * The {@link CacheStatistics} of a cache that does not count its usage. The name, capacity and size are a snapshot
+ * taken when the instance is created, and all counters are zero.
+ */
+public class UnsupportedCacheStatistics implements CacheStatistics
+{
+    protected final String name;
+    protected final long capacity;
+    protected final long usedCapacity;
+    protected final int numObjects;
+
+    /**
+     * Creates statistics with the specified name, capacity and size values.
+     *
+     * @param name         the name of the cache. May be null.
+     * @param capacity     the capacity of the cache.
+     * @param usedCapacity the capacity used by cached entries.
+     * @param numObjects   the number of entries in the cache.
+     */
+    public UnsupportedCacheStatistics(String name, long capacity, long usedCapacity, int numObjects)
+    {
+        this.name = name;
+        this.capacity = capacity;
+        this.usedCapacity = usedCapacity;
+        this.numObjects = numObjects;
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    public long getCapacity()
+    {
+        return this.capacity;
+    }
+
+    public long getUsedCapacity()
+    {
+        return this.usedCapacity;
+    }
+
+    public int getNumObjects()
+    {
+        return this.numObjects;
+    }
+
+    public long getHitCount()
+    {
+        return 0;
+    }
+
+    public long getMissCount()
+    {
+        return 0;
+    }
+
+    public double getHitRate()
+    {
+        return 0;
+    }
+
+    public long getAddCount()
+    {
+        return 0;
+    }
+
+    public long getEvictionCount()
+    {
+        return 0;
+    }
+
+    public long getCapacityEvictionCount()
+    {
+        return 0;
+    }
+
+    public long getReplacementEvictionCount()
+    {
+        return 0;
+    }
+
+    public long getEvictedSize()
+    {
+        return 0;
+    }
+
+    public long getMakeSpaceCount()
+    {
+        return 0;
+    }
+
+    public long getMakeSpaceTimeP50()
+    {
+        return 0;
+    }
+
+    public long getMakeSpaceTimeP99()
+    {
+        return 0;
+    }
+
+    public void reset()
+    {
+    }
+}
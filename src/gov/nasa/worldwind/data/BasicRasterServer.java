@@ -11,15 +11,16 @@ import gov.nasa.worldwind.avlist.*;
 import gov.nasa.worldwind.cache.*;
 import gov.nasa.worldwind.exception.WWRuntimeException;
 import gov.nasa.worldwind.formats.dds.DDSCompressor;
-import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.geom.*;
 import gov.nasa.worldwind.util.*;
 
 import javax.xml.stream.XMLStreamException;
 import java.awt.*;
-import java.io.File;
+import java.io.*;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * @author Lado Garakanidze
@@ -29,10 +30,25 @@ import java.util.*;
 /**
  * BasicRasterServer maintains a list of data sources and their properties in the BasicRasterServerCache and is used to
  * compose (mosaic) a data raster of the given region of interest from data sources.
+ * <p/>
+ * The data sources are opened in parallel when the server is constructed, and their metadata is saved to an index file
+ * next to the RasterServer.xml file. When the server is next constructed, sources that have not changed since the index
+ * was written are opened using the saved metadata rather than by reading their metadata. The sources intersecting a
+ * request are found using an R-tree of the source sectors.
  */
 public class BasicRasterServer extends WWObjectImpl implements RasterServer
 {
+    /** Identifies the format of the source index file. */
+    protected static final int SOURCE_INDEX_VERSION = 2;
+
     protected java.util.List<DataRaster> dataRasterList = new java.util.ArrayList<DataRaster>();
+    /**
+     * The spatial index of <code>dataRasterList</code>, or null if it has not been built. Built once the raster
+     * sources are read, and replaced rather than modified so that it can be read without locking.
+     */
+    protected volatile SectorRTree<DataRaster> dataRasterIndex;
+    /** The file holding the metadata of the raster sources, or null if the metadata is not saved. */
+    protected File sourceIndexFile;
 
     protected DataRasterReaderFactory readerFactory;
 
@@ -126,6 +142,7 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
         }
 
         this.extractProperties(config);
+        this.sourceIndexFile = this.getSourceIndexFile(o);
 
         if( this.readRasterSources(config) )
         {
@@ -201,108 +218,86 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
             }
 
             numSources = sources.size();
-            for (RasterServerConfiguration.Source source : sources) {
-                Thread.yield();
-                try
+
+            Map<String, RasterSourceInfo> sourceIndex = this.readSourceIndex(this.sourceIndexFile);
+            List<RasterSourceInfo> sourceInfos = this.loadRasterSources(sources, sourceIndex);
+            boolean sourceIndexChanged = false;
+
+            for (RasterSourceInfo info : sourceInfos)
+            {
+                if (null == info)
                 {
-                    String rasterSourcePath = source.getPath();
-                    if (WWUtil.isEmpty(rasterSourcePath))
-                    {
-                        continue;
-                    }
+                    continue;
+                }
 
-                    AVList rasterMetadata = new AVListImpl();
-                    File rasterSourceFile = new File(rasterSourcePath);
-                    // normalize
-                    rasterSourcePath = rasterSourceFile.getAbsolutePath();
+                if (null != info.exception)
+                {
+                    Throwable t = info.exception;
+                    String message = t.getMessage();
+                    message = (WWUtil.isEmpty(message) && null != t.getCause()) ? t.getCause().getMessage() : message;
+                    Logging.logger().log(java.util.logging.Level.WARNING, message, t);
+                    continue;
+                }
 
-                    if( !rasterSourceFile.exists() )
-                    {
-                        hasUnavailableRasterSources = true;
-                        String reason = Logging.getMessage("generic.FileDoesNotExists", rasterSourcePath );
-                        Logging.logger().warning(reason);
-                        continue;
-                    }
+                if (null != info.unavailableReason)
+                {
+                    hasUnavailableRasterSources = true;
+                    Logging.logger().warning(info.unavailableReason);
+                    continue;
+                }
 
-                    if( !rasterSourceFile.canRead() )
-                    {
-                        hasUnavailableRasterSources = true;
-                        String reason = Logging.getMessage("generic.FileNoReadPermission", rasterSourcePath );
-                        Logging.logger().warning(reason);
-                        continue;
-                    }
+                String rasterSourcePath = info.file.getAbsolutePath();
+                Object rasterPixelFormat = info.metadata.getValue(AVKey.PIXEL_FORMAT);
+                String datasetPixelFormat = this.getDataSetPixelFormat();
 
-                    DataRasterReader rasterReader = this.findDataRasterReader(rasterSourceFile, rasterMetadata);
-                    if (null == rasterReader)
+                if( !WWUtil.isEmpty(datasetPixelFormat) )
+                {
+                    // verify all data rasters are the same type - we do not allow to mix elevations and imagery
+                    if (!datasetPixelFormat.equals(rasterPixelFormat))
                     {
                         hasUnavailableRasterSources = true;
-                        String reason = Logging.getMessage("generic.UnknownFileFormatOrMatchingReaderNotFound",
-                            rasterSourcePath );
+                        String reason = Logging.getMessage("generic.UnexpectedRasterType", rasterSourcePath );
                         Logging.logger().warning(reason);
                         continue;
                     }
-
-                    Sector sector = source.getSector();
-                    if (null == sector)
-                    {
-                        rasterReader.readMetadata(rasterSourceFile, rasterMetadata);
-
-                        Object o = rasterMetadata.getValue(AVKey.SECTOR);
-                        sector = (o instanceof Sector) ? (Sector) o : null;
-                    }
-                    else
-                    {
-                        rasterMetadata.setValue(AVKey.SECTOR, sector);
-                    }
-
-                    Object rasterPixelFormat = rasterMetadata.getValue(AVKey.PIXEL_FORMAT);
-                    String datasetPixelFormat = this.getDataSetPixelFormat();
-
-                    if( !WWUtil.isEmpty(datasetPixelFormat) )
+                }
+                else
+                {
+                    if( AVKey.IMAGE.equals(rasterPixelFormat) || AVKey.ELEVATION.equals(rasterPixelFormat) )
                     {
-                        // verify all data rasters are the same type - we do not allow to mix elevations and imagery
-                        if (!datasetPixelFormat.equals(rasterPixelFormat))
-                        {
-                            hasUnavailableRasterSources = true;
-                            String reason = Logging.getMessage("generic.UnexpectedRasterType", rasterSourcePath );
-                            Logging.logger().warning(reason);
-                            continue;
-                        }
+                        this.setDataSetPixelFormat( (String)rasterPixelFormat );
                     }
                     else
                     {
-                        if( AVKey.IMAGE.equals(rasterPixelFormat) || AVKey.ELEVATION.equals(rasterPixelFormat) )
-                        {
-                            this.setDataSetPixelFormat( (String)rasterPixelFormat );
-                        }
-                        else
-                        {
-                            hasUnavailableRasterSources = true;
-                            String reason = Logging.getMessage("generic.UnknownFileFormat", rasterSourcePath );
-                            Logging.logger().warning(reason);
-                            continue;
-                        }
+                        hasUnavailableRasterSources = true;
+                        String reason = Logging.getMessage("generic.UnknownFileFormat", rasterSourcePath );
+                        Logging.logger().warning(reason);
+                        continue;
                     }
+                }
 
-                    if (null != sector)
+                if (null != info.sector)
+                {
+                    try
                     {
-                        extent = Sector.union(extent, sector);
+                        extent = Sector.union(extent, info.sector);
                         this.dataRasterList.add(
-                            new CachedDataRaster(rasterSourceFile, rasterMetadata, rasterReader, this.getCache())
+                            new CachedDataRaster(info.file, info.metadata, info.reader, this.getCache())
                         );
+                        sourceIndexChanged |= !info.indexed;
                     }
-                    else
+                    catch (Throwable t)
                     {
-                        hasUnavailableRasterSources = true;
-                        String reason = Logging.getMessage("generic.NoSectorSpecified", rasterSourcePath );
-                        Logging.logger().warning(reason);
+                        String message = t.getMessage();
+                        message = (WWUtil.isEmpty(message) && null != t.getCause()) ? t.getCause().getMessage() : message;
+                        Logging.logger().log(java.util.logging.Level.WARNING, message, t);
                     }
                 }
-                catch (Throwable t)
+                else
                 {
-                    String message = t.getMessage();
-                    message = (WWUtil.isEmpty(message)) ? t.getCause().getMessage() : message;
-                    Logging.logger().log(java.util.logging.Level.WARNING, message, t);
+                    hasUnavailableRasterSources = true;
+                    String reason = Logging.getMessage("generic.NoSectorSpecified", rasterSourcePath );
+                    Logging.logger().warning(reason);
                 }
             }
 
@@ -310,11 +305,19 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
             {
                 this.setValue(AVKey.SECTOR, extent);
             }
+
+            // Save the metadata of the sources read, unless the index already holds exactly those sources.
+            if (sourceIndexChanged || sourceIndex.size() != this.dataRasterList.size())
+            {
+                this.writeSourceIndex(this.sourceIndexFile, this.dataRasterList);
+            }
+
+            this.dataRasterIndex = this.buildDataRasterIndex();
         }
         catch (Throwable t)
         {
             String message = t.getMessage();
-            message = (WWUtil.isEmpty(message)) ? t.getCause().getMessage() : message;
+            message = (WWUtil.isEmpty(message) && null != t.getCause()) ? t.getCause().getMessage() : message;
             Logging.logger().log(java.util.logging.Level.SEVERE, message, t);
         }
         finally
@@ -326,6 +329,481 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
         return !hasUnavailableRasterSources;
     }
 
+    /**
+     * Opens raster sources in parallel. The number of threads used is specified by the {@link
+     * AVKey#RASTER_SERVER_LOADER_POOL_SIZE} value of this server, and defaults to the number of available processors.
+     *
+     * @param sources     the sources to open.
+     * @param sourceIndex the saved metadata of the sources, keyed by absolute path.
+     *
+     * @return the result of opening each source, in the same order as the sources.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting for the sources to open.
+     */
+    protected List<RasterSourceInfo> loadRasterSources(List<RasterServerConfiguration.Source> sources,
+        final Map<String, RasterSourceInfo> sourceIndex) throws InterruptedException
+    {
+        List<Callable<RasterSourceInfo>> tasks = new ArrayList<Callable<RasterSourceInfo>>(sources.size());
+        for (final RasterServerConfiguration.Source source : sources)
+        {
+            tasks.add(new Callable<RasterSourceInfo>()
+            {
+                public RasterSourceInfo call() throws Exception
+                {
+                    return loadRasterSource(source, sourceIndex);
+                }
+            });
+        }
+
+        int poolSize = Math.min(sources.size(), this.getLoaderPoolSize());
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setName(Logging.getMessage("BasicRasterServer.LoaderThreadName", getDataSetName()));
+                return thread;
+            }
+        });
+
+        try
+        {
+            List<RasterSourceInfo> infos = new ArrayList<RasterSourceInfo>(sources.size());
+            for (Future<RasterSourceInfo> future : executor.invokeAll(tasks))
+            {
+                try
+                {
+                    infos.add(future.get());
+                }
+                catch (ExecutionException e)
+                {
+                    RasterSourceInfo info = new RasterSourceInfo();
+                    info.exception = e.getCause();
+                    infos.add(info);
+                }
+            }
+
+            return infos;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    protected int getLoaderPoolSize()
+    {
+        Integer poolSize = AVListImpl.getIntegerValue(this, AVKey.RASTER_SERVER_LOADER_POOL_SIZE);
+        return (null != poolSize && poolSize > 0) ? poolSize : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Opens a raster source: finds its reader and reads its metadata, or uses its saved metadata if the source has
+     * not changed since the metadata was saved. This method is called concurrently for multiple sources.
+     *
+     * @param source      the source to open.
+     * @param sourceIndex the saved metadata of the sources, keyed by absolute path.
+     *
+     * @return the opened source, or a source noting why it is unavailable, or null if the source has no path.
+     *
+     * @throws IOException if an error occurs while reading the source's metadata.
+     */
+    protected RasterSourceInfo loadRasterSource(RasterServerConfiguration.Source source,
+        Map<String, RasterSourceInfo> sourceIndex) throws IOException
+    {
+        String rasterSourcePath = source.getPath();
+        if (WWUtil.isEmpty(rasterSourcePath))
+        {
+            return null;
+        }
+
+        RasterSourceInfo info = new RasterSourceInfo();
+        info.metadata = new AVListImpl();
+        info.file = new File(rasterSourcePath);
+        // normalize
+        rasterSourcePath = info.file.getAbsolutePath();
+
+        if( !info.file.exists() )
+        {
+            info.unavailableReason = Logging.getMessage("generic.FileDoesNotExists", rasterSourcePath );
+            return info;
+        }
+
+        if( !info.file.canRead() )
+        {
+            info.unavailableReason = Logging.getMessage("generic.FileNoReadPermission", rasterSourcePath );
+            return info;
+        }
+
+        // Use the saved metadata if the file is unchanged. The saved pixel format prevents the reader lookup from
+        // reading the metadata again. Metadata that was only partly saved is read from the source instead, so that
+        // values the index cannot hold are not lost.
+        RasterSourceInfo indexed = sourceIndex.get(rasterSourcePath);
+        if (null != indexed && indexed.length == info.file.length()
+            && indexed.lastModified == info.file.lastModified())
+        {
+            if (indexed.complete)
+            {
+                info.metadata.setValues(indexed.metadata);
+            }
+            info.indexed = true;
+        }
+
+        info.reader = this.findDataRasterReader(info.file, info.metadata);
+        if (null == info.reader)
+        {
+            info.unavailableReason = Logging.getMessage("generic.UnknownFileFormatOrMatchingReaderNotFound",
+                rasterSourcePath );
+            return info;
+        }
+
+        info.sector = source.getSector();
+        if (null == info.sector)
+        {
+            if (!(info.metadata.getValue(AVKey.SECTOR) instanceof Sector))
+            {
+                info.reader.readMetadata(info.file, info.metadata);
+            }
+
+            Object o = info.metadata.getValue(AVKey.SECTOR);
+            info.sector = (o instanceof Sector) ? (Sector) o : null;
+        }
+        else
+        {
+            info.metadata.setValue(AVKey.SECTOR, info.sector);
+        }
+
+        return info;
+    }
+
+    /**
+     * Returns the file in which to save the metadata of the raster sources. The file is next to the RasterServer.xml
+     * file, with the extension <code>.index</code>.
+     *
+     * @param configSource the RasterServer.xml source.
+     *
+     * @return the index file, or null if the configuration is not a local file.
+     */
+    protected File getSourceIndexFile(Object configSource)
+    {
+        File configFile = (configSource instanceof File || configSource instanceof String
+            || configSource instanceof java.net.URL) ? WWIO.getFileForLocalAddress(configSource) : null;
+        if (null == configFile || !configFile.isFile())
+        {
+            return null;
+        }
+
+        return new File(configFile.getParentFile(), WWIO.replaceSuffix(configFile.getName(), ".index"));
+    }
+
+    /**
+     * Reads the saved metadata of the raster sources.
+     *
+     * @param file the index file. May be null.
+     *
+     * @return the saved metadata, keyed by absolute path. The map is empty if the file is null, does not exist or
+     *         cannot be read.
+     */
+    protected Map<String, RasterSourceInfo> readSourceIndex(File file)
+    {
+        Map<String, RasterSourceInfo> sourceIndex = new HashMap<String, RasterSourceInfo>();
+        if (null == file || !file.exists())
+        {
+            return sourceIndex;
+        }
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != SOURCE_INDEX_VERSION)
+            {
+                return sourceIndex;
+            }
+
+            int numSources = in.readInt();
+            for (int i = 0; i < numSources; i++)
+            {
+                RasterSourceInfo info = new RasterSourceInfo();
+                String path = in.readUTF();
+                info.length = in.readLong();
+                info.lastModified = in.readLong();
+                info.complete = in.readBoolean();
+                info.metadata = new AVListImpl();
+
+                int numValues = in.readInt();
+                for (int j = 0; j < numValues; j++)
+                {
+                    String key = in.readUTF();
+                    info.metadata.setValue(key, this.readIndexValue(in));
+                }
+
+                sourceIndex.put(path, info);
+            }
+        }
+        catch (Exception e)
+        {
+            // An unreadable index only costs reading the metadata from the sources.
+            String message = Logging.getMessage("generic.ExceptionAttemptingToReadFile", file);
+            Logging.logger().log(java.util.logging.Level.FINE, message, e);
+            sourceIndex.clear();
+        }
+        finally
+        {
+            WWIO.closeStream(in, file.getPath());
+        }
+
+        return sourceIndex;
+    }
+
+    /**
+     * Saves the metadata of the raster sources. Only metadata values that are strings, numbers, booleans, sectors,
+     * locations, or int or double arrays are saved. A source having other values is marked as incomplete, and its
+     * metadata is read from the source when the index is used.
+     *
+     * @param file    the index file. If null, the metadata is not saved.
+     * @param rasters the rasters whose metadata to save.
+     */
+    protected void writeSourceIndex(File file, List<DataRaster> rasters)
+    {
+        if (null == file)
+        {
+            return;
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(SOURCE_INDEX_VERSION);
+
+            int numSources = 0;
+            for (DataRaster raster : rasters)
+            {
+                if (raster instanceof CachedDataRaster && ((CachedDataRaster) raster).getDataSource() instanceof File)
+                {
+                    numSources++;
+                }
+            }
+            out.writeInt(numSources);
+
+            for (DataRaster raster : rasters)
+            {
+                if (!(raster instanceof CachedDataRaster)
+                    || !(((CachedDataRaster) raster).getDataSource() instanceof File))
+                {
+                    continue;
+                }
+
+                CachedDataRaster cachedRaster = (CachedDataRaster) raster;
+                File sourceFile = (File) cachedRaster.getDataSource();
+                out.writeUTF(sourceFile.getAbsolutePath());
+                out.writeLong(sourceFile.length());
+                out.writeLong(sourceFile.lastModified());
+
+                List<Map.Entry<String, Object>> values = new ArrayList<Map.Entry<String, Object>>();
+                boolean complete = true;
+                for (Map.Entry<String, Object> entry : cachedRaster.getEntries())
+                {
+                    if (this.isIndexValue(entry.getValue()))
+                    {
+                        values.add(entry);
+                    }
+                    else
+                    {
+                        complete = false;
+                    }
+                }
+
+                out.writeBoolean(complete);
+                out.writeInt(values.size());
+                for (Map.Entry<String, Object> entry : values)
+                {
+                    out.writeUTF(entry.getKey());
+                    this.writeIndexValue(out, entry.getValue());
+                }
+            }
+
+            out.close();
+            out = null;
+
+            if ((!file.exists() || file.delete()) && tempFile.renameTo(file))
+            {
+                return;
+            }
+
+            String message = Logging.getMessage("generic.FileNoWritePermission", file);
+            Logging.logger().fine(message);
+        }
+        catch (Exception e)
+        {
+            // The index is an optimization; the server works without it.
+            String message = Logging.getMessage("generic.ExceptionAttemptingToWriteTo", file);
+            Logging.logger().log(java.util.logging.Level.FINE, message, e);
+        }
+        finally
+        {
+            WWIO.closeStream(out, tempFile.getPath());
+            if (tempFile.exists())
+            {
+                tempFile.delete();
+            }
+        }
+    }
+
+    protected boolean isIndexValue(Object value)
+    {
+        return value instanceof String || value instanceof Integer || value instanceof Long
+            || value instanceof Double || value instanceof Float || value instanceof Boolean || value instanceof Sector
+            || value instanceof LatLon || value instanceof int[] || value instanceof double[];
+    }
+
+    protected void writeIndexValue(DataOutputStream out, Object value) throws IOException
+    {
+        if (value instanceof String)
+        {
+            out.writeByte('S');
+            out.writeUTF((String) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte('I');
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte('J');
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte('D');
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte('F');
+            out.writeFloat((Float) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof int[])
+        {
+            int[] array = (int[]) value;
+            out.writeByte('[');
+            out.writeByte('I');
+            out.writeInt(array.length);
+            for (int i : array)
+            {
+                out.writeInt(i);
+            }
+        }
+        else if (value instanceof double[])
+        {
+            double[] array = (double[]) value;
+            out.writeByte('[');
+            out.writeByte('D');
+            out.writeInt(array.length);
+            for (double d : array)
+            {
+                out.writeDouble(d);
+            }
+        }
+        else if (value instanceof LatLon)
+        {
+            LatLon location = (LatLon) value;
+            out.writeByte('L');
+            out.writeDouble(location.getLatitude().degrees);
+            out.writeDouble(location.getLongitude().degrees);
+        }
+        else
+        {
+            Sector sector = (Sector) value;
+            out.writeByte('R');
+            out.writeDouble(sector.getMinLatitude().degrees);
+            out.writeDouble(sector.getMaxLatitude().degrees);
+            out.writeDouble(sector.getMinLongitude().degrees);
+            out.writeDouble(sector.getMaxLongitude().degrees);
+        }
+    }
+
+    protected Object readIndexValue(DataInputStream in) throws IOException
+    {
+        int type = in.readByte();
+        switch (type)
+        {
+            case 'S':
+                return in.readUTF();
+            case 'I':
+                return in.readInt();
+            case 'J':
+                return in.readLong();
+            case 'D':
+                return in.readDouble();
+            case 'F':
+                return in.readFloat();
+            case 'Z':
+                return in.readBoolean();
+            case 'L':
+                return LatLon.fromDegrees(in.readDouble(), in.readDouble());
+            case 'R':
+                return Sector.fromDegrees(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            case '[':
+                return this.readIndexArray(in);
+            default:
+                throw new IOException(Logging.getMessage("generic.UnrecognizedDataType", type));
+        }
+    }
+
+    protected Object readIndexArray(DataInputStream in) throws IOException
+    {
+        int type = in.readByte();
+        int length = in.readInt();
+        if (type == 'I')
+        {
+            int[] array = new int[length];
+            for (int i = 0; i < length; i++)
+            {
+                array[i] = in.readInt();
+            }
+            return array;
+        }
+        else if (type == 'D')
+        {
+            double[] array = new double[length];
+            for (int i = 0; i < length; i++)
+            {
+                array[i] = in.readDouble();
+            }
+            return array;
+        }
+
+        throw new IOException(Logging.getMessage("generic.UnrecognizedDataType", type));
+    }
+
+    /** Holds the result of opening a raster source, or the saved metadata of a raster source. */
+    protected static class RasterSourceInfo
+    {
+        protected File file;
+        protected AVList metadata;
+        protected DataRasterReader reader;
+        protected Sector sector;
+        /** The file length and modification time when the metadata was saved. */
+        protected long length;
+        protected long lastModified;
+        /** false if some of the source's metadata values could not be saved. */
+        protected boolean complete;
+        /** true if the metadata was read from the source index. */
+        protected boolean indexed;
+        protected String unavailableReason;
+        protected Throwable exception;
+    }
+
     protected DataRasterReader findDataRasterReader(Object source, AVList params)
     {
         if (source == null)
@@ -367,6 +845,51 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
         return (this.hasKey(AVKey.SECTOR)) ? (Sector) this.getValue(AVKey.SECTOR) : null;
     }
 
+    /**
+     * Returns the spatial index of the data rasters, building it if it has not been built. The index is read without
+     * locking. Subclasses that modify the data raster list after the raster sources are read must call {@link
+     * #invalidateDataRasterIndex()}.
+     *
+     * @return the spatial index of the data rasters.
+     */
+    protected SectorRTree<DataRaster> getDataRasterIndex()
+    {
+        SectorRTree<DataRaster> index = this.dataRasterIndex;
+        if (null == index)
+        {
+            // Threads racing to build the index build equivalent ones, so the last one assigned is kept.
+            index = this.buildDataRasterIndex();
+            this.dataRasterIndex = index;
+        }
+
+        return index;
+    }
+
+    /**
+     * Discards the spatial index of the data rasters, so that it is rebuilt from the data raster list when next used.
+     */
+    protected void invalidateDataRasterIndex()
+    {
+        this.dataRasterIndex = null;
+    }
+
+    /**
+     * Builds a spatial index of the rasters currently in the data raster list.
+     *
+     * @return the spatial index of the data rasters.
+     */
+    protected SectorRTree<DataRaster> buildDataRasterIndex()
+    {
+        List<DataRaster> rasters = new ArrayList<DataRaster>(this.dataRasterList);
+        List<Sector> sectors = new ArrayList<Sector>(rasters.size());
+        for (DataRaster raster : rasters)
+        {
+            sectors.add(raster.getSector());
+        }
+
+        return new SectorRTree<DataRaster>(rasters, sectors);
+    }
+
     /**
      * Composes a DataRaster of the given width and height for the specific geographic region of interest (ROI).
      *
@@ -458,7 +981,7 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
             }
 
             int numIntersectedRasters = 0;
-            for (DataRaster raster : this.dataRasterList)
+            for (DataRaster raster : this.getDataRasterIndex().getItemsInRegion(reqSector, null))
             {
                 Sector rasterSector = raster.getSector();
                 Sector overlap = reqSector.intersection(rasterSector);
@@ -9,6 +9,7 @@ package gov.nasa.worldwind.data;
 import gov.nasa.worldwind.avlist.*;
 import gov.nasa.worldwind.cache.*;
 import gov.nasa.worldwind.exception.WWRuntimeException;
+import gov.nasa.worldwind.formats.tiff.GeotiffReader;
 import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.util.*;
 
@@ -21,12 +22,20 @@ import java.util.logging.Level;
  * not be loaded in to the memory. This is mostly used together with a memory caches. <code>CachedDataRaster</code>
  * actually implements all interfaces of the <code>DataRaster</code>, and acts as a proxy, that loads a real data raster
  * only when it is actually needed.
+ * <p/>
+ * When the memory cache is a {@link BasicRasterServerCache}, memory for a raster is reserved in the cache's {@link
+ * MemoryBudget} before the raster is read. Requests that do not fit in the budget wait for memory to be released, up to
+ * the reservation timeout. GeoTIFF sources too large for the budget, or whose reservation times out, are read a window
+ * at a time at the resolution requested, rather than read whole.
  *
  * @author Lado Garakanidze
  * @version $Id: CachedDataRaster.java 3037 2015-04-17 23:08:47Z tgaskins $
  */
 public class CachedDataRaster extends AVListImpl implements DataRaster
 {
+    /** The default time to wait for memory to read a raster, in milliseconds. */
+    protected static final long DEFAULT_RESERVATION_TIMEOUT = 10000L;
+
     protected enum ErrorHandlerMode
     {
         ALLOW_EXCEPTIONS, DISABLE_EXCEPTIONS
@@ -42,6 +51,14 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
     protected final Object rasterRetrievalLock = new Object();
 
     protected String[] requiredKeys = new String[] {AVKey.SECTOR, AVKey.PIXEL_FORMAT};
+    /** Indicates whether windows of the source are read for each request. Determined when first needed. */
+    protected Boolean readWindows = null;
+    /** Indicates whether windows of the source can be read. Determined when first needed. */
+    protected Boolean windowsReadable = null;
+    // The parsed headers of a GeoTIFF source whose windows can be read, so they are not parsed for every window.
+    protected GeotiffReader windowHeaders = null;
+    protected MemoryBudget memoryBudget = null;
+    protected long reservationTimeout = DEFAULT_RESERVATION_TIMEOUT;
 
     /**
      * Create a cached data raster.
@@ -88,6 +105,9 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
             this.cacheListener = new CacheListener(this.dataSource);
             this.rasterCache.addCacheListener(this.cacheListener);
         }
+
+        if (this.rasterCache instanceof BasicRasterServerCache)
+            this.memoryBudget = ((BasicRasterServerCache) this.rasterCache).getMemoryBudget();
     }
 
     protected void assembleMetadata(Object source, AVList params, DataRasterReader reader)
@@ -203,6 +223,37 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         return this.dataReader;
     }
 
+    /**
+     * Returns the budget in which memory is reserved before reading this raster, which is the budget of this raster's
+     * cache if the cache is a {@link BasicRasterServerCache}.
+     *
+     * @return the memory budget, or null if reads are not budgeted.
+     */
+    public MemoryBudget getMemoryBudget()
+    {
+        return this.memoryBudget;
+    }
+
+    /**
+     * Returns the maximum time to wait for memory to read this raster when the memory budget is exhausted.
+     *
+     * @return the reservation timeout, in milliseconds.
+     */
+    public long getReservationTimeout()
+    {
+        return this.reservationTimeout;
+    }
+
+    /**
+     * Specifies the maximum time to wait for memory to read this raster when the memory budget is exhausted.
+     *
+     * @param timeoutMillis the reservation timeout, in milliseconds.
+     */
+    public void setReservationTimeout(long timeoutMillis)
+    {
+        this.reservationTimeout = timeoutMillis;
+    }
+
     public void dispose()
     {
         String message = Logging.getMessage("generic.ExceptionWhileDisposing", this.dataSource);
@@ -210,20 +261,87 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         throw new IllegalStateException(message);
     }
 
+    /**
+     * Returns this raster's data rasters, reading them from the source if they are not in the cache. If reads are
+     * budgeted, memory for the rasters is reserved before they are read.
+     *
+     * @return the data rasters, or null if memory for them cannot be reserved within the reservation timeout.
+     *
+     * @throws IOException        if the source cannot be read.
+     * @throws WWRuntimeException if the source cannot be read.
+     */
     protected DataRaster[] getDataRasters() throws IOException, WWRuntimeException
+    {
+        long reserved = this.reserveRasterMemory();
+        if (reserved < 0L)
+            return null;
+
+        return this.getDataRasters(reserved);
+    }
+
+    /**
+     * Reserves memory in this raster's memory budget for reading its data rasters, waiting up to the reservation
+     * timeout for memory to be released. This must be called before taking this raster's locks, so that a thread
+     * waiting for memory does not block threads using rasters that are already in the cache.
+     *
+     * @return the number of bytes reserved, zero if reads are not budgeted or the rasters are already in the cache, or
+     *         -1 if the memory cannot be reserved within the reservation timeout.
+     */
+    protected long reserveRasterMemory()
+    {
+        if (this.memoryBudget == null || (this.rasterCache != null && this.rasterCache.contains(this.dataSource)))
+            return 0L;
+
+        long bytes = this.estimateSizeInBytes();
+        if (bytes <= 0L)
+            return 0L;
+
+        return this.reserveMemory(bytes) ? bytes : -1L;
+    }
+
+    /**
+     * Returns this raster's data rasters, reading them from the source if they are not in the cache. The memory
+     * reserved for the read by {@link #reserveRasterMemory()} is released whether or not the rasters are read. If the
+     * rasters must be read and no memory was reserved for them, memory is reserved only if it is available without
+     * waiting.
+     *
+     * @param reserved the number of bytes reserved for reading the rasters.
+     *
+     * @return the data rasters, or null if memory for them cannot be reserved.
+     *
+     * @throws IOException        if the source cannot be read.
+     * @throws WWRuntimeException if the source cannot be read.
+     */
+    protected DataRaster[] getDataRasters(long reserved) throws IOException, WWRuntimeException
     {
         synchronized (this.rasterRetrievalLock)
         {
             DataRaster[] rasters = (this.rasterCache != null)
                 ? (DataRaster[]) this.rasterCache.getObject(this.dataSource) : null;
 
+            // Another thread may have read the rasters while this one waited for memory.
             if (null != rasters)
+            {
+                if (reserved > 0L)
+                    this.memoryBudget.release(reserved);
                 return rasters;
+            }
 
             // prevent an attempt to re-read rasters which failed to load
             if (this.rasterCache == null || !this.rasterCache.contains(this.dataSource))
             {
+                // The rasters were evicted after the reservation was skipped. Don't wait for memory while holding
+                // the lock.
+                if (reserved == 0L && this.memoryBudget != null)
+                {
+                    long bytes = this.estimateSizeInBytes();
+                    if (bytes > 0L && !this.memoryBudget.tryReserve(bytes))
+                        return null;
+                    reserved = bytes;
+                }
+
                 long memoryDelta = 0L;
+                long loadTime = 0L;
 
                 try
                 {
@@ -232,17 +350,21 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
                     try
                     {
                         long before = getTotalUsedMemory();
+                        long start = System.nanoTime();
                         rasters = this.dataReader.read(this.getDataSource(), rasterParams);
+                        loadTime = System.nanoTime() - start;
                         memoryDelta = getTotalUsedMemory() - before;
                     }
                     catch (OutOfMemoryError e)
                     {
                         Logging.logger().finest(this.composeExceptionReason(e));
                         this.releaseMemory();
-                        // let's retry after the finalization and GC
+                        // let's retry once the cached rasters are released
 
                         long before = getTotalUsedMemory();
+                        long start = System.nanoTime();
                         rasters = this.dataReader.read(this.getDataSource(), rasterParams);
+                        loadTime = System.nanoTime() - start;
                         memoryDelta = getTotalUsedMemory() - before;
                     }
                 }
@@ -256,16 +378,31 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
                 }
                 finally
                 {
+                    // The cache accounts for the rasters in the budget once they are added.
+                    if (reserved > 0L)
+                        this.memoryBudget.release(reserved);
+
                     // Add rasters to the cache, even if "rasters" is null to prevent multiple failed reads.
                     if (this.rasterCache != null)
                     {
                         long totalBytes = getSizeInBytes(rasters);
                         totalBytes = (memoryDelta > totalBytes) ? memoryDelta : totalBytes;
-                        if (totalBytes > 0L)
+                        if (totalBytes > 0L && this.rasterCache instanceof BasicRasterServerCache)
+                        {
+                            ((BasicRasterServerCache) this.rasterCache).add(this.dataSource, rasters, totalBytes,
+                                loadTime);
+                        }
+                        else if (totalBytes > 0L)
+                        {
                             this.rasterCache.add(this.dataSource, rasters, totalBytes);
+                        }
                     }
                 }
             }
+            else if (reserved > 0L)
+            {
+                this.memoryBudget.release(reserved);
+            }
 
             if (null == rasters || rasters.length == 0)
             {
@@ -278,73 +415,293 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         }
     }
 
+    /**
+     * Indicates whether this raster reads only the part of its source needed for each request, rather than reading the
+     * entire source and holding it in the memory cache. Windows are read from GeoTIFF sources whose rasters would not
+     * fit in the cache or the memory budget, so that large sources can be used without loading them whole.
+     *
+     * @return true if windows of the source are read for each request, otherwise false.
+     */
+    protected boolean isReadWindows()
+    {
+        if (this.readWindows == null)
+        {
+            long size = this.estimateSizeInBytes();
+            this.readWindows = (this.rasterCache == null || size > this.rasterCache.getCapacity()
+                || (this.memoryBudget != null && size > this.memoryBudget.getCapacity()))
+                && this.canReadWindows();
+        }
+
+        return this.readWindows;
+    }
+
+    /**
+     * Indicates whether windows of this raster's source can be read, which is the case for georeferenced GeoTIFF
+     * sources.
+     *
+     * @return true if windows of the source can be read, otherwise false.
+     */
+    protected synchronized boolean canReadWindows()
+    {
+        if (this.windowsReadable == null)
+        {
+            this.windowHeaders = (this.dataReader instanceof GeotiffRasterReader)
+                ? ((GeotiffRasterReader) this.dataReader).readSubRasterHeaders(this.dataSource) : null;
+            this.windowsReadable = this.windowHeaders != null;
+        }
+
+        return this.windowsReadable;
+    }
+
+    /**
+     * Estimates the memory needed to hold this raster's data once it is read from the source.
+     *
+     * @return the estimated size in bytes, or zero if this raster's dimensions are not known.
+     */
+    protected long estimateSizeInBytes()
+    {
+        Object width = this.getValue(AVKey.WIDTH);
+        Object height = this.getValue(AVKey.HEIGHT);
+        if (!(width instanceof Integer) || !(height instanceof Integer))
+            return 0L;
+
+        return (long) (Integer) width * (Integer) height * this.getBytesPerPixel();
+    }
+
+    /**
+     * Returns the number of bytes each pixel of this raster occupies once it is read from the source.
+     *
+     * @return the number of bytes per pixel.
+     */
+    protected int getBytesPerPixel()
+    {
+        // Images are read into 32-bit images compatible with the display.
+        if (AVKey.ELEVATION.equals(this.getValue(AVKey.PIXEL_FORMAT)))
+        {
+            Object dataType = this.getValue(AVKey.DATA_TYPE);
+            if (AVKey.INT8.equals(dataType))
+                return 1;
+            else if (AVKey.INT16.equals(dataType))
+                return 2;
+            else if (AVKey.FLOAT64.equals(dataType))
+                return 8;
+        }
+
+        return 4;
+    }
+
+    /**
+     * Reserves memory in this raster's memory budget, waiting up to the reservation timeout for memory to be released
+     * if the budget is exhausted.
+     *
+     * @param bytes the number of bytes to reserve.
+     *
+     * @return true if the memory is reserved, otherwise false.
+     */
+    protected boolean reserveMemory(long bytes)
+    {
+        try
+        {
+            return this.memoryBudget.reserve(bytes, this.reservationTimeout);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Reads the part of the source within a sector, at the resolution of a raster of the specified size covering the
+     * sector.
+     *
+     * @param sector the sector to read.
+     * @param width  the width of the raster covering the sector.
+     * @param height the height of the raster covering the sector.
+     *
+     * @return a raster covering the part of the sector within this raster, or null if the sector does not overlap this
+     *         raster.
+     *
+     * @throws IOException if the source cannot be read.
+     */
+    protected DataRaster readWindow(Sector sector, int width, int height) throws IOException
+    {
+        Sector overlap = this.getSector().intersection(sector);
+        if (null == overlap || overlap.getDeltaLatDegrees() == 0d || overlap.getDeltaLonDegrees() == 0d)
+            return null;
+
+        int overlapWidth = (int) Math.ceil(width * overlap.getDeltaLonDegrees() / sector.getDeltaLonDegrees());
+        int overlapHeight = (int) Math.ceil(height * overlap.getDeltaLatDegrees() / sector.getDeltaLatDegrees());
+
+        return ((GeotiffRasterReader) this.dataReader).readSubRaster(this.windowHeaders, overlap,
+            Math.max(overlapWidth, 1), Math.max(overlapHeight, 1));
+    }
+
+    /**
+     * Reserves memory for reading a window of the source for a raster of the specified size. Windows are read at up to
+     * twice the requested resolution in each dimension.
+     *
+     * @param width  the width of the raster the window is read for.
+     * @param height the height of the raster the window is read for.
+     *
+     * @return the number of bytes reserved, which is zero if reads are not budgeted.
+     *
+     * @throws WWRuntimeException if this raster's source cannot be read a window at a time, or the memory cannot be
+     *                            reserved within the reservation timeout.
+     */
+    protected long reserveWindowMemory(int width, int height)
+    {
+        if (!this.canReadWindows())
+        {
+            String message = Logging.getMessage("DataRaster.InsufficientMemory", this.getDataSource(),
+                this.estimateSizeInBytes());
+            Logging.logger().severe(message);
+            throw new WWRuntimeException(message);
+        }
+
+        if (this.memoryBudget == null)
+            return 0L;
+
+        long bytes = 4L * width * height * this.getBytesPerPixel();
+        if (!this.reserveMemory(bytes))
+        {
+            String message = Logging.getMessage("DataRaster.InsufficientMemory", this.getDataSource(), bytes);
+            Logging.logger().severe(message);
+            throw new WWRuntimeException(message);
+        }
+
+        return bytes;
+    }
+
     public void drawOnTo(DataRaster canvas)
     {
-        synchronized (this.rasterUsageLock)
+        // Reserve memory for the rasters before taking the lock. The reservation is released by getDataRasters.
+        long reserved = !this.isReadWindows() ? this.reserveRasterMemory() : -1L;
+        if (reserved >= 0L)
         {
-            try
+            synchronized (this.rasterUsageLock)
             {
-                DataRaster[] rasters;
                 try
                 {
-                    rasters = this.getDataRasters();
-                    for (DataRaster raster : rasters)
+                    DataRaster[] rasters;
+                    try
                     {
-                        raster.drawOnTo(canvas);
+                        rasters = this.getDataRasters(reserved);
+                        drawRastersOnTo(rasters, canvas);
                     }
-                }
-                catch (OutOfMemoryError e)
-                {
-                    Logging.logger().finest(this.composeExceptionReason(e));
-                    this.releaseMemory();
-
-                    rasters = this.getDataRasters();
-                    for (DataRaster raster : rasters)
+                    catch (OutOfMemoryError e)
                     {
-                        raster.drawOnTo(canvas);
+                        Logging.logger().finest(this.composeExceptionReason(e));
+                        this.releaseMemory();
+
+                        rasters = this.getDataRasters(0L);
+                        drawRastersOnTo(rasters, canvas);
                     }
+
+                    if (rasters != null)
+                        return;
+                }
+                catch (Throwable t)
+                {
+                    String reason = this.composeExceptionReason(t);
+                    Logging.logger().log(Level.SEVERE, reason, t);
+                    return;
                 }
-            }
-            catch (Throwable t)
-            {
-                String reason = this.composeExceptionReason(t);
-                Logging.logger().log(Level.SEVERE, reason, t);
             }
         }
+
+        // Read only the window needed, either because the entire raster does not fit in memory or because memory for
+        // it could not be reserved.
+        reserved = 0L;
+        try
+        {
+            reserved = this.reserveWindowMemory(canvas.getWidth(), canvas.getHeight());
+            DataRaster raster = this.readWindow(canvas.getSector(), canvas.getWidth(), canvas.getHeight());
+            if (raster != null)
+                raster.drawOnTo(canvas);
+        }
+        catch (Throwable t)
+        {
+            String reason = this.composeExceptionReason(t);
+            Logging.logger().log(Level.SEVERE, reason, t);
+        }
+        finally
+        {
+            if (reserved > 0L)
+                this.memoryBudget.release(reserved);
+        }
     }
 
     public DataRaster getSubRaster(AVList params)
     {
-        synchronized (this.rasterUsageLock)
+        // Reserve memory for the rasters before taking the lock. The reservation is released by getDataRasters.
+        long rasterReserved = !this.isReadWindows() ? this.reserveRasterMemory() : -1L;
+        if (rasterReserved >= 0L)
         {
-            try
+            synchronized (this.rasterUsageLock)
             {
-                DataRaster[] rasters;
                 try
                 {
-                    rasters = this.getDataRasters();
-                    return rasters[0].getSubRaster(params);
+                    DataRaster[] rasters;
+                    try
+                    {
+                        rasters = this.getDataRasters(rasterReserved);
+                        if (rasters != null)
+                            return rasters[0].getSubRaster(params);
+                    }
+                    catch (OutOfMemoryError e)
+                    {
+                        Logging.logger().finest(this.composeExceptionReason(e));
+                        this.releaseMemory();
+
+                        // let's retry once the cached rasters are released
+                        rasters = this.getDataRasters(0L);
+                        if (rasters != null)
+                            return rasters[0].getSubRaster(params);
+                    }
                 }
-                catch (OutOfMemoryError e)
+                catch (Throwable t)
                 {
-                    Logging.logger().finest(this.composeExceptionReason(e));
-                    this.releaseMemory();
+                    String reason = this.composeExceptionReason(t);
+                    Logging.logger().log(Level.SEVERE, reason, t);
 
-                    // let's retry after the finalization and GC
-                    rasters = this.getDataRasters();
-                    return rasters[0].getSubRaster(params);
+                    String message = Logging.getMessage("generic.CannotCreateRaster", this.getDataSource());
+                    Logging.logger().severe(message);
+                    throw new WWRuntimeException(message);
                 }
             }
+        }
+
+        // Read only the window needed, either because the entire raster does not fit in memory or because memory for
+        // it could not be reserved.
+        if (params != null && params.getValue(AVKey.SECTOR) instanceof Sector
+            && params.getValue(AVKey.WIDTH) instanceof Integer && params.getValue(AVKey.HEIGHT) instanceof Integer)
+        {
+            int width = (Integer) params.getValue(AVKey.WIDTH);
+            int height = (Integer) params.getValue(AVKey.HEIGHT);
+            long reserved = 0L;
+            try
+            {
+                reserved = this.reserveWindowMemory(width, height);
+                DataRaster raster = this.readWindow((Sector) params.getValue(AVKey.SECTOR), width, height);
+                if (raster != null)
+                    return raster.getSubRaster(params);
+            }
             catch (Throwable t)
             {
                 String reason = this.composeExceptionReason(t);
                 Logging.logger().log(Level.SEVERE, reason, t);
             }
-
-            String message = Logging.getMessage("generic.CannotCreateRaster", this.getDataSource());
-            Logging.logger().severe(message);
-            throw new WWRuntimeException(message);
+            finally
+            {
+                if (reserved > 0L)
+                    this.memoryBudget.release(reserved);
+            }
         }
+
+        String message = Logging.getMessage("generic.CannotCreateRaster", this.getDataSource());
+        Logging.logger().severe(message);
+        throw new WWRuntimeException(message);
     }
 
     public DataRaster getSubRaster(int width, int height, Sector sector, AVList params)
@@ -359,16 +716,14 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         return this.getSubRaster(params);
     }
 
+    /**
+     * Releases the rasters held in the memory cache, so that a read which ran out of memory can be retried. The
+     * rasters are released through the cache, which also releases their memory in the cache's memory budget.
+     */
     protected void releaseMemory()
     {
         if (this.rasterCache != null)
             this.rasterCache.clear();
-
-        System.runFinalization();
-
-        System.gc();
-
-        Thread.yield();
     }
 
     protected String composeExceptionReason(Throwable t)
@@ -399,6 +754,17 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         return totalBytes;
     }
 
+    protected static void drawRastersOnTo(DataRaster[] rasters, DataRaster canvas)
+    {
+        if (rasters != null)
+        {
+            for (DataRaster raster : rasters)
+            {
+                raster.drawOnTo(canvas);
+            }
+        }
+    }
+
     protected static void disposeRasters(DataRaster[] rasters)
     {
         if (rasters != null)
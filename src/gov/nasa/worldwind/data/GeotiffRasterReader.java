@@ -102,6 +102,208 @@ public class GeotiffRasterReader extends AbstractDataRasterReader
         return rasters;
     }
 
+    /**
+     * Indicates whether a source is a georeferenced GeoTIFF that {@link #readSubRaster(Object,
+     * gov.nasa.worldwind.geom.Sector, int, int)} can read.
+     *
+     * @param source the source to examine.
+     *
+     * @return true if the source is a GeoTIFF containing its own georeferencing, otherwise false.
+     */
+    public boolean canReadSubRaster(Object source)
+    {
+        return this.readSubRasterHeaders(source) != null;
+    }
+
+    /**
+     * Parses the headers of a georeferenced GeoTIFF source, so that windows of the source can be read with {@link
+     * #readSubRaster(gov.nasa.worldwind.formats.tiff.GeotiffReader, gov.nasa.worldwind.geom.Sector, int, int)} without
+     * parsing the headers for each window. The source file is closed when this method returns.
+     *
+     * @param source the source to examine.
+     *
+     * @return a closed reader holding the source's parsed headers, or null if the source is not a GeoTIFF containing
+     *         its own georeferencing.
+     */
+    public GeotiffReader readSubRasterHeaders(Object source)
+    {
+        String path = WWIO.getSourcePath(source);
+        if (path == null)
+        {
+            return null;
+        }
+
+        GeotiffReader reader = null;
+        try
+        {
+            reader = new GeotiffReader(path);
+            return reader.copyMetadataTo(new AVListImpl()).getValue(AVKey.SECTOR) instanceof Sector ? reader : null;
+        }
+        catch (Exception e)
+        {
+            // Intentionally ignoring exceptions.
+            return null;
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the part of a GeoTIFF source within a sector, at a resolution at least that of a raster of the specified
+     * size covering the sector. Only the strips or tiles of the file that intersect the sector are read, and the pixels
+     * are read from a reduced resolution overview in the file when one has sufficient resolution. See {@link
+     * gov.nasa.worldwind.formats.tiff.GeotiffReader#readDataRaster(int, gov.nasa.worldwind.geom.Sector, int)}.
+     *
+     * @param source the source to read.
+     * @param sector the sector to read.
+     * @param width  the width of the raster the pixels are needed for.
+     * @param height the height of the raster the pixels are needed for.
+     *
+     * @return a raster covering the part of the sector within the source, or null if the sector does not intersect the
+     *         source.
+     *
+     * @throws IllegalArgumentException if the source or sector is null, or the width or height are less than 1.
+     * @throws java.io.IOException      if the source is not a georeferenced GeoTIFF, or cannot be read.
+     */
+    public DataRaster readSubRaster(Object source, Sector sector, int width, int height) throws java.io.IOException
+    {
+        if (source == null)
+        {
+            String message = Logging.getMessage("nullValue.SourceIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (width < 1)
+        {
+            String message = Logging.getMessage("generic.InvalidWidth", width);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (height < 1)
+        {
+            String message = Logging.getMessage("generic.InvalidHeight", height);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        String path = WWIO.getSourcePath(source);
+        if (path == null)
+        {
+            String message = Logging.getMessage("DataRaster.CannotRead", source);
+            Logging.logger().severe(message);
+            throw new java.io.IOException(message);
+        }
+
+        GeotiffReader reader = null;
+        try
+        {
+            reader = new GeotiffReader(path);
+            return this.doReadSubRaster(reader, sector, width, height);
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the part of a GeoTIFF source within a sector using headers previously parsed by {@link
+     * #readSubRasterHeaders(Object)}. See {@link #readSubRaster(Object, gov.nasa.worldwind.geom.Sector, int, int)}.
+     * This method may be called concurrently with the same headers.
+     *
+     * @param headers the source's parsed headers.
+     * @param sector  the sector to read.
+     * @param width   the width of the raster the pixels are needed for.
+     * @param height  the height of the raster the pixels are needed for.
+     *
+     * @return a raster covering the part of the sector within the source, or null if the sector does not intersect the
+     *         source.
+     *
+     * @throws IllegalArgumentException if the headers or sector is null, or the width or height are less than 1.
+     * @throws java.io.IOException      if the source cannot be read.
+     */
+    public DataRaster readSubRaster(GeotiffReader headers, Sector sector, int width, int height)
+        throws java.io.IOException
+    {
+        if (headers == null)
+        {
+            String message = Logging.getMessage("nullValue.ReaderIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (width < 1)
+        {
+            String message = Logging.getMessage("generic.InvalidWidth", width);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (height < 1)
+        {
+            String message = Logging.getMessage("generic.InvalidHeight", height);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        GeotiffReader reader = null;
+        try
+        {
+            reader = new GeotiffReader(headers);
+            return this.doReadSubRaster(reader, sector, width, height);
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                reader.close();
+            }
+        }
+    }
+
+    protected DataRaster doReadSubRaster(GeotiffReader reader, Sector sector, int width, int height)
+        throws java.io.IOException
+    {
+        // Skip source pixels only when the requested raster has fewer pixels across the sector than the source.
+        int decimation = 1;
+        Object o = reader.copyMetadataTo(new AVListImpl()).getValue(AVKey.SECTOR);
+        if (o instanceof Sector)
+        {
+            Sector imageSector = (Sector) o;
+            double pixelsAcross = sector.getDeltaLonDegrees() / imageSector.getDeltaLonDegrees()
+                * reader.getWidth(0);
+            double pixelsDown = sector.getDeltaLatDegrees() / imageSector.getDeltaLatDegrees()
+                * reader.getHeight(0);
+            decimation = Math.max((int) Math.min(pixelsAcross / width, pixelsDown / height), 1);
+        }
+
+        return reader.readDataRaster(0, sector, decimation);
+    }
+
     protected void doReadMetadata(Object source, AVList params) throws java.io.IOException
     {
         String path = WWIO.getSourcePath(source);
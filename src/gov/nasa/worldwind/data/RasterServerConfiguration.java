@@ -95,7 +95,8 @@ public class RasterServerConfiguration extends AbstractXMLEventParser
 
         public Sector getSector()
         {
-            return ((RasterSector) this.getField("Sector")).getSector();
+            RasterSector sector = (RasterSector) this.getField("Sector");
+            return sector != null ? sector.getSector() : null;
         }
     }
 
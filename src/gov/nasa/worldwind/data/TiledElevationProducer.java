@@ -21,7 +21,7 @@ import java.io.IOException;
 public class TiledElevationProducer extends TiledRasterProducer
 {
     // Extreme elevations computed during production.
-    protected double[] extremes = null;
+    protected double[] extremes = null; // guarded by this
     // Default production parameter values.
     protected static final String DEFAULT_IMAGE_FORMAT = "application/bil32";
     protected static final double DEFAULT_MISSING_DATA_SIGNAL = (double) Short.MIN_VALUE;
@@ -308,7 +308,13 @@ public class TiledElevationProducer extends TiledRasterProducer
         super.installTileRasterLater(levelSet, tile, tileRaster, params);
     }
 
-    protected void updateExtremeElevations(DataRaster raster)
+    /**
+     * Merges a tile's extreme elevations into the extremes of the elevations produced so far. This is synchronized
+     * because tiles are installed concurrently when the tile composition pool is enabled.
+     *
+     * @param raster the tile raster whose extremes to merge.
+     */
+    protected synchronized void updateExtremeElevations(DataRaster raster)
     {
         if (!(raster instanceof BufferWrapperRaster))
         {
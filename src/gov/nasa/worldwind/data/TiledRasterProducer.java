@@ -16,8 +16,19 @@ import org.w3c.dom.*;
 import java.io.File;
 import java.lang.Thread;
 import java.util.Map;
+import java.util.concurrent.*;
 
 /**
+ * Produces a tiled raster pyramid from data rasters. Each tile of the final level is drawn from the data rasters that
+ * intersect it, and each tile above the final level is drawn from its four sub-tiles.
+ * <p/>
+ * By default tiles are composed on the thread that starts production, and only written on other threads. If the
+ * production parameters specify {@link AVKey#TILED_RASTER_PRODUCER_THREAD_POOL_SIZE} greater than one, tiles are
+ * composed on a fork/join pool: the sub-trees of each tile are composed concurrently, and each sub-tile is drawn into
+ * its parent and queued for writing as soon as it completes. Memory remains bounded by the raster cache, which holds
+ * the data rasters read, and by the tile write permits, which limit the number of composed tiles waiting to be
+ * written.
+ *
  * @author dcollins
  * @version $Id: TiledRasterProducer.java 3043 2015-04-22 20:56:26Z tgaskins $
  */
@@ -29,6 +40,7 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
     private static final int DEFAULT_TILE_WIDTH_AND_HEIGHT = 512;
     private static final int DEFAULT_SINGLE_LEVEL_TILE_WIDTH_AND_HEIGHT = 512;
     private static final double DEFAULT_LEVEL_ZERO_TILE_DELTA = 36d;
+    private static final long LEVEL_PROGRESS_INTERVAL = 1000L; // milliseconds
 
     // List of source data rasters.
     private java.util.List<DataRaster> dataRasterList = new java.util.ArrayList<DataRaster>();
@@ -38,9 +50,16 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
     private final java.util.concurrent.ExecutorService tileWriteService;
     private final java.util.concurrent.Semaphore tileWriteSemaphore;
     private final Object fileLock = new Object();
+    // Concurrent tile composition, or null if tiles are composed on the production thread.
+    private ForkJoinPool tileComposePool;
     // Progress counters.
+    private final Object progressLock = new Object();
     private int tile;
     private int tileCount;
+    private int[] levelTile;
+    private int[] levelTileCount;
+    private long[] levelStartTime;
+    private long[] levelMessageTime;
 
     private DataRasterReaderFactory readerFactory;
 
@@ -515,6 +534,13 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         int lastRow = Tile.computeRow(dLat, sector.getMaxLatitude(), latOrigin);
         int lastCol = Tile.computeColumn(dLon, sector.getMaxLongitude(), lonOrigin);
 
+        int threadPoolSize = this.extractThreadPoolSize(params);
+        if (threadPoolSize > 1)
+        {
+            this.installLevelSetConcurrently(levelSet, params, threadPoolSize, firstRow, firstCol, lastRow, lastCol);
+            return;
+        }
+
         buildLoop:
         {
             Angle p1 = Tile.computeRowLatitude(firstRow, dLat, latOrigin);
@@ -542,6 +568,143 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
                 p1 = p2;
             }
         }
+
+        this.levelProgressComplete();
+    }
+
+    /**
+     * Installs the tiles of a level set using a fork/join pool to compose the tiles. Each top-level tile is a task,
+     * which forks a task for each of its sub-tiles.
+     *
+     * @param levelSet       the level set to install.
+     * @param params         the production parameters.
+     * @param threadPoolSize the number of threads composing tiles.
+     * @param firstRow       the first row of the level set's first level.
+     * @param firstCol       the first column of the level set's first level.
+     * @param lastRow        the last row of the level set's first level.
+     * @param lastCol        the last column of the level set's first level.
+     *
+     * @throws java.io.IOException if an error occurs while composing a tile.
+     */
+    protected void installLevelSetConcurrently(LevelSet levelSet, AVList params, int threadPoolSize, int firstRow,
+        int firstCol, int lastRow, int lastCol) throws java.io.IOException
+    {
+        Level level = levelSet.getFirstLevel();
+        Angle dLat = level.getTileDelta().getLatitude();
+        Angle dLon = level.getTileDelta().getLongitude();
+        Angle latOrigin = levelSet.getTileOrigin().getLatitude();
+        Angle lonOrigin = levelSet.getTileOrigin().getLongitude();
+
+        java.util.List<TileRasterTask> tasks = new java.util.ArrayList<TileRasterTask>();
+        Angle p1 = Tile.computeRowLatitude(firstRow, dLat, latOrigin);
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            Angle p2 = p1.add(dLat);
+            Angle t1 = Tile.computeColumnLongitude(firstCol, dLon, lonOrigin);
+            for (int col = firstCol; col <= lastCol; col++)
+            {
+                Angle t2 = t1.add(dLon);
+                Tile tile = new Tile(new Sector(p1, p2, t1, t2), level, row, col);
+                tasks.add(new TileRasterTask(levelSet, tile, params, true));
+                t1 = t2;
+            }
+            p1 = p2;
+        }
+
+        this.tileComposePool = new ForkJoinPool(threadPoolSize);
+        try
+        {
+            for (TileRasterTask task : tasks)
+            {
+                this.tileComposePool.execute(task);
+            }
+
+            for (TileRasterTask task : tasks)
+            {
+                task.join();
+            }
+        }
+        catch (WWRuntimeException e)
+        {
+            // The fork/join pool may wrap the task's exception in another of the same type.
+            for (Throwable t = e.getCause(); t != null; t = t.getCause())
+            {
+                if (t instanceof java.io.IOException)
+                    throw (java.io.IOException) t;
+            }
+            throw e;
+        }
+        finally
+        {
+            this.tileComposePool.shutdownNow();
+            this.tileComposePool = null;
+        }
+
+        this.levelProgressComplete();
+    }
+
+    /**
+     * Extracts the number of threads composing tiles from the production parameters. The value of {@link
+     * AVKey#TILED_RASTER_PRODUCER_THREAD_POOL_SIZE} may be an Integer, a numeric String, or "Auto" for the number of
+     * available processors.
+     *
+     * @param params the production parameters.
+     *
+     * @return the number of threads composing tiles. Values less than two indicate tiles are composed on the production
+     *         thread.
+     */
+    protected int extractThreadPoolSize(AVList params)
+    {
+        Object o = (null != params) ? params.getValue(AVKey.TILED_RASTER_PRODUCER_THREAD_POOL_SIZE) : null;
+        if (o instanceof Integer)
+            return (Integer) o;
+
+        if ("Auto".equalsIgnoreCase(WWUtil.isEmpty(o) ? null : o.toString()))
+            return Runtime.getRuntime().availableProcessors();
+
+        Integer size = WWUtil.isEmpty(o) ? null : WWUtil.convertStringToInteger(o.toString());
+        return (null != size) ? size : 1;
+    }
+
+    /**
+     * Composes a tile raster on the tile composition pool. Top-level tasks queue their tile for writing, and other
+     * tasks return their tile to the parent task.
+     */
+    protected class TileRasterTask extends RecursiveTask<DataRaster>
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final LevelSet levelSet;
+        protected final Tile tile;
+        protected final AVList params;
+        protected final boolean install;
+
+        public TileRasterTask(LevelSet levelSet, Tile tile, AVList params, boolean install)
+        {
+            this.levelSet = levelSet;
+            this.tile = tile;
+            this.params = params;
+            this.install = install;
+        }
+
+        protected DataRaster compute()
+        {
+            try
+            {
+                DataRaster tileRaster = createTileRaster(this.levelSet, this.tile, this.params);
+                if (tileRaster != null && this.install && !isStopped())
+                {
+                    installTileRasterLater(this.levelSet, this.tile, tileRaster, this.params);
+                    return null;
+                }
+
+                return tileRaster;
+            }
+            catch (java.io.IOException e)
+            {
+                throw new WWRuntimeException(e);
+            }
+        }
     }
 
     protected DataRaster createTileRaster(LevelSet levelSet, Tile tile, AVList params) throws java.io.IOException
@@ -558,12 +721,16 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
             tileRaster = this.drawDataSources(levelSet, tile, this.dataRasterList, params);
         }
         // Otherwise, recursively create a tile raster from the next level's tile rasters.
+        else if (this.tileComposePool != null && ForkJoinTask.getPool() == this.tileComposePool)
+        {
+            tileRaster = this.drawDescendantsConcurrently(levelSet, tile, params);
+        }
         else
         {
             tileRaster = this.drawDescendants(levelSet, tile, params);
         }
 
-        this.updateProgress();
+        this.updateProgress(tile);
 
         return tileRaster;
     }
@@ -663,6 +830,70 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         return tileRaster;
     }
 
+    /**
+     * Creates a tile raster from its sub-tile rasters, composing the sub-tiles concurrently. This produces the same
+     * raster as {@link #drawDescendants(LevelSet, gov.nasa.worldwind.util.Tile, AVList)}, but draws each sub-tile into
+     * the tile and queues it for writing as soon as it completes, rather than after all sub-tiles complete.
+     *
+     * @param levelSet the level set being produced.
+     * @param tile     the tile to create.
+     * @param params   the production parameters.
+     *
+     * @return the tile raster, or null if no sub-tile has a raster or the tile's level is empty.
+     */
+    protected DataRaster drawDescendantsConcurrently(LevelSet levelSet, Tile tile, AVList params)
+    {
+        DataRaster tileRaster = null;
+
+        // Fork a task for each sub-tile that intersects the level set, except the first, which this thread composes.
+        Tile[] subTiles = this.createSubTiles(tile, levelSet.getLevel(tile.getLevelNumber() + 1));
+        TileRasterTask[] tasks = new TileRasterTask[subTiles.length];
+        int first = -1;
+        for (int index = 0; index < subTiles.length; index++)
+        {
+            if (subTiles[index].getSector().intersects(levelSet.getSector()))
+            {
+                tasks[index] = new TileRasterTask(levelSet, subTiles[index], params, false);
+                if (first < 0)
+                    first = index;
+                else
+                    tasks[index].fork();
+            }
+        }
+
+        // Draw the sub-tiles in order, releasing each one to the tile writer once it has been drawn.
+        for (int index = 0; index < subTiles.length; index++)
+        {
+            if (tasks[index] == null)
+                continue;
+
+            DataRaster subRaster = (index == first) ? tasks[index].invoke() : tasks[index].join();
+            tasks[index] = null;
+
+            if (subRaster == null || this.isStopped())
+                continue;
+
+            if (!tile.getLevel().isEmpty())
+            {
+                if (tileRaster == null)
+                {
+                    tileRaster = this.createDataRaster(tile.getLevel().getTileWidth(), tile.getLevel().getTileHeight(),
+                        tile.getSector(), params);
+                }
+
+                subRaster.drawOnTo(tileRaster);
+            }
+
+            this.installTileRasterLater(levelSet, subTiles[index], subRaster, params);
+        }
+
+        // Exit if the caller has instructed us to stop production.
+        if (this.isStopped())
+            return null;
+
+        return tileRaster;
+    }
+
     protected Tile[] createSubTiles(Tile tile, Level nextLevel)
     {
         Angle p0 = tile.getSector().getMinLatitude();
@@ -795,10 +1026,19 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         };
     }
 
+    /**
+     * Queues a tile raster for writing. When {@link AVKey#TILED_RASTER_PRODUCER_THREAD_POOL_SIZE} is greater than one,
+     * this method is called concurrently from the tile composition threads, so subclasses that override it must be
+     * thread safe.
+     *
+     * @param levelSet   the level set the tile belongs to.
+     * @param tile       the tile to install.
+     * @param tileRaster the tile's raster.
+     * @param params     the installation parameters.
+     */
     protected void installTileRasterLater(final LevelSet levelSet, final Tile tile, final DataRaster tileRaster,
         final AVList params)
     {
-        // TODO: comment
         // Try to acquire a permit from the tile write semaphore.
         this.getTileWriteSemaphore().acquireUninterruptibly();
         // We've acquired the permit, now execute the installTileRaster() routine in a different thread.
@@ -1208,6 +1448,7 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         Sector sector = levelSet.getSector();
 
         this.tileCount = 0;
+        this.levelTileCount = new int[levelSet.getLevels().size()];
         for (Level level : levelSet.getLevels())
         {
             Angle dLat = level.getTileDelta().getLatitude();
@@ -1218,7 +1459,8 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
             int firstCol = Tile.computeColumn(dLon, sector.getMinLongitude(), lonOrigin);
             int lastRow = Tile.computeRow(dLat, sector.getMaxLatitude(), latOrigin);
             int lastCol = Tile.computeColumn(dLon, sector.getMaxLongitude(), lonOrigin);
-            this.tileCount += (lastRow - firstRow + 1) * (lastCol - firstCol + 1);
+            this.levelTileCount[level.getLevelNumber()] = (lastRow - firstRow + 1) * (lastCol - firstCol + 1);
+            this.tileCount += this.levelTileCount[level.getLevelNumber()];
 
             if (this.isFinalLevel(levelSet, level.getLevelNumber(), params))
                 break;
@@ -1227,14 +1469,91 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
 
     protected void startProgress()
     {
-        this.tile = 0;
+        synchronized (this.progressLock)
+        {
+            this.tile = 0;
+            int numLevels = (this.levelTileCount != null) ? this.levelTileCount.length : 0;
+            this.levelTile = new int[numLevels];
+            this.levelStartTime = new long[numLevels];
+            this.levelMessageTime = new long[numLevels];
+        }
+
         this.firePropertyChange(AVKey.PROGRESS, null, 0d);
     }
 
     protected void updateProgress()
     {
-        double oldProgress = this.tile / (double) this.tileCount;
-        double newProgress = ++this.tile / (double) this.tileCount;
+        double oldProgress, newProgress;
+        synchronized (this.progressLock)
+        {
+            oldProgress = this.tile / (double) this.tileCount;
+            newProgress = ++this.tile / (double) this.tileCount;
+        }
+
         this.firePropertyChange(AVKey.PROGRESS, oldProgress, newProgress);
     }
+
+    /**
+     * Counts a completed tile toward the overall progress and its level's progress. At most once per second for each
+     * level, and when a level's last tile completes, a {@link AVKey#PROGRESS_MESSAGE} event reports the number of the
+     * level's tiles completed and the level's throughput.
+     *
+     * @param tile the completed tile.
+     */
+    protected void updateProgress(Tile tile)
+    {
+        String message = null;
+        synchronized (this.progressLock)
+        {
+            int levelNumber = tile.getLevelNumber();
+            if (this.levelTile != null && levelNumber < this.levelTile.length)
+            {
+                long time = System.currentTimeMillis();
+                if (this.levelTile[levelNumber]++ == 0)
+                    this.levelStartTime[levelNumber] = time;
+
+                if (this.levelTile[levelNumber] == this.levelTileCount[levelNumber]
+                    || time - this.levelMessageTime[levelNumber] >= LEVEL_PROGRESS_INTERVAL)
+                {
+                    this.levelMessageTime[levelNumber] = time;
+                    message = this.composeLevelProgressMessage(levelNumber, time);
+                }
+            }
+        }
+
+        this.updateProgress();
+
+        if (message != null)
+            this.firePropertyChange(AVKey.PROGRESS_MESSAGE, null, message);
+    }
+
+    /** Reports the throughput of levels whose tiles did not all complete, such as tiles outside the level set. */
+    protected void levelProgressComplete()
+    {
+        java.util.List<String> messages = new java.util.ArrayList<String>();
+        synchronized (this.progressLock)
+        {
+            if (this.levelTile == null)
+                return;
+
+            long time = System.currentTimeMillis();
+            for (int levelNumber = 0; levelNumber < this.levelTile.length; levelNumber++)
+            {
+                if (this.levelTile[levelNumber] > 0 && this.levelTile[levelNumber] < this.levelTileCount[levelNumber])
+                    messages.add(this.composeLevelProgressMessage(levelNumber, time));
+            }
+        }
+
+        for (String message : messages)
+        {
+            this.firePropertyChange(AVKey.PROGRESS_MESSAGE, null, message);
+        }
+    }
+
+    protected String composeLevelProgressMessage(int levelNumber, long time)
+    {
+        double seconds = Math.max(1L, time - this.levelStartTime[levelNumber]) / 1000d;
+        return Logging.getMessage("TiledRasterProducer.LevelProgress", levelNumber, this.levelTile[levelNumber],
+            this.levelTileCount[levelNumber], String.format("%.1f", this.levelTile[levelNumber] / seconds));
+    }
 }
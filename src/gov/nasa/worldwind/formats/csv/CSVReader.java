@@ -22,6 +22,7 @@ public class CSVReader implements Track, TrackSegment
     private List<TrackSegment> segments = new ArrayList<TrackSegment>();
     private List<TrackPoint> points = new ArrayList<TrackPoint>();
     private String name;
+    private TrackStore trackStore;
 //    private int lineNumber = 0;
 
     public CSVReader()
@@ -50,6 +51,22 @@ public class CSVReader implements Track, TrackSegment
         return this.points;
     }
 
+    public TrackStore getTrackStore()
+    {
+        return this.trackStore;
+    }
+
+    /**
+     * Specifies a track store to read points into. When a store is specified, each stream read adds a track to the
+     * store, and points are added to the store as they're read rather than held by this reader as {@link TrackPoint}s.
+     *
+     * @param trackStore the store to read points into. May be null, in which case this reader holds the points.
+     */
+    public void setTrackStore(TrackStore trackStore)
+    {
+        this.trackStore = trackStore;
+    }
+
     /**
      * @param path
      * @throws IllegalArgumentException if <code>path</code> is null
@@ -130,6 +147,9 @@ public class CSVReader implements Track, TrackSegment
         String sentence;
         Scanner scanner = new Scanner(stream);
 
+        if (this.trackStore != null)
+            this.trackStore.beginTrack(this.name);
+
         try
         {
             do
@@ -156,7 +176,16 @@ public class CSVReader implements Track, TrackSegment
         if ( sentence.trim().length() > 0)
         {
             CSVTrackPoint point = new CSVTrackPoint(sentence.split(","));
-            this.points.add(point);
+
+            if (this.trackStore != null)
+            {
+                this.trackStore.addPoint(point.getLatitude(), point.getLongitude(), point.getElevation(),
+                    TrackStore.parseTime(point.getTime()));
+            }
+            else
+            {
+                this.points.add(point);
+            }
         }
 //        }
 //        catch (Exception e)
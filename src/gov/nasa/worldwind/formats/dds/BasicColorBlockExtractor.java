@@ -11,6 +11,9 @@ import gov.nasa.worldwind.util.Logging;
  * Provides access to 4x4 blocks of pixel data from a <code>BufferedImage</code> via the
  * <code>ColorBlockExtractor</code> interface. This class is not thread safe. Unsynchronized access will result in
  * unpredictable behavior. Acces to methods of this class must be synchronized by the caller.
+ * <p/>
+ * Pixels are read from the image one row of 4x4 blocks at a time, and reused until a block from a different row is
+ * requested. Changes to the image are therefore not seen by blocks extracted from a row of blocks already read.
  *
  * @see java.awt.image.BufferedImage
  * 
@@ -22,7 +25,8 @@ public class BasicColorBlockExtractor implements ColorBlockExtractor
     protected int width;
     protected int height;
     protected java.awt.image.BufferedImage image;
-    private int[] buffer;
+    private int[] rowBuffer;
+    private int rowBufferY;
 
     protected static int[] remainder =
     {
@@ -53,7 +57,7 @@ public class BasicColorBlockExtractor implements ColorBlockExtractor
         this.width = image.getWidth();
         this.height = image.getHeight();
         this.image = image;
-        this.buffer = new int[16];
+        this.rowBufferY = -1;
     }
 
     /**
@@ -110,24 +114,28 @@ public class BasicColorBlockExtractor implements ColorBlockExtractor
         int blockPos = 0;
 
         // Extracts color data from the image in INT_ARGB format. So each integer in the buffer is a tightly packed
-        // 8888 ARGB int, where the color components are not considered to be premultiplied.
-        this.image.getRGB(x, y, bw, bh, this.buffer, 0, 4);
+        // 8888 ARGB int, where the color components are not considered to be premultiplied. The DXT compressors
+        // extract blocks in row order, so we read the image one row of blocks at a time and reuse those rows for each
+        // block in the row.
+        int[] rows = this.getBlockRows(y, bh);
+        int rowPos;
 
         for (int j = 0; j < 4; j++)
         {
             by = remainder[byOffset + j];
+            rowPos = x + by * this.width;
 
             bx = remainder[bxOffset];
-            int32ToColor32(this.buffer[bx + by * 4], colorBlock.color[blockPos++]);
+            int32ToColor32(rows[rowPos + bx], colorBlock.color[blockPos++]);
 
             bx = remainder[bxOffset + 1];
-            int32ToColor32(this.buffer[bx + by * 4], colorBlock.color[blockPos++]);
+            int32ToColor32(rows[rowPos + bx], colorBlock.color[blockPos++]);
 
             bx = remainder[bxOffset + 2];
-            int32ToColor32(this.buffer[bx + by * 4], colorBlock.color[blockPos++]);
+            int32ToColor32(rows[rowPos + bx], colorBlock.color[blockPos++]);
 
             bx = remainder[bxOffset + 3];
-            int32ToColor32(this.buffer[bx + by * 4], colorBlock.color[blockPos++]);
+            int32ToColor32(rows[rowPos + bx], colorBlock.color[blockPos++]);
         }
 
         if (attributes.isPremultiplyAlpha())
@@ -139,6 +147,29 @@ public class BasicColorBlockExtractor implements ColorBlockExtractor
         }
     }
 
+    /**
+     * Returns the pixels of the image rows starting at <code>y</code>, reading them from the image if they are not the
+     * rows most recently read.
+     *
+     * @param y      the first row.
+     * @param height the number of rows.
+     *
+     * @return the rows' pixels as packed 8888 ARGB ints, one row after another.
+     */
+    private int[] getBlockRows(int y, int height)
+    {
+        if (this.rowBuffer == null)
+            this.rowBuffer = new int[4 * this.width];
+
+        if (this.rowBufferY != y)
+        {
+            this.image.getRGB(0, y, this.width, height, this.rowBuffer, 0, this.width);
+            this.rowBufferY = y;
+        }
+
+        return this.rowBuffer;
+    }
+
     protected static void int32ToColor32(int int32, Color32 color)
     {
         // Unpack a 32 bit 8888 ARGB integer into the destination color. The components are assumed to be tightly
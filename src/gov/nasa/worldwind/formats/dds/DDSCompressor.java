@@ -7,7 +7,11 @@ package gov.nasa.worldwind.formats.dds;
 
 import gov.nasa.worldwind.util.*;
 
+import java.awt.*;
 import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * DDSCompressor converts in-memory images into a DDS file encoded with one of the DXT block compression algorithms. If
@@ -17,15 +21,29 @@ import java.awt.image.*;
  * Each compression method accepts a reference to a {@link gov.nasa.worldwind.formats.dds.DXTCompressionAttributes}.
  * This compressor performs the appropriate actions according to the attributes, such as building mip maps and
  * converting the source image to a premultiplied alpha format.
+ * <p/>
+ * By default, DDSCompressor divides the work of filtering mip map levels and compressing DXT blocks among the threads of
+ * the common fork/join pool. Each level is divided into bands of whole block rows, and each band is compressed into its
+ * own range of the output buffer, so the output is identical to compressing on a single thread. See {@link
+ * #setCompressionPool(java.util.concurrent.ForkJoinPool)}.
  *
  * @author dcollins
  * @version $Id: DDSCompressor.java 1171 2013-02-11 21:45:02Z dcollins $
  */
 public class DDSCompressor
 {
+    /**
+     * The number of pixel rows in each band of an image that is filtered or compressed by one task. This is a multiple
+     * of the DXT block height.
+     */
+    protected static final int BAND_HEIGHT = 64;
+
+    protected ForkJoinPool compressionPool;
+
     /** Creates a new DDSCompressor, but otherwise does nothing. */
     public DDSCompressor()
     {
+        this.compressionPool = ForkJoinPool.commonPool();
     }
 
     /**
@@ -537,7 +555,12 @@ public class DDSCompressor
         // single image to the DDS file.
         if (mipMapLevels == null)
         {
-            compressor.compressImage(image, attributes, buffer);
+            mipMapLevels = new java.awt.image.BufferedImage[] {image};
+        }
+
+        if (this.compressionPool != null)
+        {
+            this.compressImagesConcurrently(compressor, mipMapLevels, attributes, buffer);
         }
         else
         {
@@ -599,7 +622,157 @@ public class DDSCompressor
         int mipmapImageType = BufferedImage.TYPE_INT_ARGB_PRE;
         int maxLevel = ImageUtil.getMaxMipmapLevel(image.getWidth(), image.getHeight());
 
-        return ImageUtil.buildMipmaps(image, mipmapImageType, maxLevel);
+        if (this.compressionPool == null)
+        {
+            return ImageUtil.buildMipmaps(image, mipmapImageType, maxLevel);
+        }
+
+        return this.buildMipMapsConcurrently(image, mipmapImageType, maxLevel);
+    }
+
+    /**
+     * Returns the pool used to divide the work of filtering mip map levels and compressing DXT blocks among threads.
+     *
+     * @return the compression pool, or null if images are compressed on the calling thread.
+     */
+    public ForkJoinPool getCompressionPool()
+    {
+        return this.compressionPool;
+    }
+
+    /**
+     * Specifies the pool used to divide the work of filtering mip map levels and compressing DXT blocks among threads.
+     * The output is the same whether or not a pool is used. When a pool is used, the {@link DXTCompressor} returned by
+     * <code>getDXTCompressor</code> is invoked concurrently on separate bands of each image, and must therefore be
+     * thread safe. The compressors provided with this package are thread safe.
+     *
+     * @param pool the compression pool. May be null to compress images on the calling thread.
+     */
+    public void setCompressionPool(ForkJoinPool pool)
+    {
+        this.compressionPool = pool;
+    }
+
+    protected void compressImagesConcurrently(DXTCompressor compressor, java.awt.image.BufferedImage[] images,
+        DXTCompressionAttributes attributes, java.nio.ByteBuffer buffer)
+    {
+        // Divide each image into bands of whole block rows. The blocks of each band occupy a contiguous range of the
+        // buffer following the blocks of the bands above it, so each band is compressed independently into its own
+        // view of the buffer. The compressor allocates its block buffers once per band, and reuses them for each block.
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        int position = buffer.position();
+
+        for (java.awt.image.BufferedImage image : images)
+        {
+            int width = image.getWidth();
+            int height = image.getHeight();
+
+            for (int y = 0; y < height; y += BAND_HEIGHT)
+            {
+                java.awt.image.BufferedImage band = image.getSubimage(0, y, width, Math.min(BAND_HEIGHT, height - y));
+                java.nio.ByteBuffer bandBuffer = buffer.duplicate().order(buffer.order());
+                bandBuffer.position(position);
+
+                tasks.add(new CompressTask(compressor, band, attributes, bandBuffer));
+                position += compressor.getCompressedSize(band, attributes);
+            }
+        }
+
+        this.invokeTasks(tasks);
+        buffer.position(position);
+    }
+
+    protected java.awt.image.BufferedImage[] buildMipMapsConcurrently(java.awt.image.BufferedImage image,
+        int mipmapImageType, int maxLevel)
+    {
+        // Each level is filtered from the level before it, so the levels are built in order, but the rows of each level
+        // are divided into bands that are filtered concurrently. Drawing a band of a level produces the same pixels as
+        // drawing the entire level, so the result is the same as ImageUtil.buildMipmaps.
+        java.awt.image.BufferedImage[] mipMapLevels = new java.awt.image.BufferedImage[1 + maxLevel];
+
+        if (image.getType() == mipmapImageType)
+        {
+            mipMapLevels[0] = image;
+        }
+        else
+        {
+            mipMapLevels[0] = new java.awt.image.BufferedImage(image.getWidth(), image.getHeight(), mipmapImageType);
+            this.getScaledCopyConcurrently(image, mipMapLevels[0]);
+        }
+
+        for (int level = 1; level <= maxLevel; level++)
+        {
+            int width = Math.max(image.getWidth() >> level, 1);
+            int height = Math.max(image.getHeight() >> level, 1);
+
+            mipMapLevels[level] = new java.awt.image.BufferedImage(width, height, mipmapImageType);
+            this.getScaledCopyConcurrently(mipMapLevels[level - 1], mipMapLevels[level]);
+        }
+
+        return mipMapLevels;
+    }
+
+    protected void getScaledCopyConcurrently(final java.awt.image.BufferedImage image,
+        final java.awt.image.BufferedImage canvas)
+    {
+        if (canvas.getHeight() <= BAND_HEIGHT)
+        {
+            ImageUtil.getScaledCopy(image, canvas);
+            return;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int y = 0; y < canvas.getHeight(); y += BAND_HEIGHT)
+        {
+            final Rectangle region = new Rectangle(0, y, canvas.getWidth(),
+                Math.min(BAND_HEIGHT, canvas.getHeight() - y));
+
+            tasks.add(new RecursiveAction()
+            {
+                protected void compute()
+                {
+                    ImageUtil.getScaledCopy(image, canvas, region);
+                }
+            });
+        }
+
+        this.invokeTasks(tasks);
+    }
+
+    protected void invokeTasks(final List<ForkJoinTask<?>> tasks)
+    {
+        this.compressionPool.invoke(new RecursiveAction()
+        {
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /** Compresses one band of an image into the band's range of the output buffer. */
+    protected static class CompressTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final DXTCompressor compressor;
+        protected final java.awt.image.BufferedImage image;
+        protected final DXTCompressionAttributes attributes;
+        protected final java.nio.ByteBuffer buffer;
+
+        public CompressTask(DXTCompressor compressor, java.awt.image.BufferedImage image,
+            DXTCompressionAttributes attributes, java.nio.ByteBuffer buffer)
+        {
+            this.compressor = compressor;
+            this.image = image;
+            this.attributes = attributes;
+            this.buffer = buffer;
+        }
+
+        protected void compute()
+        {
+            this.compressor.compressImage(this.image, this.attributes, this.buffer);
+        }
     }
 
     protected DDSHeader createDDSHeader(DXTCompressor compressor, java.awt.image.BufferedImage image,
@@ -19,6 +19,7 @@ public class GpxReader // TODO: I18N, proper exception handling, remove stack-tr
 {
     private javax.xml.parsers.SAXParser parser;
     private java.util.List<Track> tracks = new java.util.ArrayList<Track>();
+    private TrackStore trackStore;
 
     public GpxReader() throws javax.xml.parsers.ParserConfigurationException, org.xml.sax.SAXException
     {
@@ -78,6 +79,23 @@ public class GpxReader // TODO: I18N, proper exception handling, remove stack-tr
         return this.tracks;
     }
 
+    public TrackStore getTrackStore()
+    {
+        return this.trackStore;
+    }
+
+    /**
+     * Specifies a track store to read points into. When a store is specified, the tracks and routes read are added to
+     * the store as they're parsed rather than held by this reader, and points are added without creating {@link
+     * TrackPoint}s. Routes are added as tracks with a single segment.
+     *
+     * @param trackStore the store to read points into. May be null, in which case this reader holds the tracks.
+     */
+    public void setTrackStore(TrackStore trackStore)
+    {
+        this.trackStore = trackStore;
+    }
+
     public Iterator<Position> getTrackPositionIterator()
     {
         return new Iterator<Position>()
@@ -103,7 +121,106 @@ public class GpxReader // TODO: I18N, proper exception handling, remove stack-tr
 
     private void doRead(java.io.InputStream fis) throws java.io.IOException, org.xml.sax.SAXException
     {
-        this.parser.parse(fis, new Handler());
+        this.parser.parse(fis, this.trackStore != null ? new StoreHandler(this.trackStore) : new Handler());
+    }
+
+    private static class StoreHandler extends org.xml.sax.helpers.DefaultHandler
+    {
+        // this is a private class used solely by the containing class, so no validation occurs in it.
+
+        private TrackStore store;
+        private boolean firstElement = true;
+        private boolean inTrack;
+        private boolean inPoint;
+        private double latitude;
+        private double longitude;
+        private double elevation;
+        private long time;
+        private StringBuilder characters = new StringBuilder();
+
+        public StoreHandler(TrackStore store)
+        {
+            this.store = store;
+        }
+
+        @Override
+        public void startElement(String uri, String lname, String qname, org.xml.sax.Attributes attributes)
+            throws org.xml.sax.SAXException
+        {
+            if (this.firstElement)
+            {
+                if (!lname.equalsIgnoreCase("gpx"))
+                    throw new IllegalArgumentException(Logging.getMessage("formats.notGPX", uri));
+                else
+                    this.firstElement = false;
+            }
+
+            this.characters.setLength(0);
+
+            if (lname.equalsIgnoreCase("trk") || lname.equalsIgnoreCase("rte"))
+            {
+                this.inTrack = true;
+                this.store.beginTrack(null);
+
+                if (lname.equalsIgnoreCase("rte"))
+                    this.store.beginSegment();
+            }
+            else if (this.inTrack && lname.equalsIgnoreCase("trkseg"))
+            {
+                this.store.beginSegment();
+            }
+            else if (this.inTrack && (lname.equalsIgnoreCase("trkpt") || lname.equalsIgnoreCase("rtept")))
+            {
+                this.inPoint = true;
+                this.latitude = 0;
+                this.longitude = 0;
+                this.elevation = 0;
+                this.time = TrackStore.NO_TIME;
+
+                for (int i = 0; i < attributes.getLength(); i++)
+                {
+                    String attrName = attributes.getLocalName(i);
+                    if (attrName.equalsIgnoreCase("lat"))
+                        this.latitude = Double.parseDouble(attributes.getValue(i));
+                    else if (attrName.equalsIgnoreCase("lon"))
+                        this.longitude = Double.parseDouble(attributes.getValue(i));
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String lname, String qname) throws org.xml.sax.SAXException
+        {
+            if (this.inPoint)
+            {
+                if (lname.equalsIgnoreCase("ele"))
+                {
+                    this.elevation = Double.parseDouble(this.characters.toString());
+                }
+                else if (lname.equalsIgnoreCase("time"))
+                {
+                    this.time = TrackStore.parseTime(this.characters.toString());
+                }
+                else if (lname.equalsIgnoreCase("trkpt") || lname.equalsIgnoreCase("rtept"))
+                {
+                    this.store.addPoint(this.latitude, this.longitude, this.elevation, this.time);
+                    this.inPoint = false;
+                }
+            }
+            else if (this.inTrack)
+            {
+                if (lname.equalsIgnoreCase("name"))
+                    this.store.setTrackName(this.store.getNumTracks() - 1, this.characters.toString().trim());
+                else if (lname.equalsIgnoreCase("trk") || lname.equalsIgnoreCase("rte"))
+                    this.inTrack = false;
+            }
+        }
+
+        @Override
+        public void characters(char[] data, int start, int length) throws org.xml.sax.SAXException
+        {
+            this.characters.append(data, start, length);
+        }
     }
 
     private class Handler extends org.xml.sax.helpers.DefaultHandler
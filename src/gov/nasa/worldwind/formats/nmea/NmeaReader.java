@@ -25,6 +25,7 @@ public class NmeaReader implements Track, TrackSegment
         new java.util.ArrayList<TrackPoint>();
     private String name;
     private int sentenceNumber = 0;
+    private TrackStore trackStore;
 
     public NmeaReader()
     {
@@ -52,6 +53,23 @@ public class NmeaReader implements Track, TrackSegment
         return this.points;
     }
 
+    public TrackStore getTrackStore()
+    {
+        return this.trackStore;
+    }
+
+    /**
+     * Specifies a track store to read points into. When a store is specified, each stream read adds a track to the
+     * store, and points are added to the store as they're read rather than held by this reader as {@link TrackPoint}s.
+     * GGA sentences carry no date, so the points' times are milliseconds since midnight UTC.
+     *
+     * @param trackStore the store to read points into. May be null, in which case this reader holds the points.
+     */
+    public void setTrackStore(TrackStore trackStore)
+    {
+        this.trackStore = trackStore;
+    }
+
     /**
      * @param path
      * @throws IllegalArgumentException if <code>path</code> is null
@@ -76,10 +94,13 @@ public class NmeaReader implements Track, TrackSegment
             throw new java.io.FileNotFoundException(path);
         }
 
+        int numStorePoints = this.trackStore != null ? this.trackStore.getNumPoints() : 0;
+
         java.io.FileInputStream fis = new java.io.FileInputStream(file);
         this.doReadStream(fis);
 
-        if (this.tracks.isEmpty() || this.tracks.get(0).getNumPoints() == 0)
+        if (this.trackStore != null ? this.trackStore.getNumPoints() == numStorePoints
+            : this.tracks.isEmpty() || this.tracks.get(0).getNumPoints() == 0)
             throw new IllegalArgumentException(Logging.getMessage("formats.notNMEA", path));
 //        java.nio.ByteBuffer buffer = this.doReadFile(fis);
 //        this.parseBuffer(buffer);
@@ -136,6 +157,9 @@ public class NmeaReader implements Track, TrackSegment
     {
         String sentence;
 
+        if (this.trackStore != null)
+            this.trackStore.beginTrack(this.name);
+
         try
         {
             do
@@ -256,7 +280,16 @@ public class NmeaReader implements Track, TrackSegment
         {
             gov.nasa.worldwind.formats.nmea.NmeaTrackPoint point = new gov.nasa.worldwind.formats.nmea.NmeaTrackPoint(
                 words);
-            this.points.add(point);
+
+            if (this.trackStore != null)
+            {
+                this.trackStore.addPoint(point.getLatitude(), point.getLongitude(), point.getElevation(),
+                    parseTime(point.getTime()));
+            }
+            else
+            {
+                this.points.add(point);
+            }
         }
         catch (Exception e)
         {
@@ -264,4 +297,30 @@ public class NmeaReader implements Track, TrackSegment
                 e.getMessage(), this.sentenceNumber, this.name);
         }
     }
+
+    /**
+     * Converts a GGA time of the form hhmmss.ss to milliseconds since midnight.
+     *
+     * @param time the time to convert.
+     *
+     * @return the time in milliseconds since midnight, or {@link TrackStore#NO_TIME} if the time cannot be parsed.
+     */
+    private static long parseTime(String time)
+    {
+        if (time == null || time.length() < 6)
+            return TrackStore.NO_TIME;
+
+        try
+        {
+            int hours = Integer.parseInt(time.substring(0, 2));
+            int minutes = Integer.parseInt(time.substring(2, 4));
+            double seconds = Double.parseDouble(time.substring(4));
+
+            return (hours * 60L + minutes) * 60000L + Math.round(seconds * 1000);
+        }
+        catch (NumberFormatException e)
+        {
+            return TrackStore.NO_TIME;
+        }
+    }
 }
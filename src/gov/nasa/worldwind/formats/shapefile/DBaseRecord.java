@@ -5,11 +5,12 @@
  */
 package gov.nasa.worldwind.formats.shapefile;
 
-import gov.nasa.worldwind.avlist.AVListImpl;
+import gov.nasa.worldwind.avlist.*;
 import gov.nasa.worldwind.util.Logging;
 
 import java.nio.*;
 import java.text.*;
+import java.util.*;
 import java.util.logging.Level;
 
 /**
@@ -20,9 +21,43 @@ public class DBaseRecord extends AVListImpl
 {
     private boolean deleted = false;
     private int recordNumber;
-    private static final DateFormat dateformat = new SimpleDateFormat("yyyyMMdd");
+    // SimpleDateFormat is not thread safe, and deferred decoding parses dates on whichever thread reads the field.
+    private static final ThreadLocal<DateFormat> dateformat = new ThreadLocal<DateFormat>()
+    {
+        @Override
+        protected DateFormat initialValue()
+        {
+            return new SimpleDateFormat("yyyyMMdd");
+        }
+    };
+    // Properties supporting deferred field decoding. The content holds the record's undecoded field values, and is
+    // released once every field is decoded.
+    private DBaseFile dbaseFile;
+    private ByteBuffer content;
+    private boolean[] decoded;
+    private int numDecoded;
 
     public DBaseRecord(DBaseFile dbaseFile, ByteBuffer buffer, int recordNumber)
+    {
+        this(dbaseFile, buffer, recordNumber, false);
+    }
+
+    /**
+     * Creates a record from the content of a DBase file. When field decoding is deferred, each field's value is decoded
+     * the first time that field is requested, and the record keeps a reference to the buffer's content until then. This
+     * avoids decoding fields an application never asks for, such as when displaying a few attributes of a file with
+     * many columns. Deferred decoding is transparent to callers: the record's {@link AVList} methods decode the fields
+     * they need.
+     *
+     * @param dbaseFile    the DBase file containing the record.
+     * @param buffer       the buffer to read from, positioned at the start of the record. The buffer must not be
+     *                     modified while fields remain undecoded.
+     * @param recordNumber the record's sequence number.
+     * @param deferDecode  true to decode each field when it is first requested, false to decode all fields now.
+     *
+     * @throws IllegalArgumentException if the DBase file or the buffer is null.
+     */
+    public DBaseRecord(DBaseFile dbaseFile, ByteBuffer buffer, int recordNumber, boolean deferDecode)
     {
         if (dbaseFile == null)
         {
@@ -38,7 +73,10 @@ public class DBaseRecord extends AVListImpl
             throw new IllegalArgumentException(message);
         }
 
-        this.readFromBuffer(dbaseFile, buffer, recordNumber);
+        if (deferDecode)
+            this.readDeferredFromBuffer(dbaseFile, buffer, recordNumber);
+        else
+            this.readFromBuffer(dbaseFile, buffer, recordNumber);
     }
 
     public boolean isDeleted()
@@ -77,48 +115,213 @@ public class DBaseRecord extends AVListImpl
 
         for (DBaseField field : fields)
         {
-            int numRead = dbaseFile.readZeroTerminatedString(buffer, bytes, field.getLength());
+            this.decodeField(dbaseFile, field, buffer, bytes);
+        }
+    }
+
+    protected void readDeferredFromBuffer(DBaseFile dbaseFile, ByteBuffer buffer, int recordNumber)
+    {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
 
-            // Add a null entry for this field if the field's value is null or the empty string. This enables
-            // applications to treat the DBaseRecord a standard AVList without any knowledge of the DBase file's field
-            // keys. Specifically, DBaseRecord.hasKey() returns true for all fields.
-            if (dbaseFile.isStringEmpty(bytes, numRead))
+        // Set parent DBaseFile and record number.
+        this.recordNumber = recordNumber;
+
+        // Read deleted record flag, and keep the remaining content until its fields are requested.
+        byte b = buffer.get();
+        this.deleted = (b == 0x2A);
+
+        this.dbaseFile = dbaseFile;
+        this.content = buffer.slice();
+        this.content.order(ByteOrder.LITTLE_ENDIAN);
+        this.decoded = new boolean[dbaseFile.getFields().length];
+        this.numDecoded = 0;
+    }
+
+    @SuppressWarnings({"StringEquality"})
+    protected void decodeField(DBaseFile dbaseFile, DBaseField field, ByteBuffer buffer, byte[] bytes)
+    {
+        int numRead = dbaseFile.readZeroTerminatedString(buffer, bytes, field.getLength());
+
+        // Add a null entry for this field if the field's value is null or the empty string. This enables
+        // applications to treat the DBaseRecord a standard AVList without any knowledge of the DBase file's field
+        // keys. Specifically, DBaseRecord.hasKey() returns true for all fields.
+        if (dbaseFile.isStringEmpty(bytes, numRead))
+        {
+            this.setValue(field.getName(), null);
+            return;
+        }
+
+        String value = dbaseFile.decodeString(bytes, numRead).trim();
+
+        try
+        {
+            if (field.getType() == DBaseField.TYPE_BOOLEAN)
+            {
+                this.setValue(field.getName(), value.equalsIgnoreCase("T") || value.equalsIgnoreCase("Y"));
+            }
+            else if (field.getType() == DBaseField.TYPE_CHAR)
             {
-                this.setValue(field.getName(), null);
-                continue;
+                this.setValue(field.getName(), value);
             }
+            else if (field.getType() == DBaseField.TYPE_DATE)
+            {
+                this.setValue(field.getName(), dateformat.get().parse(value));
+            }
+            else if (field.getType() == DBaseField.TYPE_NUMBER)
+            {
+                // Parse the field value as a decimal number. Double.parseDouble ignores any leading or trailing
+                // whitespace.
+                if (field.getDecimals() > 0)
+                    this.setValue(field.getName(), Double.valueOf(value));
+                else
+                    this.setValue(field.getName(), Long.valueOf(value));
+            }
+        }
+        catch (Exception e)
+        {
+            // Log warning but keep reading.
+            Logging.logger().log(Level.WARNING, Logging.getMessage("SHP.FieldParsingError", field, value), e);
+        }
+    }
 
-            String value = dbaseFile.decodeString(bytes, numRead).trim();
+    /**
+     * Decodes a deferred field the first time it is requested. Fields assigned a value by the application before
+     * they're requested keep that value.
+     *
+     * @param key the field name.
+     */
+    protected void decodeDeferredField(String key) // MUST BE CALLED WITHIN SYNCHRONIZED
+    {
+        if (this.content == null || key == null)
+            return;
 
-            try
+        DBaseField[] fields = this.dbaseFile.getFields();
+        int offset = 0;
+        for (int i = 0; i < fields.length; i++)
+        {
+            if (!this.decoded[i] && fields[i].getName().equals(key))
             {
-                if (field.getType() == DBaseField.TYPE_BOOLEAN)
-                {
-                    this.setValue(field.getName(), value.equalsIgnoreCase("T") || value.equalsIgnoreCase("Y"));
-                }
-                else if (field.getType() == DBaseField.TYPE_CHAR)
-                {
-                    this.setValue(field.getName(), value);
-                }
-                else if (field.getType() == DBaseField.TYPE_DATE)
-                {
-                    this.setValue(field.getName(), dateformat.parse(value));
-                }
-                else if (field.getType() == DBaseField.TYPE_NUMBER)
-                {
-                    // Parse the field value as a decimal number. Double.parseDouble ignores any leading or trailing
-                    // whitespace.
-                    if (field.getDecimals() > 0)
-                        this.setValue(field.getName(), Double.valueOf(value));
-                    else
-                        this.setValue(field.getName(), Long.valueOf(value));
-                }
+                this.markDecoded(i);
+                ByteBuffer buffer = this.content.duplicate();
+                buffer.position(offset);
+                this.decodeField(this.dbaseFile, fields[i], buffer, new byte[fields[i].getLength()]);
+                this.releaseContentIfDecoded();
+                return;
             }
-            catch (Exception e)
+
+            offset += fields[i].getLength();
+        }
+    }
+
+    protected void decodeDeferredFields() // MUST BE CALLED WITHIN SYNCHRONIZED
+    {
+        if (this.content == null)
+            return;
+
+        DBaseField[] fields = this.dbaseFile.getFields();
+        ByteBuffer buffer = this.content.duplicate();
+        for (int i = 0; i < fields.length && this.decoded != null; i++)
+        {
+            if (!this.decoded[i])
+            {
+                this.markDecoded(i);
+                this.decodeField(this.dbaseFile, fields[i], buffer, new byte[fields[i].getLength()]);
+            }
+            else
+            {
+                buffer.position(buffer.position() + fields[i].getLength());
+            }
+        }
+
+        this.releaseContentIfDecoded();
+    }
+
+    protected void markDecoded(int fieldIndex)
+    {
+        this.decoded[fieldIndex] = true;
+        this.numDecoded++;
+    }
+
+    protected void releaseContentIfDecoded()
+    {
+        if (this.decoded != null && this.numDecoded == this.decoded.length)
+        {
+            this.dbaseFile = null;
+            this.content = null;
+            this.decoded = null;
+        }
+    }
+
+    protected void markDeferredFieldDecoded(String key) // MUST BE CALLED WITHIN SYNCHRONIZED
+    {
+        if (this.content == null || key == null)
+            return;
+
+        DBaseField[] fields = this.dbaseFile.getFields();
+        for (int i = 0; i < fields.length; i++)
+        {
+            if (!this.decoded[i] && fields[i].getName().equals(key))
             {
-                // Log warning but keep reading.
-                Logging.logger().log(Level.WARNING, Logging.getMessage("SHP.FieldParsingError", field, value), e);
+                this.markDecoded(i);
+                this.releaseContentIfDecoded();
+                return;
             }
         }
     }
+
+    @Override
+    synchronized public Object getValue(String key)
+    {
+        this.decodeDeferredField(key);
+        return super.getValue(key);
+    }
+
+    @Override
+    synchronized public Collection<Object> getValues()
+    {
+        this.decodeDeferredFields();
+        return super.getValues();
+    }
+
+    @Override
+    synchronized public Set<Map.Entry<String, Object>> getEntries()
+    {
+        this.decodeDeferredFields();
+        return super.getEntries();
+    }
+
+    @Override
+    synchronized public Object setValue(String key, Object value)
+    {
+        this.markDeferredFieldDecoded(key);
+        return super.setValue(key, value);
+    }
+
+    @Override
+    synchronized public boolean hasKey(String key)
+    {
+        this.decodeDeferredField(key);
+        return super.hasKey(key);
+    }
+
+    @Override
+    synchronized public Object removeKey(String key)
+    {
+        this.decodeDeferredField(key);
+        return super.removeKey(key);
+    }
+
+    @Override
+    synchronized public AVList copy()
+    {
+        this.decodeDeferredFields();
+        return super.copy();
+    }
+
+    @Override
+    synchronized public AVList clearList()
+    {
+        this.decodeDeferredFields();
+        return super.clearList();
+    }
 }
@@ -55,6 +55,15 @@ import java.util.logging.Level;
  * java.io.InputStream} to any of the accompanying sources by using the InputStream based constructors, such as {@link
  * #Shapefile(java.io.InputStream, java.io.InputStream, java.io.InputStream, java.io.InputStream)}.
  * <p/>
+ * <h3>Random Access</h3>
+ * <p/>
+ * Shapefiles opened from a file that can be memory mapped, and accompanied by an index file, also support reading
+ * records in any order. This enables applications to read only the records in a region of interest from Shapefiles too
+ * large to read in their entirety. {@link #getRecordIndices(gov.nasa.worldwind.geom.Sector)} finds the records
+ * intersecting a sector using a spatial index built from the records' bounding rectangles the first time it's needed,
+ * {@link #getRecords(java.util.List)} reads a set of records, and {@link #readRecord(int)} reads a single record.
+ * Records read this way have attributes whose fields are decoded when first requested. See {@link #isRandomAccess()}.
+ * <p/>
  * <h3>Coordinate System</h3>
  * <p/>
  * The Shapefile's coordinate system affects how the Shapefile's point coordinates are interpreted as follows: <ul>
@@ -178,6 +187,39 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
     protected ByteBuffer recordHeaderBuffer;
     protected ByteBuffer recordContentBuffer;
     protected MappedByteBuffer mappedShpBuffer;
+    protected MappedByteBuffer mappedShxBuffer;
+    /**
+     * The memory mapped Shapefile in overlapping windows, for random access to Shapefiles too large to map in one
+     * buffer. Window i starts at i times the window stride. Null if the Shapefile is not mapped in windows.
+     */
+    protected MappedByteBuffer[] mappedShpWindows;
+    /** The Shapefile offset of the first byte of <code>mappedShpBuffer</code>. Non-zero only in window record sets. */
+    protected long mappedShpOffset;
+    /** The spatial index of this Shapefile's records, created the first time it's needed. */
+    protected SectorRTree<Integer> spatialIndex;
+    /** True if this Shapefile is a record set created by {@link #createRecordSet()}, which shares its parent's state. */
+    protected boolean recordSet;
+
+    /**
+     * Creates a record set of a Shapefile: a Shapefile sharing the specified Shapefile's header, index, memory mapped
+     * contents, attributes and coordinate system, but with its own point buffer. Records read from the record set hold
+     * their points in the record set's point buffer, which is released with the records.
+     *
+     * @param shapefile the Shapefile to create a record set of.
+     */
+    protected Shapefile(Shapefile shapefile)
+    {
+        this.setValues(shapefile);
+        this.header = shapefile.header;
+        this.index = shapefile.index;
+        this.mappedShpBuffer = shapefile.mappedShpBuffer;
+        this.mappedShpWindows = shapefile.mappedShpWindows;
+        this.mappedShpOffset = shapefile.mappedShpOffset;
+        this.attributeFile = shapefile.attributeFile;
+        this.normalizePoints = shapefile.normalizePoints;
+        this.open = shapefile.open;
+        this.recordSet = true;
+    }
 
     /**
      * Opens an Shapefile from a general source. The source type may be one of the following: <ul> <li>{@link
@@ -543,6 +585,12 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
      */
     public void close()
     {
+        if (this.recordSet) // record sets share their resources with the Shapefile they were created from
+        {
+            this.open = false;
+            return;
+        }
+
         if (this.shpChannel != null)
         {
             WWIO.closeStream(this.shpChannel, null);
@@ -570,9 +618,304 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         this.recordHeaderBuffer = null;
         this.recordContentBuffer = null;
         this.mappedShpBuffer = null;
+        this.mappedShxBuffer = null;
+        this.mappedShpWindows = null;
+        this.spatialIndex = null;
         this.open = false;
     }
 
+    /**
+     * Indicates whether this Shapefile's records can be read in any order, using {@link #readRecord(int)}, {@link
+     * #getRecords(java.util.List)} and {@link #getRecordIndices(gov.nasa.worldwind.geom.Sector)}. Random access is
+     * available while the Shapefile is open, when it's read from a file that can be memory mapped and is accompanied by
+     * an index file. Files too large to map in one buffer are mapped in windows.
+     *
+     * @return true if records can be read in any order, otherwise false.
+     */
+    public boolean isRandomAccess()
+    {
+        return this.open && (this.mappedShpBuffer != null || this.mappedShpWindows != null) && this.index != null;
+    }
+
+    /**
+     * Reads the record at the specified index, independently of the records read by {@link #nextRecord()}. The
+     * record's point coordinates are added to this Shapefile's point buffer, so applications reading many records this
+     * way over time should instead read them in record sets using {@link #getRecords(java.util.List)}, whose points are
+     * released with the records. The record's attributes are read from the attribute file if it supports random
+     * access, and have their fields decoded when first requested.
+     * <p/>
+     * This returns null if the record's shape type is not one of the recognized types.
+     *
+     * @param recordIndex the index of the record to read, from 0 to the number of records - 1.
+     *
+     * @return the record at the specified index.
+     *
+     * @throws IllegalArgumentException if the index is out of range.
+     * @throws IllegalStateException    if the Shapefile is closed or does not support random access.
+     * @throws WWRuntimeException       if an exception occurs while reading the record.
+     * @see #isRandomAccess()
+     */
+    public ShapefileRecord readRecord(int recordIndex)
+    {
+        if (!this.isRandomAccess())
+        {
+            String message = Logging.getMessage("SHP.NotRandomAccess", this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        if (recordIndex < 0 || recordIndex >= this.getNumberOfRecords())
+        {
+            String message = Logging.getMessage("generic.indexOutOfRange", recordIndex);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        try
+        {
+            return this.readRecordAt(recordIndex);
+        }
+        catch (Exception e)
+        {
+            String message = Logging.getMessage("SHP.ExceptionAttemptingToReadShapefileRecord",
+                this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().log(Level.SEVERE, message, e);
+            throw new WWRuntimeException(message, e);
+        }
+    }
+
+    /**
+     * Returns the records at the specified indices, reading each record as the returned iterable is iterated. Each
+     * iteration reads its records into a new record set: a Shapefile sharing this Shapefile's contents, with a point
+     * buffer of its own that is released once the records read into it are no longer referenced. Applications can
+     * therefore read and discard sets of records for as long as this Shapefile is open without accumulating point
+     * data. Records whose shape type is not recognized are omitted.
+     * <p/>
+     * Iterations may run concurrently on multiple threads.
+     *
+     * @param recordIndices the indices of the records to read, each from 0 to the number of records - 1.
+     *
+     * @return the records at the specified indices, in the order of the indices.
+     *
+     * @throws IllegalArgumentException if the list of indices is null.
+     * @throws IllegalStateException    if the Shapefile is closed or does not support random access.
+     * @see #getRecordIndices(gov.nasa.worldwind.geom.Sector)
+     */
+    public Iterable<ShapefileRecord> getRecords(final List<Integer> recordIndices)
+    {
+        if (recordIndices == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (!this.isRandomAccess())
+        {
+            String message = Logging.getMessage("SHP.NotRandomAccess", this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        return new Iterable<ShapefileRecord>()
+        {
+            public Iterator<ShapefileRecord> iterator()
+            {
+                return new RecordIterator(Shapefile.this, recordIndices);
+            }
+        };
+    }
+
+    /**
+     * Returns the indices of the records whose bounding rectangles intersect a sector, in increasing order. Records
+     * with null shapes intersect nothing. The first call builds a spatial index of this Shapefile's records by reading
+     * each record's bounding rectangle, without reading the record's points. Subsequent calls search the spatial index.
+     * <p/>
+     * This may be called concurrently by multiple threads.
+     *
+     * @param sector the sector of interest.
+     *
+     * @return the indices of the records intersecting the sector.
+     *
+     * @throws IllegalArgumentException if the sector is null.
+     * @throws IllegalStateException    if the Shapefile is closed or does not support random access.
+     * @throws WWRuntimeException       if an exception occurs while building the spatial index.
+     * @see #getRecords(java.util.List)
+     */
+    public List<Integer> getRecordIndices(Sector sector)
+    {
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return this.getSpatialIndex().getItemsInRegion(sector, null);
+    }
+
+    /**
+     * Returns the spatial index of this Shapefile's records, building it if it has not been built.
+     *
+     * @return the spatial index of this Shapefile's records.
+     *
+     * @throws IllegalStateException if the Shapefile is closed or does not support random access.
+     * @throws WWRuntimeException    if an exception occurs while building the spatial index.
+     */
+    protected synchronized SectorRTree<Integer> getSpatialIndex()
+    {
+        if (!this.isRandomAccess())
+        {
+            String message = Logging.getMessage("SHP.NotRandomAccess", this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        if (this.spatialIndex == null)
+        {
+            try
+            {
+                this.spatialIndex = this.createSpatialIndex();
+            }
+            catch (Exception e)
+            {
+                String message = Logging.getMessage("SHP.ExceptionAttemptingToReadShapefile",
+                    this.getStringValue(AVKey.DISPLAY_NAME));
+                Logging.logger().log(Level.SEVERE, message, e);
+                throw new WWRuntimeException(message, e);
+            }
+        }
+
+        return this.spatialIndex;
+    }
+
+    /**
+     * Returns the record set used by {@link #getRecords(java.util.List)} to read records into a point buffer of their
+     * own.
+     *
+     * @return a new record set of this Shapefile.
+     */
+    protected Shapefile createRecordSet()
+    {
+        return new Shapefile(this);
+    }
+
+    /**
+     * Returns a record set that reads records from one window of a Shapefile mapped in windows. The record set's points
+     * are held in the window.
+     *
+     * @param window the index of the window.
+     *
+     * @return a new record set of this Shapefile's window.
+     */
+    protected Shapefile createRecordSet(int window)
+    {
+        Shapefile recordSet = this.createRecordSet();
+        recordSet.mappedShpBuffer = this.mappedShpWindows[window];
+        recordSet.mappedShpOffset = window * this.getMappedWindowStride();
+        recordSet.mappedShpWindows = null;
+        return recordSet;
+    }
+
+    /**
+     * Returns the byte offset of a record from the start of the Shapefile. Offsets are read as unsigned values, so
+     * that records beyond 2 GB are located correctly.
+     *
+     * @param recordIndex the index of the record.
+     *
+     * @return the record's offset.
+     */
+    protected long getRecordOffset(int recordIndex)
+    {
+        return this.index[2 * recordIndex] & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns the index of the window holding a record of a Shapefile mapped in windows.
+     *
+     * @param recordIndex the index of the record.
+     *
+     * @return the index of the window holding the record.
+     */
+    protected int getWindowIndex(int recordIndex)
+    {
+        return (int) (this.getRecordOffset(recordIndex) / this.getMappedWindowStride());
+    }
+
+    /**
+     * Returns the size of the largest buffer a Shapefile is mapped into. Shapefiles larger than this are mapped in
+     * overlapping windows of this size.
+     *
+     * @return the maximum size of a mapped buffer, in bytes.
+     */
+    protected long getMaxMappedLength()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the distance between the starts of consecutive windows of a Shapefile mapped in windows. Windows overlap
+     * by the maximum mapped length minus the stride, which is the size of the largest record that can be read from a
+     * window.
+     *
+     * @return the window stride, in bytes.
+     */
+    protected long getMappedWindowStride()
+    {
+        return this.getMaxMappedLength() / 2;
+    }
+
+    /** Iterates over records, reading each record into a record set when it's requested. */
+    protected static class RecordIterator implements Iterator<ShapefileRecord>
+    {
+        protected final Shapefile shapefile;
+        protected final List<Integer> recordIndices;
+        /** The record sets the records are read into, one for each window of a Shapefile mapped in windows. */
+        protected final Shapefile[] recordSets;
+        protected int position;
+        protected ShapefileRecord next;
+
+        public RecordIterator(Shapefile shapefile, List<Integer> recordIndices)
+        {
+            this.shapefile = shapefile;
+            this.recordIndices = recordIndices;
+            this.recordSets = new Shapefile[shapefile.mappedShpWindows != null ? shapefile.mappedShpWindows.length : 1];
+        }
+
+        public boolean hasNext()
+        {
+            while (this.next == null && this.position < this.recordIndices.size())
+            {
+                int recordIndex = this.recordIndices.get(this.position++);
+                int window = this.shapefile.mappedShpWindows != null ? this.shapefile.getWindowIndex(recordIndex) : 0;
+                if (this.recordSets[window] == null)
+                {
+                    this.recordSets[window] = this.shapefile.mappedShpWindows != null
+                        ? this.shapefile.createRecordSet(window) : this.shapefile.createRecordSet();
+                }
+
+                this.next = this.recordSets[window].readRecord(recordIndex);
+            }
+
+            return this.next != null;
+        }
+
+        public ShapefileRecord next()
+        {
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+
+            ShapefileRecord record = this.next;
+            this.next = null;
+            return record;
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * Returns whether the shapefile's point coordinates should be normalized.
      *
@@ -616,8 +959,12 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         {
             try
             {
-                // Memory map the Shapefile in copy-on-write mode.
-                this.mappedShpBuffer = WWIO.mapFile(file, FileChannel.MapMode.PRIVATE);
+                // Memory map the Shapefile in copy-on-write mode. Files too large to map in one buffer are mapped in
+                // windows, which provide random access to the records but not sequential reading.
+                if (file.length() <= this.getMaxMappedLength())
+                    this.mappedShpBuffer = WWIO.mapFile(file, FileChannel.MapMode.PRIVATE);
+                else
+                    this.mappedShpWindows = this.mapWindows(file);
                 Logging.logger().finer(Logging.getMessage("SHP.MemoryMappingEnabled", file.getPath()));
             }
             catch (IOException e)
@@ -635,10 +982,29 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         // Attempt to open the optional index and projection files associated with the Shapefile. Ignore exceptions
         // thrown while attempting to open these optional resource streams. We wrap each source InputStream in a
         // BufferedInputStream because this increases read performance, even when the stream is wrapped in an NIO
-        // Channel.
-        InputStream shxStream = this.getFileStream(WWIO.replaceSuffix(file.getPath(), INDEX_FILE_SUFFIX));
-        if (shxStream != null)
-            this.shxChannel = Channels.newChannel(WWIO.getBufferedInputStream(shxStream));
+        // Channel. The index file is memory mapped along with a memory mapped Shapefile, since the two together provide
+        // random access to the Shapefile's records.
+        File shxFile = new File(WWIO.replaceSuffix(file.getPath(), INDEX_FILE_SUFFIX));
+        if ((this.mappedShpBuffer != null || this.mappedShpWindows != null) && shxFile.canRead()
+            && shxFile.length() <= Integer.MAX_VALUE)
+        {
+            try
+            {
+                this.mappedShxBuffer = WWIO.mapFile(shxFile);
+            }
+            catch (IOException e)
+            {
+                Logging.logger().log(Level.WARNING,
+                    Logging.getMessage("SHP.ExceptionAttemptingToMemoryMap", shxFile.getPath()), e);
+            }
+        }
+
+        if (this.mappedShxBuffer == null)
+        {
+            InputStream shxStream = this.getFileStream(shxFile.getPath());
+            if (shxStream != null)
+                this.shxChannel = Channels.newChannel(WWIO.getBufferedInputStream(shxStream));
+        }
 
         InputStream prjStream = this.getFileStream(WWIO.replaceSuffix(file.getPath(), PROJECTION_FILE_SUFFIX));
         if (prjStream != null)
@@ -664,6 +1030,41 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         }
     }
 
+    /**
+     * Maps a Shapefile into overlapping windows in copy-on-write mode. See {@link #getMappedWindowStride()}.
+     *
+     * @param file the Shapefile to map.
+     *
+     * @return the mapped windows.
+     *
+     * @throws IOException if the file cannot be mapped.
+     */
+    protected MappedByteBuffer[] mapWindows(File file) throws IOException
+    {
+        RandomAccessFile raf = null;
+        try
+        {
+            raf = new RandomAccessFile(file, "rw");
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            long stride = this.getMappedWindowStride();
+
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((length + stride - 1) / stride)];
+            for (int i = 0; i < windows.length; i++)
+            {
+                long position = i * stride;
+                windows[i] = channel.map(FileChannel.MapMode.PRIVATE, position,
+                    Math.min(length - position, this.getMaxMappedLength()));
+            }
+
+            return windows;
+        }
+        finally
+        {
+            WWIO.closeStream(raf, file.getPath());
+        }
+    }
+
     protected void initializeFromURL(URL url, AVList params) throws IOException
     {
         // Opening the Shapefile URL as a URL connection. Throw an IOException if the URL connection cannot be opened,
@@ -1039,11 +1440,20 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
     protected int[] readIndex() throws IOException
     {
         // The Shapefile index resource is optional. Return null if we don't have a stream to an index resource.
-        if (this.shxChannel == null)
+        if (this.shxChannel == null && this.mappedShxBuffer == null)
             return null;
 
-        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
-        WWIO.readChannelToBuffer(this.shxChannel, buffer);
+        ByteBuffer buffer;
+        if (this.mappedShxBuffer != null)
+        {
+            buffer = this.mappedShxBuffer.duplicate();
+            buffer.limit(Math.min(HEADER_LENGTH, buffer.capacity()));
+        }
+        else
+        {
+            buffer = ByteBuffer.allocate(HEADER_LENGTH);
+            WWIO.readChannelToBuffer(this.shxChannel, buffer);
+        }
 
         // Return null if the index is empty or is smaller than the minimum required size.
         if (buffer.remaining() < HEADER_LENGTH)
@@ -1057,7 +1467,19 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         int[] array;
         try
         {
-            buffer = ByteBuffer.allocate(indexLength);
+            if (this.mappedShxBuffer != null)
+            {
+                // Read the index directly from the mapped index file.
+                buffer = this.mappedShxBuffer.duplicate();
+                buffer.limit(Math.min(HEADER_LENGTH + indexLength, buffer.capacity()));
+                buffer.position(HEADER_LENGTH);
+                buffer = buffer.slice();
+            }
+            else
+            {
+                buffer = ByteBuffer.allocate(indexLength);
+            }
+
             array = new int[numElements];
         }
         catch (OutOfMemoryError e)
@@ -1070,9 +1492,10 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         }
 
         buffer.order(ByteOrder.BIG_ENDIAN);
-        WWIO.readChannelToBuffer(this.shxChannel, buffer);
+        if (this.mappedShxBuffer == null)
+            WWIO.readChannelToBuffer(this.shxChannel, buffer);
 
-        buffer.asIntBuffer().get(array);
+        buffer.asIntBuffer().get(array, 0, Math.min(numElements, buffer.remaining() / 4));
 
         for (int i = 0; i < numElements; i++)
         {
@@ -1292,6 +1715,116 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         return record;
     }
 
+    /**
+     * Reads the record at the specified index from the memory mapped Shapefile, using the Shapefile's index to locate
+     * the record. This does not affect the records read by {@link #nextRecord()}. The record's attributes are read from
+     * the attribute file if it supports random access.
+     *
+     * @param recordIndex the index of the record to read.
+     *
+     * @return a {@link ShapefileRecord} instance, or null if the record's shape type is not recognized.
+     */
+    protected ShapefileRecord readRecordAt(int recordIndex)
+    {
+        // A Shapefile mapped in windows reads the record into a record set of the window holding it.
+        if (this.mappedShpBuffer == null)
+            return this.createRecordSet(this.getWindowIndex(recordIndex)).readRecordAt(recordIndex);
+
+        long offset = this.getRecordOffset(recordIndex) - this.mappedShpOffset;
+        int length = ShapefileRecord.RECORD_HEADER_LENGTH + this.index[2 * recordIndex + 1];
+        if (offset < 0 || offset + length > this.mappedShpBuffer.capacity())
+        {
+            // The record extends past the end of the window or the file.
+            throw new WWRuntimeException(Logging.getMessage("generic.InvalidFileLength", offset + length));
+        }
+
+        // Read the record from a view of the mapped buffer, leaving the mapped buffer's position and limit to
+        // sequential reading.
+        ByteBuffer buffer = this.mappedShpBuffer.duplicate();
+        buffer.limit((int) offset + length);
+        buffer.position((int) offset);
+
+        ShapefileRecord record = this.createRecord(buffer);
+
+        if (record != null && this.attributeFile != null && this.attributeFile.isRandomAccess()
+            && recordIndex < this.attributeFile.getNumberOfRecords())
+        {
+            record.setAttributes(this.attributeFile.readRecord(recordIndex));
+        }
+
+        return record;
+    }
+
+    /**
+     * Creates a spatial index of this Shapefile's records by reading each record's bounding rectangle from the memory
+     * mapped Shapefile. Point records are indexed by their point. Null records are not indexed.
+     *
+     * @return a spatial index of the indices of this Shapefile's records.
+     */
+    protected SectorRTree<Integer> createSpatialIndex()
+    {
+        int numRecords = this.getNumberOfRecords();
+        ArrayList<Integer> recordIndices = new ArrayList<Integer>(numRecords);
+        double[] bounds = new double[4 * numRecords];
+
+        // Read each record's bounds from the window holding the record, or the mapped buffer if there are no windows.
+        ByteBuffer[] buffers;
+        if (this.mappedShpWindows != null)
+        {
+            buffers = new ByteBuffer[this.mappedShpWindows.length];
+            for (int i = 0; i < buffers.length; i++)
+            {
+                buffers[i] = this.mappedShpWindows[i].duplicate();
+            }
+        }
+        else
+        {
+            buffers = new ByteBuffer[] {this.mappedShpBuffer.duplicate()};
+        }
+
+        ByteBuffer pointBuffer = ByteBuffer.allocate(4 * WWBufferUtil.SIZEOF_DOUBLE);
+        pointBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < numRecords; i++)
+        {
+            int window = this.mappedShpWindows != null ? this.getWindowIndex(i) : 0;
+            long windowOffset = this.mappedShpWindows != null ? window * this.getMappedWindowStride()
+                : this.mappedShpOffset;
+            ByteBuffer buffer = buffers[window];
+            buffer.clear();
+            buffer.position((int) (this.getRecordOffset(i) - windowOffset));
+
+            String shapeType = this.readRecordShapeType(buffer);
+            if (isNullType(shapeType))
+                continue;
+
+            // Position the buffer after the record header and shape type.
+            buffer.position(buffer.position() + ShapefileRecord.RECORD_HEADER_LENGTH + 4);
+
+            BoundingRectangle rect;
+            if (isPointType(shapeType))
+            {
+                // Point records have no bounding rectangle. Read the point as a rectangle with no extent, so that it's
+                // interpreted according to the Shapefile's coordinate system.
+                double x = buffer.getDouble();
+                double y = buffer.getDouble();
+                pointBuffer.clear();
+                pointBuffer.putDouble(x).putDouble(y).putDouble(x).putDouble(y);
+                pointBuffer.flip();
+                rect = this.readBoundingRectangle(pointBuffer);
+            }
+            else
+            {
+                rect = this.readBoundingRectangle(buffer);
+            }
+
+            System.arraycopy(rect.coords, 0, bounds, 4 * recordIndices.size(), 4);
+            recordIndices.add(i);
+        }
+
+        return new SectorRTree<Integer>(recordIndices, Arrays.copyOf(bounds, 4 * recordIndices.size()));
+    }
+
     /**
      * Returns a new <code>{@link gov.nasa.worldwind.formats.shapefile.ShapefileRecord}</code> from the specified
      * buffer. The buffer's current position is assumed to be set at the start of the record and will be set to the
@@ -413,9 +413,14 @@ public class ShapefileExtrudedPolygons extends ShapefileRenderable implements Or
             return;
 
         if (dc.isOrderedRenderingMode())
+        {
             this.drawOrderedSurfaceRenderable(dc);
+        }
         else
+        {
+            this.pageRecords(dc); // page in the records in view, if records are paged by view
             this.makeOrderedSurfaceRenderable(dc);
+        }
     }
 
     protected void makeOrderedSurfaceRenderable(DrawContext dc)
@@ -20,11 +20,25 @@ import com.jogamp.opengl.*;
 import com.jogamp.opengl.glu.*;
 import java.awt.*;
 import java.beans.*;
+import java.io.*;
 import java.nio.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
+ * Displays the polygon and polyline records of a shapefile as filled polygons draped on the globe.
+ * <p/>
+ * Records are generalized and tessellated into tiles at resolutions appropriate to the view. Tile geometry is produced
+ * on a pool of background threads shared by all ShapefilePolygons, nearest tiles first, and is kept in a size-bounded
+ * memory cache keyed by tile and resolution. Tiles continue to display their nearest ancestor's geometry until their
+ * own geometry is available. Requests for tiles that leave the view before their geometry is produced are dropped.
+ * <p/>
+ * Tile geometry can optionally be persisted in the World Wind data file store (see {@link #setPersistGeometry(boolean)}),
+ * so that later sessions displaying the same shapefile read each tile's geometry rather than tessellating it again.
+ * Geometry is persisted only for shapefiles read from a local file and not paged by view, and is discarded when that
+ * file changes.
+ *
  * @author dcollins
  * @version $Id: ShapefilePolygons.java 3053 2015-04-28 19:15:46Z dcollins $
  */
@@ -199,6 +213,7 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         protected Object memoryCacheKey;
         protected PropertyChangeListener listener;
         protected double priority;
+        protected volatile long requestTime;
         // Properties supporting geometry rendering.
         protected FloatBuffer vertices;
         protected int vertexStride;
@@ -207,6 +222,7 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         protected ArrayList<RecordIndices> recordIndices = new ArrayList<RecordIndices>();
         protected ArrayList<RecordGroup> attributeGroups = new ArrayList<RecordGroup>();
         protected long attributeStateID;
+        protected long recordSetID;
 
         public ShapefileGeometry(ShapefileRenderable shape, Sector sector, double resolution)
         {
@@ -218,9 +234,15 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         @Override
         public void run()
         {
+            ShapefilePolygons polygons = (ShapefilePolygons) this.shape;
+            boolean stale = polygons.isRequestStale(this);
+
             try
             {
-                ((ShapefilePolygons) this.shape).tessellate(this);
+                if (!stale) // the tile is requested again if it comes back into view
+                {
+                    polygons.produceGeometry(this);
+                }
             }
             catch (Exception e)
             {
@@ -229,12 +251,14 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
             }
             finally
             {
-                if (this.memoryCache != null && this.memoryCacheKey != null)
+                if (!stale && this.memoryCache != null && this.memoryCacheKey != null)
                 {
                     this.memoryCache.add(this.memoryCacheKey, this);
                 }
 
-                if (this.listener != null)
+                polygons.requestDidComplete(this);
+
+                if (!stale && this.listener != null)
                 {
                     this.listener.propertyChange(new PropertyChangeEvent(this, AVKey.REPAINT, null, null));
                 }
@@ -249,7 +273,16 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         @Override
         public long getSizeInBytes()
         {
-            return 244 + this.sector.getSizeInBytes() + (this.vertices != null ? 4 * this.vertices.remaining() : 0);
+            long size = 244 + this.sector.getSizeInBytes() + (this.vertices != null ? 4 * this.vertices.remaining() : 0);
+
+            for (RecordIndices ri : this.recordIndices)
+            {
+                size += 48;
+                size += ri.interiorIndices != null ? 4 * ri.interiorIndices.remaining() : 0;
+                size += ri.outlineIndices != null ? 4 * ri.outlineIndices.remaining() : 0;
+            }
+
+            return size;
         }
 
         @Override
@@ -331,12 +364,58 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         if (!WorldWind.getMemoryCacheSet().containsCache(ShapefileGeometry.class.getName()))
         {
             long size = Configuration.getLongValue(AVKey.SHAPEFILE_GEOMETRY_CACHE_SIZE, (long) 50e6); // default 50MB
-            MemoryCache cache = new BasicMemoryCache((long) (0.8 * size), size);
+            MemoryCache cache = WorldWind.createMemoryCache((long) (0.8 * size), size);
             cache.setName("Shapefile Geometry");
             WorldWind.getMemoryCacheSet().addCache(ShapefileGeometry.class.getName(), cache);
         }
     }
 
+    /** The version of the persisted tile geometry format. Persisted geometry of any other version is ignored. */
+    protected static final int GEOMETRY_FILE_VERSION = 1;
+    /** The time in milliseconds after which a tile that has not been requested again is no longer tessellated. */
+    protected static final long STALE_REQUEST_TIME = 2000;
+    /**
+     * The threads tessellating tile geometry for all ShapefilePolygons. Tiles nearest the eye point are tessellated
+     * first. The threads run at minimum priority, and exit when there are no tiles to tessellate.
+     */
+    protected static final ThreadPoolExecutor tessellationExecutor;
+    /** The polygon tessellator and polyline generalizer used by each tessellation thread. */
+    protected static final ThreadLocal<PolygonTessellator2> tessellator = new ThreadLocal<PolygonTessellator2>()
+    {
+        @Override
+        protected PolygonTessellator2 initialValue()
+        {
+            return new PolygonTessellator2();
+        }
+    };
+    protected static final ThreadLocal<PolylineGeneralizer> generalizer = new ThreadLocal<PolylineGeneralizer>()
+    {
+        @Override
+        protected PolylineGeneralizer initialValue()
+        {
+            return new PolylineGeneralizer();
+        }
+    };
+
+    static
+    {
+        // Leave one processor for the rendering thread.
+        int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        tessellationExecutor = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setName(Logging.getMessage("SHP.TessellatorThreadName"));
+                return thread;
+            }
+        });
+        tessellationExecutor.allowCoreThreadTimeOut(true);
+    }
+
     // ShapefilePolygons properties.
     protected double detailHint = 0;
     protected double detailHintOrigin = 2.8;
@@ -346,9 +425,14 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
     protected ArrayList<ShapefileTile> topLevelTiles = new ArrayList<ShapefileTile>();
     protected ArrayList<ShapefileTile> currentTiles = new ArrayList<ShapefileTile>();
     protected ShapefileTile currentAncestorTile;
-    protected PriorityQueue<Runnable> requestQueue = new PriorityQueue<Runnable>();
+    protected PriorityQueue<ShapefileGeometry> requestQueue = new PriorityQueue<ShapefileGeometry>();
+    protected ConcurrentHashMap<ShapefileTile, ShapefileGeometry> pendingRequests =
+        new ConcurrentHashMap<ShapefileTile, ShapefileGeometry>();
     protected MemoryCache cache = WorldWind.getMemoryCache(ShapefileGeometry.class.getName());
+    protected boolean persistGeometry;
+    protected String geometryStorePath;
     protected long recordStateID;
+    protected long recordSetID;
     // Properties supporting picking and rendering.
     protected PickSupport pickSupport = new PickSupport();
     protected HashMap<Integer, Color> pickColorMap = new HashMap<Integer, Color>();
@@ -419,6 +503,34 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         // regions much smaller than the shapefile's sector while avoiding a lot of overhead in building the quad tree.
         this.recordTree = new BasicQuadTree<Record>(8, this.sector, null);
         super.assembleRecords(shapefile);
+
+        if (this.geometryStorePath == null && !this.isPagingRecords())
+            this.geometryStorePath = this.composeGeometryStorePath(shapefile);
+    }
+
+    /**
+     * Composes the file store path under which this ShapefilePolygons persists tile geometry. The path identifies the
+     * shapefile's file along with its length and modification time, so that geometry persisted for one version of a
+     * shapefile is never used with another.
+     *
+     * @param shapefile the shapefile this ShapefilePolygons displays.
+     *
+     * @return the file store path, or null if the shapefile was not read from a local file.
+     */
+    protected String composeGeometryStorePath(Shapefile shapefile)
+    {
+        Object name = shapefile.getValue(AVKey.DISPLAY_NAME);
+        File file = name instanceof String ? new File((String) name) : null;
+        if (file == null || !file.isFile())
+            return null;
+
+        StringBuilder sb = new StringBuilder("ShapefilePolygons");
+        sb.append(File.separator).append(WWIO.replaceIllegalFileNameCharacters(file.getName()));
+        sb.append("_").append(Integer.toHexString(file.getAbsolutePath().hashCode()));
+        sb.append("_").append(Long.toHexString(file.length()));
+        sb.append("_").append(Long.toHexString(file.lastModified()));
+
+        return sb.toString();
     }
 
     @Override
@@ -443,11 +555,42 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         this.recordStateID++;
     }
 
+    @Override
+    protected void recordsDidChange()
+    {
+        // Records have been paged in or out. Geometry tessellated from the previous records refers to them by ordinal,
+        // and must not be used with the new records.
+        this.recordSetID++;
+    }
+
     protected ShapefilePolygons.Record createRecord(ShapefileRecord shapefileRecord)
     {
         return new ShapefilePolygons.Record(this, shapefileRecord);
     }
 
+    /**
+     * Indicates whether tile geometry is persisted in the data file store. See {@link #setPersistGeometry(boolean)}.
+     *
+     * @return true if tile geometry is persisted, otherwise false.
+     */
+    public boolean isPersistGeometry()
+    {
+        return this.persistGeometry;
+    }
+
+    /**
+     * Specifies whether tile geometry is persisted in the World Wind data file store. When true, tile geometry is read
+     * from the file store if it's been persisted by an earlier session, and written to the file store after it's
+     * tessellated. This avoids tessellating large shapefiles each time they're displayed. Geometry is persisted only
+     * for shapefiles read from a local file and not paged by view. The default is false.
+     *
+     * @param persistGeometry true to persist tile geometry, otherwise false.
+     */
+    public void setPersistGeometry(boolean persistGeometry)
+    {
+        this.persistGeometry = persistGeometry;
+    }
+
     /**
      * Indicates the object's detail hint, which is described in {@link #setDetailHint(double)}.
      *
@@ -540,6 +683,8 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         if (!this.visible)
             return;
 
+        this.pageRecords(dc); // page in the records in view, if records are paged by view
+
         if (this.getRecordCount() == 0) // shapefile is empty or contains only null records
             return;
 
@@ -831,11 +976,24 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
 
     protected ShapefileGeometry lookupGeometry(ShapefileTile tile)
     {
-        return (ShapefileGeometry) this.cache.getObject(tile); // corresponds to the key used in requestGeometry
+        // The tile corresponds to the key used in requestGeometry.
+        ShapefileGeometry geom = (ShapefileGeometry) this.cache.getObject(tile);
+        if (geom != null && geom.recordSetID != this.recordSetID)
+            return null; // geometry tessellated from records that have since been paged out
+
+        return geom;
     }
 
     protected void requestGeometry(DrawContext dc, ShapefileTile tile)
     {
+        // Tiles already waiting to be tessellated are marked as requested again, which keeps them from being dropped.
+        ShapefileGeometry pending = this.pendingRequests.get(tile);
+        if (pending != null)
+        {
+            pending.requestTime = System.currentTimeMillis();
+            return;
+        }
+
         Vec4 eyePoint = dc.getView().getEyePoint();
         Vec4 centroid = tile.sector.computeCenterPoint(dc.getGlobe(), dc.getVerticalExaggeration());
 
@@ -850,20 +1008,252 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
 
     protected void sendRequests()
     {
-        Runnable request;
+        ShapefileGeometry request;
         while ((request = this.requestQueue.poll()) != null)
         {
-            if (WorldWind.getTaskService().isFull())
-                break;
+            // The tile is also the key used to identify pending requests.
+            ShapefileTile tile = (ShapefileTile) request.memoryCacheKey;
+            request.requestTime = System.currentTimeMillis();
+
+            if (this.pendingRequests.putIfAbsent(tile, request) == null)
+            {
+                tessellationExecutor.execute(request);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a geometry request is no longer needed because its tile has not been requested recently,
+     * typically because the tile has left the view or been replaced by tiles of a different resolution.
+     *
+     * @param geom the requested geometry.
+     *
+     * @return true if the request is stale and should be dropped, otherwise false.
+     */
+    protected boolean isRequestStale(ShapefileGeometry geom)
+    {
+        return System.currentTimeMillis() - geom.requestTime > STALE_REQUEST_TIME;
+    }
+
+    protected void requestDidComplete(ShapefileGeometry geom)
+    {
+        if (geom.memoryCacheKey != null)
+            this.pendingRequests.remove(geom.memoryCacheKey, geom);
+    }
+
+    /**
+     * Produces a tile's geometry, either by reading geometry persisted in the file store or by tessellating the tile's
+     * records. Newly tessellated geometry is persisted when geometry persistence is enabled.
+     *
+     * @param geom the geometry to produce.
+     */
+    protected void produceGeometry(ShapefileGeometry geom)
+    {
+        String path = this.composeGeometryPath(geom);
+        if (path != null && this.readGeometry(geom, path))
+            return;
+
+        this.tessellate(geom);
+
+        if (path != null)
+            this.writeGeometry(geom, path);
+    }
+
+    /**
+     * Composes the file store path of a tile's persisted geometry. The path identifies the tile by its level, row and
+     * column in the tile hierarchy established by {@link #createTopLevelTiles()}.
+     *
+     * @param geom the tile geometry.
+     *
+     * @return the file store path, or null if geometry is not persisted.
+     */
+    protected String composeGeometryPath(ShapefileGeometry geom)
+    {
+        if (!this.persistGeometry || this.geometryStorePath == null || this.isPagingRecords())
+            return null;
+
+        double topLevelResolution = Angle.fromDegrees(45).radians / 512;
+        int level = (int) Math.round(WWMath.logBase2(topLevelResolution / geom.resolution));
+        int row = Tile.computeRow(geom.sector.getDeltaLat(), geom.sector.getMinLatitude(), Angle.NEG90);
+        int col = Tile.computeColumn(geom.sector.getDeltaLon(), geom.sector.getMinLongitude(), Angle.NEG180);
+
+        return this.geometryStorePath + File.separator + level + File.separator + row + "_" + col + ".geom";
+    }
+
+    /**
+     * Reads a tile's persisted geometry from the file store. The geometry is used only if it was persisted for the
+     * same records, sector and resolution.
+     *
+     * @param geom the geometry to read.
+     * @param path the file store path of the persisted geometry.
+     *
+     * @return true if the geometry is read, otherwise false.
+     */
+    protected boolean readGeometry(ShapefileGeometry geom, String path)
+    {
+        java.net.URL url = WorldWind.getDataFileStore().findFile(path, false);
+        File file = url != null ? WWIO.convertURLToFile(url) : null;
+        if (file == null)
+            return false;
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != GEOMETRY_FILE_VERSION
+                || in.readInt() != this.getRecordCount()
+                || in.readDouble() != geom.sector.getMinLatitude().degrees
+                || in.readDouble() != geom.sector.getMaxLatitude().degrees
+                || in.readDouble() != geom.sector.getMinLongitude().degrees
+                || in.readDouble() != geom.sector.getMaxLongitude().degrees
+                || in.readDouble() != geom.resolution)
+            {
+                return false;
+            }
 
-            WorldWind.getTaskService().addTask(request);
+            int vertexCount = in.readInt();
+            int vertexStride = in.readInt();
+            Vec4 vertexOffset = new Vec4(in.readDouble(), in.readDouble(), 0);
+            FloatBuffer vertices = Buffers.newDirectFloatBuffer(vertexCount * vertexStride);
+            while (vertices.hasRemaining())
+            {
+                vertices.put(in.readFloat());
+            }
+
+            int numRecords = in.readInt();
+            ArrayList<RecordIndices> recordIndices = new ArrayList<RecordIndices>(numRecords);
+            for (int i = 0; i < numRecords; i++)
+            {
+                RecordIndices ri = new RecordIndices(in.readInt());
+                ri.vertexRange.location = in.readInt();
+                ri.vertexRange.length = in.readInt();
+                ri.interiorIndices = this.readIndices(in);
+                ri.outlineIndices = this.readIndices(in);
+                recordIndices.add(ri);
+            }
+
+            vertices.rewind();
+            geom.recordSetID = this.recordSetID;
+            geom.vertices = vertexCount > 0 ? vertices : null;
+            geom.vertexStride = vertexStride;
+            geom.vertexCount = vertexCount;
+            geom.vertexOffset = vertexOffset;
+            geom.recordIndices = recordIndices;
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            // Unreadable geometry is tessellated again.
+            String message = Logging.getMessage("generic.ExceptionAttemptingToReadFile", file);
+            Logging.logger().log(java.util.logging.Level.FINE, message, e);
+            return false;
+        }
+        finally
+        {
+            WWIO.closeStream(in, file.getPath());
+        }
+    }
+
+    protected IntBuffer readIndices(DataInputStream in) throws IOException
+    {
+        IntBuffer indices = IntBuffer.allocate(in.readInt());
+        while (indices.hasRemaining())
+        {
+            indices.put(in.readInt());
         }
 
-        this.requestQueue.clear(); // clear any remaining requests
+        indices.rewind();
+        return indices;
+    }
+
+    /**
+     * Persists a tile's geometry in the file store. The geometry is written to a temporary file that replaces any
+     * existing geometry once complete, so that other sessions never read partially written geometry.
+     *
+     * @param geom the geometry to write.
+     * @param path the file store path of the persisted geometry.
+     */
+    protected void writeGeometry(ShapefileGeometry geom, String path)
+    {
+        File file = WorldWind.getDataFileStore().newFile(path);
+        if (file == null)
+            return;
+
+        File tempFile = null;
+        DataOutputStream out = null;
+        try
+        {
+            // Write to a uniquely named file in the destination directory, so that concurrent writers of the same tile
+            // never share a temporary file, and the rename that replaces the geometry stays on one file system.
+            tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(GEOMETRY_FILE_VERSION);
+            out.writeInt(this.getRecordCount());
+            out.writeDouble(geom.sector.getMinLatitude().degrees);
+            out.writeDouble(geom.sector.getMaxLatitude().degrees);
+            out.writeDouble(geom.sector.getMinLongitude().degrees);
+            out.writeDouble(geom.sector.getMaxLongitude().degrees);
+            out.writeDouble(geom.resolution);
+
+            out.writeInt(geom.vertexCount);
+            out.writeInt(geom.vertexStride);
+            out.writeDouble(geom.vertexOffset != null ? geom.vertexOffset.x : 0);
+            out.writeDouble(geom.vertexOffset != null ? geom.vertexOffset.y : 0);
+            for (int i = 0; geom.vertices != null && i < geom.vertexCount * geom.vertexStride; i++)
+            {
+                out.writeFloat(geom.vertices.get(i));
+            }
+
+            out.writeInt(geom.recordIndices.size());
+            for (RecordIndices ri : geom.recordIndices)
+            {
+                out.writeInt(ri.ordinal);
+                out.writeInt(ri.vertexRange.location);
+                out.writeInt(ri.vertexRange.length);
+                this.writeIndices(out, ri.interiorIndices);
+                this.writeIndices(out, ri.outlineIndices);
+            }
+
+            out.close();
+            out = null;
+
+            if ((!file.exists() || file.delete()) && tempFile.renameTo(file))
+                return;
+
+            String message = Logging.getMessage("generic.FileNoWritePermission", file);
+            Logging.logger().fine(message);
+        }
+        catch (Exception e)
+        {
+            // Persisted geometry is an optimization; geometry that cannot be written is tessellated again.
+            String message = Logging.getMessage("generic.ExceptionAttemptingToWriteTo", file);
+            Logging.logger().log(java.util.logging.Level.FINE, message, e);
+        }
+        finally
+        {
+            WWIO.closeStream(out, file.getPath());
+            if (tempFile != null && tempFile.exists())
+                tempFile.delete();
+        }
+    }
+
+    protected void writeIndices(DataOutputStream out, IntBuffer indices) throws IOException
+    {
+        int count = indices != null ? indices.remaining() : 0;
+        out.writeInt(count);
+        for (int i = 0; i < count; i++)
+        {
+            out.writeInt(indices.get(indices.position() + i));
+        }
     }
 
     protected void tessellate(ShapefileGeometry geom)
     {
+        // Identify the record set the geometry is tessellated from before reading the record tree, which changes when
+        // records are paged. Geometry from a record set that's paged out while tessellating is never used.
+        geom.recordSetID = this.recordSetID;
+
         // Get the records intersecting the geometry's sector. The implementation of getItemsInRegion may return entries
         // outside the requested sector, so we cull them further in the loop below.
         Set<Record> intersectingRecords = this.recordTree.getItemsInRegion(geom.sector, null);
@@ -877,9 +1267,10 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         double yOffset = geom.sector.getCentroid().latitude.degrees;
 
         // Setup the polyline generalizer and the polygon tessellator that will be used to generalize and tessellate
-        // each record intersecting the geometry's sector.
-        PolylineGeneralizer generalizer = new PolylineGeneralizer(); // TODO: Consider using a ThreadLocal property.
-        PolygonTessellator2 tess = new PolygonTessellator2(); // TODO: Consider using a ThreadLocal property.
+        // each record intersecting the geometry's sector. Each tessellation thread reuses its own instances.
+        PolylineGeneralizer generalizer = ShapefilePolygons.generalizer.get();
+        PolygonTessellator2 tess = ShapefilePolygons.tessellator.get();
+        tess.reset();
         tess.setPolygonNormal(0, 0, 1); // tessellate in geographic coordinates
         tess.setPolygonClipCoords(geom.sector.getMinLongitude().degrees, geom.sector.getMaxLongitude().degrees,
             geom.sector.getMinLatitude().degrees, geom.sector.getMaxLatitude().degrees);
@@ -279,6 +279,8 @@ public class ShapefilePolylines extends ShapefileRenderable implements OrderedRe
         if (!this.visible)
             return;
 
+        this.pageRecords(dc); // page in the records in view, if records are paged by view
+
         if (this.getRecordCount() == 0) // Shapefile is empty or contains only null records.
             return;
 
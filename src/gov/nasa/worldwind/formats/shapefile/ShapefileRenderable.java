@@ -5,15 +5,29 @@
  */
 package gov.nasa.worldwind.formats.shapefile;
 
-import gov.nasa.worldwind.WWObjectImpl;
-import gov.nasa.worldwind.avlist.AVListImpl;
+import gov.nasa.worldwind.*;
+import gov.nasa.worldwind.avlist.*;
 import gov.nasa.worldwind.geom.*;
 import gov.nasa.worldwind.render.*;
 import gov.nasa.worldwind.util.*;
 
+import java.beans.*;
 import java.util.*;
+import java.util.logging.Level;
 
 /**
+ * Displays the records of a shapefile.
+ * <p/>
+ * By default a ShapefileRenderable reads all of its shapefile's records during construction. Shapefiles too large to
+ * hold in memory can instead be paged by view: when the shapefile supports random access (see {@link
+ * Shapefile#isRandomAccess()}) and its {@link gov.nasa.worldwind.avlist.AVKey#SHAPEFILE_PAGE_RECORDS} value is
+ * <code>Boolean.TRUE</code>, the ShapefileRenderable holds only the records intersecting a page around the view's
+ * visible sector. Records are read from the shapefile on a WorldWind task service thread when the view moves outside
+ * the current page, and replace the current page's records in the first frame after they are read. The shapefile must
+ * remain open while the ShapefileRenderable is in use, and records paged out lose any changes the application made to
+ * them, such as their attributes or visibility; use an {@link AttributeDelegate} to assign attributes as records are
+ * paged in.
+ *
  * @author dcollins
  * @version $Id: ShapefileRenderable.java 3232 2015-06-20 04:08:11Z dcollins $
  */
@@ -201,6 +215,12 @@ public abstract class ShapefileRenderable extends WWObjectImpl
     protected ShapeAttributes initNormalAttrs;
     protected ShapeAttributes initHighlightAttrs;
     protected ShapefileRenderable.AttributeDelegate initAttributeDelegate;
+    // Properties supporting record paging.
+    protected Shapefile pagingShapefile;
+    protected Sector pageSector;
+    protected double pageMargin = 0.5;
+    protected PageRequest pageRequest;
+    protected List<ShapefileRecord> pageShapefileRecords;
 
     protected static ShapeAttributes defaultAttributes;
     protected static ShapeAttributes defaultHighlightAttributes;
@@ -241,6 +261,10 @@ public abstract class ShapefileRenderable extends WWObjectImpl
         this.initNormalAttrs = normalAttrs;
         this.initHighlightAttrs = highlightAttrs;
         this.initAttributeDelegate = attributeDelegate;
+
+        if (shapefile.isRandomAccess() && Boolean.TRUE.equals(shapefile.getValue(AVKey.SHAPEFILE_PAGE_RECORDS)))
+            this.pagingShapefile = shapefile; // records are assembled when the view's visible sector is known
+
         this.assembleRecords(shapefile);
     }
 
@@ -248,13 +272,29 @@ public abstract class ShapefileRenderable extends WWObjectImpl
     {
         this.records = new ArrayList<ShapefileRenderable.Record>();
 
-        while (shapefile.hasNext())
+        if (this.pagingShapefile != null)
         {
-            ShapefileRecord shapefileRecord = shapefile.nextRecord();
+            // Assemble only the records of the current page, if one has been read.
+            if (this.pageShapefileRecords != null)
+            {
+                for (ShapefileRecord shapefileRecord : this.pageShapefileRecords)
+                {
+                    this.assembleRecord(shapefileRecord);
+                }
 
-            if (this.mustAssembleRecord(shapefileRecord))
+                this.pageShapefileRecords = null; // release the shapefile records once they're assembled
+            }
+        }
+        else
+        {
+            while (shapefile.hasNext())
             {
-                this.assembleRecord(shapefileRecord);
+                ShapefileRecord shapefileRecord = shapefile.nextRecord();
+
+                if (this.mustAssembleRecord(shapefileRecord))
+                {
+                    this.assembleRecord(shapefileRecord);
+                }
             }
         }
 
@@ -292,6 +332,221 @@ public abstract class ShapefileRenderable extends WWObjectImpl
         return this.sector;
     }
 
+    /**
+     * Indicates whether this ShapefileRenderable pages its records by view. See the class documentation for details.
+     *
+     * @return true if records are paged by view, otherwise false.
+     */
+    public boolean isPagingRecords()
+    {
+        return this.pagingShapefile != null;
+    }
+
+    /**
+     * Indicates the region whose records are currently held when records are paged by view.
+     *
+     * @return the current page, or null if records are not paged or no page has been read.
+     */
+    public Sector getPageSector()
+    {
+        return this.pageSector;
+    }
+
+    /**
+     * Indicates the margin added around the view's visible sector when a new page of records is read, as a fraction of
+     * the visible sector's size.
+     *
+     * @return the page margin.
+     *
+     * @see #setPageMargin(double)
+     */
+    public double getPageMargin()
+    {
+        return this.pageMargin;
+    }
+
+    /**
+     * Specifies the margin added around the view's visible sector when a new page of records is read, as a fraction of
+     * the visible sector's size in each direction. Larger margins read more records at a time, but read them less
+     * often as the view moves. The default is 0.5.
+     *
+     * @param pageMargin the page margin.
+     *
+     * @throws IllegalArgumentException if the margin is negative.
+     */
+    public void setPageMargin(double pageMargin)
+    {
+        if (pageMargin < 0)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", "pageMargin < 0");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.pageMargin = pageMargin;
+    }
+
+    /**
+     * Replaces this ShapefileRenderable's records with those intersecting a page around the view's visible sector, if
+     * records are paged by view and the visible sector is not well covered by the current page. Subclasses call this at
+     * the start of each frame, before determining which records to draw.
+     * <p/>
+     * The page's records are read on a WorldWind task service thread, which also builds the shapefile's spatial index
+     * the first time a page is read. This method replaces the current records with a page read since the last frame,
+     * and requests a new page when the visible sector needs one. The current records are drawn until the new page is
+     * read.
+     *
+     * @param dc the current draw context.
+     */
+    protected void pageRecords(DrawContext dc)
+    {
+        if (this.pagingShapefile == null)
+            return;
+
+        if (this.pageRequest != null && this.pageRequest.isDone())
+        {
+            // The page is current even if it could not be read, which avoids reading it again every frame. It's read
+            // again when the view moves.
+            PageRequest request = this.pageRequest;
+            this.pageRequest = null;
+            this.pageSector = request.getSector();
+
+            if (request.getRecords() != null)
+            {
+                this.pageShapefileRecords = request.getRecords();
+                this.assembleRecords(this.pagingShapefile);
+                this.recordsDidChange();
+            }
+        }
+
+        if (this.pageRequest != null || dc.getVisibleSector() == null)
+            return; // wait for the pending page to be read
+
+        Sector visibleSector = dc.getVisibleSector();
+        if (!this.mustPageRecords(visibleSector))
+            return;
+
+        if (WorldWind.getTaskService().isFull())
+            return; // request the page in a later frame
+
+        this.pageRequest = new PageRequest(this, this.computePageSector(visibleSector), dc.getCurrentLayer());
+        WorldWind.getTaskService().addTask(this.pageRequest);
+    }
+
+    /**
+     * Reads the shapefile records of a page on a task service thread. The records are assembled into
+     * ShapefileRenderable records on the rendering thread, by {@link ShapefileRenderable#pageRecords(DrawContext)}.
+     */
+    protected static class PageRequest implements Runnable
+    {
+        protected final ShapefileRenderable renderable;
+        protected final Sector sector;
+        protected PropertyChangeListener listener;
+        protected List<ShapefileRecord> records;
+        protected volatile boolean done;
+
+        public PageRequest(ShapefileRenderable renderable, Sector sector, PropertyChangeListener listener)
+        {
+            this.renderable = renderable;
+            this.sector = sector;
+            this.listener = listener;
+        }
+
+        public Sector getSector()
+        {
+            return this.sector;
+        }
+
+        /**
+         * Indicates the shapefile records read for this page.
+         *
+         * @return the page's records, or null if the page has not been read or could not be read.
+         */
+        public List<ShapefileRecord> getRecords()
+        {
+            return this.records;
+        }
+
+        public boolean isDone()
+        {
+            return this.done;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                Shapefile shapefile = this.renderable.pagingShapefile;
+                ArrayList<ShapefileRecord> list = new ArrayList<ShapefileRecord>();
+
+                for (ShapefileRecord shapefileRecord : shapefile.getRecords(shapefile.getRecordIndices(this.sector)))
+                {
+                    if (this.renderable.mustAssembleRecord(shapefileRecord))
+                    {
+                        list.add(shapefileRecord);
+                    }
+                }
+
+                list.trimToSize();
+                this.records = list;
+            }
+            catch (Exception e)
+            {
+                String msg = Logging.getMessage("SHP.ExceptionAttemptingToReadShapefile",
+                    this.renderable.pagingShapefile.getStringValue(AVKey.DISPLAY_NAME));
+                Logging.logger().log(Level.SEVERE, msg, e);
+            }
+            finally
+            {
+                this.done = true; // publishes the records to the rendering thread
+
+                if (this.listener != null)
+                {
+                    this.listener.propertyChange(new PropertyChangeEvent(this, AVKey.REPAINT, null, null));
+                }
+
+                this.listener = null;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a new page of records must be read for a visible sector. A new page is needed when the visible
+     * sector is not contained in the current page, or when the current page is much larger than needed, which releases
+     * the records of distant regions after the view zooms in.
+     *
+     * @param visibleSector the view's visible sector.
+     *
+     * @return true if a new page must be read, otherwise false.
+     */
+    protected boolean mustPageRecords(Sector visibleSector)
+    {
+        if (this.pageSector == null || !this.pageSector.contains(visibleSector))
+            return true;
+
+        Sector neededSector = this.computePageSector(visibleSector);
+        return this.pageSector.getDeltaLatDegrees() * this.pageSector.getDeltaLonDegrees()
+            > 4 * neededSector.getDeltaLatDegrees() * neededSector.getDeltaLonDegrees();
+    }
+
+    protected Sector computePageSector(Sector visibleSector)
+    {
+        double latMargin = this.pageMargin * visibleSector.getDeltaLatDegrees();
+        double lonMargin = this.pageMargin * visibleSector.getDeltaLonDegrees();
+
+        return Sector.fromDegrees(
+            Math.max(visibleSector.getMinLatitude().degrees - latMargin, -90),
+            Math.min(visibleSector.getMaxLatitude().degrees + latMargin, 90),
+            Math.max(visibleSector.getMinLongitude().degrees - lonMargin, -180),
+            Math.min(visibleSector.getMaxLongitude().degrees + lonMargin, 180));
+    }
+
+    protected void recordsDidChange()
+    {
+        // Intentionally left empty. May be overridden by subclass.
+    }
+
     public int getRecordCount()
     {
         if (this.records == null)
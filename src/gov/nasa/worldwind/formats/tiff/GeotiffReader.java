@@ -27,6 +27,9 @@ import java.util.ArrayList;
  */
 public class GeotiffReader implements Disposable
 {
+    /** Fraction of a pixel within which a window edge computed from a sector snaps to the nearest pixel boundary. */
+    protected static final double PIXEL_TOLERANCE = 1e-6;
+
     private TIFFReader tiffReader = null;
 
     private String sourceFilename;
@@ -54,6 +57,35 @@ public class GeotiffReader implements Disposable
         this(sourceFile.getAbsolutePath());
     }
 
+    /**
+     * Opens another reader of the file read by a specified reader. The new reader shares the specified reader's parsed
+     * image file directories and metadata rather than parsing them again, so it is cheap to open. The specified reader
+     * need not be open. Readers sharing headers may read windows concurrently; see {@link #readDataRaster(int,
+     * gov.nasa.worldwind.geom.Sector, int)}.
+     *
+     * @param headers the reader whose file and headers to use.
+     *
+     * @throws IllegalArgumentException if the reader is null.
+     * @throws IOException              if the file cannot be opened.
+     */
+    public GeotiffReader(GeotiffReader headers) throws IOException
+    {
+        if (headers == null)
+        {
+            String message = Logging.getMessage("nullValue.ReaderIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.sourceFilename = headers.sourceFilename;
+        this.sourceFile = new RandomAccessFile(this.sourceFilename, "r");
+        this.theChannel = this.sourceFile.getChannel();
+        this.tiffReader = new TIFFReader(this.theChannel, headers.tiffReader.getByteOrder());
+        this.gc = headers.gc;
+        this.tiffIFDs = headers.tiffIFDs;
+        this.metadata = headers.metadata;
+    }
+
     protected AVList getMetadata(int imageIndex) throws IOException
     {
         this.checkImageIndex(imageIndex);
@@ -554,6 +586,342 @@ public class GeotiffReader implements Disposable
         throw new IOException(message);
     }
 
+    /**
+     * Reads the pixels of an image within a window. Only the strips or tiles of the file that intersect the window are
+     * read, so a small window of a large image can be read without reading the entire image. This supports strip and
+     * tile organized images that are uncompressed or compressed with LZW or Deflate compression.
+     * <p/>
+     * If the decimation is greater than one, the returned raster holds every <code>decimation</code>th pixel of every
+     * <code>decimation</code>th row of the window. If the file contains reduced resolution overviews of the image, the
+     * pixels are instead read from the coarsest overview whose resolution is at least the requested resolution, taking
+     * every pixel of the overview whose scale leaves no whole decimation step. The returned raster may therefore be
+     * somewhat larger than the window divided by the decimation. Its sector covers the pixels read, and is interpolated
+     * from the image's sector.
+     *
+     * @param imageIndex the index of the full resolution image to read.
+     * @param window     the window to read, in the image's pixels. Parts of the window outside the image are ignored.
+     * @param decimation the number of image pixels for each pixel of the returned raster, in each dimension.
+     *
+     * @return a raster holding the window's pixels, or null if the window does not intersect the image.
+     *
+     * @throws IllegalArgumentException if the image index is invalid, the window is null, or the decimation is less
+     *                                  than 1.
+     * @throws IOException              if the image cannot be read, or its layout, encoding or data type is not
+     *                                  supported.
+     */
+    public DataRaster readDataRaster(int imageIndex, Rectangle window, int decimation) throws IOException
+    {
+        this.checkImageIndex(imageIndex);
+
+        if (window == null)
+        {
+            String message = Logging.getMessage("nullValue.RectangleIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (decimation < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "decimation < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return this.doReadWindow(imageIndex, window, decimation);
+    }
+
+    /**
+     * Reads the pixels of a georeferenced image within a sector. See {@link #readDataRaster(int, java.awt.Rectangle,
+     * int)}. The window read is the smallest window of the image's pixels that covers the sector.
+     *
+     * @param imageIndex the index of the full resolution image to read.
+     * @param sector     the sector to read. Parts of the sector outside the image are ignored.
+     * @param decimation the number of image pixels for each pixel of the returned raster, in each dimension.
+     *
+     * @return a raster holding the pixels within the sector, or null if the sector does not intersect the image.
+     *
+     * @throws IllegalArgumentException if the image index is invalid, the sector is null, or the decimation is less
+     *                                  than 1.
+     * @throws IOException              if the image is not georeferenced, cannot be read, or its layout, encoding or
+     *                                  data type is not supported.
+     */
+    public DataRaster readDataRaster(int imageIndex, Sector sector, int decimation) throws IOException
+    {
+        this.checkImageIndex(imageIndex);
+
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (decimation < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "decimation < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        Object o = this.metadata.get(imageIndex).getValue(AVKey.SECTOR);
+        if (!(o instanceof Sector))
+        {
+            String message = Logging.getMessage("GeotiffReader.NotSimpleGeotiff");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        Sector imageSector = (Sector) o;
+        int width = this.getWidth(imageIndex);
+        int height = this.getHeight(imageIndex);
+
+        double x0 = (sector.getMinLongitude().degrees - imageSector.getMinLongitude().degrees)
+            / imageSector.getDeltaLonDegrees() * width;
+        double x1 = (sector.getMaxLongitude().degrees - imageSector.getMinLongitude().degrees)
+            / imageSector.getDeltaLonDegrees() * width;
+        double y0 = (imageSector.getMaxLatitude().degrees - sector.getMaxLatitude().degrees)
+            / imageSector.getDeltaLatDegrees() * height;
+        double y1 = (imageSector.getMaxLatitude().degrees - sector.getMinLatitude().degrees)
+            / imageSector.getDeltaLatDegrees() * height;
+
+        // Clamp to the image before converting to integers, so sectors far outside the image do not overflow. Edges
+        // within a small tolerance of a pixel boundary snap to it rather than pulling in a neighboring pixel.
+        int left = (int) Math.floor(WWMath.clamp(x0 + PIXEL_TOLERANCE, 0, width));
+        int right = (int) Math.ceil(WWMath.clamp(x1 - PIXEL_TOLERANCE, 0, width));
+        int top = (int) Math.floor(WWMath.clamp(y0 + PIXEL_TOLERANCE, 0, height));
+        int bottom = (int) Math.ceil(WWMath.clamp(y1 - PIXEL_TOLERANCE, 0, height));
+
+        return this.doReadWindow(imageIndex, new Rectangle(left, top, right - left, bottom - top), decimation);
+    }
+
+    protected DataRaster doReadWindow(int imageIndex, Rectangle window, int decimation) throws IOException
+    {
+        int width = this.getWidth(imageIndex);
+        int height = this.getHeight(imageIndex);
+
+        window = window.intersection(new Rectangle(0, 0, width, height));
+        if (window.isEmpty())
+        {
+            return null;
+        }
+
+        // Find the coarsest overview whose resolution is at least the requested resolution. Overviews are the reduced
+        // resolution images that follow the full resolution image in the file.
+        int ifdIndex = imageIndex;
+        double scale = 1;
+        for (int i = imageIndex + 1; i < this.getNumImages() && this.isReducedResolution(i); i++)
+        {
+            double s = Math.max((double) width / this.getWidth(i), (double) height / this.getHeight(i));
+            if (s <= decimation && s > scale)
+            {
+                ifdIndex = i;
+                scale = s;
+            }
+        }
+
+        // The directory entries' buffers are shared by readers opened from the same headers, so they are decoded by
+        // one reader at a time. The pixels are then read through this reader's own channel.
+        TiffIFDEntry[] ifd = this.tiffIFDs.get(ifdIndex);
+        BaselineTiff tiff;
+        TIFFWindowReader windowReader;
+        synchronized (this.tiffIFDs)
+        {
+            tiff = BaselineTiff.extract(ifd, this.tiffReader);
+            if (null == tiff)
+            {
+                String message = Logging.getMessage("GeotiffReader.BadGeotiff");
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            windowReader = new TIFFWindowReader(this.theChannel, this.tiffReader, ifd, tiff);
+        }
+
+        // Convert the window to the pixels of the image read, and read every step'th pixel of that window.
+        double scaleX = (double) width / windowReader.getWidth();
+        double scaleY = (double) height / windowReader.getHeight();
+        int left = (int) Math.floor(window.x / scaleX);
+        int top = (int) Math.floor(window.y / scaleY);
+        int right = Math.min((int) Math.ceil((window.x + window.width) / scaleX), windowReader.getWidth());
+        int bottom = Math.min((int) Math.ceil((window.y + window.height) / scaleY), windowReader.getHeight());
+        Rectangle readWindow = new Rectangle(left, top, Math.max(right - left, 1), Math.max(bottom - top, 1));
+        int step = Math.max((int) (decimation / scale), 1);
+
+        ByteBuffer pixels = windowReader.readWindow(readWindow, step);
+        int rasterWidth = (readWindow.width + step - 1) / step;
+        int rasterHeight = (readWindow.height + step - 1) / step;
+
+        AVList values = this.metadata.get(imageIndex).copy();
+        values.setValue(AVKey.WIDTH, rasterWidth);
+        values.setValue(AVKey.HEIGHT, rasterHeight);
+
+        Object o = values.getValue(AVKey.SECTOR);
+        if (o instanceof Sector)
+        {
+            // The raster covers the blocks of step x step pixels it samples, limited to the image's edges.
+            Sector imageSector = (Sector) o;
+            double x0 = readWindow.x * scaleX / width;
+            double x1 = Math.min((readWindow.x + rasterWidth * step) * scaleX / width, 1);
+            double y0 = readWindow.y * scaleY / height;
+            double y1 = Math.min((readWindow.y + rasterHeight * step) * scaleY / height, 1);
+
+            double minLon = imageSector.getMinLongitude().degrees;
+            double maxLat = imageSector.getMaxLatitude().degrees;
+            double deltaLon = imageSector.getDeltaLonDegrees();
+            double deltaLat = imageSector.getDeltaLatDegrees();
+
+            Sector sector = Sector.fromDegrees(maxLat - y1 * deltaLat, maxLat - y0 * deltaLat,
+                minLon + x0 * deltaLon, minLon + x1 * deltaLon);
+            values.setValue(AVKey.SECTOR, sector);
+            if (values.hasKey(AVKey.ORIGIN))
+            {
+                values.setValue(AVKey.ORIGIN, new LatLon(sector.getMaxLatitude(), sector.getMinLongitude()));
+            }
+        }
+
+        return this.createWindowRaster(tiff, ifd, values, pixels, rasterWidth, rasterHeight);
+    }
+
+    protected boolean isReducedResolution(int imageIndex)
+    {
+        TiffIFDEntry entry = getByTag(this.tiffIFDs.get(imageIndex), Tiff.Tag.NEW_SUBFILE_TYPE);
+
+        return entry != null && (entry.asLong() & Tiff.NewSubfileType.REDUCED_RESOLUTION) != 0;
+    }
+
+    protected DataRaster createWindowRaster(BaselineTiff tiff, TiffIFDEntry[] ifd, AVList values, ByteBuffer pixels,
+        int width, int height) throws IOException
+    {
+        int pixelBytes = pixels.capacity() / (width * height);
+
+        if (values.getValue(AVKey.PIXEL_FORMAT) == AVKey.ELEVATION)
+        {
+            ByteBufferRaster raster = new ByteBufferRaster(width, height, (Sector) values.getValue(AVKey.SECTOR),
+                values);
+            Object dataType = raster.getValue(AVKey.DATA_TYPE);
+
+            if (dataType != AVKey.INT8 && dataType != AVKey.INT16 && dataType != AVKey.INT32
+                && dataType != AVKey.FLOAT32)
+            {
+                String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            int pos = 0;
+            for (int y = 0; y < height; y++)
+            {
+                for (int x = 0; x < width; x++, pos += pixelBytes)
+                {
+                    double value;
+                    if (dataType == AVKey.INT8)
+                        value = pixels.get(pos);
+                    else if (dataType == AVKey.INT16)
+                        value = pixels.getShort(pos);
+                    else if (dataType == AVKey.INT32)
+                        value = pixels.getInt(pos);
+                    else
+                        value = pixels.getFloat(pos);
+
+                    raster.setDoubleAtPosition(y, x, value);
+                }
+            }
+
+            ElevationsUtil.rectify(raster);
+
+            return raster;
+        }
+        else if (values.getValue(AVKey.PIXEL_FORMAT) == AVKey.IMAGE
+            && values.getValue(AVKey.IMAGE_COLOR_FORMAT) == AVKey.GRAYSCALE)
+        {
+            BufferedImage grayImage;
+
+            if (values.getValue(AVKey.DATA_TYPE) == AVKey.INT8)
+            {
+                grayImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            }
+            else if (values.getValue(AVKey.DATA_TYPE) == AVKey.INT16)
+            {
+                grayImage = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+            }
+            else
+            {
+                String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            WritableRaster wrRaster = grayImage.getRaster();
+            boolean shortSamples = values.getValue(AVKey.DATA_TYPE) == AVKey.INT16;
+
+            int pos = 0;
+            for (int y = 0; y < height; y++)
+            {
+                for (int x = 0; x < width; x++, pos += pixelBytes)
+                {
+                    int value = shortSamples ? 0xFFFF & pixels.getShort(pos) : 0xFF & pixels.get(pos);
+                    wrRaster.setSample(x, y, 0, value);
+                }
+            }
+
+            grayImage = ImageUtil.toCompatibleImage(grayImage);
+            return BufferedImageRaster.wrap(grayImage, values);
+        }
+        else if (values.getValue(AVKey.PIXEL_FORMAT) == AVKey.IMAGE
+            && values.getValue(AVKey.IMAGE_COLOR_FORMAT) == AVKey.COLOR)
+        {
+            for (int bits : tiff.bitsPerSample)
+            {
+                if (bits != 8)
+                {
+                    String message = Logging.getMessage("GeotiffReader.Not8bit", bits);
+                    Logging.logger().warning(message);
+                    throw new IOException(message);
+                }
+            }
+
+            ColorModel colorModel = null;
+
+            if (tiff.photometric == Tiff.Photometric.Color_RGB
+                && (pixelBytes == Tiff.SamplesPerPixel.RGB || pixelBytes == Tiff.SamplesPerPixel.RGBA))
+            {
+                boolean hasAlpha = pixelBytes == Tiff.SamplesPerPixel.RGBA;
+                colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), tiff.bitsPerSample,
+                    hasAlpha, false, hasAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+            }
+            else if (tiff.photometric == Tiff.Photometric.Color_Palette && pixelBytes == 1)
+            {
+                byte[][] cmap = this.tiffReader.readColorMap(getByTag(ifd, Tiff.Tag.COLORMAP));
+                colorModel = new IndexColorModel(8, cmap[0].length, cmap[0], cmap[1], cmap[2]);
+            }
+
+            if (null == colorModel)
+            {
+                String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            int[] bandOffsets = new int[pixelBytes];
+            for (int i = 0; i < pixelBytes; i++)
+            {
+                bandOffsets[i] = i;
+            }
+
+            DataBufferByte dataBuff = new DataBufferByte(pixels.array(), pixels.capacity());
+            WritableRaster raster = Raster.createInterleavedRaster(dataBuff, width, height, width * pixelBytes,
+                pixelBytes, bandOffsets, null);
+
+            BufferedImage colorImage = new BufferedImage(colorModel, raster, false, null);
+            colorImage = ImageUtil.toCompatibleImage(colorImage);
+            return BufferedImageRaster.wrap(colorImage, values);
+        }
+
+        String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+        Logging.logger().severe(message);
+        throw new IOException(message);
+    }
+
     /**
      * Returns true if georeferencing information was found in this file.
      * <p/>
@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.formats.tiff;
+
+import gov.nasa.worldwind.util.Logging;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.zip.*;
+
+/**
+ * This is a package private class that reads windows of the pixels of one TIFF image. Only the strips or tiles that
+ * intersect a window are read and decoded, and when a window is read with a step between pixels, strips or tiles
+ * containing no sampled pixels are skipped. Rows of uncompressed strips and tiles are read individually, so a window of
+ * an uncompressed image stored as a single strip does not read the entire strip.
+ * <p/>
+ * The file is read with positional reads, which do not change the position of the file channel.
+ */
+class TIFFWindowReader
+{
+    protected final FileChannel channel;
+    protected final TIFFReader tiffReader;
+    protected final ByteOrder byteOrder;
+
+    protected int width;
+    protected int height;
+    protected int samplesPerPixel;
+    protected int bytesPerSample;
+    protected boolean planar;
+    protected boolean tiled;
+    protected int chunkWidth;
+    protected int chunkHeight;
+    protected long[] chunkOffsets;
+    protected long[] chunkCounts;
+    protected int compression = Tiff.Compression.NONE;
+    protected int predictor = Tiff.Predictor.NONE;
+
+    /**
+     * Creates a reader for the image described by an IFD.
+     *
+     * @param channel    the channel of the TIFF file.
+     * @param tiffReader the reader of the TIFF file's structures.
+     * @param ifd        the IFD of the image to read.
+     * @param tiff       the baseline TIFF values of the IFD.
+     *
+     * @throws IOException if the image's layout or encoding is not supported.
+     */
+    public TIFFWindowReader(FileChannel channel, TIFFReader tiffReader, TiffIFDEntry[] ifd, BaselineTiff tiff)
+        throws IOException
+    {
+        this.channel = channel;
+        this.tiffReader = tiffReader;
+        this.byteOrder = tiffReader.getByteOrder();
+
+        this.width = tiff.width;
+        this.height = tiff.height;
+        this.samplesPerPixel = (tiff.samplesPerPixel > 0) ? tiff.samplesPerPixel : 1;
+        this.planar = (tiff.planarConfig == Tiff.PlanarConfiguration.PLANAR && this.samplesPerPixel > 1);
+
+        if (this.width <= 0 || this.height <= 0)
+        {
+            String message = Logging.getMessage("GeotiffReader.BadGeotiff");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        this.bytesPerSample = getBytesPerSample(tiff);
+        if (this.bytesPerSample == 0)
+        {
+            String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        this.readLayout(ifd, tiff);
+    }
+
+    protected static int getBytesPerSample(BaselineTiff tiff)
+    {
+        // Samples must be a whole number of bytes, and all samples of a pixel must be the same size.
+        if (tiff.bitsPerSample == null || tiff.bitsPerSample.length == 0)
+            return 0;
+
+        int bits = tiff.bitsPerSample[0];
+        for (int b : tiff.bitsPerSample)
+        {
+            if (b != bits)
+                return 0;
+        }
+
+        return (bits == 8 || bits == 16 || bits == 32 || bits == 64) ? bits / 8 : 0;
+    }
+
+    protected void readLayout(TiffIFDEntry[] ifd, BaselineTiff tiff) throws IOException
+    {
+        long tileWidth = 0, tileLength = 0;
+        long[] stripOffsets = null, stripCounts = null, tileOffsets = null, tileCounts = null;
+
+        for (TiffIFDEntry entry : ifd)
+        {
+            switch (entry.tag)
+            {
+                case Tiff.Tag.STRIP_OFFSETS:
+                    stripOffsets = entry.getAsLongs();
+                    break;
+                case Tiff.Tag.STRIP_BYTE_COUNTS:
+                    stripCounts = entry.getAsLongs();
+                    break;
+                case Tiff.Tag.TILE_WIDTH:
+                    tileWidth = entry.asLong();
+                    break;
+                case Tiff.Tag.TILE_LENGTH:
+                    tileLength = entry.asLong();
+                    break;
+                case Tiff.Tag.TILE_OFFSETS:
+                    tileOffsets = entry.getAsLongs();
+                    break;
+                case Tiff.Tag.TILE_COUNTS:
+                    tileCounts = entry.getAsLongs();
+                    break;
+                case Tiff.Tag.COMPRESSION:
+                    this.compression = (int) entry.asLong();
+                    break;
+                case Tiff.Tag.TIFF_PREDICTOR:
+                    this.predictor = (int) entry.asLong();
+                    break;
+            }
+        }
+
+        if (this.compression != Tiff.Compression.NONE && this.compression != Tiff.Compression.LZW
+            && this.compression != Tiff.Compression.DEFLATE && this.compression != Tiff.Compression.PKZIP_DEFLATE)
+        {
+            String message = Logging.getMessage("GeotiffReader.CompressionFormatNotSupported");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        if (this.predictor != Tiff.Predictor.NONE && this.predictor != Tiff.Predictor.HORIZONTAL_DIFFERENCING)
+        {
+            String msg = Logging.getMessage("GeotiffReader.InvalidIFDEntryValue", this.predictor, "Predictor",
+                Tiff.Tag.TIFF_PREDICTOR);
+            Logging.logger().severe(msg);
+            throw new IOException(msg);
+        }
+
+        this.tiled = tileWidth > 0;
+        if (this.tiled)
+        {
+            this.chunkWidth = (int) tileWidth;
+            this.chunkHeight = (int) tileLength;
+            this.chunkOffsets = tileOffsets;
+            this.chunkCounts = tileCounts;
+        }
+        else
+        {
+            this.chunkWidth = this.width;
+            this.chunkHeight = (tiff.rowsPerStrip > 0 && tiff.rowsPerStrip < this.height)
+                ? tiff.rowsPerStrip : this.height;
+            this.chunkOffsets = stripOffsets;
+            this.chunkCounts = stripCounts;
+        }
+
+        if (this.chunkWidth <= 0 || this.chunkHeight <= 0 || this.chunkOffsets == null || this.chunkCounts == null
+            || this.chunkOffsets.length < this.getNumChunks() || this.chunkCounts.length < this.getNumChunks())
+        {
+            String message = Logging.getMessage("GeotiffReader.MissingRequiredTag",
+                this.tiled ? "TileOffsets" : "StripOffsets");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    protected int getChunksAcross()
+    {
+        return (this.width + this.chunkWidth - 1) / this.chunkWidth;
+    }
+
+    protected int getChunksDown()
+    {
+        return (this.height + this.chunkHeight - 1) / this.chunkHeight;
+    }
+
+    protected int getNumChunks()
+    {
+        return this.getChunksAcross() * this.getChunksDown() * (this.planar ? this.samplesPerPixel : 1);
+    }
+
+    /**
+     * Reads every <code>step</code>th pixel of every <code>step</code>th row of a window of the image, starting with
+     * the window's upper left pixel.
+     *
+     * @param window the window to read, which must lie within the image.
+     * @param step   the step between the pixels read, in pixels.
+     *
+     * @return the pixels read, in rows of <code>ceil(window.width / step)</code> pixels, with the samples of each pixel
+     *         stored contiguously. The samples are in the file's byte order, which is also the buffer's byte order.
+     *
+     * @throws IOException if the file cannot be read or its data cannot be decoded.
+     */
+    public ByteBuffer readWindow(Rectangle window, int step) throws IOException
+    {
+        int outWidth = (window.width + step - 1) / step;
+        int outHeight = (window.height + step - 1) / step;
+        int pixelBytes = this.samplesPerPixel * this.bytesPerSample;
+        byte[] out = new byte[outWidth * outHeight * pixelBytes];
+
+        int chunksAcross = this.getChunksAcross();
+        int chunksDown = this.getChunksDown();
+        int numPlanes = this.planar ? this.samplesPerPixel : 1;
+        int windowRight = window.x + window.width;
+        int windowBottom = window.y + window.height;
+
+        for (int plane = 0; plane < numPlanes; plane++)
+        {
+            for (int cy = window.y / this.chunkHeight; cy <= (windowBottom - 1) / this.chunkHeight; cy++)
+            {
+                int top = cy * this.chunkHeight;
+                int row0 = firstSample(window.y, step, top);
+                int rowEnd = Math.min(Math.min(top + this.chunkHeight, windowBottom), this.height);
+                if (row0 >= rowEnd)
+                    continue;
+
+                for (int cx = window.x / this.chunkWidth; cx <= (windowRight - 1) / this.chunkWidth; cx++)
+                {
+                    int left = cx * this.chunkWidth;
+                    int col0 = firstSample(window.x, step, left);
+                    int colEnd = Math.min(Math.min(left + this.chunkWidth, windowRight), this.width);
+                    if (col0 >= colEnd)
+                        continue;
+
+                    Chunk chunk = new Chunk();
+                    chunk.index = (plane * chunksDown + cy) * chunksAcross + cx;
+                    chunk.plane = plane;
+                    chunk.left = left;
+                    chunk.top = top;
+                    chunk.col0 = col0;
+                    chunk.colEnd = colEnd;
+                    chunk.row0 = row0;
+                    chunk.rowEnd = rowEnd;
+
+                    if (this.compression == Tiff.Compression.NONE)
+                        this.readUncompressedChunk(chunk, window, step, out, outWidth);
+                    else
+                        this.readCompressedChunk(chunk, window, step, out, outWidth);
+                }
+            }
+        }
+
+        return ByteBuffer.wrap(out).order(this.byteOrder);
+    }
+
+    /** The part of a strip or tile that is sampled by a window. */
+    protected static class Chunk
+    {
+        protected int index;
+        protected int plane;
+        protected int left;
+        protected int top;
+        /** The first sampled column, and the column following the last column in both the chunk and the window. */
+        protected int col0;
+        protected int colEnd;
+        /** The first sampled row, and the row following the last row in both the chunk and the window. */
+        protected int row0;
+        protected int rowEnd;
+    }
+
+    /**
+     * Returns the first sample at or after a start position, given the position of the first sample and the step
+     * between samples.
+     *
+     * @param origin the position of the first sample.
+     * @param step   the step between samples.
+     * @param start  the start position.
+     *
+     * @return the position of the first sample at or after the start position.
+     */
+    protected static int firstSample(int origin, int step, int start)
+    {
+        if (start <= origin)
+            return origin;
+
+        return origin + ((start - origin + step - 1) / step) * step;
+    }
+
+    protected int getChunkPixelBytes()
+    {
+        return this.planar ? this.bytesPerSample : this.samplesPerPixel * this.bytesPerSample;
+    }
+
+    protected void readUncompressedChunk(Chunk chunk, Rectangle window, int step, byte[] out, int outWidth)
+        throws IOException
+    {
+        // Read only the span of each sampled row between the first and last sampled columns.
+        int chunkPixelBytes = this.getChunkPixelBytes();
+        int lastCol = chunk.col0 + ((chunk.colEnd - 1 - chunk.col0) / step) * step;
+        byte[] row = new byte[(lastCol - chunk.col0 + 1) * chunkPixelBytes];
+        ByteBuffer buffer = ByteBuffer.wrap(row);
+
+        for (int r = chunk.row0; r < chunk.rowEnd; r += step)
+        {
+            long rowOffset = ((long) (r - chunk.top) * this.chunkWidth + (chunk.col0 - chunk.left)) * chunkPixelBytes;
+            buffer.clear();
+            this.read(this.chunkOffsets[chunk.index] + rowOffset, buffer);
+
+            this.copySamples(chunk, window, step, r, row, 0, out, outWidth);
+        }
+    }
+
+    protected void readCompressedChunk(Chunk chunk, Rectangle window, int step, byte[] out, int outWidth)
+        throws IOException
+    {
+        int chunkPixelBytes = this.getChunkPixelBytes();
+        int rowBytes = this.chunkWidth * chunkPixelBytes;
+        // Tiles are always stored at full size, even at the image's edges, but the last strip may be shorter.
+        int numRows = this.tiled ? this.chunkHeight : Math.min(this.chunkHeight, this.height - chunk.top);
+
+        byte[] encoded = new byte[(int) this.chunkCounts[chunk.index]];
+        this.read(this.chunkOffsets[chunk.index], ByteBuffer.wrap(encoded));
+
+        byte[] decoded = this.decode(encoded, numRows * rowBytes);
+        if (this.predictor == Tiff.Predictor.HORIZONTAL_DIFFERENCING)
+            this.undoHorizontalDifferencing(decoded, rowBytes, chunkPixelBytes);
+
+        for (int r = chunk.row0; r < chunk.rowEnd; r += step)
+        {
+            int rowOffset = ((r - chunk.top) * this.chunkWidth + (chunk.col0 - chunk.left)) * chunkPixelBytes;
+            this.copySamples(chunk, window, step, r, decoded, rowOffset, out, outWidth);
+        }
+    }
+
+    protected void copySamples(Chunk chunk, Rectangle window, int step, int r, byte[] src, int srcOffset, byte[] out,
+        int outWidth)
+    {
+        int chunkPixelBytes = this.getChunkPixelBytes();
+        int pixelBytes = this.samplesPerPixel * this.bytesPerSample;
+        int dst = (((r - window.y) / step) * outWidth + (chunk.col0 - window.x) / step) * pixelBytes
+            + chunk.plane * this.bytesPerSample;
+        int srcStep = step * chunkPixelBytes;
+
+        for (int c = chunk.col0; c < chunk.colEnd && srcOffset + chunkPixelBytes <= src.length; c += step)
+        {
+            System.arraycopy(src, srcOffset, out, dst, chunkPixelBytes);
+            srcOffset += srcStep;
+            dst += pixelBytes;
+        }
+    }
+
+    protected void read(long position, ByteBuffer buffer) throws IOException
+    {
+        // Data past the end of the file is left as zeros.
+        while (buffer.hasRemaining())
+        {
+            int count = this.channel.read(buffer, position);
+            if (count < 0)
+                break;
+            position += count;
+        }
+    }
+
+    protected byte[] decode(byte[] encoded, int decodedLength) throws IOException
+    {
+        try
+        {
+            if (this.compression == Tiff.Compression.LZW)
+            {
+                byte[] decoded = this.tiffReader.lzwUncompress(encoded, decodedLength);
+                return (decoded.length == decodedLength) ? decoded : java.util.Arrays.copyOf(decoded, decodedLength);
+            }
+
+            byte[] decoded = new byte[decodedLength];
+            Inflater inflater = new Inflater();
+            try
+            {
+                inflater.setInput(encoded);
+                int length = 0;
+                while (length < decodedLength && !inflater.finished() && !inflater.needsInput())
+                {
+                    length += inflater.inflate(decoded, length, decodedLength - length);
+                }
+            }
+            finally
+            {
+                inflater.end();
+            }
+
+            return decoded;
+        }
+        catch (DataFormatException e)
+        {
+            String message = Logging.getMessage("GeotiffReader.BadGeotiff");
+            Logging.logger().severe(message);
+            throw new IOException(message, e);
+        }
+        catch (RuntimeException e)
+        {
+            // The LZW decoder fails with buffer or array index exceptions on corrupt data.
+            String message = Logging.getMessage("GeotiffReader.BadGeotiff");
+            Logging.logger().severe(message);
+            throw new IOException(message, e);
+        }
+    }
+
+    protected void undoHorizontalDifferencing(byte[] data, int rowBytes, int chunkPixelBytes)
+    {
+        // Each sample is stored as the difference from the same sample of the pixel to its left.
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(this.byteOrder);
+        int size = this.bytesPerSample;
+
+        for (int rowStart = 0; rowStart + rowBytes <= data.length; rowStart += rowBytes)
+        {
+            for (int i = rowStart + chunkPixelBytes; i < rowStart + rowBytes; i += size)
+            {
+                int prev = i - chunkPixelBytes;
+                switch (size)
+                {
+                    case 1:
+                        data[i] += data[prev];
+                        break;
+                    case 2:
+                        buffer.putShort(i, (short) (buffer.getShort(i) + buffer.getShort(prev)));
+                        break;
+                    case 4:
+                        buffer.putInt(i, buffer.getInt(i) + buffer.getInt(prev));
+                        break;
+                    default:
+                        buffer.putLong(i, buffer.getLong(i) + buffer.getLong(prev));
+                        break;
+                }
+            }
+        }
+    }
+}
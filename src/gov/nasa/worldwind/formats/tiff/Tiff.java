@@ -32,6 +32,7 @@ public interface Tiff
     public interface Tag
     {
         // Baseline Tiff 6.0 tags...
+        public static final int NEW_SUBFILE_TYPE = 254;
         public static final int IMAGE_WIDTH = 256;
         public static final int IMAGE_LENGTH = 257;
         public static final int BITS_PER_SAMPLE = 258;
@@ -191,7 +192,24 @@ public interface Tiff
         public static final int NONE = 1;
         public static final int LZW = 5;
         public static final int JPEG = 6;
+        public static final int DEFLATE = 8;
         public static final int PACKBITS = 32773;
+        // The original, unofficial code for Deflate compression, still written by some writers.
+        public static final int PKZIP_DEFLATE = 32946;
+    }
+
+    public interface NewSubfileType
+    {
+        // Bit 0 of the NewSubfileType is set if the image is a reduced resolution version of another image in the
+        // file, such as an overview of the preceding full resolution image.
+        public static final int REDUCED_RESOLUTION = 1;
+    }
+
+    public interface Predictor
+    {
+        public static final int NONE = 1;
+        public static final int HORIZONTAL_DIFFERENCING = 2;
+        public static final int FLOATING_POINT = 3;
     }
 
     public interface PlanarConfiguration
@@ -150,6 +150,132 @@ public class TMCoord
                 easting, northing, originLatitude, centralMeridian, falseEasting, falseNorthing, scale);
     }
 
+    /**
+     * Converts an array of latitude and longitude pairs to Transverse Mercator eastings and northings, in place. This
+     * is equivalent to calling {@link #fromLatLon(Angle, Angle, Globe, Double, Double, Angle, Angle, double, double,
+     * double)} for each pair, but sets up the projection once and creates no objects per pair.
+     *
+     * @param coords the coordinates to convert. Each pair's latitude and longitude, in radians, are replaced by its
+     * easting and northing, in meters.
+     * @param offset the index of the first pair's latitude.
+     * @param count the number of pairs to convert.
+     * @param stride the number of array elements between the start of consecutive pairs.
+     * @param globe the <code>Globe</code> - can be null (will use WGS84).
+     * @param originLatitude the origin latitude <code>Angle</code>.
+     * @param centralMeridian the central meridian longitude <code>Angle</code>.
+     * @param falseEasting easting value at the center of the projection in meters.
+     * @param falseNorthing northing value at the center of the projection in meters.
+     * @param scale scaling factor.
+     * @throws IllegalArgumentException if <code>coords</code>, <code>originLatitude</code> or
+     * <code>centralMeridian</code> is null, or the conversion to TM coordinates fails.
+     */
+    public static void fromLatLon(double[] coords, int offset, int count, int stride, Globe globe,
+                   Angle originLatitude, Angle centralMeridian,
+                   double falseEasting, double falseNorthing,
+                   double scale)
+    {
+        TMCoordConverter converter = createConverter(coords, globe, originLatitude, centralMeridian,
+            falseEasting, falseNorthing, scale);
+
+        for (int i = offset; i < offset + count * stride; i += stride)
+        {
+            long err = converter.convertGeodeticToTransverseMercator(coords[i], coords[i + 1]);
+            if (err != TMCoordConverter.TRANMERC_NO_ERROR && err != TMCoordConverter.TRANMERC_LON_WARNING)
+            {
+                String message = Logging.getMessage("Coord.TMConversionError");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            coords[i] = converter.getEasting();
+            coords[i + 1] = converter.getNorthing();
+        }
+    }
+
+    /**
+     * Converts an array of Transverse Mercator easting and northing pairs to latitudes and longitudes, in place. This
+     * is equivalent to calling {@link #fromTM(double, double, Globe, Angle, Angle, double, double, double)} for each
+     * pair, but sets up the projection once and creates no objects per pair.
+     *
+     * @param coords the coordinates to convert. Each pair's easting and northing, in meters, are replaced by its
+     * latitude and longitude, in radians.
+     * @param offset the index of the first pair's easting.
+     * @param count the number of pairs to convert.
+     * @param stride the number of array elements between the start of consecutive pairs.
+     * @param globe the <code>Globe</code> - can be null (will use WGS84).
+     * @param originLatitude the origin latitude <code>Angle</code>.
+     * @param centralMeridian the central meridian longitude <code>Angle</code>.
+     * @param falseEasting easting value at the center of the projection in meters.
+     * @param falseNorthing northing value at the center of the projection in meters.
+     * @param scale scaling factor.
+     * @throws IllegalArgumentException if <code>coords</code>, <code>originLatitude</code> or
+     * <code>centralMeridian</code> is null, or the conversion to geodetic coordinates fails.
+     */
+    public static void fromTM(double[] coords, int offset, int count, int stride, Globe globe,
+                   Angle originLatitude, Angle centralMeridian,
+                   double falseEasting, double falseNorthing,
+                   double scale)
+    {
+        TMCoordConverter converter = createConverter(coords, globe, originLatitude, centralMeridian,
+            falseEasting, falseNorthing, scale);
+
+        for (int i = offset; i < offset + count * stride; i += stride)
+        {
+            long err = converter.convertTransverseMercatorToGeodetic(coords[i], coords[i + 1]);
+            if (err != TMCoordConverter.TRANMERC_NO_ERROR && err != TMCoordConverter.TRANMERC_LON_WARNING)
+            {
+                String message = Logging.getMessage("Coord.TMConversionError");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            coords[i] = converter.getLatitude();
+            coords[i + 1] = converter.getLongitude();
+        }
+    }
+
+    private static TMCoordConverter createConverter(double[] coords, Globe globe,
+                   Angle originLatitude, Angle centralMeridian,
+                   double falseEasting, double falseNorthing,
+                   double scale)
+    {
+        if (coords == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (originLatitude == null || centralMeridian == null)
+        {
+            String message = Logging.getMessage("nullValue.AngleIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        final TMCoordConverter converter = new TMCoordConverter();
+        double a, f;
+        if (globe != null)
+        {
+            a = globe.getEquatorialRadius();
+            f = (globe.getEquatorialRadius() - globe.getPolarRadius()) / globe.getEquatorialRadius();
+        }
+        else
+        {
+            a = converter.getA();
+            f = converter.getF();
+        }
+        long err = converter.setTransverseMercatorParameters(a, f, originLatitude.radians, centralMeridian.radians,
+                falseEasting, falseNorthing, scale);
+        if (err != TMCoordConverter.TRANMERC_NO_ERROR)
+        {
+            String message = Logging.getMessage("Coord.TMConversionError");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return converter;
+    }
+
     /**
      * Create an arbitrary set of Transverse Mercator coordinates with the given values.
      *
@@ -13,7 +13,9 @@ import gov.nasa.worldwind.terrain.*;
 import gov.nasa.worldwind.util.*;
 
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * Defines a globe modeled as an <a href="http://mathworld.wolfram.com/Ellipsoid.html" target="_blank">ellipsoid</a>.
@@ -28,6 +30,11 @@ import java.util.List;
  */
 public class EllipsoidalGlobe extends WWObjectImpl implements Globe
 {
+    /** The number of coordinates below which bulk transforms are not divided among threads. */
+    protected static final int PARALLEL_TRANSFORM_SIZE = 8192;
+    /** The number of coordinates converted at a time by bulk transforms that need intermediate storage. */
+    protected static final int TRANSFORM_BLOCK_SIZE = 256;
+
     protected final double equatorialRadius;
     protected final double polarRadius;
     protected final double es;
@@ -601,6 +608,177 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         this.geodeticToCartesian(sector, numLat, numLon, metersElevation, out);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void computePointsFromPositions(final double[] positions, int count, final double[] out, boolean parallel)
+    {
+        this.validateTransformArguments(positions, count, out);
+        if (out.length < 3 * count)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", out.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.transform(count, parallel, new RangeTransform()
+        {
+            public void transform(int start, int end)
+            {
+                geodeticToCartesian(positions, start, end, out, 3 * start);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void computePointsFromPositions(final double[] positions, int count, Vec4 referencePoint,
+        final FloatBuffer out, boolean parallel)
+    {
+        this.validateTransformArguments(positions, count, out);
+        if (out.remaining() < 3 * count)
+        {
+            String message = Logging.getMessage("generic.BufferSize", out.remaining());
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        final double refX = referencePoint != null ? referencePoint.x : 0;
+        final double refY = referencePoint != null ? referencePoint.y : 0;
+        final double refZ = referencePoint != null ? referencePoint.z : 0;
+        final int outPosition = out.position();
+
+        this.transform(count, parallel, new RangeTransform()
+        {
+            public void transform(int start, int end)
+            {
+                // Convert the range in blocks, using a scratch array small enough to stay in the processor's cache.
+                double[] points = new double[3 * Math.min(end - start, TRANSFORM_BLOCK_SIZE)];
+                for (int blockStart = start; blockStart < end; blockStart += TRANSFORM_BLOCK_SIZE)
+                {
+                    int blockEnd = Math.min(blockStart + TRANSFORM_BLOCK_SIZE, end);
+                    geodeticToCartesian(positions, blockStart, blockEnd, points, 0);
+
+                    int index = outPosition + 3 * blockStart;
+                    for (int i = 0; i < 3 * (blockEnd - blockStart); i += 3)
+                    {
+                        out.put(index++, (float) (points[i] - refX));
+                        out.put(index++, (float) (points[i + 1] - refY));
+                        out.put(index++, (float) (points[i + 2] - refZ));
+                    }
+                }
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void computePositionsFromPoints(final double[] points, int count, final double[] out, boolean parallel)
+    {
+        this.validateTransformArguments(points, count, out);
+        if (out.length < 3 * count)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", out.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.transform(count, parallel, new RangeTransform()
+        {
+            public void transform(int start, int end)
+            {
+                cartesianToGeodetic(points, start, end, out, 3 * start);
+            }
+        });
+    }
+
+    protected void validateTransformArguments(double[] coords, int count, Object out)
+    {
+        if (coords == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (count < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "count < 0");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (coords.length < 3 * count)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", coords.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (out == null)
+        {
+            String message = Logging.getMessage("nullValue.OutputIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Applies a transform to a range of coordinates, dividing the range among the threads of the common fork/join pool
+     * when <code>parallel</code> is true and the range is large enough to benefit.
+     *
+     * @param count     the number of coordinates to transform.
+     * @param parallel  true to divide large ranges among several threads.
+     * @param transform the transform to apply.
+     */
+    protected void transform(int count, boolean parallel, RangeTransform transform)
+    {
+        if (parallel && count > PARALLEL_TRANSFORM_SIZE && ForkJoinPool.getCommonPoolParallelism() > 1)
+        {
+            ForkJoinPool.commonPool().invoke(new RangeTransformTask(transform, 0, count));
+        }
+        else if (count > 0)
+        {
+            transform.transform(0, count);
+        }
+    }
+
+    /** Transforms the coordinates in a range of indices. Implementations must not depend on the order of ranges. */
+    protected interface RangeTransform
+    {
+        void transform(int start, int end);
+    }
+
+    /** Applies a transform to a range of coordinates, dividing the range among threads when it is large. */
+    protected static class RangeTransformTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final RangeTransform transform;
+        protected final int start;
+        protected final int end;
+
+        public RangeTransformTask(RangeTransform transform, int start, int end)
+        {
+            this.transform = transform;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.end - this.start > PARALLEL_TRANSFORM_SIZE)
+            {
+                int mid = (this.start + this.end) >>> 1;
+                invokeAll(new RangeTransformTask(this.transform, this.start, mid),
+                    new RangeTransformTask(this.transform, mid, this.end));
+                return;
+            }
+
+            this.transform.transform(this.start, this.end);
+        }
+    }
+
     /**
      * Returns the normal to the Globe at the specified position.
      *
@@ -859,6 +1037,38 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         return this.geodeticToEllipsoidal(latitude, longitude, metersElevation);
     }
 
+    /**
+     * Maps a range of positions to Cartesian coordinates. Positions are read as latitude and longitude in degrees and
+     * elevation in meters. Points are written as consecutive x, y and z triplets. The coordinate system is that of
+     * {@link #geodeticToCartesian(gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle, double)}.
+     *
+     * @param positions the positions, as consecutive latitude, longitude and elevation triplets.
+     * @param start     the index of the first position to map.
+     * @param end       one more than the index of the last position to map.
+     * @param out       the array to hold the points.
+     * @param outOffset the index in the output array at which to write the first point.
+     */
+    protected void geodeticToCartesian(double[] positions, int start, int end, double[] out, int outOffset)
+    {
+        double eqr = this.equatorialRadius;
+        double es = this.es;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double lat = Math.toRadians(positions[i]);
+            double lon = Math.toRadians(positions[i + 1]);
+            double elev = positions[i + 2];
+
+            double cosLat = Math.cos(lat);
+            double sinLat = Math.sin(lat);
+            double rpm = eqr / Math.sqrt(1.0 - es * sinLat * sinLat);
+
+            out[o] = (rpm + elev) * cosLat * Math.sin(lon);
+            out[o + 1] = (rpm * (1.0 - es) + elev) * sinLat;
+            out[o + 2] = (rpm + elev) * cosLat * Math.cos(lon);
+        }
+    }
+
     /**
      * Maps a position to ellipsoidal coordinates. The Y axis points to the north pole. The Z axis points to the
      * intersection of the prime meridian and the equator, in the equatorial plane. The X axis completes a right-handed
@@ -1028,6 +1238,28 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         return this.ellipsoidalToGeodetic(cart);
     }
 
+    /**
+     * Maps a range of Cartesian points to geographic positions. Points are read as consecutive x, y and z triplets.
+     * Positions are written as latitude and longitude in degrees and elevation in meters.
+     *
+     * @param points    the points, as consecutive x, y and z triplets.
+     * @param start     the index of the first point to map.
+     * @param end       one more than the index of the last point to map.
+     * @param out       the array to hold the positions.
+     * @param outOffset the index in the output array at which to write the first position.
+     *
+     * @see #cartesianToGeodetic(gov.nasa.worldwind.geom.Vec4)
+     */
+    protected void cartesianToGeodetic(double[] points, int start, int end, double[] out, int outOffset)
+    {
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            this.ellipsoidalToGeodetic(points[i], points[i + 1], points[i + 2], out, o);
+            out[o] = Math.toDegrees(out[o]);
+            out[o + 1] = Math.toDegrees(out[o + 1]);
+        }
+    }
+
     /**
      * Compute the geographic position to corresponds to an ellipsoidal point.
      *
@@ -1049,14 +1281,34 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
             throw new IllegalArgumentException(message);
         }
 
+        double[] coords = new double[3];
+        this.ellipsoidalToGeodetic(cart.x, cart.y, cart.z, coords, 0);
+
+        return Position.fromRadians(coords[0], coords[1], coords[2]);
+    }
+
+    /**
+     * Compute the geographic coordinates corresponding to an ellipsoidal point, without creating any objects.
+     *
+     * @param x      the point's x coordinate.
+     * @param y      the point's y coordinate.
+     * @param z      the point's z coordinate.
+     * @param out    the array to hold the latitude in radians, the longitude in radians and the height in meters.
+     * @param offset the index in the output array at which to write the latitude.
+     *
+     * @see #ellipsoidalToGeodetic(gov.nasa.worldwind.geom.Vec4)
+     */
+    @SuppressWarnings({"SuspiciousNameCombination"})
+    protected void ellipsoidalToGeodetic(double x, double y, double z, double[] out, int offset)
+    {
         // According to
         // H. Vermeille,
         // "An analytical method to transform geocentric into geodetic coordinates"
         // http://www.springerlink.com/content/3t6837t27t351227/fulltext.pdf
         // Journal of Geodesy, accepted 10/2010, not yet published
-        double X = cart.z;
-        double Y = cart.x;
-        double Z = cart.y;
+        double X = z;
+        double Y = x;
+        double Z = y;
         double XXpYY = X * X + Y * Y;
         double sqrtXXpYY = Math.sqrt(XXpYY);
 
@@ -1147,7 +1399,9 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
             lambda = Math.PI * 0.5 - 2 * Math.atan2(X, sqrtXXpYY + Y);
         }
 
-        return Position.fromRadians(phi, lambda, h);
+        out[offset] = phi;
+        out[offset + 1] = lambda;
+        out[offset + 2] = h;
     }
 //
 //    /**
@@ -402,6 +402,12 @@ public class FlatGlobe extends EllipsoidalGlobe implements Globe2D
         this.projection.geographicToCartesian(this, sector, numLat, numLon, metersElevation, this.offsetVector, out);
     }
 
+    @Override
+    protected void geodeticToCartesian(double[] positions, int start, int end, double[] out, int outOffset)
+    {
+        this.projection.geographicToCartesian(this, positions, start, end, this.offsetVector, out, outOffset);
+    }
+
     @Override
     protected Position cartesianToGeodetic(Vec4 cart)
     {
@@ -427,6 +433,24 @@ public class FlatGlobe extends EllipsoidalGlobe implements Globe2D
         return pos;
     }
 
+    @Override
+    protected void cartesianToGeodetic(double[] points, int start, int end, double[] out, int outOffset)
+    {
+        this.projection.cartesianToGeographic(this, points, start, end, this.offsetVector, out, outOffset);
+
+        if (this.isContinuous())
+        {
+            // Wrap if the globe is continuous.
+            for (int o = outOffset + 1; o < outOffset + 3 * (end - start); o += 3)
+            {
+                if (out[o] < -180)
+                    out[o] += 360;
+                else if (out[o] > 180)
+                    out[o] -= 360;
+            }
+        }
+    }
+
 //
 //    /**
 //     * Returns a cylinder that minimally surrounds the specified minimum and maximum elevations in the sector at a
@@ -102,6 +102,39 @@ public interface GeographicProjection
     void geographicToCartesian(Globe globe, Sector sector, int numLat, int numLon, double[] metersElevation,
         Vec4 offset, Vec4[] out);
 
+    /**
+     * Converts a range of geographic positions to points in Cartesian coordinates. This is equivalent to calling
+     * {@link #geographicToCartesian(Globe, gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle, double,
+     * gov.nasa.worldwind.geom.Vec4)} for each position, but creates no objects per position.
+     * <p/>
+     * Note: The input arguments are not checked prior to being used. The caller, typically a {@link Globe2D}
+     * implementation, is expected do perform that check prior to calling this method.
+     * <p/>
+     * The default implementation converts each position with the single position method.
+     *
+     * @param globe     The globe this projection is applied to.
+     * @param positions The positions, as consecutive latitude, longitude and elevation triplets. Latitude and
+     *                  longitude are in degrees, and elevation is in meters.
+     * @param start     The index of the first position to convert.
+     * @param end       One more than the index of the last position to convert.
+     * @param offset    An optional offset to be applied to the Cartesian output. Typically only projections that are
+     *                  continuous (see {@link #isContinuous()} apply this offset. Others ignore it. May be null.
+     * @param out       An array to hold the Cartesian points, as consecutive x, y and z triplets.
+     * @param outOffset The index in the output array at which to write the first point.
+     */
+    default void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        for (int i = 3 * start, j = outOffset; i < 3 * end; i += 3, j += 3)
+        {
+            Vec4 point = this.geographicToCartesian(globe, Angle.fromDegrees(positions[i]),
+                Angle.fromDegrees(positions[i + 1]), positions[i + 2], offset);
+            out[j] = point.x;
+            out[j + 1] = point.y;
+            out[j + 2] = point.z;
+        }
+    }
+
     /**
      * Converts a Cartesian point in meters to a geographic position.
      * <p/>
@@ -121,6 +154,40 @@ public interface GeographicProjection
      */
     Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset);
 
+    /**
+     * Converts a range of Cartesian points in meters to geographic positions. This is equivalent to calling {@link
+     * #cartesianToGeographic(Globe, gov.nasa.worldwind.geom.Vec4, gov.nasa.worldwind.geom.Vec4)} for each point, but
+     * creates no objects per point.
+     * <p/>
+     * Note: The input arguments are not checked prior to being used. The caller, typically a {@link Globe2D}
+     * implementation, is expected do perform that check prior to calling this method.
+     * <p/>
+     * The default implementation converts each point with the single point method.
+     *
+     * @param globe     The globe this projection is applied to.
+     * @param points    The Cartesian points, as consecutive x, y and z triplets.
+     * @param start     The index of the first point to convert.
+     * @param end       One more than the index of the last point to convert.
+     * @param offset    An optional offset to be applied to the Cartesian input prior to converting it. Typically only
+     *                  projections that are continuous (see {@link #isContinuous()} apply this offset. Others ignore
+     *                  it. May be null.
+     * @param out       An array to hold the positions, as consecutive latitude, longitude and elevation triplets.
+     *                  Latitude and longitude are in degrees, and elevation is in meters.
+     * @param outOffset The index in the output array at which to write the first position.
+     */
+    default void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        for (int i = 3 * start, j = outOffset; i < 3 * end; i += 3, j += 3)
+        {
+            Position position = this.cartesianToGeographic(globe, new Vec4(points[i], points[i + 1], points[i + 2]),
+                offset);
+            out[j] = position.getLatitude().degrees;
+            out[j + 1] = position.getLongitude().degrees;
+            out[j + 2] = position.getElevation();
+        }
+    }
+
     /**
      * Computes a Cartesian vector that points north and is tangent to the meridian at the specified geographic
      * location.
@@ -9,7 +9,9 @@ import gov.nasa.worldwind.WWObject;
 import gov.nasa.worldwind.geom.*;
 import gov.nasa.worldwind.render.DrawContext;
 import gov.nasa.worldwind.terrain.*;
+import gov.nasa.worldwind.util.Logging;
 
+import java.nio.FloatBuffer;
 import java.util.List;
 
 /**
@@ -266,6 +268,140 @@ public interface Globe extends WWObject, Extent
      */
     void computePointsFromPositions(Sector sector, int numLat, int numLon, double[] metersElevation, Vec4[] out);
 
+    /**
+     * Computes the cartesian points corresponding to an array of geographic positions. This is equivalent to calling
+     * {@link #computePointFromPosition(gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle, double)} for each
+     * position, but neither reads nor creates an object per position.
+     * <p/>
+     * Positions are read as consecutive latitude, longitude and elevation triplets, with latitude and longitude in
+     * degrees and elevation in meters. Points are written as consecutive x, y and z triplets. Large arrays may be
+     * converted by several threads when <code>parallel</code> is true.
+     * <p/>
+     * The default implementation calls <code>computePointFromPosition</code> for each position on the current thread.
+     *
+     * @param positions The positions to convert. Must contain at least <code>3 x count</code> values.
+     * @param count     The number of positions to convert.
+     * @param out       An array to hold the cartesian points. Must have a length of at least <code>3 x count</code>.
+     * @param parallel  true to divide large arrays among several threads, false to convert on the current thread.
+     *
+     * @throws IllegalArgumentException if either array is null or too short, or if the count is negative.
+     */
+    default void computePointsFromPositions(double[] positions, int count, double[] out, boolean parallel)
+    {
+        validateTransformArguments(positions, count, out != null ? out.length : -1);
+
+        for (int i = 0; i < 3 * count; i += 3)
+        {
+            Vec4 point = this.computePointFromPosition(Angle.fromDegrees(positions[i]),
+                Angle.fromDegrees(positions[i + 1]), positions[i + 2]);
+            out[i] = point.x;
+            out[i + 1] = point.y;
+            out[i + 2] = point.z;
+        }
+    }
+
+    /**
+     * Computes the cartesian points corresponding to an array of geographic positions, and writes them to a buffer
+     * relative to a reference point. This is equivalent to {@link #computePointsFromPositions(double[], int, double[],
+     * boolean)} followed by subtracting the reference point from each point, and is suitable for filling vertex
+     * buffers.
+     * <p/>
+     * Points are written as consecutive x, y and z triplets, starting at the buffer's current position. The buffer's
+     * position is not changed.
+     * <p/>
+     * The default implementation calls <code>computePointFromPosition</code> for each position on the current thread.
+     *
+     * @param positions      The positions to convert, as latitude and longitude in degrees and elevation in meters.
+     *                       Must contain at least <code>3 x count</code> values.
+     * @param count          The number of positions to convert.
+     * @param referencePoint The point to subtract from each cartesian point. May be null, in which case the points
+     *                       are not offset.
+     * @param out            A buffer to hold the cartesian points. Must have at least <code>3 x count</code> values
+     *                       remaining.
+     * @param parallel       true to divide large arrays among several threads, false to convert on the current
+     *                       thread.
+     *
+     * @throws IllegalArgumentException if the positions or the buffer are null or too short, or if the count is
+     *                                  negative.
+     */
+    default void computePointsFromPositions(double[] positions, int count, Vec4 referencePoint, FloatBuffer out,
+        boolean parallel)
+    {
+        validateTransformArguments(positions, count, out != null ? out.remaining() : -1);
+
+        Vec4 ref = referencePoint != null ? referencePoint : Vec4.ZERO;
+        int index = out.position();
+        for (int i = 0; i < 3 * count; i += 3)
+        {
+            Vec4 point = this.computePointFromPosition(Angle.fromDegrees(positions[i]),
+                Angle.fromDegrees(positions[i + 1]), positions[i + 2]);
+            out.put(index++, (float) (point.x - ref.x));
+            out.put(index++, (float) (point.y - ref.y));
+            out.put(index++, (float) (point.z - ref.z));
+        }
+    }
+
+    /**
+     * Computes the geographic positions corresponding to an array of cartesian points. This is equivalent to calling
+     * {@link #computePositionFromPoint(gov.nasa.worldwind.geom.Vec4)} for each point, but neither reads nor creates an
+     * object per point.
+     * <p/>
+     * Points are read as consecutive x, y and z triplets. Positions are written as consecutive latitude, longitude and
+     * elevation triplets, with latitude and longitude in degrees and elevation in meters.
+     * <p/>
+     * The default implementation calls <code>computePositionFromPoint</code> for each point on the current thread.
+     *
+     * @param points   The points to convert. Must contain at least <code>3 x count</code> values.
+     * @param count    The number of points to convert.
+     * @param out      An array to hold the positions. Must have a length of at least <code>3 x count</code>.
+     * @param parallel true to divide large arrays among several threads, false to convert on the current thread.
+     *
+     * @throws IllegalArgumentException if either array is null or too short, or if the count is negative.
+     */
+    default void computePositionsFromPoints(double[] points, int count, double[] out, boolean parallel)
+    {
+        validateTransformArguments(points, count, out != null ? out.length : -1);
+
+        for (int i = 0; i < 3 * count; i += 3)
+        {
+            Position position = this.computePositionFromPoint(new Vec4(points[i], points[i + 1], points[i + 2]));
+            out[i] = position.getLatitude().degrees;
+            out[i + 1] = position.getLongitude().degrees;
+            out[i + 2] = position.getElevation();
+        }
+    }
+
+    /**
+     * Validates the arguments of the bulk coordinate conversions.
+     *
+     * @param coords    the coordinates to convert.
+     * @param count     the number of coordinate triplets to convert.
+     * @param outLength the number of values the output can hold, or -1 if the output is null.
+     *
+     * @throws IllegalArgumentException if the coordinates or output are null or too short, or if the count is
+     *                                  negative.
+     */
+    private static void validateTransformArguments(double[] coords, int count, int outLength)
+    {
+        String message = null;
+        if (coords == null)
+            message = Logging.getMessage("nullValue.ArrayIsNull");
+        else if (count < 0)
+            message = Logging.getMessage("generic.ArgumentOutOfRange", "count < 0");
+        else if (coords.length < 3 * count)
+            message = Logging.getMessage("generic.ArrayInvalidLength", coords.length);
+        else if (outLength < 0)
+            message = Logging.getMessage("nullValue.OutputIsNull");
+        else if (outLength < 3 * count)
+            message = Logging.getMessage("generic.ArrayInvalidLength", outLength);
+
+        if (message != null)
+        {
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
     /**
      * Computes a vector perpendicular to the surface of this globe in cartesian coordinates.
      *
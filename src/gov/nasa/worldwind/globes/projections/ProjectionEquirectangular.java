@@ -79,6 +79,25 @@ public class ProjectionEquirectangular extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double eqr = globe.getEquatorialRadius();
+        double offset_x = offset != null ? offset.x : 0;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double lat = Math.toRadians(positions[i]);
+            double lon = Math.toRadians(positions[i + 1]);
+            double elev = positions[i + 2];
+
+            out[o] = eqr * lon + offset_x;
+            out[o + 1] = eqr * lat;
+            out[o + 2] = elev;
+        }
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -86,6 +105,25 @@ public class ProjectionEquirectangular extends AbstractGeographicProjection
             (cart.x - offset.x) / globe.getEquatorialRadius(), cart.z);
     }
 
+    @Override
+    public void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double eqr = globe.getEquatorialRadius();
+        double offset_x = offset != null ? offset.x : 0;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double x = points[i];
+            double y = points[i + 1];
+            double z = points[i + 2];
+
+            out[o] = Math.toDegrees(y / eqr);
+            out[o + 1] = Math.toDegrees((x - offset_x) / eqr);
+            out[o + 2] = z;
+        }
+    }
+
     @Override
     public Vec4 northPointingTangent(Globe globe, Angle latitude, Angle longitude)
     {
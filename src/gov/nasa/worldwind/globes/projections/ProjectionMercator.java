@@ -108,6 +108,33 @@ public class ProjectionMercator extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double eqr = globe.getEquatorialRadius();
+        double ecc = Math.sqrt(globe.getEccentricitySquared());
+        double minLatLimit = this.getProjectionLimits().getMinLatitude().radians;
+        double maxLatLimit = this.getProjectionLimits().getMaxLatitude().radians;
+        double minLonLimit = this.getProjectionLimits().getMinLongitude().radians;
+        double maxLonLimit = this.getProjectionLimits().getMaxLongitude().radians;
+        double offset_x = offset != null ? offset.x : 0;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double lat = WWMath.clamp(Math.toRadians(positions[i]), minLatLimit, maxLatLimit);
+            double lon = WWMath.clamp(Math.toRadians(positions[i + 1]), minLonLimit, maxLonLimit);
+            double elev = positions[i + 2];
+
+            double sinLat = Math.sin(lat);
+            double s = ((1 + sinLat) / (1 - sinLat)) * Math.pow((1 - ecc * sinLat) / (1 + ecc * sinLat), ecc);
+
+            out[o] = eqr * lon + offset_x;
+            out[o + 1] = 0.5 * eqr * Math.log(s);
+            out[o + 2] = elev;
+        }
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -140,6 +167,45 @@ public class ProjectionMercator extends AbstractGeographicProjection
         return Position.fromRadians(lat, (cart.x - xOffset) / globe.getEquatorialRadius(), cart.z);
     }
 
+    @Override
+    public void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double eqr = globe.getEquatorialRadius();
+        double offset_x = offset != null ? offset.x : 0;
+
+        // The series coefficients depend only on the globe, so compute them once for all points. See
+        // cartesianToGeographic(Globe, Vec4, Vec4) for the source of these formulas.
+        double ecc2 = globe.getEccentricitySquared();
+        double ecc4 = ecc2 * ecc2;
+        double ecc6 = ecc4 * ecc2;
+        double ecc8 = ecc6 * ecc2;
+        double B = ecc2 / 2 + 5 * ecc4 / 24 + ecc6 / 12 + 13 * ecc8 / 360;
+        double C = 7 * ecc4 / 48 + 29 * ecc6 / 240 + 811 * ecc8 / 11520;
+        double D = 7 * ecc6 / 120 + 81 * ecc8 / 1120;
+        double E = 4279 * ecc8 / 161280;
+        double Bp = B - 3 * D;
+        double Cp = 2 * C - 8 * E;
+        double Dp = 4 * D;
+        double Ep = 8 * E;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double x = points[i];
+            double y = points[i + 1];
+            double z = points[i + 2];
+
+            double t = Math.pow(Math.E, -y / eqr);
+            double A = Math.PI / 2 - 2 * Math.atan(t);
+            double Ap = A - C + E;
+            double s2p = Math.sin(2 * A);
+
+            out[o] = Math.toDegrees(Ap + s2p * (Bp + s2p * (Cp + s2p * (Dp + Ep * s2p))));
+            out[o + 1] = Math.toDegrees((x - offset_x) / eqr);
+            out[o + 2] = z;
+        }
+    }
+
     @Override
     public Vec4 northPointingTangent(Globe globe, Angle latitude, Angle longitude)
     {
@@ -145,6 +145,27 @@ public class ProjectionPolarEquidistant extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double radius = globe.getRadius();
+        double pole = (this.pole == SOUTH) ? 1 : -1;
+        double poleDegrees = (this.pole == SOUTH) ? -90 : 90;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double lat = Math.toRadians(positions[i]);
+            double lon = Math.toRadians(positions[i + 1]);
+            double elev = positions[i + 2];
+
+            double a = positions[i] == poleDegrees ? 0 : radius * (Math.PI / 2 + lat * pole);
+            out[o] = a * Math.sin(lon);
+            out[o + 1] = a * Math.cos(lon) * pole;
+            out[o + 2] = elev;
+        }
+    }
+
     @SuppressWarnings("SuspiciousNameCombination")
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
@@ -165,6 +186,37 @@ public class ProjectionPolarEquidistant extends AbstractGeographicProjection
         return Position.fromRadians(lat, lon, cart.z);
     }
 
+    @SuppressWarnings("SuspiciousNameCombination")
+    @Override
+    public void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double radius = globe.getRadius();
+        double pole = (this.pole == SOUTH) ? 1 : -1;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double x = points[i];
+            double y = points[i + 1];
+            double z = points[i + 2];
+
+            double rho = Math.sqrt(x * x + y * y);
+            if (rho < 1.0e-4)
+            {
+                out[o] = -90 * pole;
+                out[o + 1] = 0;
+                out[o + 2] = z;
+                continue;
+            }
+
+            double c = Math.min(rho / radius, Math.PI); // map points beyond the projection's radius to its edge
+
+            out[o] = Math.toDegrees(Math.asin(Math.cos(c) * -pole));
+            out[o + 1] = Math.toDegrees(Math.atan2(x, y * pole));
+            out[o + 2] = z;
+        }
+    }
+
     @Override
     public Vec4 northPointingTangent(Globe globe, Angle latitude, Angle longitude)
     {
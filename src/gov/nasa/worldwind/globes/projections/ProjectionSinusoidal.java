@@ -84,6 +84,25 @@ public class ProjectionSinusoidal extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double eqr = globe.getEquatorialRadius();
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double lat = Math.toRadians(positions[i]);
+            double lon = Math.toRadians(positions[i + 1]);
+            double elev = positions[i + 2];
+
+            double cosLat = Math.cos(lat);
+            out[o] = cosLat > 0 ? eqr * lon * cosLat : 0;
+            out[o + 1] = eqr * lat;
+            out[o + 2] = elev;
+        }
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -97,6 +116,28 @@ public class ProjectionSinusoidal extends AbstractGeographicProjection
         return Position.fromRadians(latRadians, lonRadians, cart.z);
     }
 
+    @Override
+    public void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double eqr = globe.getEquatorialRadius();
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double x = points[i];
+            double y = points[i + 1];
+            double z = points[i + 2];
+
+            double latRadians = WWMath.clamp(y / eqr, -Math.PI / 2, Math.PI / 2);
+            double latCos = Math.cos(latRadians);
+            double lonRadians = latCos > 0 ? x / (eqr * latCos) : 0;
+
+            out[o] = Math.toDegrees(latRadians);
+            out[o + 1] = Math.toDegrees(WWMath.clamp(lonRadians, -Math.PI, Math.PI));
+            out[o + 2] = z;
+        }
+    }
+
     @Override
     public Vec4 northPointingTangent(Globe globe, Angle latitude, Angle longitude)
     {
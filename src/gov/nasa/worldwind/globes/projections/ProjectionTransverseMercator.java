@@ -257,6 +257,28 @@ public class ProjectionTransverseMercator extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        double minLatLimit = -82 * Math.PI / 180;
+        double maxLatLimit = 86 * Math.PI / 180;
+        double minLonLimit = this.centralMeridian.radians - this.width.radians;
+        double maxLonLimit = this.centralMeridian.radians + this.width.radians;
+
+        // Write the limited latitudes and longitudes to the output array, then replace them with eastings and
+        // northings in place.
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            out[o] = WWMath.clamp(Math.toRadians(positions[i]), minLatLimit, maxLatLimit);
+            out[o + 1] = WWMath.clamp(Math.toRadians(positions[i + 1]), minLonLimit, maxLonLimit);
+            out[o + 2] = positions[i + 2];
+        }
+
+        TMCoord.fromLatLon(out, outOffset, end - start, 3, globe, this.centralLatitude, this.centralMeridian, 0, 0,
+            this.getScale());
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -265,6 +287,23 @@ public class ProjectionTransverseMercator extends AbstractGeographicProjection
 
         return new Position(tm.getLatitude(), tm.getLongitude(), cart.z);
     }
+
+    @Override
+    public void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        // Write the eastings and northings to the output array, then replace them with latitudes and longitudes in
+        // place.
+        System.arraycopy(points, 3 * start, out, outOffset, 3 * (end - start));
+        TMCoord.fromTM(out, outOffset, end - start, 3, globe, this.centralLatitude, this.centralMeridian, 0, 0,
+            this.getScale());
+
+        for (int o = outOffset; o < outOffset + 3 * (end - start); o += 3)
+        {
+            out[o] = Math.toDegrees(out[o]);
+            out[o + 1] = Math.toDegrees(out[o + 1]);
+        }
+    }
 // These are spherical forms from Map Projections -- A Working Manual, but I can't get them to fully work. -- tag 6/25/14
 //    @Override
 //    public Vec4 geographicToCartesian(Globe globe, Angle latitude, Angle longitude, double metersElevation, Vec4 offset)
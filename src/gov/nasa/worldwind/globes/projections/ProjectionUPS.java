@@ -138,6 +138,45 @@ public class ProjectionUPS extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double[] positions, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        // See geographicToCartesian(Globe, Angle, Angle, double, Vec4) for the source of these formulas. Values that
+        // depend only on the globe are computed once for all positions.
+        double k0 = 0.994; // standard UPS scale factor
+        double ecc = Math.sqrt(globe.getEccentricitySquared());
+        double s = Math.sqrt(Math.pow(1 + ecc, 1 + ecc) * Math.pow(1 - ecc, 1 - ecc));
+        double scale = 2 * globe.getEquatorialRadius() * k0 / s;
+        double pole = this.pole == NORTH ? 1 : -1;
+        double poleDegrees = this.pole == NORTH ? 90 : -90;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double elev = positions[i + 2];
+            if (positions[i] == poleDegrees)
+            {
+                out[o] = 0;
+                out[o + 1] = 0;
+                out[o + 2] = elev;
+                continue;
+            }
+
+            double lat = Math.toRadians(positions[i]);
+            double lon = Math.toRadians(positions[i + 1]);
+            if (lat * pole < 0) // limit lat to the projection's hemisphere
+                lat = 0;
+
+            double sp = Math.sin(lat * pole);
+            double t = Math.sqrt(((1 - sp) / (1 + sp)) * Math.pow((1 + ecc * sp) / (1 - ecc * sp), ecc));
+            double r = scale * t;
+
+            out[o] = r * Math.sin(lon);
+            out[o + 1] = -r * Math.cos(lon) * pole;
+            out[o + 2] = elev;
+        }
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -179,6 +218,52 @@ public class ProjectionUPS extends AbstractGeographicProjection
         return Position.fromRadians(lat, lon, cart.z);
     }
 
+    @Override
+    public void cartesianToGeographic(Globe globe, double[] points, int start, int end, Vec4 offset, double[] out,
+        int outOffset)
+    {
+        // See cartesianToGeographic(Globe, Vec4, Vec4) for the source of these formulas. Values that depend only on
+        // the globe are computed once for all points.
+        double k0 = 0.994; // standard UPS scale factor
+        double ecc = Math.sqrt(globe.getEccentricitySquared());
+        double s = Math.sqrt(Math.pow(1 + ecc, 1 + ecc) * Math.pow(1 - ecc, 1 - ecc));
+        double scale = s / (2 * globe.getEquatorialRadius() * k0);
+        double pole = this.pole == NORTH ? 1 : -1;
+        double xOffset = offset != null ? offset.x : 0;
+
+        double ecc2 = globe.getEccentricitySquared();
+        double ecc4 = ecc2 * ecc2;
+        double ecc6 = ecc4 * ecc2;
+        double ecc8 = ecc6 * ecc2;
+        double B = ecc2 / 2 + 5 * ecc4 / 24 + ecc6 / 12 + 13 * ecc8 / 360;
+        double C = 7 * ecc4 / 48 + 29 * ecc6 / 240 + 811 * ecc8 / 11520;
+        double D = 7 * ecc6 / 120 + 81 * ecc8 / 1120;
+        double E = 4279 * ecc8 / 161280;
+        double Bp = B - 3 * D;
+        double Cp = 2 * C - 8 * E;
+        double Dp = 4 * D;
+        double Ep = 8 * E;
+
+        for (int i = 3 * start, o = outOffset; i < 3 * end; i += 3, o += 3)
+        {
+            double x = points[i] - xOffset;
+            double y = points[i + 1];
+            double z = points[i + 2];
+
+            double lon = Math.atan2(x, -y * pole);
+            double t = Math.sqrt(x * x + y * y) * scale;
+
+            double A = Math.PI / 2 - 2 * Math.atan(t);
+            double Ap = A - C + E;
+            double s2p = Math.sin(2 * A);
+            double lat = Ap + s2p * (Bp + s2p * (Cp + s2p * (Dp + Ep * s2p)));
+
+            out[o] = Math.toDegrees(lat * pole);
+            out[o + 1] = Math.toDegrees(lon);
+            out[o + 2] = z;
+        }
+    }
+
     @Override
     public Vec4 northPointingTangent(Globe globe, Angle latitude, Angle longitude)
     {
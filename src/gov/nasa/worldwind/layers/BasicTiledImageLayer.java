@@ -225,6 +225,15 @@ public class BasicTiledImageLayer extends TiledImageLayer implements BulkRetriev
         this.getRequestQ().add(task);
     }
 
+    @Override
+    protected long prefetchTexture(TextureTile tile, double priority)
+    {
+        tile.setPriority(priority);
+        this.createRequestTask(tile).run();
+
+        return tile.getTextureData() != null ? tile.getSizeInBytes() : 0;
+    }
+
     protected RequestTask createRequestTask(TextureTile tile)
     {
         return new RequestTask(tile, this);
@@ -55,6 +55,7 @@ public abstract class TiledImageLayer extends AbstractLayer
     protected TextureTile currentResourceTile;
     protected boolean atMaxResolution = false;
     protected PriorityBlockingQueue<Runnable> requestQ = new PriorityBlockingQueue<Runnable>(200);
+    protected TilePrefetcher prefetcher;
 
     abstract protected void requestTexture(DrawContext dc, TextureTile tile);
 
@@ -196,6 +197,111 @@ public abstract class TiledImageLayer extends AbstractLayer
         return requestQ;
     }
 
+    /**
+     * Indicates whether textures the view is about to need are requested before the view needs them.
+     *
+     * @return true if prefetching is enabled, otherwise false.
+     *
+     * @see TilePrefetcher
+     */
+    public boolean isPrefetchEnabled()
+    {
+        return this.prefetcher != null;
+    }
+
+    /**
+     * Specifies whether textures the view is about to need are requested before the view needs them. Prefetching is
+     * disabled by default.
+     *
+     * @param enabled true to enable prefetching, otherwise false.
+     *
+     * @see TilePrefetcher
+     */
+    public void setPrefetchEnabled(boolean enabled)
+    {
+        if (enabled && this.prefetcher == null)
+        {
+            this.prefetcher = this.createPrefetcher();
+        }
+        else if (!enabled && this.prefetcher != null)
+        {
+            this.prefetcher.dispose();
+            this.prefetcher = null;
+        }
+    }
+
+    /**
+     * Returns this layer's prefetcher, which may be used to configure prefetching.
+     *
+     * @return the prefetcher, or null if prefetching is disabled.
+     */
+    public TilePrefetcher getPrefetcher()
+    {
+        return this.prefetcher;
+    }
+
+    protected TilePrefetcher createPrefetcher()
+    {
+        return new TilePrefetcher(new TilePrefetcher.Client()
+        {
+            public LevelSet getLevels()
+            {
+                return TiledImageLayer.this.getLevels();
+            }
+
+            public boolean isPrefetchNeeded(DrawContext dc, TileKey key)
+            {
+                return TiledImageLayer.this.isPrefetchNeeded(dc, key);
+            }
+
+            public long prefetchTile(TileKey key, double priority)
+            {
+                return TiledImageLayer.this.prefetchTexture(TiledImageLayer.this.createPrefetchTile(key), priority);
+            }
+
+            public long getMemoryCacheCapacity()
+            {
+                return TextureTile.getMemoryCache().getCapacity();
+            }
+        });
+    }
+
+    protected boolean isPrefetchNeeded(DrawContext dc, TileKey key)
+    {
+        if (this.levels.isResourceAbsent(key))
+            return false;
+
+        return dc.getTextureCache().getTexture(key) == null && TextureTile.getMemoryCache().getObject(key) == null;
+    }
+
+    protected TextureTile createPrefetchTile(TileKey key)
+    {
+        return new TextureTile(this.levels.computeSectorForKey(key), this.levels.getLevel(key.getLevelNumber()),
+            key.getRow(), key.getColumn());
+    }
+
+    /**
+     * Loads a texture into memory if it is available locally, or otherwise starts its retrieval. Called by this
+     * layer's prefetcher on its own thread. This implementation does nothing. Subclasses that load textures override
+     * it.
+     *
+     * @param tile     the tile to load.
+     * @param priority the priority at which to retrieve the tile.
+     *
+     * @return the number of bytes the tile added to the texture memory cache, or 0 if it was not loaded into memory.
+     */
+    protected long prefetchTexture(TextureTile tile, double priority)
+    {
+        return 0;
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.setPrefetchEnabled(false);
+        super.dispose();
+    }
+
     @Override
     public boolean isMultiResolution()
     {
@@ -654,6 +760,12 @@ public abstract class TiledImageLayer extends AbstractLayer
             this.currentTiles.clear();
         }
 
+        if (this.prefetcher != null)
+        {
+            this.prefetcher.setDetailFactor(this.getDetailFactor());
+            this.prefetcher.update(dc);
+        }
+
         this.sendRequests();
         this.requestQ.clear();
     }
@@ -41,9 +41,38 @@ public class KMLAbstractContainer extends KMLAbstractFeature
         throws XMLStreamException
     {
         if (o instanceof KMLAbstractFeature)
-            this.addFeature((KMLAbstractFeature) o);
+        {
+            KMLFeatureListener listener = ctx instanceof KMLParserContext
+                ? ((KMLParserContext) ctx).getFeatureListener() : null;
+
+            // Deliver features other than containers to the listener instead of retaining them. Containers are kept
+            // so that the listener can navigate a feature's ancestors.
+            if (listener != null && !(o instanceof KMLAbstractContainer))
+                this.streamFeature((KMLAbstractFeature) o, ctx, listener);
+            else
+                this.addFeature((KMLAbstractFeature) o);
+        }
         else
+        {
             super.doAddEventContent(o, ctx, event, args);
+        }
+    }
+
+    /**
+     * Delivers a parsed feature to a feature listener. The feature is removed from the parser context's ID table so
+     * that it's not retained once the listener releases it.
+     *
+     * @param feature  the parsed feature.
+     * @param ctx      the parser context.
+     * @param listener the listener to receive the feature.
+     */
+    protected void streamFeature(KMLAbstractFeature feature, XMLEventParserContext ctx, KMLFeatureListener listener)
+    {
+        String id = feature.getId();
+        if (id != null && ctx.getIdTable().get(id) == feature)
+            ctx.getIdTable().remove(id);
+
+        listener.featureParsed(feature);
     }
 
     public List<KMLAbstractFeature> getFeatures()
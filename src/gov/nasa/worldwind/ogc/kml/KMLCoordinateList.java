@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml;
+
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.AbstractList;
+
+/**
+ * A list of KML coordinates held as a primitive array of longitude, latitude and altitude triples, in the order they
+ * appear in KML. The list presents the coordinates as {@link Position}s, which are created as they're requested.
+ * Consumers that can use the primitive values directly should do so through {@link #getCoordinates()} or the
+ * per-coordinate accessors, to avoid creating positions.
+ * <p/>
+ * The list is unmodifiable.
+ */
+public class KMLCoordinateList extends AbstractList<Position>
+{
+    protected double[] coordinates;
+    protected int size;
+
+    /**
+     * Creates a list of coordinates.
+     *
+     * @param coordinates the coordinates, as longitude, latitude and altitude triples in degrees and meters. The array
+     *                    is retained, not copied.
+     * @param size        the number of coordinates in the array.
+     *
+     * @throws IllegalArgumentException if the coordinates array is null or too short for the specified size.
+     */
+    public KMLCoordinateList(double[] coordinates, int size)
+    {
+        if (coordinates == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (size < 0 || coordinates.length < 3 * size)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", coordinates.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.coordinates = coordinates;
+        this.size = size;
+    }
+
+    /**
+     * Returns the coordinates as longitude, latitude and altitude triples in degrees and meters. The array may be
+     * longer than three times the list's size. The array is the list's backing array, not a copy.
+     *
+     * @return the coordinates.
+     */
+    public double[] getCoordinates()
+    {
+        return this.coordinates;
+    }
+
+    public double getLongitude(int index)
+    {
+        return this.coordinates[3 * this.checkIndex(index)];
+    }
+
+    public double getLatitude(int index)
+    {
+        return this.coordinates[3 * this.checkIndex(index) + 1];
+    }
+
+    public double getAltitude(int index)
+    {
+        return this.coordinates[3 * this.checkIndex(index) + 2];
+    }
+
+    @Override
+    public Position get(int index)
+    {
+        int i = 3 * this.checkIndex(index);
+
+        return Position.fromDegrees(this.coordinates[i + 1], this.coordinates[i], this.coordinates[i + 2]);
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    protected int checkIndex(int index)
+    {
+        if (index < 0 || index >= this.size)
+        {
+            String message = Logging.getMessage("generic.indexOutOfRange", index);
+            Logging.logger().severe(message);
+            throw new IndexOutOfBoundsException(message);
+        }
+
+        return index;
+    }
+}
@@ -33,6 +33,10 @@ import java.util.*;
  * -18.3,23.56,9,34.9,56.0,2
  * </pre>
  * Will be tokenized to two coordinates: (23.56, -18.3, 9), (56.0, 34.9, 2)
+ * <p/>
+ * A tokenizer created without a string reads coordinates incrementally from runs of characters passed to {@link
+ * #tokenize(char[], int, int)}, and accumulates them in a {@link KMLCoordinateList} rather than creating a {@link
+ * Position} and a string per coordinate value. Coordinates that cannot be parsed are skipped.
  *
  * @author pabercrombie
  * @version $Id: KMLCoordinateTokenizer.java 1171 2013-02-11 21:45:02Z dcollins $
@@ -49,6 +53,29 @@ public class KMLCoordinateTokenizer
     protected boolean inWord;
     protected boolean afterComma = false;
 
+    /** Powers of ten that are exactly representable as doubles. */
+    protected static final double[] POWERS_OF_TEN = new double[] {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+        1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // Incremental tokenizer state.
+    protected char[] wordChars;
+    protected int wordLength;
+    protected double[] tuple = new double[3];
+    protected int tupleLength;
+    protected boolean tupleValid = true;
+    protected double[] coordinates;
+    protected int numCoordinates;
+
+    /**
+     * Create a tokenizer to read coordinates incrementally with {@link #tokenize(char[], int, int)}.
+     */
+    public KMLCoordinateTokenizer()
+    {
+        this.buffer = new char[0];
+        this.wordChars = new char[32];
+        this.coordinates = new double[3 * 16];
+    }
+
     /**
      * Create a tokenizer to read coordinates from a string.
      *
@@ -134,4 +161,188 @@ public class KMLCoordinateTokenizer
         this.words.add(this.nextWord.toString());
         this.nextWord = new StringBuilder();
     }
+
+    /**
+     * Reads coordinates from a run of characters. Coordinates and values may span runs; the runs of a coordinate string
+     * are passed in order, followed by a call to {@link #getCoordinateList()}. The characters are not retained.
+     *
+     * @param chars  the array containing the characters.
+     * @param start  the index of the first character to read.
+     * @param length the number of characters to read.
+     */
+    public void tokenize(char[] chars, int start, int length)
+    {
+        for (int i = start; i < start + length; i++)
+        {
+            char ch = chars[i];
+
+            // Follow the same tuple rules as nextPosition.
+            if (Character.isWhitespace(ch))
+            {
+                if (this.inWord)
+                    this.valueBoundary();
+
+                if (!this.afterComma && this.tupleLength >= 2)
+                    this.tupleBoundary();
+            }
+            else if (ch == ',')
+            {
+                if (this.inWord)
+                    this.valueBoundary();
+
+                this.afterComma = true;
+
+                if (this.tupleLength >= 3)
+                    this.tupleBoundary();
+            }
+            else
+            {
+                this.inWord = true;
+                this.afterComma = false;
+
+                if (this.wordLength == this.wordChars.length)
+                    this.wordChars = Arrays.copyOf(this.wordChars, 2 * this.wordLength);
+
+                this.wordChars[this.wordLength++] = ch;
+            }
+        }
+    }
+
+    /**
+     * Completes reading and returns the coordinates read by {@link #tokenize(char[], int, int)}.
+     *
+     * @return the coordinates read.
+     */
+    public KMLCoordinateList getCoordinateList()
+    {
+        if (this.inWord)
+            this.valueBoundary();
+
+        this.tupleBoundary();
+
+        return new KMLCoordinateList(Arrays.copyOf(this.coordinates, 3 * this.numCoordinates), this.numCoordinates);
+    }
+
+    protected void valueBoundary()
+    {
+        this.inWord = false;
+
+        try
+        {
+            double value = parseDouble(this.wordChars, this.wordLength);
+            if (this.tupleLength < 3)
+                this.tuple[this.tupleLength] = value;
+        }
+        catch (NumberFormatException e)
+        {
+            this.tupleValid = false;
+        }
+
+        this.tupleLength++;
+        this.wordLength = 0;
+    }
+
+    protected void tupleBoundary()
+    {
+        if (this.tupleValid && this.tupleLength >= 2)
+        {
+            if (3 * this.numCoordinates == this.coordinates.length)
+                this.coordinates = Arrays.copyOf(this.coordinates, 2 * this.coordinates.length);
+
+            int i = 3 * this.numCoordinates++;
+            this.coordinates[i] = this.tuple[0];
+            this.coordinates[i + 1] = this.tuple[1];
+            this.coordinates[i + 2] = this.tupleLength > 2 ? this.tuple[2] : 0;
+        }
+
+        this.tupleLength = 0;
+        this.tupleValid = true;
+    }
+
+    /**
+     * Parses a decimal number without creating a string. Numbers of up to 15 significant digits and a decimal exponent
+     * of magnitude up to 22 are computed exactly from their digits; others are parsed by {@link
+     * Double#parseDouble(String)}, so the result is always identical to that method's.
+     *
+     * @param chars  the number's characters.
+     * @param length the number of characters.
+     *
+     * @return the number.
+     *
+     * @throws NumberFormatException if the characters are not a number.
+     */
+    protected static double parseDouble(char[] chars, int length)
+    {
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (chars[0] == '-' || chars[0] == '+'))
+        {
+            negative = chars[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean afterPoint = false;
+
+        for (; i < length; i++)
+        {
+            char ch = chars[i];
+
+            if (ch >= '0' && ch <= '9')
+            {
+                anyDigits = true;
+
+                if (mantissa != 0 || ch != '0')
+                {
+                    mantissa = 10 * mantissa + (ch - '0');
+                    significantDigits++;
+                }
+
+                if (afterPoint)
+                    exponent--;
+            }
+            else if (ch == '.' && !afterPoint)
+            {
+                afterPoint = true;
+            }
+            else
+            {
+                break;
+            }
+
+            if (significantDigits > 15)
+                return Double.parseDouble(new String(chars, 0, length));
+        }
+
+        if (anyDigits && i < length && (chars[i] == 'e' || chars[i] == 'E'))
+        {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < length && (chars[j] == '-' || chars[j] == '+'))
+                negativeExponent = chars[j++] == '-';
+
+            int e = 0;
+            int firstDigit = j;
+            for (; j < length && chars[j] >= '0' && chars[j] <= '9' && e < 1000; j++)
+            {
+                e = 10 * e + (chars[j] - '0');
+            }
+
+            if (j > firstDigit)
+            {
+                exponent += negativeExponent ? -e : e;
+                i = j;
+            }
+        }
+
+        if (!anyDigits || i != length || exponent < -22 || exponent > 22)
+            return Double.parseDouble(new String(chars, 0, length));
+
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+
+        return negative ? -value : value;
+    }
 }
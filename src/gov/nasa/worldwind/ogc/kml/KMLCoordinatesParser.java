@@ -9,12 +9,15 @@ package gov.nasa.worldwind.ogc.kml;
 import gov.nasa.worldwind.geom.Position;
 import gov.nasa.worldwind.util.xml.*;
 
-import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.*;
 import javax.xml.stream.events.XMLEvent;
 import java.util.ArrayList;
 
 /**
  * Parses KML <i>coordinates</i> elements.
+ * <p/>
+ * When the parser context reads the document through an {@link XMLCursorEventReader}, the coordinates are read directly
+ * from the cursor's character buffer into a {@link KMLCoordinateList}, without creating strings or positions.
  *
  * @author tag
  * @version $Id: KMLCoordinatesParser.java 1171 2013-02-11 21:45:02Z dcollins $
@@ -34,6 +37,13 @@ public class KMLCoordinatesParser extends AbstractXMLEventParser
     public Position.PositionList parse(XMLEventParserContext ctx, XMLEvent doubleEvent, Object... args)
         throws XMLStreamException
     {
+        if (ctx.getEventReader() instanceof XMLCursorEventReader)
+        {
+            XMLCursorEventReader cursor = (XMLCursorEventReader) ctx.getEventReader();
+            if (cursor.isCursorAt(doubleEvent))
+                return this.parseFromCursor(cursor);
+        }
+
         String s = ctx.getStringParser().parseString(ctx, doubleEvent);
         if (s == null || s.length() < 3) // "a,b" is the smallest possible coordinate string
             return null;
@@ -64,4 +74,28 @@ public class KMLCoordinatesParser extends AbstractXMLEventParser
 
         return new Position.PositionList(positions);
     }
+
+    /**
+     * Reads coordinates from the content of the element at an event reader's cursor.
+     *
+     * @param cursor the event reader, positioned at the start of a <i>coordinates</i> element.
+     *
+     * @return the coordinates, or null if the element contains none.
+     *
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    protected Position.PositionList parseFromCursor(XMLCursorEventReader cursor) throws XMLStreamException
+    {
+        KMLCoordinateTokenizer tokenizer = new KMLCoordinateTokenizer();
+
+        XMLStreamReader reader = cursor.getStreamReader();
+        while (cursor.nextCharacters())
+        {
+            tokenizer.tokenize(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+
+        KMLCoordinateList coordinates = tokenizer.getCoordinateList();
+
+        return coordinates.size() > 0 ? new Position.PositionList(coordinates) : null;
+    }
 }
@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml;
+
+/**
+ * Receives features as they're parsed from a KML document, rather than having them retained in the document's
+ * containers. See {@link KMLRoot#setFeatureListener(KMLFeatureListener)}.
+ */
+public interface KMLFeatureListener
+{
+    /**
+     * Called when a feature within a container has been parsed. The feature's containing element is available from
+     * {@link KMLAbstractFeature#getParent()}, and is still being parsed.
+     *
+     * @param feature the feature that has been parsed.
+     */
+    void featureParsed(KMLAbstractFeature feature);
+}
@@ -6,15 +6,15 @@
 
 package gov.nasa.worldwind.ogc.kml;
 
-import gov.nasa.worldwind.WorldWind;
 import gov.nasa.worldwind.avlist.AVKey;
 import gov.nasa.worldwind.event.Message;
-import gov.nasa.worldwind.ogc.kml.impl.KMLTraversalContext;
+import gov.nasa.worldwind.ogc.kml.impl.*;
 import gov.nasa.worldwind.render.DrawContext;
 import gov.nasa.worldwind.util.*;
 
 import javax.swing.*;
 import java.beans.*;
+import java.io.IOException;
 import java.util.concurrent.atomic.*;
 
 /**
@@ -340,16 +340,15 @@ public class KMLNetworkLink extends KMLAbstractContainer implements PropertyChan
     }
 
     /**
-     * Thread's off a task to determine whether the resource is local or remote and then retrieves it either from disk
-     * cache or a remote server.
+     * Requests a task from the {@link KMLResourceLoader} to determine whether the resource is local or remote and then
+     * retrieve it either from disk cache or a remote server. The request's priority is the screen size of this link's
+     * nearest Region, so the targets of the largest visible Regions load first. Requests for the same address are
+     * merged, and the request is renewed each frame the link remains active.
      *
      * @param dc the current draw context.
      */
     protected void requestResource(DrawContext dc)
     {
-        if (WorldWind.getTaskService().isFull())
-            return;
-
         KMLLink link = this.getLinkOrUrl();
         if (link == null)
             return; // If both the Link and the Url are null, then there's nothing to retrieve.
@@ -364,14 +363,39 @@ public class KMLNetworkLink extends KMLAbstractContainer implements PropertyChan
         if (this.hasNetworkLinkControl() && this.getRoot().getNetworkLinkControl().getCookie() != null)
             address = address + this.getRoot().getNetworkLinkControl().getCookie();
 
-        WorldWind.getTaskService().addTask(new RequestTask(this, address));
+        KMLResourceLoader.getInstance().request(address, KMLResourceLoader.computePriority(this, dc),
+            new RequestTask(this, address));
+    }
+
+    /**
+     * Resolves an address relative to this link's document.
+     *
+     * @param address the address to resolve.
+     *
+     * @return the resolved path, or the address if it cannot be resolved.
+     */
+    protected String getSupportFilePath(String address)
+    {
+        try
+        {
+            String path = this.getRoot().getSupportFilePath(address);
+            return path != null ? path : address;
+        }
+        catch (IOException e)
+        {
+            return address;
+        }
     }
 
     /**
      * Initiates a retrieval of the network resource referenced by this <code>KMLNetworkLink</code>. Once the network
      * resource is retrieved and loaded, this calls <code>{@link #setNetworkResource(KMLRoot)}</code> to specify this
      * link's new network resource, and sends an <code>{@link gov.nasa.worldwind.avlist.AVKey#RETRIEVAL_STATE_SUCCESSFUL}</code>
-     * property change event to this link's property change listeners.
+     * property change event to this link's property change listeners. The new resource is attached as soon as it's
+     * loaded, independently of the resources of other links.
+     * <p/>
+     * If a remote resource is not yet in the file store, this returns and the {@link KMLResourceLoader} calls it
+     * again once the resource's retrieval completes. The request stays counted against the host's limit until then.
      * <p/>
      * This does nothing if this <code>KMLNetworkLink</code> has no <code>KMLLink</code>.
      *
@@ -397,6 +421,12 @@ public class KMLNetworkLink extends KMLAbstractContainer implements PropertyChan
         }
 
         Object o = this.getRoot().resolveNetworkLink(address, this.isLinkCacheable(), updateTime);
+        if (o == null && KMLResourceLoader.getInstance().awaitRetrieval(this.getSupportFilePath(address),
+            this.isLinkCacheable()))
+        {
+            o = this.getRoot().resolveNetworkLink(address, this.isLinkCacheable(), updateTime);
+        }
+
         if (o instanceof KMLRoot)
         {
             KMLRoot newRoot = (KMLRoot) o;
@@ -24,6 +24,7 @@ import java.util.Map;
 public class KMLParserContext extends BasicXMLEventParserContext
 {
     protected KMLCoordinatesParser coordinatesParser;
+    protected KMLFeatureListener featureListener;
 
     /** The key used to identify the coordinates parser in the parser context's parser map. */
     protected static QName COORDINATES = new QName("Coordinates");
@@ -297,4 +298,24 @@ public class KMLParserContext extends BasicXMLEventParserContext
 
         return this.coordinatesParser;
     }
+
+    /**
+     * Returns the listener that receives features as they're parsed.
+     *
+     * @return the feature listener, or null if features are retained by their containers.
+     */
+    public KMLFeatureListener getFeatureListener()
+    {
+        return this.featureListener;
+    }
+
+    /**
+     * Specifies a listener to receive features as they're parsed. See {@link KMLRoot#setFeatureListener(KMLFeatureListener)}.
+     *
+     * @param listener the feature listener. Specify null to retain features in their containers.
+     */
+    public void setFeatureListener(KMLFeatureListener listener)
+    {
+        this.featureListener = listener;
+    }
 }
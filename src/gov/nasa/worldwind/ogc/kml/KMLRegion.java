@@ -970,6 +970,35 @@ public class KMLRegion extends KMLAbstractObject
         super.onChange(msg);
     }
 
+    /**
+     * Computes the size of this Region on screen, in pixels: the square root of its extent's projected screen area.
+     * This is the value compared against the minLodPixels and maxLodPixels of the Region's level of detail criteria.
+     * The size is computed from the extent most recently computed by <code>isActive</code>, and is positive infinity
+     * if the extent is not known or the view's eye point is inside it.
+     *
+     * @param dc the current draw context.
+     *
+     * @return this Region's size on screen, in pixels.
+     *
+     * @throws IllegalArgumentException if the draw context is null.
+     */
+    public double computeScreenSize(DrawContext dc)
+    {
+        if (dc == null)
+        {
+            String message = Logging.getMessage("nullValue.DrawContextIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        Extent extent = this.getCurrentData() != null ? this.getCurrentData().getExtent() : null;
+        if (extent == null || dc.getView() == null)
+            return Double.POSITIVE_INFINITY;
+
+        double numPixels = extent.getProjectedArea(dc.getView());
+        return numPixels != Double.POSITIVE_INFINITY ? Math.sqrt(numPixels) : numPixels;
+    }
+
     protected void reset()
     {
         this.regionDataCache.removeAllEntries();
@@ -457,6 +457,10 @@ public class KMLRoot extends KMLAbstractObject implements KMLRenderable
      */
     protected XMLEventReader createReader(Object docSource, boolean namespaceAware)
     {
+        // Read streams through the cursor API, which also lets coordinates be read without intermediate strings.
+        if (docSource instanceof InputStream)
+            return WWXML.openCursorEventReaderStream((InputStream) docSource, namespaceAware);
+
         return WWXML.openEventReader(docSource, namespaceAware);
     }
 
@@ -517,6 +521,19 @@ public class KMLRoot extends KMLAbstractObject implements KMLRenderable
         }
     }
 
+    /**
+     * Specifies a listener to receive features as they're parsed. Placemarks, overlays, network links and other
+     * features that are not containers are delivered to the listener instead of being added to their containers, so
+     * the parsed document retains only its containers, styles and other non-feature elements. This bounds the memory
+     * used to parse very large documents. Must be called before {@link #parse(Object...)}.
+     *
+     * @param listener the listener to receive features. Specify null to retain all features, the default.
+     */
+    public void setFeatureListener(KMLFeatureListener listener)
+    {
+        this.parserContext.setFeatureListener(listener);
+    }
+
     /**
      * Returns the KML document for this <code>KMLRoot</code>.
      *
@@ -271,16 +271,14 @@ public class KMLModelPlacemarkImpl extends WWObjectImpl implements KMLRenderable
     }
 
     /**
-     * Thread's off a task to determine whether the resource is local or remote and then retrieves it either from disk
-     * cache or a remote server.
+     * Requests a task from the {@link KMLResourceLoader} to determine whether the resource is local or remote and then
+     * retrieve it either from disk cache or a remote server. The request's priority is the screen size of the
+     * placemark's nearest Region.
      *
      * @param dc the current draw context.
      */
     protected void requestResource(DrawContext dc)
     {
-        if (WorldWind.getTaskService().isFull())
-            return;
-
         KMLLink link = this.model.getLink();
         if (link == null)
             return;
@@ -292,7 +290,8 @@ public class KMLModelPlacemarkImpl extends WWObjectImpl implements KMLRenderable
         if (WWUtil.isEmpty(address))
             return;
 
-        WorldWind.getTaskService().addTask(new RequestTask(this, address));
+        KMLResourceLoader.getInstance().request(address, KMLResourceLoader.computePriority(this.parent, dc),
+            new RequestTask(this, address));
     }
 
     /**
@@ -301,6 +300,9 @@ public class KMLModelPlacemarkImpl extends WWObjectImpl implements KMLRenderable
      * <code>{@link gov.nasa.worldwind.avlist.AVKey#RETRIEVAL_STATE_SUCCESSFUL}</code> property change event to this
      * link's property change listeners.
      * <p/>
+     * If a remote resource is not yet in the file store, this returns and the {@link KMLResourceLoader} calls it
+     * again once the resource's retrieval completes. The request stays counted against the host's limit until then.
+     * <p/>
      * This does nothing if this <code>KMLNetworkLink</code> has no <code>KMLLink</code>.
      *
      * @param address the address of the resource to retrieve
@@ -309,7 +311,16 @@ public class KMLModelPlacemarkImpl extends WWObjectImpl implements KMLRenderable
     {
         Object o = this.parent.getRoot().resolveReference(address);
         if (o == null)
-            return;
+        {
+            String linkBase = address.split("#")[0];
+            String path = this.parent.getRoot().getSupportFilePath(linkBase);
+            if (!KMLResourceLoader.getInstance().awaitRetrieval(path != null ? path : linkBase, true))
+                return;
+
+            o = this.parent.getRoot().resolveReference(address);
+            if (o == null)
+                return;
+        }
 
         ColladaRoot root = ColladaRoot.createAndParse(o);
         if (root == null)
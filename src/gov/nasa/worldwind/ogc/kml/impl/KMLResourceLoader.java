@@ -0,0 +1,720 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml.impl;
+
+import gov.nasa.worldwind.*;
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.ogc.kml.*;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.util.*;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+/**
+ * Loads the resources referenced by KML documents, such as the targets of network links and the COLLADA files of
+ * models. Requests are identified by the address of the resource they load. Requests for an address that is already
+ * pending are merged into a single request, which runs the tasks of all its requesters.
+ * <p/>
+ * Pending requests are started in order of priority, highest first. Requesters typically derive the priority from the
+ * screen size of the nearest KML Region, so that the resources of the largest visible regions load first; see {@link
+ * #computePriority(KMLAbstractFeature, DrawContext)}. The number of requests running at once is limited, both in total
+ * and per host. A request that's not renewed within the stale time is discarded before it starts, since its requester
+ * is no longer interested in it. Requesters renew their requests by requesting the resource again each frame.
+ * <p/>
+ * A task that needs a remote resource not yet in the file store defers itself with {@link #awaitRetrieval(String,
+ * boolean)}. The request releases its thread but keeps its place among the host's running requests, and the deferred
+ * tasks run again once the retrieval completes.
+ * <p/>
+ * The loader records the number of requests, the number of requests merged into pending requests, and the latency of
+ * the completed requests: the time from the first request for an address to the completion of its tasks.
+ * <p/>
+ * The pool size and per-host limit of the shared loader are specified in the World Wind configuration by {@link
+ * AVKey#KML_RESOURCE_POOL_SIZE} and {@link AVKey#KML_RESOURCE_MAX_REQUESTS_PER_HOST}.
+ */
+public class KMLResourceLoader
+{
+    protected static final int DEFAULT_POOL_SIZE = 6;
+    protected static final int DEFAULT_MAX_REQUESTS_PER_HOST = 2;
+    /** The default time, in milliseconds, after which a pending request that has not been renewed is discarded. */
+    protected static final long DEFAULT_STALE_TIME = 2000;
+    /** The default time, in milliseconds, that a request waits for a remote resource to be retrieved. */
+    protected static final long DEFAULT_RETRIEVAL_TIMEOUT = 30000;
+
+    protected static KMLResourceLoader instance;
+
+    /**
+     * Returns the loader shared by KML documents, creating it if necessary.
+     *
+     * @return the shared loader.
+     */
+    public static synchronized KMLResourceLoader getInstance()
+    {
+        if (instance == null)
+        {
+            instance = new KMLResourceLoader(
+                Configuration.getIntegerValue(AVKey.KML_RESOURCE_POOL_SIZE, DEFAULT_POOL_SIZE),
+                Configuration.getIntegerValue(AVKey.KML_RESOURCE_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_REQUESTS_PER_HOST));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Specifies the loader shared by KML documents.
+     *
+     * @param loader the shared loader. May be null, in which case a loader is created from the configuration when
+     *               it's next needed.
+     */
+    public static synchronized void setInstance(KMLResourceLoader loader)
+    {
+        instance = loader;
+    }
+
+    /**
+     * Computes the priority of a request made by a KML feature. The priority is the screen size, in pixels, of the
+     * nearest Region of the feature or its ancestors, or positive infinity if none of them has a Region.
+     *
+     * @param feature the feature requesting a resource.
+     * @param dc      the current draw context.
+     *
+     * @return the priority of the feature's request.
+     */
+    public static double computePriority(KMLAbstractFeature feature, DrawContext dc)
+    {
+        for (Object o = feature; o instanceof KMLAbstractFeature; o = ((KMLAbstractFeature) o).getParent())
+        {
+            KMLRegion region = ((KMLAbstractFeature) o).getRegion();
+            if (region != null)
+                return region.computeScreenSize(dc);
+        }
+
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /** A pending or running request for a resource, and the tasks of its requesters. */
+    protected static class Request
+    {
+        protected final String address;
+        protected final String host;
+        protected final Set<Runnable> tasks = new LinkedHashSet<Runnable>();
+        protected double priority;
+        protected final long firstRequestTime;
+        protected long lastRequestTime;
+        protected long startTime;
+        // Properties supporting deferred tasks. Accessed only by the thread running the request.
+        protected Runnable currentTask;
+        protected final List<Runnable> deferredTasks = new ArrayList<Runnable>();
+        protected final List<CompletableFuture<URL>> retrievals = new ArrayList<CompletableFuture<URL>>();
+        protected boolean resumed;
+
+        public Request(String address, String host, long time)
+        {
+            this.address = address;
+            this.host = host;
+            this.firstRequestTime = time;
+        }
+    }
+
+    protected final int poolSize;
+    protected final int maxRequestsPerHost;
+    protected long staleTime = DEFAULT_STALE_TIME;
+    protected long retrievalTimeout = DEFAULT_RETRIEVAL_TIMEOUT;
+    protected final ThreadPoolExecutor executor;
+    /** Guards the request tables and the statistics. */
+    protected final Object lock = new Object();
+    /** The pending requests, in the order they were first made. */
+    protected final Map<String, Request> pendingRequests = new LinkedHashMap<String, Request>();
+    protected final Map<String, Integer> pendingRequestsPerHost = new HashMap<String, Integer>();
+    /** The running requests, and the requests waiting for retrievals their tasks deferred on. */
+    protected final Map<String, Request> activeRequests = new HashMap<String, Request>();
+    protected final Map<String, Integer> activeRequestsPerHost = new HashMap<String, Integer>();
+    /** The deferred requests whose retrievals have completed, in the order they completed. */
+    protected final Queue<Request> resumedRequests = new ArrayDeque<Request>();
+    /** The number of requests using a pool thread. */
+    protected int runningRequestCount;
+    /** The request run by the current pool thread. */
+    protected final ThreadLocal<Request> currentRequest = new ThreadLocal<Request>();
+    /** The time stale requests were last discarded. */
+    protected long lastPurgeTime;
+    // Statistics.
+    protected long requestCount;
+    protected long mergedRequestCount;
+    protected long droppedRequestCount;
+    protected long completedRequestCount;
+    protected long totalLatency;
+    protected long maxLatency;
+    protected long totalQueueTime;
+
+    /**
+     * Creates a loader.
+     *
+     * @param poolSize           the maximum number of requests to run at once.
+     * @param maxRequestsPerHost the maximum number of requests to the same host to run at once. Local resources are
+     *                           considered to share a host.
+     *
+     * @throws IllegalArgumentException if either value is less than 1.
+     */
+    public KMLResourceLoader(int poolSize, int maxRequestsPerHost)
+    {
+        if (poolSize < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", poolSize);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (maxRequestsPerHost < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", maxRequestsPerHost);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.poolSize = poolSize;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+
+        // The loader starts no more requests than the pool has threads, so the executor's queue stays empty.
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setName(Logging.getMessage("KML.ResourceLoaderThreadName"));
+                return thread;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int getPoolSize()
+    {
+        return this.poolSize;
+    }
+
+    public int getMaxRequestsPerHost()
+    {
+        return this.maxRequestsPerHost;
+    }
+
+    /**
+     * Indicates the time after which a pending request that has not been renewed is discarded.
+     *
+     * @return the stale time, in milliseconds.
+     */
+    public long getStaleTime()
+    {
+        synchronized (this.lock)
+        {
+            return this.staleTime;
+        }
+    }
+
+    /**
+     * Specifies the time after which a pending request that has not been renewed is discarded.
+     *
+     * @param staleTime the stale time, in milliseconds.
+     */
+    public void setStaleTime(long staleTime)
+    {
+        synchronized (this.lock)
+        {
+            this.staleTime = staleTime;
+        }
+    }
+
+    /**
+     * Indicates how long a deferred request holds its place among its host's running requests while waiting for a
+     * remote resource to be retrieved. See {@link #awaitRetrieval(String, boolean)}.
+     *
+     * @return the retrieval timeout, in milliseconds.
+     */
+    public long getRetrievalTimeout()
+    {
+        return this.retrievalTimeout;
+    }
+
+    /**
+     * Specifies how long a deferred request holds its place among its host's running requests while waiting for a
+     * remote resource to be retrieved.
+     *
+     * @param retrievalTimeout the retrieval timeout, in milliseconds.
+     */
+    public void setRetrievalTimeout(long retrievalTimeout)
+    {
+        this.retrievalTimeout = retrievalTimeout;
+    }
+
+    /**
+     * Requests a resource. If a request for the address is pending, the task is added to it and the request's
+     * priority is updated, which also renews the request. If a request for the address is running and already runs
+     * the task, the request is ignored. Otherwise a new request is made.
+     *
+     * @param address  the address of the resource.
+     * @param priority the request's priority. Higher priority requests start first.
+     * @param task     the task that loads the resource.
+     *
+     * @return true if a new request was made, false if the task was merged into an existing request.
+     *
+     * @throws IllegalArgumentException if the address or task is null.
+     */
+    public boolean request(String address, double priority, Runnable task)
+    {
+        if (address == null)
+        {
+            String message = Logging.getMessage("nullValue.PathIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (task == null)
+        {
+            String message = Logging.getMessage("nullValue.RunnableIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        synchronized (this.lock)
+        {
+            long now = System.currentTimeMillis();
+            this.requestCount++;
+
+            Request active = this.activeRequests.get(address);
+            if (active != null && active.tasks.contains(task))
+            {
+                this.mergedRequestCount++;
+                return false;
+            }
+
+            Request request = this.pendingRequests.get(address);
+            boolean isNew = request == null;
+            if (isNew)
+            {
+                request = new Request(address, this.getHost(address), now);
+                this.pendingRequests.put(address, request);
+                this.adjustHostCount(this.pendingRequestsPerHost, request.host, 1);
+            }
+            else
+            {
+                this.mergedRequestCount++;
+            }
+
+            request.tasks.add(task);
+            request.priority = priority;
+            request.lastRequestTime = now;
+
+            this.dispatch(now);
+
+            return isNew;
+        }
+    }
+
+    /**
+     * Requests a remote resource be retrieved into the file store, and indicates whether it has been. Tasks call this
+     * when the file store doesn't yet have a resource. If the retrieval is still in progress and the caller is a task
+     * run by this loader, the task is deferred: it should return, and runs again once the retrieval completes. The
+     * deferred request releases its thread, but holds its place among the host's running requests until the retrieval
+     * completes or the retrieval timeout elapses. A task runs again at most once per request. Addresses that are not
+     * HTTP URLs are not retrieved.
+     *
+     * @param address         the address of the resource.
+     * @param cacheRemoteFile indicates whether to add the resource to the file store cache.
+     *
+     * @return true if the resource has been retrieved, otherwise false.
+     */
+    public boolean awaitRetrieval(String address, boolean cacheRemoteFile)
+    {
+        URL url = WWIO.makeURL(address);
+        if (url == null || !url.getProtocol().startsWith("http"))
+            return false;
+
+        CompletableFuture<URL> retrieval = this.requestRetrieval(address, cacheRemoteFile);
+        if (retrieval.isDone())
+            return !retrieval.isCompletedExceptionally() && retrieval.join() != null;
+
+        Request request = this.currentRequest.get();
+        if (request != null && !request.resumed)
+        {
+            request.retrievals.add(retrieval);
+            if (!request.deferredTasks.contains(request.currentTask))
+                request.deferredTasks.add(request.currentTask);
+        }
+
+        return false;
+    }
+
+    /**
+     * Requests a remote resource be retrieved into the file store.
+     *
+     * @param address         the address of the resource.
+     * @param cacheRemoteFile indicates whether to add the resource to the file store cache.
+     *
+     * @return a future for the resource's local URL.
+     */
+    protected CompletableFuture<URL> requestRetrieval(String address, boolean cacheRemoteFile)
+    {
+        return WorldWind.getDataFileStore().requestFileAsync(address, cacheRemoteFile);
+    }
+
+    public int getPendingRequestCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.pendingRequests.size();
+        }
+    }
+
+    public int getActiveRequestCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.activeRequests.size();
+        }
+    }
+
+    /**
+     * Indicates the number of calls to {@link #request(String, double, Runnable)}, including renewals.
+     *
+     * @return the number of requests.
+     */
+    public long getRequestCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.requestCount;
+        }
+    }
+
+    /**
+     * Indicates the number of requests that were merged into a pending or running request for the same address.
+     *
+     * @return the number of merged requests.
+     */
+    public long getMergedRequestCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.mergedRequestCount;
+        }
+    }
+
+    /**
+     * Indicates the number of requests discarded because they were not renewed within the stale time.
+     *
+     * @return the number of discarded requests.
+     */
+    public long getDroppedRequestCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.droppedRequestCount;
+        }
+    }
+
+    public long getCompletedRequestCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.completedRequestCount;
+        }
+    }
+
+    /**
+     * Indicates the mean time from the first request for a resource to the completion of its tasks, over the completed
+     * requests.
+     *
+     * @return the mean latency, in milliseconds, or 0 if no requests have completed.
+     */
+    public double getMeanLatency()
+    {
+        synchronized (this.lock)
+        {
+            return this.completedRequestCount > 0 ? (double) this.totalLatency / this.completedRequestCount : 0;
+        }
+    }
+
+    /**
+     * Indicates the longest time from the first request for a resource to the completion of its tasks.
+     *
+     * @return the maximum latency, in milliseconds.
+     */
+    public long getMaxLatency()
+    {
+        synchronized (this.lock)
+        {
+            return this.maxLatency;
+        }
+    }
+
+    /**
+     * Indicates the mean time completed requests were pending before they started.
+     *
+     * @return the mean queue time, in milliseconds, or 0 if no requests have completed.
+     */
+    public double getMeanQueueTime()
+    {
+        synchronized (this.lock)
+        {
+            return this.completedRequestCount > 0 ? (double) this.totalQueueTime / this.completedRequestCount : 0;
+        }
+    }
+
+    /** Resets the request counts and latency statistics. */
+    public void resetStatistics()
+    {
+        synchronized (this.lock)
+        {
+            this.requestCount = 0;
+            this.mergedRequestCount = 0;
+            this.droppedRequestCount = 0;
+            this.completedRequestCount = 0;
+            this.totalLatency = 0;
+            this.maxLatency = 0;
+            this.totalQueueTime = 0;
+        }
+    }
+
+    /**
+     * Returns the host that limits the number of concurrent requests for an address.
+     *
+     * @param address the address.
+     *
+     * @return the address' host, or the empty string if the address is local.
+     */
+    protected String getHost(String address)
+    {
+        URL url = WWIO.makeURL(address);
+        String host = url != null ? url.getHost() : null;
+
+        return host != null ? host.toLowerCase() : "";
+    }
+
+    /**
+     * Discards stale pending requests, at most twice per stale time, then starts requests until the pool is full:
+     * first the resumed requests, then the highest priority pending requests whose hosts are below the per-host limit.
+     * Requests of equal priority start in the order they were first made. Must be called while holding the lock.
+     *
+     * @param now the current time, in milliseconds.
+     */
+    protected void dispatch(long now)
+    {
+        if (now - this.lastPurgeTime >= this.staleTime / 2)
+        {
+            Iterator<Request> iter = this.pendingRequests.values().iterator();
+            while (iter.hasNext())
+            {
+                Request request = iter.next();
+                if (now - request.lastRequestTime > this.staleTime)
+                {
+                    iter.remove();
+                    this.adjustHostCount(this.pendingRequestsPerHost, request.host, -1);
+                    this.droppedRequestCount++;
+                }
+            }
+
+            this.lastPurgeTime = now;
+        }
+
+        while (this.runningRequestCount < this.poolSize && !this.resumedRequests.isEmpty())
+        {
+            this.execute(this.resumedRequests.remove());
+        }
+
+        // Scanning the pending requests is skipped when every host with pending requests is at its limit, which is
+        // common when the requests renewed each frame are for one busy host.
+        while (this.runningRequestCount < this.poolSize && this.hasAvailableHost())
+        {
+            Request next = null;
+            for (Request request : this.pendingRequests.values())
+            {
+                if (this.activeRequests.containsKey(request.address)
+                    || this.getHostRequestCount(request.host) >= this.maxRequestsPerHost)
+                    continue;
+
+                if (next == null || request.priority > next.priority)
+                    next = request;
+            }
+
+            if (next == null)
+                break;
+
+            this.pendingRequests.remove(next.address);
+            this.adjustHostCount(this.pendingRequestsPerHost, next.host, -1);
+            this.activeRequests.put(next.address, next);
+            this.adjustHostCount(this.activeRequestsPerHost, next.host, 1);
+            next.startTime = now;
+            this.execute(next);
+        }
+    }
+
+    /**
+     * Indicates whether any host with pending requests is below the per-host limit. Must be called while holding the
+     * lock.
+     *
+     * @return true if a pending request may be started, otherwise false.
+     */
+    protected boolean hasAvailableHost()
+    {
+        for (String host : this.pendingRequestsPerHost.keySet())
+        {
+            if (this.getHostRequestCount(host) < this.maxRequestsPerHost)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Runs a request on a pool thread. Must be called while holding the lock.
+     *
+     * @param request the request to run.
+     */
+    protected void execute(final Request request)
+    {
+        this.runningRequestCount++;
+        this.executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                runRequest(request);
+            }
+        });
+    }
+
+    protected int getHostRequestCount(String host)
+    {
+        Integer count = this.activeRequestsPerHost.get(host);
+        return count != null ? count : 0;
+    }
+
+    protected void adjustHostCount(Map<String, Integer> counts, String host, int delta)
+    {
+        Integer count = counts.get(host);
+        int newCount = (count != null ? count : 0) + delta;
+        if (newCount > 0)
+            counts.put(host, newCount);
+        else
+            counts.remove(host);
+    }
+
+    /**
+     * Runs the tasks of a request, or the tasks it deferred if it's resumed, then records its completion and starts
+     * the next requests. A request whose tasks are deferred is instead resumed once its retrievals complete. A running
+     * request's tasks are not modified, so they're run without holding the lock.
+     *
+     * @param request the request to run.
+     */
+    protected void runRequest(final Request request)
+    {
+        CompletableFuture<Void> retrievals = null;
+        this.currentRequest.set(request);
+        try
+        {
+            Collection<Runnable> tasks = request.tasks;
+            if (request.resumed)
+            {
+                tasks = new ArrayList<Runnable>(request.deferredTasks);
+                request.deferredTasks.clear();
+            }
+
+            for (Runnable task : tasks)
+            {
+                try
+                {
+                    request.currentTask = task;
+                    task.run();
+                }
+                catch (Throwable t)
+                {
+                    String message = Logging.getMessage("KML.ResourceTaskFailed", request.address);
+                    Logging.logger().log(Level.WARNING, message, t);
+                }
+            }
+        }
+        finally
+        {
+            this.currentRequest.remove();
+            request.currentTask = null;
+
+            if (!request.retrievals.isEmpty())
+            {
+                retrievals = CompletableFuture.allOf(request.retrievals.toArray(new CompletableFuture<?>[0]));
+                request.retrievals.clear();
+            }
+
+            synchronized (this.lock)
+            {
+                long now = System.currentTimeMillis();
+                this.runningRequestCount--;
+
+                if (retrievals != null)
+                {
+                    // Release the thread but keep the host slot until the deferred tasks run again.
+                    this.dispatch(now);
+                }
+                else
+                {
+                    this.completeRequest(request, now);
+                }
+            }
+        }
+
+        if (retrievals != null)
+        {
+            // Retrievals always complete, but the host slot is released after the retrieval timeout regardless.
+            retrievals.orTimeout(this.getRetrievalTimeout(), TimeUnit.MILLISECONDS).whenComplete(
+                new BiConsumer<Void, Throwable>()
+                {
+                    public void accept(Void result, Throwable throwable)
+                    {
+                        resumeRequest(request);
+                    }
+                });
+        }
+    }
+
+    /**
+     * Queues a deferred request to run its deferred tasks again, and starts it if the pool has a free thread.
+     *
+     * @param request the request to resume.
+     */
+    protected void resumeRequest(Request request)
+    {
+        synchronized (this.lock)
+        {
+            request.resumed = true;
+            this.resumedRequests.add(request);
+            this.dispatch(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records the completion of a request and starts the next requests. Must be called while holding the lock.
+     *
+     * @param request the completed request.
+     * @param now     the current time, in milliseconds.
+     */
+    protected void completeRequest(Request request, long now)
+    {
+        this.activeRequests.remove(request.address);
+        this.adjustHostCount(this.activeRequestsPerHost, request.host, -1);
+
+        long latency = now - request.firstRequestTime;
+        this.completedRequestCount++;
+        this.totalLatency += latency;
+        this.maxLatency = Math.max(this.maxLatency, latency);
+        this.totalQueueTime += request.startTime - request.firstRequestTime;
+
+        this.dispatch(now);
+    }
+}
@@ -22,7 +22,9 @@ import gov.nasa.worldwind.util.*;
 import com.jogamp.opengl.*;
 import javax.xml.stream.*;
 import java.awt.*;
+import java.beans.*;
 import java.io.*;
+import java.util.concurrent.*;
 
 /**
  * Provides a base class form several geometric {@link gov.nasa.worldwind.render.Renderable}s. Implements common
@@ -54,8 +56,18 @@ public abstract class AbstractShape extends WWObjectImpl
     /** Indicates the number of vertices that must be present in order for VBOs to be used to render this shape. */
     protected static final int VBO_THRESHOLD = Configuration.getIntegerValue(AVKey.VBO_THRESHOLD, 30);
 
+    /** The key identifying the per-frame state of asynchronous geometry regeneration in the draw context. */
+    protected static final String GEOMETRY_FRAME_STATE = "gov.nasa.worldwind.render.AbstractShape.GeometryFrameState";
+
     /** The attributes used if attributes are not specified. */
     protected static ShapeAttributes defaultAttributes;
+    /** The executor regenerating the geometry of shapes that regenerate their geometry asynchronously. */
+    protected static final ThreadPoolExecutor geometryExecutor;
+    /**
+     * The number of milliseconds per frame the rendering thread may spend applying asynchronously regenerated
+     * geometry.
+     */
+    protected static long asyncGeometryFrameBudget = Configuration.getLongValue(AVKey.SHAPE_GEOMETRY_FRAME_BUDGET, 2L);
 
     static
     {
@@ -65,6 +77,59 @@ public abstract class AbstractShape extends WWObjectImpl
         defaultAttributes.setOutlineMaterial(DEFAULT_OUTLINE_MATERIAL);
     }
 
+    static
+    {
+        // Leave one processor for the rendering thread.
+        int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        geometryExecutor = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setName(Logging.getMessage("AbstractShape.GeometryThreadName"));
+                return thread;
+            }
+        });
+        geometryExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Indicates the number of milliseconds per frame the rendering thread may spend applying geometry regenerated
+     * asynchronously. See {@link #setAsyncGeometryRegeneration(boolean)}.
+     *
+     * @return the per-frame budget for applying asynchronously regenerated geometry, in milliseconds.
+     */
+    public static long getAsyncGeometryFrameBudget()
+    {
+        return asyncGeometryFrameBudget;
+    }
+
+    /**
+     * Specifies the number of milliseconds per frame the rendering thread may spend applying geometry regenerated
+     * asynchronously. Geometry that does not fit in the budget is applied during subsequent frames. At least one
+     * shape's geometry is applied each frame, regardless of the budget. The default is 2 milliseconds, and may be
+     * specified in the World Wind configuration by {@link AVKey#SHAPE_GEOMETRY_FRAME_BUDGET}.
+     *
+     * @param millis the per-frame budget for applying asynchronously regenerated geometry, in milliseconds.
+     *
+     * @throws IllegalArgumentException if the budget is negative.
+     * @see #setAsyncGeometryRegeneration(boolean)
+     */
+    public static void setAsyncGeometryFrameBudget(long millis)
+    {
+        if (millis < 0)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", "millis < 0");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        asyncGeometryFrameBudget = millis;
+    }
+
     /**
      * Compute the intersections of a specified line with this shape. If the shape's altitude mode is other than {@link
      * WorldWind#ABSOLUTE}, the shape's geometry is created relative to the specified terrain rather than the terrain
@@ -201,6 +266,7 @@ public abstract class AbstractShape extends WWObjectImpl
     protected long maxExpiryTime = DEFAULT_GEOMETRY_GENERATION_INTERVAL;
     protected long minExpiryTime = Math.max(DEFAULT_GEOMETRY_GENERATION_INTERVAL - 500, 0);
     protected boolean viewDistanceExpiration = true;
+    protected boolean asyncGeometryRegeneration;
     protected SurfaceShape surfaceShape;
 
     // Volatile values used only during frame generation.
@@ -219,14 +285,24 @@ public abstract class AbstractShape extends WWObjectImpl
      * data is drawn from this shape's data cache at the beginning of the <code>render</code> method.
      */
     protected AbstractShapeData currentData;
+    /** The asynchronous geometry regeneration in progress for this shape, or null if there is none. */
+    protected GeometryRegeneration geometryRegeneration;
+    /** The worker thread regenerating this shape's geometry, or null if the geometry is not being regenerated. */
+    protected volatile Thread regenerationThread;
+    /** The data whose geometry is being regenerated by the thread identified by <code>regenerationThread</code>. */
+    protected AbstractShapeData regenerationData;
 
     /**
-     * Returns the data cache entry for the current rendering.
+     * Returns the data cache entry for the current rendering. When called by a worker thread regenerating this shape's
+     * geometry asynchronously, this returns the data receiving the new geometry.
      *
      * @return the data cache entry for the current rendering.
      */
     protected AbstractShapeData getCurrentData()
     {
+        if (this.regenerationThread == Thread.currentThread())
+            return this.regenerationData;
+
         return this.currentData;
     }
 
@@ -241,6 +317,11 @@ public abstract class AbstractShape extends WWObjectImpl
         protected Double referenceDistance;
         /** The GPU-resource cache key to use for this entry's VBOs, if VBOs are used. */
         protected Object vboCacheKey = new Object();
+        /**
+         * The entry receiving this entry's next geometry when geometry is regenerated asynchronously. The two entries
+         * trade places when the new geometry is applied.
+         */
+        protected AbstractShapeData backBuffer;
 
         /**
          * Constructs a data cache entry and initializes its globe-dependent state key for the globe in the specified
@@ -297,6 +378,96 @@ public abstract class AbstractShape extends WWObjectImpl
         }
     }
 
+    /**
+     * A draw context holding the frame state a shape's geometry depends on, captured on the rendering thread for use
+     * by worker threads regenerating geometry. Its terrain is the frame's surface geometry, which is not modified once
+     * the tessellator creates it. The view is shared with the rendering thread, and is used only to cull geometry and
+     * compute eye distances. Vertex buffer objects are disabled, since they are filled on the rendering thread.
+     */
+    protected static class GeometryDrawContext extends DrawContextImpl
+    {
+        public GeometryDrawContext(DrawContext dc)
+        {
+            this.setModel(dc.getModel());
+            this.globe = dc.getGlobe();
+            this.setView(dc.getView());
+            this.setVerticalExaggeration(dc.getVerticalExaggeration());
+            this.setSurfaceGeometry(dc.getSurfaceGeometry());
+            this.setVisibleSector(dc.getVisibleSector());
+            this.setFrameTimeStamp(dc.getFrameTimeStamp());
+
+            GLRuntimeCapabilities caps = new GLRuntimeCapabilities();
+            caps.setVertexBufferObjectEnabled(false);
+            this.setGLRuntimeCapabilities(caps);
+        }
+    }
+
+    /** Holds the per-frame state of asynchronous geometry regeneration for a draw context. */
+    protected static class GeometryFrameState
+    {
+        /** The frame this state is for. */
+        protected long frameTimeStamp;
+        /** The frame's geometry draw context, created when the first shape requests regeneration. */
+        protected GeometryDrawContext geometryDrawContext;
+        /** The time remaining in the frame's budget for applying regenerated geometry, in nanoseconds. */
+        protected long remainingBudget;
+
+        public GeometryFrameState(long frameTimeStamp, long remainingBudget)
+        {
+            this.frameTimeStamp = frameTimeStamp;
+            this.remainingBudget = remainingBudget;
+        }
+    }
+
+    /** Regenerates a shape's geometry on a worker thread. See {@link #setAsyncGeometryRegeneration(boolean)}. */
+    protected static class GeometryRegeneration implements Runnable, Comparable<GeometryRegeneration>
+    {
+        protected final AbstractShape shape;
+        protected final DrawContext dc;
+        /** The data drawn while the geometry is regenerated. */
+        protected final AbstractShapeData frontData;
+        /** The data receiving the regenerated geometry. */
+        protected final AbstractShapeData backData;
+        protected double priority;
+        protected PropertyChangeListener listener;
+        protected volatile boolean done;
+        protected volatile boolean succeeded;
+
+        public GeometryRegeneration(AbstractShape shape, DrawContext dc, AbstractShapeData frontData,
+            AbstractShapeData backData)
+        {
+            this.shape = shape;
+            this.dc = dc;
+            this.frontData = frontData;
+            this.backData = backData;
+        }
+
+        public void run()
+        {
+            try
+            {
+                this.succeeded = this.shape.regenerateGeometry(this.dc, this.backData);
+            }
+            catch (Exception e)
+            {
+                String msg = Logging.getMessage("generic.ExceptionWhileTessellating", this.shape);
+                Logging.logger().log(java.util.logging.Level.SEVERE, msg, e);
+            }
+            finally
+            {
+                this.done = true;
+
+                if (this.listener != null)
+                    this.listener.propertyChange(new PropertyChangeEvent(this.shape, AVKey.REPAINT, null, null));
+            }
+        }
+
+        public int compareTo(GeometryRegeneration that)
+        {
+            return Double.compare(this.priority, that.priority);
+        }
+    }
+
     /** Outlined shapes are drawn as {@link gov.nasa.worldwind.render.OutlinedShape}s. */
     protected OutlinedShape outlineShapeRenderer = new OutlinedShape()
     {
@@ -669,7 +840,7 @@ public abstract class AbstractShape extends WWObjectImpl
      */
     public Vec4 getReferencePoint()
     {
-        return this.currentData.getReferencePoint();
+        return this.getCurrentData().getReferencePoint();
     }
 
     public Extent getExtent(Globe globe, double verticalExaggeration)
@@ -985,6 +1156,10 @@ public abstract class AbstractShape extends WWObjectImpl
      */
     protected void makeOrderedRenderable(DrawContext dc)
     {
+        // Swap in geometry regenerated asynchronously, if it's complete and the frame's budget allows.
+        if (this.geometryRegeneration != null && this.geometryRegeneration.done)
+            this.applyRegeneratedGeometry(dc);
+
         // Re-use values already calculated this frame.
         if (dc.getFrameTimeStamp() != this.getCurrentData().getFrameNumber())
         {
@@ -995,13 +1170,22 @@ public abstract class AbstractShape extends WWObjectImpl
             // Regenerate the positions and shape at a specified frequency.
             if (this.mustRegenerateGeometry(dc))
             {
-                if (!this.doMakeOrderedRenderable(dc))
-                    return;
+                if (this.mustRegenerateGeometryAsync(dc))
+                {
+                    // Continue to draw the current geometry, if any, until the new geometry is applied.
+                    if (this.geometryRegeneration == null)
+                        this.requestGeometryRegeneration(dc);
+                }
+                else
+                {
+                    if (!this.doMakeOrderedRenderable(dc))
+                        return;
 
-                if (this.shouldUseVBOs(dc))
-                    this.fillVBO(dc);
+                    if (this.shouldUseVBOs(dc))
+                        this.fillVBO(dc);
 
-                this.getCurrentData().restartTimer(dc);
+                    this.getCurrentData().restartTimer(dc);
+                }
             }
 
             this.getCurrentData().setFrameNumber(dc.getFrameTimeStamp());
@@ -1016,6 +1200,178 @@ public abstract class AbstractShape extends WWObjectImpl
         this.addOrderedRenderable(dc);
     }
 
+    /**
+     * Indicates whether this shape's geometry is regenerated on a worker thread rather than the rendering thread.
+     *
+     * @return true if this shape's geometry is regenerated asynchronously, otherwise false. The default is false.
+     *
+     * @see #setAsyncGeometryRegeneration(boolean)
+     */
+    public boolean isAsyncGeometryRegeneration()
+    {
+        return this.asyncGeometryRegeneration;
+    }
+
+    /**
+     * Specifies whether this shape's geometry is regenerated on a worker thread rather than the rendering thread. When
+     * enabled, geometry that must be regenerated because it expired, or because the terrain or vertical exaggeration
+     * changed, is computed from a snapshot of the frame's terrain on a shared pool of worker threads. The shape
+     * continues to draw its previous geometry until the new geometry is complete, and the new geometry is then
+     * applied on the rendering thread within a per-frame budget shared by all shapes (see {@link
+     * #setAsyncGeometryFrameBudget(long)}). This avoids frame time spikes when many terrain following shapes must
+     * regenerate their geometry at once, at the cost of drawing outdated geometry for a few frames. Geometry on 2D
+     * globes is always regenerated on the rendering thread.
+     * <p/>
+     * Path, Polygon and ExtrudedPolygon support asynchronous regeneration. Subclasses whose {@link
+     * #doMakeOrderedRenderable(DrawContext)} requires a current OpenGL context must not enable it.
+     *
+     * @param asyncGeometryRegeneration true to regenerate this shape's geometry asynchronously, otherwise false.
+     */
+    public void setAsyncGeometryRegeneration(boolean asyncGeometryRegeneration)
+    {
+        this.asyncGeometryRegeneration = asyncGeometryRegeneration;
+    }
+
+    /**
+     * Indicates whether geometry that must be regenerated during the current frame is regenerated asynchronously.
+     *
+     * @param dc the current draw context.
+     *
+     * @return true if this shape's geometry is regenerated on a worker thread, otherwise false.
+     */
+    protected boolean mustRegenerateGeometryAsync(DrawContext dc)
+    {
+        return this.isAsyncGeometryRegeneration() && !dc.is2DGlobe();
+    }
+
+    /**
+     * Starts regenerating this shape's geometry on a worker thread. The geometry is computed into the current data's
+     * back buffer, which is created if necessary.
+     * <p/>
+     * A {@link gov.nasa.worldwind.render.AbstractShape.AbstractShapeData} must be current when this method is called.
+     *
+     * @param dc the current draw context.
+     */
+    protected void requestGeometryRegeneration(DrawContext dc)
+    {
+        GeometryFrameState state = this.getGeometryFrameState(dc);
+        if (state.geometryDrawContext == null)
+            state.geometryDrawContext = new GeometryDrawContext(dc);
+
+        AbstractShapeData frontData = this.getCurrentData();
+        if (frontData.backBuffer == null)
+            frontData.backBuffer = this.createCacheEntry(dc);
+
+        GeometryRegeneration regeneration = new GeometryRegeneration(this, state.geometryDrawContext, frontData,
+            frontData.backBuffer);
+        regeneration.priority = frontData.getEyeDistance();
+        regeneration.listener = dc.getCurrentLayer();
+
+        this.geometryRegeneration = regeneration;
+        geometryExecutor.execute(regeneration);
+    }
+
+    /**
+     * Regenerates this shape's geometry into the specified data. Called on a worker thread, which sees the data as
+     * current while this method executes.
+     *
+     * @param dc   the geometry draw context capturing the frame that requested the regeneration.
+     * @param data the data to receive the geometry.
+     *
+     * @return true if the geometry was regenerated and should be drawn, otherwise false.
+     */
+    protected boolean regenerateGeometry(DrawContext dc, AbstractShapeData data)
+    {
+        this.regenerationData = data;
+        this.regenerationThread = Thread.currentThread();
+        try
+        {
+            return this.doMakeOrderedRenderable(dc);
+        }
+        finally
+        {
+            this.regenerationThread = null;
+            this.regenerationData = null;
+        }
+    }
+
+    /**
+     * Makes this shape's asynchronously regenerated geometry current. The regenerated data replaces the data it was
+     * regenerated from, which becomes the back buffer for the next regeneration. The geometry is discarded if it could
+     * not be regenerated, or if the data it was regenerated from has since been replaced. If the frame's budget for
+     * applying regenerated geometry is spent, the geometry is applied during a subsequent frame.
+     *
+     * @param dc the current draw context.
+     */
+    protected void applyRegeneratedGeometry(DrawContext dc)
+    {
+        GeometryRegeneration regeneration = this.geometryRegeneration;
+        if (regeneration.dc.getGlobe() != dc.getGlobe())
+            return; // wait for the globe the geometry was regenerated for
+
+        if (!regeneration.succeeded || regeneration.frontData != this.currentData)
+        {
+            this.geometryRegeneration = null;
+            return;
+        }
+
+        GeometryFrameState state = this.getGeometryFrameState(dc);
+        if (state.remainingBudget < 0)
+        {
+            dc.setRedrawRequested(1);
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        AbstractShapeData frontData = regeneration.frontData;
+        AbstractShapeData backData = regeneration.backData;
+        this.geometryRegeneration = null;
+
+        if (!this.shapeDataCache.replaceEntry(frontData, backData))
+            return;
+
+        this.currentData = backData;
+        backData.backBuffer = frontData;
+        frontData.backBuffer = null;
+        backData.setReferenceDistance(frontData.getReferenceDistance());
+
+        // The VBOs of both entries are out of date.
+        dc.getGpuResourceCache().remove(frontData.getVboCacheKey());
+        if (this.shouldUseVBOs(dc))
+        {
+            this.clearCachedVbos(dc);
+            this.fillVBO(dc);
+        }
+
+        backData.restartTimer(dc);
+
+        state.remainingBudget -= System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the state of asynchronous geometry regeneration for the current frame, creating it if it doesn't yet
+     * exist.
+     *
+     * @param dc the current draw context.
+     *
+     * @return the current frame's geometry regeneration state.
+     */
+    protected GeometryFrameState getGeometryFrameState(DrawContext dc)
+    {
+        Object o = dc.getValue(GEOMETRY_FRAME_STATE);
+        GeometryFrameState state = o instanceof GeometryFrameState ? (GeometryFrameState) o : null;
+
+        if (state == null || state.frameTimeStamp != dc.getFrameTimeStamp())
+        {
+            state = new GeometryFrameState(dc.getFrameTimeStamp(),
+                TimeUnit.MILLISECONDS.toNanos(asyncGeometryFrameBudget));
+            dc.setValue(GEOMETRY_FRAME_STATE, state);
+        }
+
+        return state;
+    }
+
     /**
      * Adds this shape to the draw context's ordered renderable list.
      *
@@ -97,6 +97,11 @@ public class DrawContextImpl extends WWObjectImpl implements DrawContext
 
     protected boolean viewStateChanged = true;
 
+    /**
+     * @deprecated Ordered renderables are no longer wrapped when they are added to the draw context. See {@link
+     *             OrderedRenderableQueue}.
+     */
+    @Deprecated
     public static class OrderedRenderableEntry implements SelfOrderedRenderable {
         private OrderedRenderable orderedRenderable;
         private SelfOrderedRenderable next;
@@ -163,8 +168,8 @@ public class DrawContextImpl extends WWObjectImpl implements DrawContext
 //            }
 //        });
 
-    protected SelfOrderedRenderable firstRenderable = null;
-    protected int nRenderables = 0;
+    // Ordered renderables are collected and sorted when first drawn, rather than sorted into a list as they are added.
+    protected OrderedRenderableQueue orderedRenderables = new OrderedRenderableQueue();
 
     // Use a standard Queue to store the ordered surface object renderables. Ordered surface renderables are processed
     // in the order they were submitted.
@@ -252,9 +257,7 @@ public class DrawContextImpl extends WWObjectImpl implements DrawContext
     }
 
     protected void clearOrderedRenderables() {
-        //this.orderedRenderables.clear();
-        firstRenderable = null;
-        nRenderables = 0;
+        this.orderedRenderables.clear();
 
         orderedSurfaceRenderables.clear();
     }
@@ -745,70 +748,20 @@ public class DrawContextImpl extends WWObjectImpl implements DrawContext
             return; // benign event
         }
 
-        SelfOrderedRenderable sor = (orderedRenderable instanceof SelfOrderedRenderable) ?
-                (SelfOrderedRenderable)orderedRenderable : new OrderedRenderableEntry(orderedRenderable);
-
-        nRenderables++;
-
         // If the caller has specified that the ordered renderable should be treated as behind other ordered
-        // renderables, then treat it as having an eye distance of Double.MAX_VALUE and ignore the actual eye distance.
-        // If multiple ordered renderables are added in this way, they are drawn according to the order in which they
-        // are added.
-
-        if (isBehind){ // no need to compare
-            sor.setBehind(true);
-            sor.setNext(firstRenderable);
-            firstRenderable = sor;
-
-        } else {
-            sor.setBehind(false);
-            if (firstRenderable == null) {
-                firstRenderable = sor;
-                sor.setNext(null);
-
-            } else {
-                SelfOrderedRenderable r = firstRenderable, rPrev = null;
-                while (r != null) {
-                    int c = sor.compareTo(r);
-
-                    if (c >= 0 || r.isBehind()){
-                        rPrev = r;
-                        r = r.getNext();
-
-                    } else { // sort in
-                        sor.setNext(r);
-                        if (rPrev == null) {
-                            firstRenderable = sor;
-                        } else {
-                            rPrev.setNext(sor);
-                        }
-                        return;
-                    }
-                }
-                rPrev.setNext(sor);
-                sor.setNext(null);
-            }
-        }
-
-        //double eyeDistance = isBehind ? Double.MAX_VALUE : orderedRenderable.getDistanceFromEye();
-        //this.orderedRenderables.add(new OrderedRenderableEntry(orderedRenderable, eyeDistance, System.nanoTime(), this));
+        // renderables, then the queue ignores its eye distance. If multiple ordered renderables are added in this way,
+        // they are drawn according to the order in which they are added.
+        this.orderedRenderables.add(orderedRenderable, isBehind);
     }
 
-    public int getNumberOfOrderedRenderables() { return nRenderables; }
+    public int getNumberOfOrderedRenderables() { return this.orderedRenderables.getNumAdded(); }
 
     public OrderedRenderable peekOrderedRenderables() {
-        //OrderedRenderableEntry ore = this.orderedRenderables.peek();
-        //return ore != null ? ore.or : null;
-        return firstRenderable;
+        return this.orderedRenderables.peek();
     }
 
     public OrderedRenderable pollOrderedRenderables() {
-        SelfOrderedRenderable r = firstRenderable;
-        if (r != null) {
-            firstRenderable = r.getNext();
-            r.setNext(null);  // avoid memory leaks
-        }
-        return r;
+        return this.orderedRenderables.poll();
 
         // TODO - add continuous2DGlobe case
 
@@ -893,29 +846,9 @@ public class DrawContextImpl extends WWObjectImpl implements DrawContext
 //                declutterableArray.add(ore);
 //        }
 
-        List<Declutterable> declutterables = null; // deferred init
-        SelfOrderedRenderable rLast = null;
-        for (SelfOrderedRenderable r = firstRenderable; r != null; r = r.getNext()) {
-            if (r instanceof Declutterable) {
-                Declutterable dec = (Declutterable)r;
-                if (dec.isEnableDecluttering()) {
-                    if (declutterables == null) declutterables = new ArrayList<>();
-                    declutterables.add(dec);
-
-                    if (rLast != null) { // remove from ordered renderables
-                        rLast.setNext(r.getNext());
-                    } else {
-                        firstRenderable = r.getNext();
-                    }
-                    r.setNext(null); // avoid memory leaks
-                }
-            }
-
-            rLast = r;
-        }
-        // we don't have to sort since we preserved the order of entry
-
-        if (declutterables != null) { // only initialized if non-empty
+        List<Declutterable> declutterables = new ArrayList<>();
+        // the declutterables are removed in drawing order, so they need no further sorting
+        if (this.orderedRenderables.removeDeclutterables(declutterables) > 0) {
             getClutterFilter().apply(this, declutterables);
         }
 
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.render;
+
+import java.util.*;
+
+/**
+ * Holds a frame's ordered renderables and returns them in drawing order: first the renderables added as behind all
+ * others, in the order they were added, then the remaining renderables from farthest to nearest eye distance.
+ * Renderables at the same eye distance are returned in the order they were added.
+ * <p/>
+ * Renderables are appended to arrays when added, and sorted only when the queue is next peeked or polled. Renderables
+ * added after that, such as those added while ordered renderables are drawn, are sorted separately and merged with the
+ * renderables remaining on the queue. Adding n renderables and then draining the queue therefore costs O(n log n)
+ * rather than the O(n<sup>2</sup>) of inserting each renderable into a sorted list. The arrays are retained when the
+ * queue is cleared, so a queue reused every frame allocates nothing once it has grown to the frame's size.
+ * <p/>
+ * Each renderable's eye distance is read once, when it is added. This class is not thread safe.
+ */
+public class OrderedRenderableQueue
+{
+    protected static final int INITIAL_CAPACITY = 256;
+
+    protected OrderedRenderable[] renderables = new OrderedRenderable[INITIAL_CAPACITY];
+    protected double[] distances = new double[INITIAL_CAPACITY];
+    protected boolean[] behind = new boolean[INITIAL_CAPACITY];
+    /** The number of renderables added since the queue was cleared. */
+    protected int numAdded;
+    /**
+     * Indices of renderables in drawing order. Positions before <code>head</code> have been polled, positions from
+     * <code>head</code> to <code>sorted</code> are sorted, and positions from <code>sorted</code> to <code>tail</code>
+     * hold renderables added since the queue was last sorted, in the order they were added.
+     */
+    protected int[] order = new int[INITIAL_CAPACITY];
+    protected int[] scratch = new int[INITIAL_CAPACITY];
+    protected int head;
+    protected int sorted;
+    protected int tail;
+
+    /**
+     * Adds a renderable to the queue.
+     *
+     * @param renderable the renderable to add.
+     * @param isBehind   true if the renderable is behind all other renderables, in which case its eye distance is
+     *                   ignored, otherwise false.
+     */
+    public void add(OrderedRenderable renderable, boolean isBehind)
+    {
+        if (this.numAdded == this.renderables.length)
+            this.grow();
+
+        int index = this.numAdded++;
+        this.renderables[index] = renderable;
+        this.distances[index] = isBehind ? 0 : renderable.getDistanceFromEye();
+        this.behind[index] = isBehind;
+        this.order[this.tail++] = index;
+    }
+
+    /**
+     * Returns the next renderable in drawing order without removing it from the queue.
+     *
+     * @return the next renderable, or null if the queue is empty.
+     */
+    public OrderedRenderable peek()
+    {
+        this.sort();
+
+        return this.head < this.tail ? this.renderables[this.order[this.head]] : null;
+    }
+
+    /**
+     * Removes and returns the next renderable in drawing order.
+     *
+     * @return the next renderable, or null if the queue is empty.
+     */
+    public OrderedRenderable poll()
+    {
+        this.sort();
+
+        if (this.head == this.tail)
+            return null;
+
+        int index = this.order[this.head++];
+        OrderedRenderable renderable = this.renderables[index];
+        this.renderables[index] = null; // release the reference before the queue is cleared
+
+        return renderable;
+    }
+
+    /**
+     * Indicates the number of renderables on the queue.
+     *
+     * @return the number of renderables not yet polled.
+     */
+    public int size()
+    {
+        return this.tail - this.head;
+    }
+
+    /**
+     * Indicates the number of renderables added since the queue was cleared, including those already polled.
+     *
+     * @return the number of renderables added.
+     */
+    public int getNumAdded()
+    {
+        return this.numAdded;
+    }
+
+    /** Removes all renderables from the queue. */
+    public void clear()
+    {
+        Arrays.fill(this.renderables, 0, this.numAdded, null);
+        this.numAdded = 0;
+        this.head = 0;
+        this.sorted = 0;
+        this.tail = 0;
+    }
+
+    /**
+     * Removes the renderables that are {@link Declutterable}s with decluttering enabled from the queue, and appends
+     * them to a list in drawing order.
+     *
+     * @param declutterables the list to append the removed renderables to.
+     *
+     * @return the number of renderables removed.
+     */
+    public int removeDeclutterables(List<Declutterable> declutterables)
+    {
+        this.sort();
+
+        int count = 0;
+        int position = this.head;
+        for (int i = this.head; i < this.tail; i++)
+        {
+            int index = this.order[i];
+            OrderedRenderable renderable = this.renderables[index];
+            if (renderable instanceof Declutterable && ((Declutterable) renderable).isEnableDecluttering())
+            {
+                declutterables.add((Declutterable) renderable);
+                this.renderables[index] = null;
+                count++;
+            }
+            else
+            {
+                this.order[position++] = index;
+            }
+        }
+
+        this.tail = position;
+        this.sorted = position;
+
+        return count;
+    }
+
+    /** Sorts the renderables added since the queue was last sorted, and merges them with the sorted renderables. */
+    protected void sort()
+    {
+        if (this.sorted == this.tail)
+            return;
+
+        this.mergeSort(this.sorted, this.tail);
+        if (this.head < this.sorted)
+            this.merge(this.head, this.sorted, this.tail);
+
+        this.sorted = this.tail;
+    }
+
+    /**
+     * Sorts a range of the order array with a stable merge sort.
+     *
+     * @param start the first position to sort.
+     * @param end   the position after the last position to sort.
+     */
+    protected void mergeSort(int start, int end)
+    {
+        if (end - start < 2)
+            return;
+
+        // Insertion sort short ranges, which also handles the common case of a few renderables added while drawing.
+        if (end - start <= 16)
+        {
+            for (int i = start + 1; i < end; i++)
+            {
+                int index = this.order[i];
+                int j = i - 1;
+                while (j >= start && this.precedes(index, this.order[j]))
+                {
+                    this.order[j + 1] = this.order[j];
+                    j--;
+                }
+                this.order[j + 1] = index;
+            }
+            return;
+        }
+
+        int middle = (start + end) >>> 1;
+        this.mergeSort(start, middle);
+        this.mergeSort(middle, end);
+        this.merge(start, middle, end);
+    }
+
+    /**
+     * Merges two adjacent sorted ranges of the order array.
+     *
+     * @param start  the first position of the first range.
+     * @param middle the first position of the second range.
+     * @param end    the position after the last position of the second range.
+     */
+    protected void merge(int start, int middle, int end)
+    {
+        // The ranges are already in order if the first range's last renderable precedes the second range's first.
+        if (!this.precedes(this.order[middle], this.order[middle - 1]))
+            return;
+
+        int length = middle - start;
+        System.arraycopy(this.order, start, this.scratch, 0, length);
+
+        int i = 0, j = middle, k = start;
+        while (i < length && j < end)
+        {
+            // Take from the second range only if it strictly precedes, which keeps the merge stable.
+            if (this.precedes(this.order[j], this.scratch[i]))
+                this.order[k++] = this.order[j++];
+            else
+                this.order[k++] = this.scratch[i++];
+        }
+
+        while (i < length)
+        {
+            this.order[k++] = this.scratch[i++];
+        }
+    }
+
+    /**
+     * Indicates whether one renderable is drawn before another.
+     *
+     * @param a the index of the first renderable.
+     * @param b the index of the second renderable.
+     *
+     * @return true if the first renderable is drawn before the second, otherwise false.
+     */
+    protected boolean precedes(int a, int b)
+    {
+        if (this.behind[a] != this.behind[b])
+            return this.behind[a];
+
+        if (!this.behind[a])
+        {
+            if (this.distances[a] > this.distances[b])
+                return true;
+            if (this.distances[a] < this.distances[b])
+                return false;
+        }
+
+        return a < b; // renderables at the same distance are drawn in the order they were added
+    }
+
+    protected void grow()
+    {
+        int capacity = 2 * this.renderables.length;
+        this.renderables = Arrays.copyOf(this.renderables, capacity);
+        this.distances = Arrays.copyOf(this.distances, capacity);
+        this.behind = Arrays.copyOf(this.behind, capacity);
+        this.order = Arrays.copyOf(this.order, capacity);
+        this.scratch = new int[capacity];
+    }
+}
@@ -48,18 +48,8 @@ import static gov.nasa.worldwind.ogc.kml.impl.KMLExportUtil.kmlBoolean;
  * @version $Id: PointPlacemark.java 3028 2015-04-17 00:10:19Z tgaskins $
  */
 public class PointPlacemark extends WWObjectImpl
-    implements SelfOrderedRenderable, Locatable, Movable, Highlightable, Exportable, Draggable
+    implements OrderedRenderable, Locatable, Movable, Highlightable, Exportable, Draggable
 {
-    //--- SelfOrderedRenderable implementation
-    private SelfOrderedRenderable next = null;
-    public void setNext (SelfOrderedRenderable n) { next = n; }
-    public SelfOrderedRenderable getNext() { return next; }
-
-    private boolean isBehind = false;
-    public boolean isBehind() { return isBehind; }
-    public void setBehind (boolean cond) { isBehind = cond; }
-
-
     /**
      * An interface to enable application selection of placemark level of detail.
      */
@@ -9,7 +9,12 @@ package gov.nasa.worldwind.render;
  * a OrderedRenderable which does not need a wrapper to be added to the DrawContext
  *
  * 5/12/2018 pcm
+ *
+ * @deprecated {@link DrawContextImpl} collects and sorts ordered renderables in an {@link OrderedRenderableQueue}, and
+ *             no longer reads or writes the links or behind flag defined here. Implement {@link OrderedRenderable}
+ *             instead.
  */
+@Deprecated
 public interface SelfOrderedRenderable extends OrderedRenderable {
 
     /**
@@ -7,15 +7,26 @@ package gov.nasa.worldwind.retrieve;
 
 import gov.nasa.worldwind.*;
 import gov.nasa.worldwind.avlist.AVKey;
-import gov.nasa.worldwind.util.Logging;
+import gov.nasa.worldwind.util.*;
 
 import javax.net.ssl.SSLHandshakeException;
 import java.net.SocketTimeoutException;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 
 /**
  * Performs threaded retrieval of data.
+ * <p/>
+ * Queued and running retrievals are indexed by retriever name, so duplicate requests are detected without searching
+ * the queue. The index also allows queued retrievals to be re-prioritized with {@link #setPriority(Retriever, double)},
+ * and retrievals that are no longer needed to be cancelled in bulk with {@link #cancelQueuedRetrievers(Predicate)} or
+ * {@link #cancelQueuedRetrieversNotRequestedSince(long)}. The scene controller calls {@link
+ * #cancelUnrequestedRetrievers()} once per frame to cancel the retrievals that have not been requested again within the
+ * unrequested limit. Retrievers requested only once, such as file store retrievals, identify themselves with {@link
+ * AVKey#RETRIEVAL_REQUESTED_ONCE} and are exempt.
  *
  * @author Tom Gaskins
  * @version $Id: BasicRetrievalService.java 1171 2013-02-11 21:45:02Z dcollins $
@@ -27,6 +38,7 @@ public final class BasicRetrievalService extends WWObjectImpl
     private static final int DEFAULT_QUEUE_SIZE = 100;
     private static final int DEFAULT_POOL_SIZE = 5;
     private static final long DEFAULT_STALE_REQUEST_LIMIT = 30000; // milliseconds
+    private static final long DEFAULT_UNREQUESTED_LIMIT = 5000; // milliseconds
     private static final int DEFAULT_TIME_PRIORITY_GRANULARITY = 500; // milliseconds
 
     private static final String RUNNING_THREAD_NAME_PREFIX = Logging.getMessage(
@@ -35,20 +47,32 @@ public final class BasicRetrievalService extends WWObjectImpl
         "BasicRetrievalService.IdleThreadNamePrefix");
 
     private RetrievalExecutor executor; // thread pool for running retrievers
-    private ConcurrentLinkedQueue<RetrievalTask> activeTasks; // tasks currently allocated a thread
+    private ConcurrentHashMap<String, RetrievalTask> activeTasks; // tasks currently allocated a thread
+    private ConcurrentHashMap<String, RetrievalTask> pendingTasks; // tasks queued or allocated a thread
     private int queueSize; // maximum queue size
+    private volatile long unrequestedLimit; // cancel queued requests not requested again within this time
+    private final AtomicLong numDuplicatesRejected = new AtomicLong();
+    private final AtomicLong numCancelled = new AtomicLong();
 
-    /** Encapsulates a single threaded retrieval as a {@link java.util.concurrent.FutureTask}. */
-    private static class RetrievalTask extends FutureTask<Retriever>
+    /**
+     * Encapsulates a single threaded retrieval as a {@link java.util.concurrent.FutureTask}. Tasks are compared by
+     * identity, so that removing a task from the queue never removes a different task for the same retriever.
+     */
+    private class RetrievalTask extends FutureTask<Retriever>
         implements RetrievalFuture, Comparable<RetrievalTask>
     {
         private Retriever retriever;
-        private double priority; // retrieval secondary priority (primary priority is submit time)
+        private final String name; // the index key, captured once so that removal always uses the key added
+        private volatile double priority; // retrieval secondary priority (primary priority is submit time)
+        private volatile long lastRequestTime; // the most recent time the retriever was submitted
+        private volatile boolean active; // true once the task has been allocated a thread
+        private List<Runnable> doneActions; // guarded by this
 
         private RetrievalTask(Retriever retriever, double priority)
         {
             super(retriever);
             this.retriever = retriever;
+            this.name = retriever.getName();
             this.priority = priority;
         }
 
@@ -71,6 +95,60 @@ public final class BasicRetrievalService extends WWObjectImpl
             super.run();
         }
 
+        @Override
+        protected void done()
+        {
+            // A task cancelled while running keeps its index entries until its thread finishes with it, so that the
+            // retriever is not run twice at once. Every other task leaves the index before its completion actions run,
+            // so those actions and any other clients may submit the retriever again.
+            if (!(this.active && this.isCancelled()))
+                BasicRetrievalService.this.removeTask(this);
+
+            if (this.isCancelled())
+                BasicRetrievalService.this.numCancelled.incrementAndGet();
+
+            List<Runnable> actions;
+            synchronized (this)
+            {
+                actions = this.doneActions;
+                this.doneActions = null;
+            }
+
+            if (actions != null)
+            {
+                for (Runnable action : actions)
+                {
+                    runDoneAction(this, action);
+                }
+            }
+        }
+
+        @Override
+        public boolean whenDone(Runnable action)
+        {
+            if (action == null)
+            {
+                String msg = Logging.getMessage("nullValue.RunnableIsNull");
+                Logging.logger().fine(msg);
+                throw new IllegalArgumentException(msg);
+            }
+
+            synchronized (this)
+            {
+                // The task is done before done() takes the list, so an action is either taken by done() or run here.
+                if (!this.isDone())
+                {
+                    if (this.doneActions == null)
+                        this.doneActions = new ArrayList<Runnable>(1);
+                    this.doneActions.add(action);
+                    return true;
+                }
+            }
+
+            runDoneAction(this, action);
+            return true;
+        }
+
         /**
          * @param that the task to compare with this one
          *
@@ -101,24 +179,24 @@ public final class BasicRetrievalService extends WWObjectImpl
             // The client-specified priority is compared for requests submitted within the same granularity period.
             return this.priority == that.priority ? 0 : this.priority < that.priority ? -1 : 1;
         }
+    }
 
-        public boolean equals(Object o)
-        {
-            if (this == o)
-                return true;
-            if (o == null || getClass() != o.getClass())
-                return false;
-
-            final RetrievalTask that = (RetrievalTask) o;
+    private void removeTask(RetrievalTask task)
+    {
+        this.activeTasks.remove(task.name, task);
+        this.pendingTasks.remove(task.name, task);
+    }
 
-            // Tasks are equal if their retrievers are equivalent
-            return this.retriever.equals(that.retriever);
-            // Priority and submit time are not factors in equality
+    private static void runDoneAction(RetrievalTask task, Runnable action)
+    {
+        try
+        {
+            action.run();
         }
-
-        public int hashCode()
+        catch (Exception e)
         {
-            return this.retriever.getName().hashCode();
+            Logging.logger().log(Level.FINE, Logging.getMessage("BasicRetrievalService.ExceptionDuringRetrieval",
+                task.getRetriever().getName()), e);
         }
     }
 
@@ -168,6 +246,9 @@ public final class BasicRetrievalService extends WWObjectImpl
                     Logging.logger().finer(Logging.getMessage("BasicRetrievalService.ResourceRejected",
                         ((RetrievalTask) runnable).getRetriever().getName()));
 
+                    // Cancel the abandoned task so that it leaves the index and its completion actions run.
+                    ((RetrievalTask) runnable).cancel(false);
+
                     super.rejectedExecution(runnable, threadPoolExecutor);
                 }
             });
@@ -199,6 +280,7 @@ public final class BasicRetrievalService extends WWObjectImpl
 
             RetrievalTask task = (RetrievalTask) runnable;
 
+            task.active = true;
             task.retriever.setBeginTime(System.currentTimeMillis());
             long limit = task.retriever.getStaleRequestLimit() >= 0
                 ? task.retriever.getStaleRequestLimit() : this.staleRequestLimit;
@@ -210,16 +292,14 @@ public final class BasicRetrievalService extends WWObjectImpl
                 task.cancel(true);
             }
 
-            if (BasicRetrievalService.this.activeTasks.contains(task))
+            if (BasicRetrievalService.this.activeTasks.putIfAbsent(task.name, task) != null)
             {
-                // Task is a duplicate
+                // Task is a duplicate of a task that was cancelled while running and has not yet finished
                 Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingDuplicateRetrieval",
                     task.getRetriever().getName()));
                 task.cancel(true);
             }
 
-            BasicRetrievalService.this.activeTasks.add(task);
-
             thread.setName(RUNNING_THREAD_NAME_PREFIX + task.getRetriever().getName());
             thread.setPriority(Thread.MIN_PRIORITY); // Subordinate thread priority to rendering
             thread.setUncaughtExceptionHandler(BasicRetrievalService.this);
@@ -245,7 +325,7 @@ public final class BasicRetrievalService extends WWObjectImpl
             super.afterExecute(runnable, throwable);
 
             RetrievalTask task = (RetrievalTask) runnable;
-            BasicRetrievalService.this.activeTasks.remove(task);
+            BasicRetrievalService.this.removeTask(task);
             task.retriever.setEndTime(System.currentTimeMillis());
 
             try
@@ -304,18 +384,33 @@ public final class BasicRetrievalService extends WWObjectImpl
         // this.executor runs the retrievers, each in their own thread
         this.executor = new RetrievalExecutor(poolSize, this.queueSize);
 
-        // this.activeTasks holds the list of currently executing tasks (*not* those pending on the queue)
-        this.activeTasks = new ConcurrentLinkedQueue<RetrievalTask>();
+        // this.activeTasks holds the currently executing tasks (*not* those pending on the queue)
+        this.activeTasks = new ConcurrentHashMap<String, RetrievalTask>();
+
+        // this.pendingTasks holds both the executing tasks and those pending on the queue
+        this.pendingTasks = new ConcurrentHashMap<String, RetrievalTask>();
+
+        this.unrequestedLimit = Configuration.getLongValue(AVKey.RETRIEVAL_QUEUE_UNREQUESTED_LIMIT,
+            DEFAULT_UNREQUESTED_LIMIT);
     }
 
     public void shutdown(boolean immediately)
     {
         if (immediately)
-            this.executor.shutdownNow();
+        {
+            // Cancel the queued tasks the executor abandons, so that their completion actions run.
+            for (Runnable runnable : this.executor.shutdownNow())
+            {
+                ((RetrievalTask) runnable).cancel(false);
+            }
+        }
         else
+        {
             this.executor.shutdown();
+        }
 
         this.activeTasks.clear();
+        this.pendingTasks.clear();
     }
 
     /**
@@ -352,7 +447,7 @@ public final class BasicRetrievalService extends WWObjectImpl
      *
      * @throws IllegalArgumentException if <code>retriever</code> is null or has no name
      */
-    public synchronized RetrievalFuture runRetriever(Retriever retriever, double priority)
+    public RetrievalFuture runRetriever(Retriever retriever, double priority)
     {
         if (retriever == null)
         {
@@ -375,16 +470,227 @@ public final class BasicRetrievalService extends WWObjectImpl
 
         RetrievalTask task = new RetrievalTask(retriever, priority);
         retriever.setSubmitTime(System.currentTimeMillis());
+        task.lastRequestTime = retriever.getSubmitTime();
 
-        // Do not queue duplicates.
-        if (this.activeTasks.contains(task) || this.executor.getQueue().contains(task))
+        // Do not queue duplicates, but note that the queued or running retrieval has been requested again.
+        RetrievalTask existing = this.pendingTasks.putIfAbsent(task.name, task);
+        if (existing != null)
+        {
+            existing.lastRequestTime = task.lastRequestTime;
+            this.numDuplicatesRejected.incrementAndGet();
             return null;
+        }
 
         this.executor.execute(task);
 
         return task;
     }
 
+    /**
+     * Changes the priority of a queued retrieval. Retrievals that are running or not pending are not affected.
+     *
+     * @param retriever the retriever whose priority to change.
+     * @param priority  the secondary priority of the retriever, or negative if it is to be the primary priority. See
+     *                  {@link #runRetriever(Retriever, double)}.
+     *
+     * @return true if the retrieval's priority was changed, otherwise false.
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null
+     */
+    public boolean setPriority(Retriever retriever, double priority)
+    {
+        if (retriever == null)
+        {
+            String msg = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (retriever.getName() == null)
+            return false;
+
+        RetrievalTask task = this.pendingTasks.get(retriever.getName());
+        if (task == null || task.active || task.isDone())
+            return false;
+
+        // The queue positions a task when it is inserted, so the task is removed and then queued again with its new
+        // priority. Removal fails if a thread has taken the task from the queue in the meantime.
+        if (!this.executor.remove(task))
+            return false;
+
+        task.priority = priority;
+        this.executor.execute(task);
+
+        return true;
+    }
+
+    /**
+     * Cancels the queued retrievals whose retrievers satisfy a filter. Retrievals that are running are not affected.
+     * Cancelled retrievers may be submitted again.
+     *
+     * @param filter the filter identifying the retrievers to cancel.
+     *
+     * @return the number of retrievals cancelled.
+     *
+     * @throws IllegalArgumentException if <code>filter</code> is null
+     */
+    public int cancelQueuedRetrievers(Predicate<? super Retriever> filter)
+    {
+        if (filter == null)
+        {
+            String msg = Logging.getMessage("nullValue.FilterIsNull");
+            Logging.logger().fine(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        int numCancelled = 0;
+        for (RetrievalTask task : this.pendingTasks.values())
+        {
+            if (!task.active && filter.test(task.retriever) && task.cancel(false))
+                numCancelled++;
+        }
+
+        // Remove the cancelled tasks from the queue in a single pass.
+        if (numCancelled > 0)
+            this.executor.purge();
+
+        return numCancelled;
+    }
+
+    /**
+     * Cancels the queued retrievals that have not been submitted since a specified time, either initially or as a
+     * duplicate request. Layers and elevation models submit the retrievals of the tiles they need every frame, so this
+     * cancels retrievals of tiles that are no longer needed after the view moves away from them. Retrievals that are
+     * running are not affected.
+     *
+     * @param time the time, in milliseconds since the Epoch, before which a retrieval must have last been submitted
+     *             for it to be cancelled.
+     *
+     * @return the number of retrievals cancelled.
+     */
+    public int cancelQueuedRetrieversNotRequestedSince(long time)
+    {
+        int numCancelled = 0;
+        for (RetrievalTask task : this.pendingTasks.values())
+        {
+            if (!task.active && task.lastRequestTime < time && task.cancel(false))
+                numCancelled++;
+        }
+
+        // Remove the cancelled tasks from the queue in a single pass.
+        if (numCancelled > 0)
+            this.executor.purge();
+
+        return numCancelled;
+    }
+
+    /**
+     * Cancels the queued retrievals that have not been submitted within this service's unrequested limit. See {@link
+     * #cancelQueuedRetrieversNotRequestedSince(long)}. Retrievers whose {@link AVKey#RETRIEVAL_REQUESTED_ONCE} value is
+     * <code>Boolean.TRUE</code> are not cancelled, since their requesters never submit them again. The scene controller
+     * calls this method once per frame.
+     *
+     * @return the number of retrievals cancelled.
+     */
+    public int cancelUnrequestedRetrievers()
+    {
+        long time = System.currentTimeMillis() - this.unrequestedLimit;
+
+        int numCancelled = 0;
+        for (RetrievalTask task : this.pendingTasks.values())
+        {
+            if (!task.active && task.lastRequestTime < time
+                && !Boolean.TRUE.equals(task.retriever.getValue(AVKey.RETRIEVAL_REQUESTED_ONCE)) && task.cancel(false))
+                numCancelled++;
+        }
+
+        // Remove the cancelled tasks from the queue in a single pass.
+        if (numCancelled > 0)
+            this.executor.purge();
+
+        return numCancelled;
+    }
+
+    /**
+     * Indicates the time after which {@link #cancelUnrequestedRetrievers()} cancels a queued retrieval that has not been
+     * submitted again.
+     *
+     * @return the unrequested limit, in milliseconds.
+     */
+    public long getUnrequestedLimit()
+    {
+        return this.unrequestedLimit;
+    }
+
+    /**
+     * Specifies the time after which {@link #cancelUnrequestedRetrievers()} cancels a queued retrieval that has not been
+     * submitted again. Clients that submit their retrievals less often than this should specify a longer limit.
+     *
+     * @param unrequestedLimit the unrequested limit, in milliseconds.
+     *
+     * @throws IllegalArgumentException if <code>unrequestedLimit</code> is negative
+     */
+    public void setUnrequestedLimit(long unrequestedLimit)
+    {
+        if (unrequestedLimit < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "unrequestedLimit < 0");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.unrequestedLimit = unrequestedLimit;
+    }
+
+    /**
+     * Indicates the number of retrievals waiting on the queue for a thread. The count may include cancelled retrievals
+     * that have not yet been removed from the queue.
+     *
+     * @return the number of queued retrievals.
+     */
+    public int getQueueDepth()
+    {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Indicates the number of retrievals rejected because the same retriever was already queued or running.
+     *
+     * @return the number of duplicate retrievals rejected since this service was created.
+     */
+    public long getNumDuplicatesRejected()
+    {
+        return this.numDuplicatesRejected.get();
+    }
+
+    /**
+     * Indicates the number of retrievals cancelled, whether by their clients, by this service because they became
+     * stale, or in bulk.
+     *
+     * @return the number of retrievals cancelled since this service was created.
+     */
+    public long getNumCancelled()
+    {
+        return this.numCancelled.get();
+    }
+
+    /**
+     * Returns the retrieval service's queue depth, duplicate count and cancellation count as performance statistics.
+     *
+     * @return the performance statistics.
+     */
+    public Collection<PerformanceStatistic> getPerformanceStatistics()
+    {
+        ArrayList<PerformanceStatistic> stats = new ArrayList<PerformanceStatistic>(3);
+        stats.add(new PerformanceStatistic(PerformanceStatistic.RETRIEVAL_SERVICE, "Retrieval Queue Depth",
+            this.getQueueDepth()));
+        stats.add(new PerformanceStatistic(PerformanceStatistic.RETRIEVAL_SERVICE, "Retrieval Duplicates Rejected",
+            this.getNumDuplicatesRejected()));
+        stats.add(new PerformanceStatistic(PerformanceStatistic.RETRIEVAL_SERVICE, "Retrievals Cancelled",
+            this.getNumCancelled()));
+        return stats;
+    }
+
     /**
      * @param poolSize the number of threads in the thread pool
      *
@@ -434,7 +740,7 @@ public final class BasicRetrievalService extends WWObjectImpl
     public int getNumRetrieversPending()
     {
         // Could use same method to determine active tasks as hasRetrievers() above, but this method only advisory.
-        return this.activeTasks.size() + this.executor.getQueue().size();
+        return this.pendingTasks.size();
     }
 
     /**
@@ -452,8 +758,7 @@ public final class BasicRetrievalService extends WWObjectImpl
             Logging.logger().fine(msg);
             throw new IllegalArgumentException(msg);
         }
-        RetrievalTask task = new RetrievalTask(retriever, 0d);
-        return (this.activeTasks.contains(task) || this.executor.getQueue().contains(task));
+        return retriever.getName() != null && this.pendingTasks.containsKey(retriever.getName());
     }
 
     public double getProgress()
@@ -461,7 +766,7 @@ public final class BasicRetrievalService extends WWObjectImpl
         int totalContentLength = 0;
         int totalBytesRead = 0;
 
-        for (RetrievalTask task : this.activeTasks)
+        for (RetrievalTask task : this.activeTasks.values())
         {
             if (task.isDone())
                 continue;
@@ -5,10 +5,16 @@
  */
 package gov.nasa.worldwind.retrieve;
 
-import gov.nasa.worldwind.util.Logging;
+import gov.nasa.worldwind.WorldWind;
+import gov.nasa.worldwind.util.*;
 
+import java.io.ByteArrayInputStream;
 import java.net.*;
+import java.net.http.*;
 import java.nio.ByteBuffer;
+import java.time.*;
+import java.time.format.*;
+import java.util.concurrent.*;
 import java.util.logging.Level;
 
 /**
@@ -58,4 +64,168 @@ public class HTTPRetriever extends URLRetriever
 
         return null;
     }
+
+    /**
+     * Starts retrieving this retriever's resource with a {@link java.net.http.HttpClient} rather than a connection
+     * opened by this retriever. The response must be passed to {@link #complete(java.net.http.HttpResponse,
+     * Throwable)} when the returned future completes. This is used by {@link HttpClientRetrievalService} to run many
+     * retrievals without allocating a thread to each.
+     *
+     * @param client the client to send the request with.
+     *
+     * @return a future completed with the response.
+     *
+     * @throws Exception if the request cannot be created.
+     */
+    protected CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpClient client) throws Exception
+    {
+        try
+        {
+            this.setState(RETRIEVER_STATE_STARTED);
+            this.setState(RETRIEVER_STATE_CONNECTING);
+
+            return client.sendAsync(this.createHttpRequest(), HttpResponse.BodyHandlers.ofByteArray());
+        }
+        catch (Exception e)
+        {
+            this.setState(RETRIEVER_STATE_ERROR);
+            Logging.logger().log(Level.SEVERE,
+                Logging.getMessage("URLRetriever.ErrorOpeningConnection", this.url.toString()), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the request sent by {@link #sendAsync(java.net.http.HttpClient)}. The request times out if no response
+     * is received within this retriever's connect and read timeouts.
+     *
+     * @return the request.
+     *
+     * @throws URISyntaxException if this retriever's URL cannot be converted to a URI.
+     */
+    protected HttpRequest createHttpRequest() throws URISyntaxException
+    {
+        return HttpRequest.newBuilder(this.url.toURI())
+            .timeout(Duration.ofMillis((long) this.getConnectTimeout() + this.getReadTimeout()))
+            .GET()
+            .build();
+    }
+
+    /**
+     * Completes a retrieval started by {@link #sendAsync(java.net.http.HttpClient)}, in the same way that {@link
+     * #call()} completes a retrieval from a connection: the response is read into this retriever's buffer, the
+     * retriever's state is set, and the post-processor is run. HTTP timeouts are reported as {@link
+     * java.net.SocketTimeoutException}. HTTP/2 responses have no reason phrase, so the response message is always null
+     * for retrievals completed by this method.
+     *
+     * @param response the response, or null if the request failed.
+     * @param failure  the exception that failed the request, or null if the request succeeded.
+     *
+     * @return this retriever.
+     *
+     * @throws Exception if the request failed, or if an exception occurs while reading or post-processing the
+     *                   response.
+     */
+    protected Retriever complete(HttpResponse<byte[]> response, Throwable failure) throws Exception
+    {
+        try
+        {
+            if (failure instanceof CompletionException && failure.getCause() != null)
+                failure = failure.getCause();
+            if (failure instanceof HttpTimeoutException)
+                throw (Exception) new SocketTimeoutException(failure.getMessage()).initCause(failure);
+            if (failure instanceof Exception)
+                throw (Exception) failure;
+            if (failure != null)
+                throw (Error) failure;
+
+            this.setState(RETRIEVER_STATE_READING);
+            this.byteBuffer = this.read(response);
+            this.setState(RETRIEVER_STATE_SUCCESSFUL);
+
+            WorldWind.getNetworkStatus().logAvailableHost(this.url);
+        }
+        catch (UnknownHostException e)
+        {
+            this.setState(RETRIEVER_STATE_ERROR);
+            WorldWind.getNetworkStatus().logUnavailableHost(this.url);
+            throw e;
+        }
+        catch (SocketException e)
+        {
+            this.setState(RETRIEVER_STATE_ERROR);
+            WorldWind.getNetworkStatus().logUnavailableHost(this.url);
+            throw e;
+        }
+        catch (Exception e)
+        {
+            this.setState(RETRIEVER_STATE_ERROR);
+            if (!(e instanceof SocketTimeoutException))
+            {
+                Logging.logger().log(Level.SEVERE,
+                    Logging.getMessage("URLRetriever.ErrorAttemptingToRetrieve", this.url.toString()), e);
+            }
+            throw e;
+        }
+        finally
+        {
+            this.end();
+        }
+
+        return this;
+    }
+
+    protected ByteBuffer read(HttpResponse<byte[]> response) throws Exception
+    {
+        HttpHeaders headers = response.headers();
+        byte[] body = response.body();
+
+        this.responseCode = response.statusCode();
+        this.responseMessage = null;
+        this.contentType = headers.firstValue("content-type").orElse(null);
+        this.contentLength = (int) headers.firstValueAsLong("content-length").orElse(body != null ? body.length : 0);
+
+        Logging.logger().log(Level.FINE, "HTTPRetriever.ResponseInfo", new Object[] {this.responseCode,
+            this.contentLength, this.contentType != null ? this.contentType : "content type not returned", this.url});
+
+        if (this.responseCode != HttpURLConnection.HTTP_OK || body == null)
+        {
+            this.contentLength = 0;
+            return null;
+        }
+
+        this.setContentLengthRead(body.length);
+        this.expiration.set(this.getExpiration(headers.firstValue("cache-control").orElse(null),
+            parseHttpDate(headers.firstValue("expires").orElse(null)),
+            parseHttpDate(headers.firstValue("date").orElse(null))));
+
+        // See doRead in URLRetriever for the handling of application/zip content.
+        if (this.contentType != null && this.contentType.equalsIgnoreCase("application/zip")
+            && !WWUtil.isEmpty(this.getValue(EXTRACT_ZIP_ENTRY)))
+            return this.readZipStream(new ByteArrayInputStream(body), this.url);
+
+        return ByteBuffer.wrap(body);
+    }
+
+    /**
+     * Parses an HTTP date header value.
+     *
+     * @param value the header value, or null if the header is not present.
+     *
+     * @return the date in milliseconds since the Epoch, or zero if the value is null or cannot be parsed.
+     */
+    protected static long parseHttpDate(String value)
+    {
+        if (WWUtil.isEmpty(value))
+            return 0;
+
+        try
+        {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        }
+        catch (DateTimeParseException e)
+        {
+            return 0;
+        }
+    }
 }
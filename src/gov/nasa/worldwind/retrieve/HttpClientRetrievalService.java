@@ -0,0 +1,578 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.retrieve;
+
+import gov.nasa.worldwind.*;
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.util.*;
+
+import javax.net.ssl.*;
+import java.net.*;
+import java.net.http.*;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+/**
+ * A retrieval service that runs {@link HTTPRetriever}s with a shared {@link java.net.http.HttpClient}. Requests are
+ * sent asynchronously, so the number of retrievals in progress is not limited by a thread pool, and the client
+ * multiplexes them over pooled connections, using HTTP/2 when the server supports it. Retrievers that are not HTTP
+ * retrievers, and all retrievers when a SOCKS proxy is configured, are run by a {@link BasicRetrievalService}.
+ * <p/>
+ * Pending requests are ordered as in BasicRetrievalService, and at most {@link #getMaxConcurrentRequests()} requests
+ * are sent at once. Responses are read and post-processed on a small thread pool whose size is the retriever pool
+ * size. The futures returned by <code>runRetriever</code> complete when the retriever's post-processor has run.
+ * <p/>
+ * To use this service, specify its class name for {@link AVKey#RETRIEVAL_SERVICE_CLASS_NAME} in the configuration.
+ * The client is created when the first request is sent, and uses the SSL context specified by {@link
+ * AVKey#HTTP_SSL_CONTEXT} at that time.
+ */
+public class HttpClientRetrievalService extends WWObjectImpl implements RetrievalService
+{
+    // These constants are last-ditch values in case Configuration lacks defaults
+    protected static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 128;
+    protected static final int DEFAULT_QUEUE_SIZE = 100;
+    protected static final int DEFAULT_POOL_SIZE = 5;
+    protected static final long DEFAULT_STALE_REQUEST_LIMIT = 30000; // milliseconds
+    protected static final int DEFAULT_TIME_PRIORITY_GRANULARITY = 500; // milliseconds
+    protected static final long THREAD_TIMEOUT = 2; // keep idle post-processing threads alive this many seconds
+
+    protected volatile HttpClient client;
+    protected final boolean proxySupported;
+    protected final ThreadPoolExecutor postProcessingExecutor;
+    protected final BasicRetrievalService blockingService; // runs retrievers that cannot be sent by the client
+    protected final PriorityBlockingQueue<HttpRetrievalTask> queue = new PriorityBlockingQueue<HttpRetrievalTask>();
+    /**
+     * The queued and in-flight tasks, keyed by retriever name so that duplicate requests are found without a search.
+     * Retrievers are not used as keys since URL retrievers hash their URL, which resolves the URL's host.
+     */
+    protected final ConcurrentHashMap<String, HttpRetrievalTask> tasks =
+        new ConcurrentHashMap<String, HttpRetrievalTask>();
+    protected final Object dispatchLock = new Object();
+    protected int numInFlight; // guarded by dispatchLock
+    protected volatile int maxConcurrentRequests;
+    protected volatile boolean shutdown;
+    protected final int queueSize;
+    protected final long staleRequestLimit;
+    protected SSLExceptionListener sslExceptionListener;
+
+    /** Encapsulates a single asynchronous retrieval. */
+    protected class HttpRetrievalTask extends CompletableFuture<Retriever>
+        implements RetrievalFuture, Comparable<HttpRetrievalTask>
+    {
+        protected final HTTPRetriever retriever;
+        protected final double priority; // retrieval secondary priority (primary priority is submit time)
+        protected volatile CompletableFuture<HttpResponse<byte[]>> exchange;
+
+        protected HttpRetrievalTask(HTTPRetriever retriever, double priority)
+        {
+            this.retriever = retriever;
+            this.priority = priority;
+        }
+
+        public double getPriority()
+        {
+            return this.priority;
+        }
+
+        public Retriever getRetriever()
+        {
+            return this.retriever;
+        }
+
+        @Override
+        public boolean whenDone(final Runnable action)
+        {
+            if (action == null)
+            {
+                String msg = Logging.getMessage("nullValue.RunnableIsNull");
+                Logging.logger().fine(msg);
+                throw new IllegalArgumentException(msg);
+            }
+
+            this.whenComplete(new BiConsumer<Retriever, Throwable>()
+            {
+                public void accept(Retriever retriever, Throwable failure)
+                {
+                    action.run();
+                }
+            });
+
+            return true;
+        }
+
+        /**
+         * Cancels the retrieval. A queued retrieval is removed from the queue, and an in-flight request is aborted. The
+         * retriever may be submitted again as soon as this method returns.
+         *
+         * @param mayInterruptIfRunning ignored. In-flight requests are always aborted.
+         *
+         * @return true if the retrieval was cancelled, false if it had already completed.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+            {
+                HttpClientRetrievalService.this.tasks.remove(this.retriever.getName(), this);
+                HttpClientRetrievalService.this.queue.remove(this);
+
+                CompletableFuture<HttpResponse<byte[]>> exchange = this.exchange;
+                if (exchange != null)
+                    exchange.cancel(true);
+            }
+
+            return cancelled;
+        }
+
+        /**
+         * @param that the task to compare with this one
+         *
+         * @return 0 if task priorities are equal, -1 if priority of this is less than that, 1 otherwise
+         *
+         * @throws IllegalArgumentException if <code>that</code> is null
+         */
+        public int compareTo(HttpRetrievalTask that)
+        {
+            if (that == null)
+            {
+                String msg = Logging.getMessage("nullValue.RetrieverIsNull");
+                Logging.logger().fine(msg);
+                throw new IllegalArgumentException(msg);
+            }
+
+            if (this.priority > 0 && that.priority > 0) // only secondary priority used if either is negative
+            {
+                // Requests submitted within different time-granularity periods are ordered exclusive of their
+                // client-specified priority.
+                long now = System.currentTimeMillis();
+                long thisElapsedTime = now - this.retriever.getSubmitTime();
+                long thatElapsedTime = now - that.retriever.getSubmitTime();
+                if (((thisElapsedTime - thatElapsedTime) / DEFAULT_TIME_PRIORITY_GRANULARITY) != 0)
+                    return thisElapsedTime < thatElapsedTime ? -1 : 1;
+            }
+
+            // The client-specified priority is compared for requests submitted within the same granularity period.
+            return this.priority == that.priority ? 0 : this.priority < that.priority ? -1 : 1;
+        }
+    }
+
+    public HttpClientRetrievalService()
+    {
+        int poolSize = Configuration.getIntegerValue(AVKey.RETRIEVAL_POOL_SIZE, DEFAULT_POOL_SIZE);
+        this.maxConcurrentRequests = Configuration.getIntegerValue(AVKey.RETRIEVAL_MAX_CONCURRENT_REQUESTS,
+            DEFAULT_MAX_CONCURRENT_REQUESTS);
+        this.queueSize = Configuration.getIntegerValue(AVKey.RETRIEVAL_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        this.staleRequestLimit = Configuration.getLongValue(AVKey.RETRIEVAL_QUEUE_STALE_REQUEST_LIMIT,
+            DEFAULT_STALE_REQUEST_LIMIT);
+
+        // The client can use an HTTP proxy but not a SOCKS proxy.
+        Proxy proxy = WWIO.configureProxy();
+        this.proxySupported = proxy == null || proxy.type() == Proxy.Type.HTTP;
+
+        this.postProcessingExecutor = new ThreadPoolExecutor(poolSize, poolSize, THREAD_TIMEOUT, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setName(Logging.getMessage("HttpClientRetrievalService.ThreadName"));
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY); // Subordinate thread priority to rendering
+                return thread;
+            }
+        });
+        this.postProcessingExecutor.allowCoreThreadTimeOut(true);
+
+        this.blockingService = new BasicRetrievalService();
+    }
+
+    /**
+     * Indicates the maximum number of requests sent at once. Further requests wait on the queue.
+     *
+     * @return the maximum number of concurrent requests.
+     */
+    public int getMaxConcurrentRequests()
+    {
+        return this.maxConcurrentRequests;
+    }
+
+    /**
+     * Specifies the maximum number of requests sent at once. Further requests wait on the queue.
+     *
+     * @param maxConcurrentRequests the maximum number of concurrent requests.
+     *
+     * @throws IllegalArgumentException if <code>maxConcurrentRequests</code> is less than 1.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests)
+    {
+        if (maxConcurrentRequests < 1)
+        {
+            String message = Logging.getMessage("HttpClientRetrievalService.MaxConcurrentRequestsIsLessThanOne");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.dispatch();
+    }
+
+    public SSLExceptionListener getSSLExceptionListener()
+    {
+        return this.sslExceptionListener;
+    }
+
+    public void setSSLExceptionListener(SSLExceptionListener sslExceptionListener)
+    {
+        this.sslExceptionListener = sslExceptionListener;
+        this.blockingService.setSSLExceptionListener(sslExceptionListener);
+    }
+
+    /**
+     * Returns the client used to send requests, creating it if necessary.
+     *
+     * @return the client.
+     */
+    protected HttpClient getHttpClient()
+    {
+        HttpClient client = this.client;
+        if (client == null)
+        {
+            synchronized (this)
+            {
+                if (this.client == null)
+                    this.client = this.createHttpClient();
+                client = this.client;
+            }
+        }
+
+        return client;
+    }
+
+    protected HttpClient createHttpClient()
+    {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(Configuration.getIntegerValue(AVKey.URL_CONNECT_TIMEOUT, 8000)));
+
+        Proxy proxy = WWIO.configureProxy();
+        if (proxy != null && proxy.type() == Proxy.Type.HTTP)
+            builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+
+        SSLContext sslContext = (SSLContext) WorldWind.getValue(AVKey.HTTP_SSL_CONTEXT);
+        if (sslContext != null)
+            builder.sslContext(sslContext);
+
+        return builder.build();
+    }
+
+    public void shutdown(boolean immediately)
+    {
+        this.shutdown = true;
+        this.blockingService.shutdown(immediately);
+
+        // Queued requests are abandoned. In-flight requests are allowed to complete unless shutting down immediately.
+        for (HttpRetrievalTask task : this.tasks.values())
+        {
+            if (immediately || this.queue.contains(task))
+                task.cancel(true);
+        }
+
+        if (immediately)
+            this.postProcessingExecutor.shutdownNow();
+    }
+
+    /**
+     * @param retriever the retriever to run
+     *
+     * @return a future object that can be used to query the request status of cancel the request.
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null or has no name
+     */
+    public RetrievalFuture runRetriever(Retriever retriever)
+    {
+        if (retriever == null)
+        {
+            String msg = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(msg);
+            throw new IllegalArgumentException(msg);
+        }
+        if (retriever.getName() == null)
+        {
+            String message = Logging.getMessage("nullValue.RetrieverNameIsNull");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        // Add with secondary priority that removes most recently added requests first.
+        return this.runRetriever(retriever, (double) (Long.MAX_VALUE - System.currentTimeMillis()));
+    }
+
+    /**
+     * @param retriever the retriever to run
+     * @param priority  the secondary priority of the retriever, or negative if it is to be the primary priority
+     *
+     * @return a future object that can be used to query the request status of cancel the request, or null if the
+     *         retriever is already pending or the service has been shut down.
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null or has no name
+     */
+    public RetrievalFuture runRetriever(Retriever retriever, double priority)
+    {
+        if (retriever == null)
+        {
+            String message = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (retriever.getName() == null)
+        {
+            String message = Logging.getMessage("nullValue.RetrieverNameIsNull");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (!(retriever instanceof HTTPRetriever) || !this.proxySupported)
+            return this.blockingService.runRetriever(retriever, priority);
+
+        if (this.shutdown)
+        {
+            Logging.logger().finer(Logging.getMessage("BasicRetrievalService.ResourceRejected", retriever.getName()));
+            return null;
+        }
+
+        if (!this.isAvailable())
+        {
+            Logging.logger().finer(Logging.getMessage("BasicRetrievalService.ResourceRejected", retriever.getName()));
+        }
+
+        HttpRetrievalTask task = new HttpRetrievalTask((HTTPRetriever) retriever, priority);
+        retriever.setSubmitTime(System.currentTimeMillis());
+
+        // Do not queue duplicates.
+        if (this.tasks.putIfAbsent(retriever.getName(), task) != null)
+            return null;
+
+        this.queue.add(task);
+        this.dispatch();
+
+        return task;
+    }
+
+    /** Sends queued requests, highest priority first, until the maximum number of requests are in flight. */
+    protected void dispatch()
+    {
+        while (true)
+        {
+            HttpRetrievalTask task;
+            synchronized (this.dispatchLock)
+            {
+                if (this.numInFlight >= this.maxConcurrentRequests)
+                    return;
+
+                task = this.queue.poll();
+                if (task == null)
+                    return;
+
+                if (task.isDone()) // cancelled while on the queue
+                    continue;
+
+                this.numInFlight++;
+            }
+
+            this.send(task);
+        }
+    }
+
+    protected void send(final HttpRetrievalTask task)
+    {
+        HTTPRetriever retriever = task.retriever;
+
+        retriever.setBeginTime(System.currentTimeMillis());
+        long limit = retriever.getStaleRequestLimit() >= 0 ? retriever.getStaleRequestLimit() : this.staleRequestLimit;
+        if (retriever.getBeginTime() - retriever.getSubmitTime() > limit)
+        {
+            // Task has been sitting on the queue too long
+            Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingTooOldRetrieval",
+                retriever.getName()));
+            task.cancel(true);
+            this.release(task);
+            return;
+        }
+
+        try
+        {
+            task.exchange = retriever.sendAsync(this.getHttpClient());
+        }
+        catch (Exception e)
+        {
+            retriever.setEndTime(System.currentTimeMillis());
+            task.completeExceptionally(e);
+            this.logException(task, e);
+            this.release(task);
+            return;
+        }
+
+        // Abort the request if the task was cancelled before the exchange was assigned.
+        if (task.isCancelled())
+            task.exchange.cancel(true);
+
+        task.exchange.whenCompleteAsync(new BiConsumer<HttpResponse<byte[]>, Throwable>()
+        {
+            public void accept(HttpResponse<byte[]> response, Throwable failure)
+            {
+                complete(task, response, failure);
+            }
+        }, this.postProcessingExecutor);
+    }
+
+    protected void complete(HttpRetrievalTask task, HttpResponse<byte[]> response, Throwable failure)
+    {
+        Retriever result = null;
+        Exception exception = null;
+        try
+        {
+            if (!task.isDone())
+                result = task.retriever.complete(response, failure);
+        }
+        catch (Exception e)
+        {
+            exception = e;
+        }
+        finally
+        {
+            // Release the task before completing it, so that it is no longer pending when its future is done.
+            task.retriever.setEndTime(System.currentTimeMillis());
+            this.release(task);
+        }
+
+        if (exception != null)
+        {
+            task.completeExceptionally(exception);
+            this.logException(task, exception);
+        }
+        else
+        {
+            // Complete the task even if the retriever produced no result, so that completion actions run.
+            task.complete(result);
+        }
+
+        this.dispatch();
+    }
+
+    protected void release(HttpRetrievalTask task)
+    {
+        synchronized (this.dispatchLock)
+        {
+            this.numInFlight--;
+        }
+
+        this.tasks.remove(task.retriever.getName(), task);
+    }
+
+    protected void logException(HttpRetrievalTask task, Exception e)
+    {
+        String message = Logging.getMessage("BasicRetrievalService.ExecutionExceptionDuringRetrieval",
+            task.getRetriever().getName());
+        if (e instanceof SocketTimeoutException)
+        {
+            Logging.logger().fine(message + " " + e.getLocalizedMessage());
+        }
+        else if (e instanceof SSLHandshakeException)
+        {
+            if (this.sslExceptionListener != null)
+                this.sslExceptionListener.onException(e, task.getRetriever().getName());
+            else
+                Logging.logger().fine(message + " " + e.getLocalizedMessage());
+        }
+        else
+        {
+            Logging.logger().log(Level.FINE, message, e);
+        }
+    }
+
+    /**
+     * Specifies the number of threads that read and post-process responses, and the number of threads that run
+     * retrievers other than HTTP retrievers.
+     *
+     * @param poolSize the number of threads in each thread pool
+     *
+     * @throws IllegalArgumentException if <code>poolSize</code> is non-positive
+     */
+    public void setRetrieverPoolSize(int poolSize)
+    {
+        if (poolSize < 1)
+        {
+            String message = Logging.getMessage("BasicRetrievalService.RetrieverPoolSizeIsLessThanOne");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.blockingService.setRetrieverPoolSize(poolSize);
+
+        // Order the changes so that the core size never exceeds the maximum size.
+        if (poolSize > this.postProcessingExecutor.getMaximumPoolSize())
+        {
+            this.postProcessingExecutor.setMaximumPoolSize(poolSize);
+            this.postProcessingExecutor.setCorePoolSize(poolSize);
+        }
+        else
+        {
+            this.postProcessingExecutor.setCorePoolSize(poolSize);
+            this.postProcessingExecutor.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    public int getRetrieverPoolSize()
+    {
+        return this.postProcessingExecutor.getCorePoolSize();
+    }
+
+    public boolean hasActiveTasks()
+    {
+        synchronized (this.dispatchLock)
+        {
+            if (this.numInFlight > 0)
+                return true;
+        }
+
+        return this.blockingService.hasActiveTasks();
+    }
+
+    public boolean isAvailable()
+    {
+        return this.queue.size() < this.queueSize;
+    }
+
+    public int getNumRetrieversPending()
+    {
+        return this.tasks.size() + this.blockingService.getNumRetrieversPending();
+    }
+
+    /**
+     * @param retriever the retriever to check
+     *
+     * @return <code>true</code> if the retriever is being run or pending execution
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null
+     */
+    public boolean contains(Retriever retriever)
+    {
+        if (retriever == null)
+        {
+            String msg = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        return (retriever.getName() != null && this.tasks.containsKey(retriever.getName()))
+            || this.blockingService.contains(retriever);
+    }
+}
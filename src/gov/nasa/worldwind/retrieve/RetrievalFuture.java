@@ -12,4 +12,20 @@ package gov.nasa.worldwind.retrieve;
 public interface RetrievalFuture extends java.util.concurrent.Future<Retriever>
 {
     public Retriever getRetriever();
+
+    /**
+     * Registers an action to run once the retrieval is done: when it completes, fails, or is cancelled, whether by the
+     * client or by the retrieval service. If the retrieval is already done the action runs immediately on the calling
+     * thread. Actions must be short, since they may run on the retrieval service's threads.
+     * <p/>
+     * The default implementation does not support completion actions and returns false.
+     *
+     * @param action the action to run.
+     *
+     * @return true if the action was registered or run, false if completion actions are not supported.
+     */
+    public default boolean whenDone(Runnable action)
+    {
+        return false;
+    }
 }
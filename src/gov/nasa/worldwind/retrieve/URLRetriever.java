@@ -15,6 +15,7 @@ import java.io.*;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.ArrayList;
 import java.util.concurrent.atomic.*;
 import java.util.logging.Level;
 import java.util.regex.*;
@@ -472,32 +473,43 @@ public abstract class URLRetriever extends WWObjectImpl implements Retriever
 
     protected ByteBuffer readNonSpecificStreamUnknownLength(InputStream inputStream) throws IOException
     {
-        final int pageSize = (int) Math.ceil(Math.pow(2, 15));
+        final int minChunkSize = (int) Math.ceil(Math.pow(2, 15));
+        final int maxChunkSize = (int) Math.ceil(Math.pow(2, 22));
 
+        // Read into chunks of doubling size and copy them into the result once, rather than growing a single buffer.
         ReadableByteChannel channel = Channels.newChannel(inputStream);
-        ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        ByteBuffer chunk = ByteBuffer.allocate(minChunkSize);
 
         int count = 0;
         int numBytesRead = 0;
         while (!this.interrupted() && count >= 0)
         {
-            count = channel.read(buffer);
+            count = channel.read(chunk);
             if (count > 0)
             {
                 numBytesRead += count;
                 this.contentLengthRead.getAndAdd(count);
             }
 
-            if (count > 0 && !buffer.hasRemaining())
+            if (count > 0 && !chunk.hasRemaining())
             {
-                ByteBuffer biggerBuffer = ByteBuffer.allocate(buffer.limit() + pageSize);
-                biggerBuffer.put((ByteBuffer) buffer.rewind());
-                buffer = biggerBuffer;
+                chunks.add((ByteBuffer) chunk.flip());
+                chunk = ByteBuffer.allocate(Math.min(chunk.capacity() * 2, maxChunkSize));
             }
         }
 
-        if (buffer != null)
-            buffer.flip();
+        chunk.flip();
+        if (chunks.isEmpty())
+            return chunk;
+
+        chunks.add(chunk);
+        ByteBuffer buffer = ByteBuffer.allocate(numBytesRead);
+        for (ByteBuffer b : chunks)
+        {
+            buffer.put(b);
+        }
+        buffer.flip();
 
         return buffer;
     }
@@ -558,10 +570,28 @@ public abstract class URLRetriever extends WWObjectImpl implements Retriever
      *         no expiration time.
      */
     protected long getExpiration(URLConnection connection)
+    {
+        return this.getExpiration(connection.getHeaderField("cache-control"), connection.getExpiration(),
+            connection.getDate());
+    }
+
+    /**
+     * Indicates the expiration time specified by the values of the Cache-Control, Expires and Date headers. See {@link
+     * #getExpiration(java.net.URLConnection)}.
+     *
+     * @param cacheControl the value of the Cache-Control header, or null if the header is not present.
+     * @param expiration   the value of the Expires header in milliseconds since the Epoch, or zero if the header is not
+     *                     present.
+     * @param date         the value of the Date header in milliseconds since the Epoch, or zero if the header is not
+     *                     present.
+     *
+     * @return The expiration time, in milliseconds since the Epoch, specified by the headers, or zero if there is no
+     *         expiration time.
+     */
+    protected long getExpiration(String cacheControl, long expiration, long date)
     {
         // Read the expiration time from either the Cache-Control header or the Expires header. Cache-Control has
         // priority if both headers are specified.
-        String cacheControl = connection.getHeaderField("cache-control");
         if (cacheControl != null)
         {
             Pattern pattern = Pattern.compile("max-age=(\\d+)");
@@ -577,9 +607,6 @@ public abstract class URLRetriever extends WWObjectImpl implements Retriever
         // If the Cache-Control header is not present, or does not contain max-age, then look for the Expires header.
         // If the Date header is also present then compute the expiration time based on the server reported response
         // time. This helps guard against clock skew between client and server.
-        long expiration = connection.getExpiration();
-        long date = connection.getDate();
-
         if (date > 0 && expiration > date)
             return System.currentTimeMillis() + (expiration - date);
 
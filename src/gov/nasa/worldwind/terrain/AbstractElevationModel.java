@@ -221,6 +221,19 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
             && this.getMissingDataReplacement() == this.getMissingDataSignal());
     }
 
+    /**
+     * Indicates whether an elevation is transparent, as {@link #isTransparentValue(Double)} does for a value that is
+     * present, without boxing it.
+     *
+     * @param value the elevation.
+     *
+     * @return true if the value is the missing data signal and missing data is not replaced, otherwise false.
+     */
+    protected boolean isTransparentValue(double value)
+    {
+        return value == this.getMissingDataSignal() && this.getMissingDataReplacement() == this.getMissingDataSignal();
+    }
+
     //**************************************************************//
     //********************  Configuration  *************************//
     //**************************************************************//
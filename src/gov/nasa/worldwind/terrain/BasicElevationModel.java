@@ -26,6 +26,7 @@ import java.io.*;
 import java.net.*;
 import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 // Implementation notes, not for API doc:
 //
@@ -62,10 +63,16 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
     protected java.util.concurrent.ConcurrentHashMap<TileKey, ElevationTile> levelZeroTiles =
         new java.util.concurrent.ConcurrentHashMap<TileKey, ElevationTile>();
     protected MemoryCache memoryCache;
+    /** Holds tiles whose elevations are memory mapped rather than on the heap. Created when first needed. */
+    protected volatile MemoryCache mappedMemoryCache;
+    protected boolean tileMappingEnabled;
+    protected volatile ElevationTilePack tilePack;
     protected int extremesLevel = -1;
     protected boolean extremesCachingEnabled = true;
     protected BufferWrapper extremes = null;
     protected MemoryCache extremesLookupCache;
+    protected ForkJoinPool bulkQueryPool;
+    protected TilePrefetcher prefetcher;
     // Model resource properties.
     protected static final int RESOURCE_ID_OGC_CAPABILITIES = 1;
 
@@ -124,6 +131,14 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         if (b != null)
             this.setValue(AVKey.DELETE_CACHE_ON_EXIT, true);
 
+        b = (Boolean) params.getValue(AVKey.ELEVATION_TILE_MAPPING_ENABLED);
+        this.setTileMappingEnabled(b != null ? b
+            : Configuration.getBooleanValue(AVKey.ELEVATION_TILE_MAPPING_ENABLED, false));
+
+        s = params.getStringValue(AVKey.ELEVATION_TILE_PACK_FILE);
+        if (s != null)
+            this.openTilePack(s);
+
         // Set some fallback values if not already set.
         setFallbacks(params);
 
@@ -223,13 +238,115 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         else
         {
             long size = Configuration.getLongValue(AVKey.ELEVATION_TILE_CACHE_SIZE, 20000000L);
-            MemoryCache mc = new BasicMemoryCache((long) (0.85 * size), size);
+            MemoryCache mc = WorldWind.createMemoryCache((long) (0.85 * size), size);
             mc.setName("Elevation Tiles");
             WorldWind.getMemoryCacheSet().addCache(cacheName, mc);
             return mc;
         }
     }
 
+    /**
+     * Returns the cache holding tiles whose elevations are memory mapped, creating it if it does not exist. Mapped
+     * elevations occupy no heap, so they are counted against this cache's capacity rather than the capacity of the
+     * cache returned by {@link #getMemoryCache()}.
+     *
+     * @return the cache of memory-mapped tiles.
+     */
+    protected synchronized MemoryCache getMappedMemoryCache()
+    {
+        if (this.mappedMemoryCache == null)
+        {
+            String cacheName = ElevationTile.class.getName() + ".Mapped";
+            if (WorldWind.getMemoryCacheSet().containsCache(cacheName))
+            {
+                this.mappedMemoryCache = WorldWind.getMemoryCache(cacheName);
+            }
+            else
+            {
+                long size = Configuration.getLongValue(AVKey.ELEVATION_MAPPED_TILE_CACHE_SIZE, 200000000L);
+                MemoryCache mc = WorldWind.createMemoryCache((long) (0.85 * size), size);
+                mc.setName("Elevation Tiles (Mapped)");
+                WorldWind.getMemoryCacheSet().addCache(cacheName, mc);
+                this.mappedMemoryCache = mc;
+            }
+        }
+
+        return this.mappedMemoryCache;
+    }
+
+    /**
+     * Indicates whether BIL tiles in the local file cache are memory mapped rather than read onto the heap.
+     *
+     * @return true if local tiles are mapped, otherwise false.
+     */
+    public boolean isTileMappingEnabled()
+    {
+        return this.tileMappingEnabled;
+    }
+
+    /**
+     * Specifies whether BIL tiles in the local file cache are memory mapped rather than read onto the heap. Mapping
+     * avoids copying each tile onto the heap, but a mapped file cannot be deleted on some platforms until its mapping
+     * is garbage collected, so expired tiles may remain on disk until the next session.
+     *
+     * @param enabled true to map local tiles, otherwise false.
+     */
+    public void setTileMappingEnabled(boolean enabled)
+    {
+        this.tileMappingEnabled = enabled;
+    }
+
+    /**
+     * Returns the tile pack this model reads tiles from before it consults the file store.
+     *
+     * @return the tile pack, or null if the model has no tile pack.
+     */
+    public ElevationTilePack getTilePack()
+    {
+        return this.tilePack;
+    }
+
+    /**
+     * Specifies a tile pack to read tiles from before consulting the file store. Tiles in the pack are served from the
+     * pack's memory mapping and never expire.
+     *
+     * @param tilePack the tile pack. May be null to read tiles only from the file store.
+     */
+    public void setTilePack(ElevationTilePack tilePack)
+    {
+        this.tilePack = tilePack;
+    }
+
+    /**
+     * Opens the tile pack at the specified path and makes it this model's tile pack. The path is interpreted as a file
+     * system path, or if no such file exists, as a path in the data file store. A pack that cannot be opened is logged
+     * and ignored, leaving the model to read tiles from the file store.
+     *
+     * @param path the tile pack's path.
+     */
+    protected void openTilePack(String path)
+    {
+        File file = new File(path);
+        if (!file.exists())
+        {
+            URL url = this.getDataFileStore().findFile(path, false);
+            file = url != null ? WWIO.convertURLToFile(url) : null;
+        }
+
+        try
+        {
+            if (file == null)
+                throw new FileNotFoundException(path);
+
+            this.setTilePack(new ElevationTilePack(file));
+        }
+        catch (Exception e)
+        {
+            String message = Logging.getMessage("ElevationModel.TilePackUnavailable", path);
+            Logging.logger().log(java.util.logging.Level.WARNING, message, e);
+        }
+    }
+
     public LevelSet getLevels()
     {
         return this.levels;
@@ -404,15 +521,120 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         WorldWind.getTaskService().addTask(request);
     }
 
+    /**
+     * Indicates whether elevations the view is about to need are requested before the view needs them.
+     *
+     * @return true if prefetching is enabled, otherwise false.
+     *
+     * @see TilePrefetcher
+     */
+    public boolean isPrefetchEnabled()
+    {
+        return this.prefetcher != null;
+    }
+
+    /**
+     * Specifies whether elevations the view is about to need are requested before the view needs them. Prefetching is
+     * disabled by default. When enabled, the prefetcher is updated each frame by {@link #prefetch(gov.nasa.worldwind.render.DrawContext)}.
+     *
+     * @param enabled true to enable prefetching, otherwise false.
+     *
+     * @see TilePrefetcher
+     */
+    public void setPrefetchEnabled(boolean enabled)
+    {
+        if (enabled && this.prefetcher == null)
+        {
+            this.prefetcher = this.createPrefetcher();
+        }
+        else if (!enabled && this.prefetcher != null)
+        {
+            this.prefetcher.dispose();
+            this.prefetcher = null;
+        }
+    }
+
+    /**
+     * Returns this elevation model's prefetcher, which may be used to configure prefetching.
+     *
+     * @return the prefetcher, or null if prefetching is disabled.
+     */
+    public TilePrefetcher getPrefetcher()
+    {
+        return this.prefetcher;
+    }
+
+    /**
+     * Updates this elevation model's prefetcher with the current view. Called once per frame by the tessellator. Does
+     * nothing if prefetching is disabled.
+     *
+     * @param dc the current draw context.
+     */
+    public void prefetch(gov.nasa.worldwind.render.DrawContext dc)
+    {
+        TilePrefetcher prefetcher = this.prefetcher;
+        if (prefetcher == null || !this.isEnabled())
+            return;
+
+        // Match the resolution RectangularTessellator requests for the predicted eye distance.
+        prefetcher.setDetailFactor(RectangularTessellator.DEFAULT_LOG10_RESOLUTION_TARGET + this.getDetailHint(null));
+        prefetcher.update(dc);
+    }
+
+    protected TilePrefetcher createPrefetcher()
+    {
+        return new TilePrefetcher(new TilePrefetcher.Client()
+        {
+            public LevelSet getLevels()
+            {
+                return BasicElevationModel.this.getLevels();
+            }
+
+            public boolean isPrefetchNeeded(gov.nasa.worldwind.render.DrawContext dc, TileKey key)
+            {
+                return !BasicElevationModel.this.getLevels().isResourceAbsent(key)
+                    && !BasicElevationModel.this.areElevationsInMemory(key);
+            }
+
+            public long prefetchTile(TileKey key, double priority)
+            {
+                new RequestTask(key, BasicElevationModel.this, priority).run();
+
+                ElevationTile tile = BasicElevationModel.this.getTileFromMemory(key);
+                return tile != null ? tile.getSizeInBytes() : 0;
+            }
+
+            public long getMemoryCacheCapacity()
+            {
+                return BasicElevationModel.this.getMemoryCache().getCapacity();
+            }
+        });
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.setPrefetchEnabled(false);
+        super.dispose();
+    }
+
     protected static class RequestTask implements Runnable
     {
         protected final BasicElevationModel elevationModel;
         protected final TileKey tileKey;
+        /** The priority of the tile's retrieval, or {@link Double#MAX_VALUE} to retrieve it immediately. */
+        protected final double priority;
 
         protected RequestTask(TileKey tileKey, BasicElevationModel elevationModel)
+        {
+            this(tileKey, elevationModel, Double.MAX_VALUE);
+        }
+
+        protected RequestTask(TileKey tileKey, BasicElevationModel elevationModel, double priority)
         {
             this.elevationModel = elevationModel;
             this.tileKey = tileKey;
+            this.priority = priority;
         }
 
         public final void run()
@@ -427,6 +649,13 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
                     return;
 
                 ElevationTile tile = this.elevationModel.createTile(this.tileKey);
+                tile.setPriority(this.priority);
+                if (this.elevationModel.loadPackedElevations(tile))
+                {
+                    this.elevationModel.firePropertyChange(AVKey.ELEVATION_MODEL, null, this);
+                    return;
+                }
+
                 final URL url = this.elevationModel.getDataFileStore().findFile(tile.getPath(), false);
                 if (url != null && !this.elevationModel.isFileExpired(tile, url,
                     this.elevationModel.getDataFileStore()))
@@ -501,21 +730,52 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
 
     protected boolean loadElevations(ElevationTile tile, java.net.URL url) throws Exception
     {
-        BufferWrapper elevations = this.readElevations(url);
+        boolean mapped = this.isMappable(tile, url);
+        BufferWrapper elevations = mapped ? this.mapElevations(url) : this.readElevations(url);
+        if (elevations == null || elevations.length() == 0)
+            return false;
+
+        tile.setElevations(elevations, this);
+        this.addTileToCache(tile, elevations, mapped);
+
+        return true;
+    }
+
+    // Reads a tile's elevations from the tile pack, if the model has one and the pack contains the tile.
+
+    protected boolean loadPackedElevations(ElevationTile tile)
+    {
+        ElevationTilePack pack = this.getTilePack();
+        if (pack == null)
+            return false;
+
+        ByteBuffer byteBuffer = pack.getTile(tile.getLevelNumber(), tile.getRow(), tile.getColumn());
+        if (byteBuffer == null || !byteBuffer.hasRemaining())
+            return false;
+
+        BufferWrapper elevations = this.wrapBilElevations(byteBuffer);
         if (elevations == null || elevations.length() == 0)
             return false;
 
         tile.setElevations(elevations, this);
-        this.addTileToCache(tile, elevations);
+        this.addTileToCache(tile, elevations, true);
 
         return true;
     }
 
     protected void addTileToCache(ElevationTile tile, BufferWrapper elevations)
     {
-        // Level 0 tiles are held in the model itself; other levels are placed in the memory cache.
+        this.addTileToCache(tile, elevations, false);
+    }
+
+    protected void addTileToCache(ElevationTile tile, BufferWrapper elevations, boolean mapped)
+    {
+        // Level 0 tiles are held in the model itself; other levels are placed in the memory cache. Mapped tiles are
+        // counted against the mapped tile cache, since they do not occupy the heap.
         if (tile.getLevelNumber() == 0)
             this.levelZeroTiles.put(tile.getTileKey(), tile);
+        else if (mapped)
+            this.getMappedMemoryCache().add(tile.getTileKey(), tile, elevations.getSizeInBytes());
         else
             this.getMemoryCache().add(tile.getTileKey(), tile, elevations.getSizeInBytes());
     }
@@ -534,8 +794,12 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
     {
         if (tileKey.getLevelNumber() == 0)
             return this.levelZeroTiles.get(tileKey);
-        else
-            return (ElevationTile) this.getMemoryCache().getObject(tileKey);
+
+        ElevationTile tile = (ElevationTile) this.getMemoryCache().getObject(tileKey);
+        if (tile == null && this.mappedMemoryCache != null)
+            tile = (ElevationTile) this.mappedMemoryCache.getObject(tileKey);
+
+        return tile;
     }
 
     // Read elevations from the file cache. Don't be confused by the use of a URL here: it's used so that files can
@@ -566,6 +830,46 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             byteBuffer = WWIO.readURLContentToBuffer(url);
         }
 
+        return this.wrapBilElevations(byteBuffer);
+    }
+
+    // Indicates whether a tile file is a local BIL file that can be mapped rather than read. Tiles of levels with an
+    // expiry time are not mapped, since an expired tile's file is replaced when the tile is retrieved again.
+
+    protected boolean isMappable(Tile tile, URL url)
+    {
+        return this.isTileMappingEnabled() && tile.getLevel().getExpiryTime() <= 0
+            && "file".equalsIgnoreCase(url.getProtocol()) && !url.getPath().endsWith("tif");
+    }
+
+    // Maps a local BIL tile file into memory. The elevations are read from the file on demand by the OS.
+
+    protected BufferWrapper mapElevations(URL url) throws Exception
+    {
+        File file = WWIO.convertURLToFile(url);
+        if (file == null)
+            return this.readElevations(url);
+
+        ByteBuffer byteBuffer;
+        try
+        {
+            synchronized (this.fileLock)
+            {
+                byteBuffer = WWIO.mapFile(file);
+            }
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(java.util.logging.Level.SEVERE,
+                "ElevationModel.ExceptionReadingElevationFile", url.toString());
+            throw e;
+        }
+
+        return this.wrapBilElevations(byteBuffer);
+    }
+
+    protected BufferWrapper wrapBilElevations(ByteBuffer byteBuffer)
+    {
         // Setup parameters to instruct BufferWrapper on how to interpret the ByteBuffer.
         AVList bufferParams = new AVListImpl();
         bufferParams.setValue(AVKey.DATA_TYPE, this.elevationDataType);
@@ -872,10 +1176,11 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             postProcessor = new DownloadPostProcessor(tile, this);
         URLRetriever retriever = new HTTPRetriever(url, postProcessor);
         retriever.setValue(URLRetriever.EXTRACT_ZIP_ENTRY, "true"); // supports legacy elevation models
-        if (WorldWind.getRetrievalService().contains(retriever))
-            return;
 
-        WorldWind.getRetrievalService().runRetriever(retriever, 0d);
+        // Retrieve requested tiles immediately, and prefetched tiles at their lower priority. The retrieval service
+        // rejects duplicates, noting that the tile is still needed so that its retrieval is not cancelled.
+        WorldWind.getRetrievalService().runRetriever(retriever,
+            tile.getPriority() < Double.MAX_VALUE ? tile.getPriority() : 0d);
     }
 
     protected static class DownloadPostProcessor extends AbstractRetrievalPostProcessor
@@ -910,6 +1215,58 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             return true;
         }
 
+        /**
+         * Saves the retrieved tile by writing it to a temporary file and renaming that over the tile's file. An existing
+         * tile file may be memory mapped by this or another elevation model, and must be replaced rather than
+         * truncated and rewritten. If the existing file cannot be replaced, it's kept and the retrieved data is
+         * discarded.
+         */
+        @Override
+        protected boolean saveBuffer(ByteBuffer buffer) throws IOException
+        {
+            File outFile = this.getOutputFile();
+            if (outFile == null)
+                return false;
+
+            synchronized (this.getFileLock()) // synchronize with read of file in another class
+            {
+                File tempFile = File.createTempFile(outFile.getName(), ".tmp", outFile.getParentFile());
+                try
+                {
+                    WWIO.saveBuffer(buffer != null ? buffer : this.getRetriever().getBuffer(), tempFile);
+                    this.replaceFile(tempFile, outFile);
+                }
+                catch (IOException e)
+                {
+                    String message = Logging.getMessage("generic.ExceptionAttemptingToWriteTo", outFile);
+                    Logging.logger().log(java.util.logging.Level.FINE, message, e);
+                    return false;
+                }
+                finally
+                {
+                    if (tempFile.exists())
+                        tempFile.delete();
+                }
+            }
+
+            return true;
+        }
+
+        protected void replaceFile(File source, File target) throws IOException
+        {
+            try
+            {
+                java.nio.file.Files.move(source.toPath(), target.toPath(),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (java.nio.file.AtomicMoveNotSupportedException e)
+            {
+                // The replacement still unlinks the existing file rather than rewriting it in place.
+                java.nio.file.Files.move(source.toPath(), target.toPath(),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
         @Override
         protected void markResourceAbsent()
         {
@@ -995,6 +1352,307 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
 //        }
     }
 
+    /**
+     * Evaluates a batch of elevation queries against a set of resolved tiles. The locations are bucketed by the tile
+     * containing them, using a row and column grid for each level present among the tiles, and each tile's locations
+     * are then interpolated together. The grids, the bucket order and the per-location tile assignments are the only
+     * allocations, and are made once per batch.
+     */
+    protected static class BulkQuery
+    {
+        /** The minimum number of locations in a batch for the batch to be divided among threads. */
+        protected static final int PARALLEL_THRESHOLD = 8192;
+        protected static final double DEGREES_TO_RADIANS = Math.PI / 180d;
+
+        protected final BasicElevationModel elevationModel;
+        protected final Sector sector;
+        /** The tiles, finest level first. */
+        protected final ElevationTile[] tiles;
+        protected final double[] latitudes;
+        protected final double[] longitudes;
+        protected final double[] buffer;
+        protected final boolean mapMissingData;
+        /** The location indices ordered by tile. Locations in no tile are last. */
+        protected int[] order;
+        /** The tile index of each location, or -1 if no tile contains the location. */
+        protected int[] locationTiles;
+        protected volatile double[] sectorExtremes;
+
+        protected BulkQuery(BasicElevationModel elevationModel, Sector sector, Collection<ElevationTile> tiles,
+            double[] latitudes, double[] longitudes, double[] buffer, boolean mapMissingData)
+        {
+            this.elevationModel = elevationModel;
+            this.sector = sector;
+            this.tiles = tiles != null ? tiles.toArray(new ElevationTile[tiles.size()]) : new ElevationTile[0];
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.buffer = buffer;
+            this.mapMissingData = mapMissingData;
+
+            // The tiles come from a set ordered finest level first, but make no assumption about the caller's order.
+            Arrays.sort(this.tiles, new Comparator<ElevationTile>()
+            {
+                public int compare(ElevationTile t1, ElevationTile t2)
+                {
+                    return t2.getLevelNumber() - t1.getLevelNumber();
+                }
+            });
+        }
+
+        protected void run(ForkJoinPool pool)
+        {
+            this.assignTiles();
+
+            if (pool != null && this.latitudes.length >= PARALLEL_THRESHOLD)
+                pool.invoke(new EvaluateTask(this, 0, this.order.length));
+            else
+                this.evaluate(0, this.order.length);
+        }
+
+        /** Assigns each location to the finest tile containing it, then orders the locations by tile. */
+        protected void assignTiles()
+        {
+            int numLocations = this.latitudes.length;
+            this.locationTiles = new int[numLocations];
+            Arrays.fill(this.locationTiles, -1);
+
+            for (int start = 0; start < this.tiles.length; )
+            {
+                int end = start + 1;
+                while (end < this.tiles.length
+                    && this.tiles[end].getLevelNumber() == this.tiles[start].getLevelNumber())
+                {
+                    end++;
+                }
+
+                this.assignLevelTiles(start, end);
+                start = end;
+            }
+
+            // Order the locations by tile with a counting sort. Locations in no tile go in the last bucket.
+            int noTile = this.tiles.length;
+            int[] bucketStart = new int[this.tiles.length + 2];
+            for (int i = 0; i < numLocations; i++)
+            {
+                int t = this.locationTiles[i];
+                bucketStart[(t >= 0 ? t : noTile) + 1]++;
+            }
+            for (int t = 1; t < bucketStart.length; t++)
+            {
+                bucketStart[t] += bucketStart[t - 1];
+            }
+
+            this.order = new int[numLocations];
+            for (int i = 0; i < numLocations; i++)
+            {
+                int t = this.locationTiles[i];
+                this.order[bucketStart[t >= 0 ? t : noTile]++] = i;
+            }
+        }
+
+        /**
+         * Assigns unassigned locations to tiles of a single level, given by a range of the tile array.
+         *
+         * @param start the index of the first tile of the level.
+         * @param end   one past the index of the last tile of the level.
+         */
+        protected void assignLevelTiles(int start, int end)
+        {
+            Level level = this.tiles[start].getLevel();
+            double dLat = level.getTileDelta().getLatitude().degrees;
+            double dLon = level.getTileDelta().getLongitude().degrees;
+            LatLon origin = this.elevationModel.getLevels().getTileOrigin();
+            double originLat = origin.getLatitude().degrees;
+            double originLon = origin.getLongitude().degrees;
+
+            int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+            int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+            for (int t = start; t < end; t++)
+            {
+                minRow = Math.min(minRow, this.tiles[t].getRow());
+                maxRow = Math.max(maxRow, this.tiles[t].getRow());
+                minCol = Math.min(minCol, this.tiles[t].getColumn());
+                maxCol = Math.max(maxCol, this.tiles[t].getColumn());
+            }
+
+            int numCols = maxCol - minCol + 1;
+            int[] grid = new int[(maxRow - minRow + 1) * numCols];
+            Arrays.fill(grid, -1);
+            for (int t = start; t < end; t++)
+            {
+                grid[(this.tiles[t].getRow() - minRow) * numCols + this.tiles[t].getColumn() - minCol] = t;
+            }
+
+            for (int i = 0; i < this.latitudes.length; i++)
+            {
+                if (this.locationTiles[i] >= 0)
+                    continue;
+
+                double lat = this.latitudes[i];
+                double lon = this.longitudes[i];
+
+                // Computed as in Tile.computeRow and Tile.computeColumn.
+                int row = (int) ((lat - originLat) / dLat);
+                if (lat - originLat == 180d)
+                    row--;
+                int col = (int) ((lon - originLon) / dLon);
+                if (lon - originLon == 360d)
+                    col--;
+
+                // A location on a tile edge is contained by the tiles on both sides. Prefer the lower row and then
+                // the lower column, as the tile set iterated by Elevations.getElevation does.
+                for (int r = row - 1; r <= row && this.locationTiles[i] < 0; r++)
+                {
+                    for (int c = col - 1; c <= col; c++)
+                    {
+                        if (r < minRow || r > maxRow || c < minCol || c > maxCol)
+                            continue;
+
+                        int t = grid[(r - minRow) * numCols + c - minCol];
+                        if (t >= 0 && this.tiles[t].getSector().containsDegrees(lat, lon))
+                        {
+                            this.locationTiles[i] = t;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Evaluates the locations in a range of the tile order, writing their elevations to the output buffer.
+         *
+         * @param from the first position in the tile order.
+         * @param to   one past the last position in the tile order.
+         */
+        protected void evaluate(int from, int to)
+        {
+            final double missingDataSignal = this.elevationModel.getMissingDataSignal();
+
+            int n = from;
+            while (n < to)
+            {
+                int t = this.locationTiles[this.order[n]];
+                if (t < 0)
+                {
+                    // Locations in no tile are last in the order.
+                    for (; n < to; n++)
+                    {
+                        this.storeNoTile(this.order[n]);
+                    }
+                    break;
+                }
+
+                ElevationTile tile = this.tiles[t];
+                BufferWrapper elevations = tile.getElevations();
+                Sector tileSector = tile.getSector();
+                final int tileWidth = tile.getWidth();
+                final int tileHeight = tile.getHeight();
+                final double sectorDeltaLat = tileSector.getDeltaLat().radians;
+                final double sectorDeltaLon = tileSector.getDeltaLon().radians;
+                final double maxLat = tileSector.getMaxLatitude().radians;
+                final double minLon = tileSector.getMinLongitude().radians;
+
+                for (; n < to && this.locationTiles[this.order[n]] == t; n++)
+                {
+                    int i = this.order[n];
+                    double value;
+                    try
+                    {
+                        value = interpolateElevation(elevations, tileWidth, tileHeight, sectorDeltaLat,
+                            sectorDeltaLon, maxLat - DEGREES_TO_RADIANS * this.latitudes[i],
+                            DEGREES_TO_RADIANS * this.longitudes[i] - minLon, missingDataSignal);
+                    }
+                    catch (Exception e)
+                    {
+                        Logging.logger().log(java.util.logging.Level.SEVERE,
+                            Logging.getMessage("BasicElevationModel.ExceptionComputingElevation",
+                                this.latitudes[i], this.longitudes[i]), e);
+                        this.storeNoTile(i);
+                        continue;
+                    }
+
+                    this.store(i, value);
+                }
+            }
+        }
+
+        /**
+         * Writes an elevation to the output buffer, following the rules of {@link BasicElevationModel#getElevations(gov.nasa.worldwind.geom.Sector,
+         * java.util.List, double, double[], boolean)}.
+         *
+         * @param i     the location index.
+         * @param value the elevation.
+         */
+        protected void store(int i, double value)
+        {
+            BasicElevationModel em = this.elevationModel;
+            if (em.isTransparentValue(value))
+                return;
+
+            if (value != em.getMissingDataSignal())
+                this.buffer[i] = value;
+            else if (this.mapMissingData && em.getLevels().getSector().containsDegrees(this.latitudes[i],
+                this.longitudes[i]))
+                this.buffer[i] = em.getMissingDataReplacement();
+        }
+
+        /**
+         * Writes the elevation of a location that no tile contains to the output buffer, following the rules of {@link
+         * BasicElevationModel#getElevations(gov.nasa.worldwind.geom.Sector, java.util.List, double, double[],
+         * boolean)}.
+         *
+         * @param i the location index.
+         */
+        protected void storeNoTile(int i)
+        {
+            BasicElevationModel em = this.elevationModel;
+            if (em.isTransparentValue(null))
+                return;
+
+            if (em.getLevels().getSector().containsDegrees(this.latitudes[i], this.longitudes[i]))
+                this.buffer[i] = this.getSectorExtremes()[0];
+        }
+
+        protected double[] getSectorExtremes()
+        {
+            if (this.sectorExtremes == null)
+                this.sectorExtremes = this.elevationModel.getExtremeElevations(this.sector);
+
+            return this.sectorExtremes;
+        }
+    }
+
+    /** Divides the evaluation of a bulk query's tile order among the threads of a fork/join pool. */
+    protected static class EvaluateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final BulkQuery query;
+        protected final int from;
+        protected final int to;
+
+        protected EvaluateTask(BulkQuery query, int from, int to)
+        {
+            this.query = query;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.to - this.from <= BulkQuery.PARALLEL_THRESHOLD)
+            {
+                this.query.evaluate(this.from, this.to);
+                return;
+            }
+
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new EvaluateTask(this.query, this.from, mid), new EvaluateTask(this.query, mid, this.to));
+        }
+    }
+
     /** Internal class to hold collections of elevation tiles that provide elevations for a specific sector. */
     protected static class Elevations
     {
@@ -1246,10 +1904,13 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         try
         {
             tile = this.createTile(tileKey);
-            final URL url = this.getDataFileStore().findFile(tile.getPath(), false);
-            if (url != null)
+            if (!this.loadPackedElevations(tile))
             {
-                this.loadElevations(tile, url);
+                final URL url = this.getDataFileStore().findFile(tile.getPath(), false);
+                if (url != null)
+                {
+                    this.loadElevations(tile, url);
+                }
             }
         }
         catch (Exception e)
@@ -1274,6 +1935,135 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         return this.getElevations(sector, latlons, targetResolution, buffer, false);
     }
 
+    /**
+     * Returns the elevations at locations given as arrays of latitudes and longitudes, replacing missing data with the
+     * model's missing data replacement value. This is equivalent to {@link #getElevations(gov.nasa.worldwind.geom.Sector,
+     * java.util.List, double, double[])}, but is intended for large numbers of locations: the locations are grouped by
+     * the tile containing them so that each tile is resolved once, and no objects are created per location. If a
+     * {@link #setBulkQueryPool(java.util.concurrent.ForkJoinPool) bulk query pool} is specified, large batches are
+     * divided among its threads.
+     *
+     * @param sector           a sector containing all the locations.
+     * @param latitudes        the locations' latitudes, in degrees.
+     * @param longitudes       the locations' longitudes, in degrees.
+     * @param targetResolution the desired horizontal resolution, in radians, of the raster or other elevation sample
+     *                         from which elevations are drawn.
+     * @param buffer           an array in which to place the returned elevations. The array must be at least as long
+     *                         as the latitude array. Entries for locations without elevations are left unchanged.
+     *
+     * @return the resolution achieved for the batch, in radians, or {@link Double#MAX_VALUE} if individual elevations
+     *         cannot be determined for any of the locations.
+     *
+     * @throws IllegalArgumentException if any argument is null, if the latitude and longitude arrays differ in length,
+     *                                  or if the buffer is shorter than the latitude array.
+     */
+    public double getElevations(Sector sector, double[] latitudes, double[] longitudes, double targetResolution,
+        double[] buffer)
+    {
+        return this.getElevations(sector, latitudes, longitudes, targetResolution, buffer, true);
+    }
+
+    /**
+     * Returns the elevations at locations given as arrays of latitudes and longitudes, without replacing missing data.
+     * See {@link #getElevations(gov.nasa.worldwind.geom.Sector, double[], double[], double, double[])}.
+     *
+     * @param sector           a sector containing all the locations.
+     * @param latitudes        the locations' latitudes, in degrees.
+     * @param longitudes       the locations' longitudes, in degrees.
+     * @param targetResolution the desired horizontal resolution, in radians.
+     * @param buffer           an array in which to place the returned elevations.
+     *
+     * @return the resolution achieved for the batch, in radians, or {@link Double#MAX_VALUE} if individual elevations
+     *         cannot be determined for any of the locations.
+     *
+     * @throws IllegalArgumentException if any argument is null, if the latitude and longitude arrays differ in length,
+     *                                  or if the buffer is shorter than the latitude array.
+     */
+    public double getUnmappedElevations(Sector sector, double[] latitudes, double[] longitudes,
+        double targetResolution, double[] buffer)
+    {
+        return this.getElevations(sector, latitudes, longitudes, targetResolution, buffer, false);
+    }
+
+    /**
+     * Returns the pool used to divide large bulk elevation queries among threads.
+     *
+     * @return the bulk query pool, or null if bulk queries run on the calling thread.
+     */
+    public ForkJoinPool getBulkQueryPool()
+    {
+        return this.bulkQueryPool;
+    }
+
+    /**
+     * Specifies a pool used to divide large bulk elevation queries among threads. Queries smaller than {@link
+     * BulkQuery#PARALLEL_THRESHOLD} locations always run on the calling thread.
+     *
+     * @param pool the bulk query pool. May be null to run bulk queries on the calling thread.
+     */
+    public void setBulkQueryPool(ForkJoinPool pool)
+    {
+        this.bulkQueryPool = pool;
+    }
+
+    protected double getElevations(Sector sector, double[] latitudes, double[] longitudes, double targetResolution,
+        double[] buffer, boolean mapMissingData)
+    {
+        if (sector == null)
+        {
+            String msg = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (latitudes == null || longitudes == null)
+        {
+            String msg = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (latitudes.length != longitudes.length)
+        {
+            String msg = Logging.getMessage("generic.ArrayInvalidLength", longitudes.length);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (buffer == null)
+        {
+            String msg = Logging.getMessage("nullValue.ElevationsBufferIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (buffer.length < latitudes.length)
+        {
+            String msg = Logging.getMessage("ElevationModel.ElevationsBufferTooSmall", latitudes.length);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        Level targetLevel = this.getTargetLevel(sector, targetResolution);
+        if (targetLevel == null)
+            return Double.MAX_VALUE;
+
+        Elevations elevations = this.getElevations(sector, this.levels, targetLevel.getLevelNumber());
+        if (elevations == null)
+            return Double.MAX_VALUE;
+
+        if (this.intersects(sector) == -1)
+            return Double.MAX_VALUE;
+
+        // Mark the model as used this frame.
+        this.setValue(AVKey.FRAME_TIMESTAMP, System.currentTimeMillis());
+
+        BulkQuery query = new BulkQuery(this, sector, elevations.tiles, latitudes, longitudes, buffer, mapMissingData);
+        query.run(this.getBulkQueryPool());
+
+        return elevations.achievedResolution;
+    }
+
     protected double getElevations(Sector sector, List<? extends LatLon> latlons, double targetResolution,
         double[] buffer, boolean mapMissingData)
     {
@@ -1371,14 +2161,30 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
 
     protected double lookupElevation(Angle latitude, Angle longitude, final ElevationTile tile)
     {
-        BufferWrapper elevations = tile.getElevations();
         Sector sector = tile.getSector();
-        final int tileHeight = tile.getHeight();
-        final int tileWidth = tile.getWidth();
-        final double sectorDeltaLat = sector.getDeltaLat().radians;
-        final double sectorDeltaLon = sector.getDeltaLon().radians;
-        final double dLat = sector.getMaxLatitude().radians - latitude.radians;
-        final double dLon = longitude.radians - sector.getMinLongitude().radians;
+        return interpolateElevation(tile.getElevations(), tile.getWidth(), tile.getHeight(),
+            sector.getDeltaLat().radians, sector.getDeltaLon().radians,
+            sector.getMaxLatitude().radians - latitude.radians, longitude.radians - sector.getMinLongitude().radians,
+            this.getMissingDataSignal());
+    }
+
+    /**
+     * Bilinearly interpolates a tile's elevations at a location given by its offset from the tile's northwest corner.
+     *
+     * @param elevations        the tile's elevations.
+     * @param tileWidth         the tile's width in samples.
+     * @param tileHeight        the tile's height in samples.
+     * @param sectorDeltaLat    the tile's latitude extent, in radians.
+     * @param sectorDeltaLon    the tile's longitude extent, in radians.
+     * @param dLat              the angle from the tile's maximum latitude south to the location, in radians.
+     * @param dLon              the angle from the tile's minimum longitude east to the location, in radians.
+     * @param missingDataSignal the value indicating a missing elevation.
+     *
+     * @return the interpolated elevation, or the missing data signal if a contributing sample is missing.
+     */
+    protected static double interpolateElevation(BufferWrapper elevations, int tileWidth, int tileHeight,
+        double sectorDeltaLat, double sectorDeltaLon, double dLat, double dLon, double missingDataSignal)
+    {
         final double sLat = dLat / sectorDeltaLat;
         final double sLon = dLon / sectorDeltaLon;
 
@@ -1389,8 +2195,8 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         double eLeft = elevations.getDouble(k);
         double eRight = i < (tileWidth - 1) ? elevations.getDouble(k + 1) : eLeft;
 
-        if (this.getMissingDataSignal() == eLeft || this.getMissingDataSignal() == eRight)
-            return this.getMissingDataSignal();
+        if (missingDataSignal == eLeft || missingDataSignal == eRight)
+            return missingDataSignal;
 
         double dw = sectorDeltaLon / (tileWidth - 1);
         double dh = sectorDeltaLat / (tileHeight - 1);
@@ -1404,8 +2210,8 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             eLeft = elevations.getDouble(k + tileWidth);
             eRight = elevations.getDouble(k + tileWidth + 1);
 
-            if (this.getMissingDataSignal() == eLeft || this.getMissingDataSignal() == eRight)
-                return this.getMissingDataSignal();
+            if (missingDataSignal == eLeft || missingDataSignal == eRight)
+                return missingDataSignal;
         }
 
         double eBot = eLeft + ssLon * (eRight - eLeft);
@@ -1628,7 +2434,7 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         if (this.extremesLookupCache == null)
         {
             long size = Configuration.getLongValue(AVKey.ELEVATION_EXTREMES_LOOKUP_CACHE_SIZE, 20000000L);
-            this.extremesLookupCache = new BasicMemoryCache((long) (0.85 * size), size);
+            this.extremesLookupCache = WorldWind.createMemoryCache((long) (0.85 * size), size);
         }
 
         return this.extremesLookupCache;
@@ -2279,7 +3085,9 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
      * AVKey#BYTE_ORDER}</td><td>DataType/@byteOrder</td><td>String</td></tr> <tr><td>{@link
      * AVKey#ELEVATION_EXTREMES_FILE}</td><td>ExtremeElevations/FileName</td><td>String</td></tr> <tr><td>{@link
      * AVKey#ELEVATION_MAX}</td><td>ExtremeElevations/@max</td><td>Double</td></tr> <tr><td>{@link
-     * AVKey#ELEVATION_MIN}</td><td>ExtremeElevations/@min</td><td>Double</td></tr> </table> This also parses common
+     * AVKey#ELEVATION_MIN}</td><td>ExtremeElevations/@min</td><td>Double</td></tr> <tr><td>{@link
+     * AVKey#ELEVATION_TILE_MAPPING_ENABLED}</td><td>MemoryMappedTiles</td><td>Boolean</td></tr> <tr><td>{@link
+     * AVKey#ELEVATION_TILE_PACK_FILE}</td><td>TilePack/FileName</td><td>String</td></tr> </table> This also parses common
      * elevation model and LevelSet configuration parameters by invoking {@link gov.nasa.worldwind.terrain.AbstractElevationModel#getElevationModelConfigParams(org.w3c.dom.Element,
      * gov.nasa.worldwind.avlist.AVList)} and {@link gov.nasa.worldwind.util.DataConfigurationUtils#getLevelSetConfigParams(org.w3c.dom.Element,
      * gov.nasa.worldwind.avlist.AVList)}.
@@ -2351,6 +3159,11 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         WWXML.checkAndSetDoubleParam(domElement, params, AVKey.ELEVATION_MAX, "ExtremeElevations/@max", xpath);
         WWXML.checkAndSetDoubleParam(domElement, params, AVKey.ELEVATION_MIN, "ExtremeElevations/@min", xpath);
 
+        // Local tile access properties.
+        WWXML.checkAndSetBooleanParam(domElement, params, AVKey.ELEVATION_TILE_MAPPING_ENABLED, "MemoryMappedTiles",
+            xpath);
+        WWXML.checkAndSetStringParam(domElement, params, AVKey.ELEVATION_TILE_PACK_FILE, "TilePack/FileName", xpath);
+
         return params;
     }
 
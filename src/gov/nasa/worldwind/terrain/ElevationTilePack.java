@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.cache.FileStore;
+import gov.nasa.worldwind.util.*;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * A single file holding the elevation tiles of many levels, rows and columns, preceded by an index of each tile's
+ * location in the file. The file is memory mapped once, and {@link #getTile(int, int, int)} returns a read-only view
+ * of a tile's bytes within the mapping, so tiles are served without reading them onto the heap and without opening a
+ * file per tile.
+ * <p/>
+ * The file layout is big-endian: a 12 byte header holding the magic number, the format version and the number of
+ * tiles, then one 24 byte index entry per tile holding the tile's level number, row, column, offset and length, then
+ * the tile data. Index entries are sorted by level, row and column. A pack must be smaller than 2 GB, the size limit of
+ * a single mapping.
+ * <p/>
+ * Use {@link #write(java.io.File, gov.nasa.worldwind.util.LevelSet, gov.nasa.worldwind.cache.FileStore)} to pack the
+ * tiles of an elevation model that are present in a file store.
+ */
+public class ElevationTilePack
+{
+    protected static final int MAGIC = 0x57575450; // "WWTP"
+    protected static final int VERSION = 1;
+    protected static final int HEADER_SIZE = 12;
+    protected static final int ENTRY_SIZE = 24;
+
+    protected final File file;
+    protected final MappedByteBuffer buffer;
+    /** The sorted keys of the packed tiles, as computed by {@link #makeKey(int, int, int)}. */
+    protected final long[] keys;
+    protected final int[] offsets;
+    protected final int[] lengths;
+
+    /**
+     * Opens and maps a tile pack file.
+     *
+     * @param file the pack file.
+     *
+     * @throws IllegalArgumentException if the file is null.
+     * @throws IOException              if the file cannot be mapped or is not a tile pack.
+     */
+    public ElevationTilePack(File file) throws IOException
+    {
+        if (file == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (file.length() > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("ElevationModel.TilePackTooLarge", file.getPath());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        this.file = file;
+        this.buffer = WWIO.mapFile(file);
+        this.buffer.order(ByteOrder.BIG_ENDIAN);
+
+        if (this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION)
+        {
+            String message = Logging.getMessage("ElevationModel.TilePackInvalid", file.getPath());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        int count = this.buffer.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > this.buffer.limit())
+        {
+            String message = Logging.getMessage("ElevationModel.TilePackInvalid", file.getPath());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        this.keys = new long[count];
+        this.offsets = new int[count];
+        this.lengths = new int[count];
+
+        for (int i = 0, pos = HEADER_SIZE; i < count; i++, pos += ENTRY_SIZE)
+        {
+            this.keys[i] = makeKey(this.buffer.getInt(pos), this.buffer.getInt(pos + 4), this.buffer.getInt(pos + 8));
+            long offset = this.buffer.getLong(pos + 12);
+            this.lengths[i] = this.buffer.getInt(pos + 20);
+
+            if (offset < 0 || offset + this.lengths[i] > this.buffer.limit() || (i > 0 && this.keys[i - 1] >= this.keys[i]))
+            {
+                String message = Logging.getMessage("ElevationModel.TilePackInvalid", file.getPath());
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            this.offsets[i] = (int) offset;
+        }
+    }
+
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * Returns the number of tiles in the pack.
+     *
+     * @return the number of tiles.
+     */
+    public int getTileCount()
+    {
+        return this.keys.length;
+    }
+
+    /**
+     * Indicates whether the pack contains a specified tile.
+     *
+     * @param levelNumber the tile's level number.
+     * @param row         the tile's row.
+     * @param column      the tile's column.
+     *
+     * @return true if the pack contains the tile, otherwise false.
+     */
+    public boolean contains(int levelNumber, int row, int column)
+    {
+        return Arrays.binarySearch(this.keys, makeKey(levelNumber, row, column)) >= 0;
+    }
+
+    /**
+     * Returns a view of a tile's bytes within the pack's mapping. The returned buffer shares the mapping's memory, and
+     * its byte order is big-endian. Callers reading data of a different byte order must set the order themselves.
+     *
+     * @param levelNumber the tile's level number.
+     * @param row         the tile's row.
+     * @param column      the tile's column.
+     *
+     * @return the tile's bytes, or null if the pack does not contain the tile.
+     */
+    public ByteBuffer getTile(int levelNumber, int row, int column)
+    {
+        int i = Arrays.binarySearch(this.keys, makeKey(levelNumber, row, column));
+        if (i < 0)
+            return null;
+
+        ByteBuffer view = this.buffer.duplicate();
+        view.limit(this.offsets[i] + this.lengths[i]);
+        view.position(this.offsets[i]);
+
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes a tile pack containing the tiles of the specified level set that are present in a file store. Only BIL
+     * tiles stored at their level's path under the name <code>row_column.bil</code> are packed.
+     *
+     * @param packFile  the pack file to write. An existing file is replaced.
+     * @param levels    the level set identifying the tiles.
+     * @param fileStore the file store containing the tiles.
+     *
+     * @return the number of tiles written.
+     *
+     * @throws IllegalArgumentException if any argument is null.
+     * @throws IOException              if an I/O error occurs, or if the tiles would exceed the maximum pack size.
+     */
+    public static int write(File packFile, LevelSet levels, FileStore fileStore) throws IOException
+    {
+        if (packFile == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (levels == null)
+        {
+            String message = Logging.getMessage("nullValue.LevelSetIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (fileStore == null)
+        {
+            String message = Logging.getMessage("nullValue.FileStoreIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        // Collect the tile files of each level, keyed by level, row and column so that the index is sorted.
+        TreeMap<Long, File> tiles = new TreeMap<Long, File>();
+        for (Level level : levels.getLevels())
+        {
+            if (level.isEmpty() || !".bil".equalsIgnoreCase(level.getFormatSuffix()))
+                continue;
+
+            URL url = fileStore.findFile(level.getPath(), false);
+            File levelDir = url != null ? WWIO.convertURLToFile(url) : null;
+            if (levelDir == null || !levelDir.isDirectory())
+                continue;
+
+            addLevelTiles(level, levelDir, tiles);
+        }
+
+        long offset = HEADER_SIZE + (long) tiles.size() * ENTRY_SIZE;
+        ByteBuffer index = ByteBuffer.allocate((int) offset);
+        index.putInt(MAGIC).putInt(VERSION).putInt(tiles.size());
+        for (Map.Entry<Long, File> entry : tiles.entrySet())
+        {
+            long key = entry.getKey();
+            long length = entry.getValue().length();
+            index.putInt((int) (key >>> 56)).putInt((int) ((key >>> 28) & 0xFFFFFFF)).putInt((int) (key & 0xFFFFFFF));
+            index.putLong(offset).putInt((int) length);
+            offset += length;
+        }
+        index.flip();
+
+        if (offset > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("ElevationModel.TilePackTooLarge", packFile.getPath());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        FileOutputStream os = new FileOutputStream(packFile);
+        try
+        {
+            FileChannel out = os.getChannel();
+            while (index.hasRemaining())
+            {
+                out.write(index);
+            }
+
+            for (File tileFile : tiles.values())
+            {
+                FileInputStream is = new FileInputStream(tileFile);
+                try
+                {
+                    FileChannel in = is.getChannel();
+                    long size = in.size();
+                    for (long pos = 0; pos < size; )
+                    {
+                        pos += in.transferTo(pos, size - pos, out);
+                    }
+                }
+                finally
+                {
+                    WWIO.closeStream(is, tileFile.getPath());
+                }
+            }
+        }
+        finally
+        {
+            WWIO.closeStream(os, packFile.getPath());
+        }
+
+        return tiles.size();
+    }
+
+    protected static void addLevelTiles(Level level, File levelDir, Map<Long, File> tiles)
+    {
+        String suffix = level.getFormatSuffix();
+
+        File[] rowDirs = levelDir.listFiles();
+        if (rowDirs == null)
+            return;
+
+        for (File rowDir : rowDirs)
+        {
+            File[] files = rowDir.isDirectory() ? rowDir.listFiles() : null;
+            if (files == null)
+                continue;
+
+            for (File file : files)
+            {
+                String name = file.getName();
+                if (!name.endsWith(suffix) || !file.isFile())
+                    continue;
+
+                String[] rowColumn = name.substring(0, name.length() - suffix.length()).split("_");
+                if (rowColumn.length != 2)
+                    continue;
+
+                try
+                {
+                    int row = Integer.parseInt(rowColumn[0]);
+                    int column = Integer.parseInt(rowColumn[1]);
+                    tiles.put(makeKey(level.getLevelNumber(), row, column), file);
+                }
+                catch (NumberFormatException e)
+                {
+                    // Not a tile file.
+                }
+            }
+        }
+    }
+
+    /**
+     * Combines a tile's level number, row and column into a single sortable key. Level numbers are limited to 8 bits,
+     * and rows and columns to 28 bits.
+     *
+     * @param levelNumber the tile's level number.
+     * @param row         the tile's row.
+     * @param column      the tile's column.
+     *
+     * @return the tile's key.
+     */
+    protected static long makeKey(int levelNumber, int row, int column)
+    {
+        return ((long) levelNumber << 56) | ((long) (row & 0xFFFFFFF) << 28) | (column & 0xFFFFFFF);
+    }
+}
@@ -0,0 +1,952 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.data.ByteBufferRaster;
+import gov.nasa.worldwind.exception.WWRuntimeException;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+/**
+ * Computes line-of-sight visibility from an observer to many targets using the terrain geometry of a {@link
+ * HighResolutionTerrain}. Rays are evaluated in parallel on a fork/join pool of bounded size owned by the engine, and
+ * each ray is tested against the triangles of the terrain tiles it crosses directly from the tiles' vertex arrays, so
+ * no objects are allocated per triangle. A tile's triangles are tested only if the part of the ray within the tile's
+ * bounding sphere lies between the tile's lowest and highest vertices, so the tiles a ray passes over are culled
+ * without testing their triangles. Tile geometry is obtained from, and added to, the terrain's geometry cache.
+ * <p/>
+ * A target is visible if the segment from the observer's point to the target's point does not pass through the
+ * terrain. Both points are computed as in {@link HighResolutionTerrain#getSurfacePoint(Angle, Angle, double)}: the
+ * observer and target heights are meters above the terrain surface.
+ * <p/>
+ * Operations block while terrain data is retrieved, and fail with a {@link gov.nasa.worldwind.exception.WWTimeoutException}
+ * if the terrain's timeout is exceeded. Call {@link #dispose()} to release the engine's threads when it is no longer
+ * needed.
+ */
+public class LineOfSightEngine
+{
+    /** The visibility value of a target that is visible from the observer. */
+    public static final byte VISIBLE = 1;
+    /** The visibility value of a target that is hidden from the observer by terrain. */
+    public static final byte HIDDEN = 0;
+    /** The visibility value of a target outside the terrain's sector or outside a viewshed's radius. */
+    public static final byte NO_DATA = -1;
+
+    /** The minimum number of rays evaluated by one task. */
+    protected static final int MIN_RAYS_PER_TASK = 16;
+    /** The number of tasks per thread into which a batch is divided, to balance the threads' loads. */
+    protected static final int TASKS_PER_THREAD = 4;
+    /**
+     * The fraction of a tile near its edges within which a ray sample also tests the adjacent tile. Absorbs the
+     * difference between the ray's great circle path and its actual ground track.
+     */
+    protected static final double EDGE_FRACTION = 0.1;
+    /** The distance in meters from either end of a ray within which terrain intersections are ignored. */
+    protected static final double END_MARGIN = 0.01;
+
+    protected final HighResolutionTerrain terrain;
+    protected final ForkJoinPool pool;
+
+    /**
+     * Creates an engine that uses one thread per available processor.
+     *
+     * @param terrain the terrain to compute visibility for.
+     *
+     * @throws IllegalArgumentException if the terrain is null.
+     */
+    public LineOfSightEngine(HighResolutionTerrain terrain)
+    {
+        this(terrain, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine that uses a specified number of threads.
+     *
+     * @param terrain     the terrain to compute visibility for.
+     * @param parallelism the maximum number of threads used to evaluate rays.
+     *
+     * @throws IllegalArgumentException if the terrain is null or the parallelism is less than 1.
+     */
+    public LineOfSightEngine(HighResolutionTerrain terrain, int parallelism)
+    {
+        if (terrain == null)
+        {
+            String msg = Logging.getMessage("nullValue.TerrainIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (parallelism < 1)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", "parallelism=" + parallelism);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.terrain = terrain;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public HighResolutionTerrain getTerrain()
+    {
+        return this.terrain;
+    }
+
+    /**
+     * Returns the maximum number of threads used to evaluate rays.
+     *
+     * @return the engine's parallelism.
+     */
+    public int getParallelism()
+    {
+        return this.pool.getParallelism();
+    }
+
+    /** Releases the engine's threads. The engine must not be used afterwards. */
+    public void dispose()
+    {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Computes the visibility of a set of targets from an observer.
+     *
+     * @param observer     the observer's position, with its altitude in meters above the terrain.
+     * @param latitudes    the targets' latitudes, in degrees.
+     * @param longitudes   the targets' longitudes, in degrees.
+     * @param targetHeight the height of every target in meters above the terrain.
+     * @param visibility   an array in which to return each target's visibility: {@link #VISIBLE}, {@link #HIDDEN}, or
+     *                     {@link #NO_DATA} if the target or the observer is outside the terrain's sector. A target with
+     *                     a latitude of <code>NaN</code> is not evaluated and its visibility is {@link #NO_DATA}.
+     *
+     * @throws IllegalArgumentException if any argument is null or if the arrays' lengths differ.
+     * @throws gov.nasa.worldwind.exception.WWTimeoutException if the terrain's timeout is exceeded while retrieving
+     *                                                         terrain data.
+     * @throws WWRuntimeException       if the operation is interrupted.
+     */
+    public void computeVisibility(Position observer, double[] latitudes, double[] longitudes, double targetHeight,
+        byte[] visibility)
+    {
+        if (observer == null)
+        {
+            String msg = Logging.getMessage("nullValue.PositionIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (latitudes == null || longitudes == null || visibility == null)
+        {
+            String msg = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (latitudes.length != longitudes.length || visibility.length != latitudes.length)
+        {
+            String msg = Logging.getMessage("generic.ArrayInvalidLength", visibility.length);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        int raysPerTask = Math.max(MIN_RAYS_PER_TASK, latitudes.length / (TASKS_PER_THREAD * this.getParallelism()));
+        Batch batch = new Batch(latitudes, longitudes, targetHeight, visibility, raysPerTask);
+
+        Vec4 point = this.terrain.getSurfacePoint(observer);
+        if (point == null)
+        {
+            Arrays.fill(visibility, NO_DATA);
+            return;
+        }
+
+        batch.setObserver(observer, point);
+
+        this.pool.invoke(new VisibilityTask(batch, 0, latitudes.length));
+    }
+
+    /**
+     * Computes the viewshed of an observer: the visibility of each cell of a raster covering a circle around the
+     * observer. The raster's values are {@link #VISIBLE}, {@link #HIDDEN}, or {@link #NO_DATA} for cells whose center is
+     * outside the circle or the terrain's sector. The raster's missing data signal is {@link #NO_DATA}.
+     *
+     * @param observer     the observer's position, with its altitude in meters above the terrain.
+     * @param radius       the viewshed's radius in meters.
+     * @param width        the raster's width in cells.
+     * @param height       the raster's height in cells.
+     * @param targetHeight the height in meters above the terrain at which each cell's visibility is evaluated.
+     *
+     * @return the viewshed raster, covering the bounding sector of the viewshed's circle.
+     *
+     * @throws IllegalArgumentException if the observer is null, the radius is not positive, or the width or height is
+     *                                  less than 1.
+     * @throws gov.nasa.worldwind.exception.WWTimeoutException if the terrain's timeout is exceeded while retrieving
+     *                                                         terrain data.
+     * @throws WWRuntimeException       if the operation is interrupted.
+     */
+    public ByteBufferRaster computeViewshed(Position observer, double radius, int width, int height,
+        double targetHeight)
+    {
+        if (observer == null)
+        {
+            String msg = Logging.getMessage("nullValue.PositionIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (radius <= 0)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", "radius=" + radius);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (width < 1 || height < 1)
+        {
+            String msg = Logging.getMessage("generic.InvalidImageSize", width, height);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        Globe globe = this.terrain.getGlobe();
+        Sector sector = Sector.boundingSector(globe, observer, radius);
+
+        // Compute the cell centers, marking those outside the circle so that they are not evaluated. Raster rows are
+        // ordered from north to south.
+        double maxAngle = radius / globe.getRadius();
+        double minLat = sector.getMinLatitude().degrees;
+        double maxLon = sector.getMaxLongitude().degrees;
+        double minLon = sector.getMinLongitude().degrees;
+        double maxLat = sector.getMaxLatitude().degrees;
+        double dLat = (maxLat - minLat) / height;
+        double dLon = (maxLon - minLon) / width;
+
+        double[] lats = new double[width * height];
+        double[] lons = new double[width * height];
+        for (int y = 0, i = 0; y < height; y++)
+        {
+            double lat = maxLat - (y + 0.5) * dLat;
+            for (int x = 0; x < width; x++, i++)
+            {
+                double lon = minLon + (x + 0.5) * dLon;
+                lats[i] = angularDistance(observer.getLatitude().radians, observer.getLongitude().radians,
+                    Math.toRadians(lat), Math.toRadians(lon)) <= maxAngle ? lat : Double.NaN;
+                lons[i] = lon;
+            }
+        }
+
+        byte[] visibility = new byte[width * height];
+        this.computeVisibility(observer, lats, lons, targetHeight, visibility);
+
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.DATA_TYPE, AVKey.INT8);
+        params.setValue(AVKey.MISSING_DATA_SIGNAL, (double) NO_DATA);
+        ByteBufferRaster raster = new ByteBufferRaster(width, height, sector, params);
+        for (int y = 0, i = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++, i++)
+            {
+                raster.setDoubleAtPosition(y, x, visibility[i]);
+            }
+        }
+
+        return raster;
+    }
+
+    /**
+     * Computes the visibility of one target.
+     *
+     * @param batch   the batch containing the target.
+     * @param scratch the calling thread's working storage.
+     * @param index   the target's index in the batch.
+     *
+     * @return the target's visibility.
+     *
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    protected byte computeVisibility(Batch batch, Scratch scratch, int index) throws InterruptedException
+    {
+        double lat = batch.latitudes[index];
+        double lon = batch.longitudes[index];
+        if (Double.isNaN(lat) || Double.isNaN(lon))
+            return NO_DATA;
+
+        double[] target = scratch.target;
+        if (!this.computeSurfacePoint(scratch, lat, lon, batch.targetHeight, target))
+            return NO_DATA;
+
+        double dx = target[0] - batch.ox;
+        double dy = target[1] - batch.oy;
+        double dz = target[2] - batch.oz;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length <= 2 * END_MARGIN)
+            return VISIBLE;
+
+        double tMin = END_MARGIN / length;
+        double tMax = 1 - tMin;
+
+        // Sample the ray's ground track at intervals of at most half a tile, and test the tiles spanned by each pair of
+        // consecutive samples. The track is approximated by the great circle between the observer and the target.
+        double rowA = this.rowCoordinate(batch.observerLat);
+        double colA = this.columnCoordinate(batch.observerLon);
+        double rowB = this.rowCoordinate(lat);
+        double colB = this.columnCoordinate(lon);
+        int numSegments = (int) Math.ceil(2 * Math.max(Math.abs(rowB - rowA), Math.abs(colB - colA))) + 1;
+
+        double latB = Math.toRadians(lat);
+        double lonB = Math.toRadians(lon);
+        double bx = Math.cos(latB) * Math.cos(lonB);
+        double by = Math.cos(latB) * Math.sin(lonB);
+        double bz = Math.sin(latB);
+        double omega = Math.acos(Math.max(-1, Math.min(1, batch.ux * bx + batch.uy * by + batch.uz * bz)));
+        double sinOmega = Math.sin(omega);
+
+        scratch.beginRay();
+        int prevRowLo = 0, prevRowHi = 0, prevColLo = 0, prevColHi = 0;
+        for (int k = 0; k <= numSegments; k++)
+        {
+            double f = (double) k / numSegments;
+            double rowF, colF;
+            if (k == 0)
+            {
+                rowF = rowA;
+                colF = colA;
+            }
+            else if (k == numSegments)
+            {
+                rowF = rowB;
+                colF = colB;
+            }
+            else
+            {
+                double s0, s1;
+                if (sinOmega < 1e-12)
+                {
+                    s0 = 1 - f;
+                    s1 = f;
+                }
+                else
+                {
+                    s0 = Math.sin((1 - f) * omega) / sinOmega;
+                    s1 = Math.sin(f * omega) / sinOmega;
+                }
+                double px = s0 * batch.ux + s1 * bx;
+                double py = s0 * batch.uy + s1 * by;
+                double pz = s0 * batch.uz + s1 * bz;
+                rowF = this.rowCoordinate(Math.toDegrees(Math.atan2(pz, Math.sqrt(px * px + py * py))));
+                colF = this.columnCoordinate(Math.toDegrees(Math.atan2(py, px)));
+            }
+
+            int row = (int) Math.floor(rowF);
+            int col = (int) Math.floor(colF);
+            int rowLo = rowF - row < EDGE_FRACTION ? row - 1 : row;
+            int rowHi = rowF - row > 1 - EDGE_FRACTION ? row + 1 : row;
+            int colLo = colF - col < EDGE_FRACTION ? col - 1 : col;
+            int colHi = colF - col > 1 - EDGE_FRACTION ? col + 1 : col;
+
+            if (k > 0)
+            {
+                int r0 = Math.min(rowLo, prevRowLo), r1 = Math.max(rowHi, prevRowHi);
+                int c0 = Math.min(colLo, prevColLo), c1 = Math.max(colHi, prevColHi);
+                for (int r = r0; r <= r1; r++)
+                {
+                    for (int c = c0; c <= c1; c++)
+                    {
+                        if (scratch.addTile(r, c) && this.intersectsTile(batch, scratch, r, c, dx, dy, dz, tMin, tMax))
+                            return HIDDEN;
+                    }
+                }
+            }
+
+            prevRowLo = rowLo;
+            prevRowHi = rowHi;
+            prevColLo = colLo;
+            prevColHi = colHi;
+        }
+
+        return VISIBLE;
+    }
+
+    /**
+     * Indicates whether the observer-relative segment <code>observer + t * (dx, dy, dz)</code> intersects any triangle
+     * of a tile for a parameter <code>t</code> between <code>tMin</code> and <code>tMax</code>.
+     *
+     * @param batch   the batch defining the observer.
+     * @param scratch the calling thread's working storage.
+     * @param row     the tile's row.
+     * @param col     the tile's column.
+     * @param dx      the segment's X extent.
+     * @param dy      the segment's Y extent.
+     * @param dz      the segment's Z extent.
+     * @param tMin    the minimum segment parameter of an intersection.
+     * @param tMax    the maximum segment parameter of an intersection.
+     *
+     * @return true if the segment intersects the tile, otherwise false.
+     *
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    protected boolean intersectsTile(Batch batch, Scratch scratch, int row, int col, double dx, double dy, double dz,
+        double tMin, double tMax) throws InterruptedException
+    {
+        int slot = this.getGeometry(scratch, row, col);
+        if (slot < 0)
+            return false;
+
+        HighResolutionTerrain.RenderInfo ri = scratch.geometry[slot];
+
+        // Work relative to the tile's reference center, in which its vertices are specified.
+        double ox = batch.ox - ri.referenceCenter.x;
+        double oy = batch.oy - ri.referenceCenter.y;
+        double oz = batch.oz - ri.referenceCenter.z;
+
+        // Find the part of the segment within the sphere enclosing the tile's vertices, and skip the tile if there is
+        // none.
+        double radius = scratch.radii[slot];
+        double dd = dx * dx + dy * dy + dz * dz;
+        double od = ox * dx + oy * dy + oz * dz;
+        double disc = od * od - dd * (ox * ox + oy * oy + oz * oz - radius * radius);
+        if (disc < 0)
+            return false;
+
+        double root = Math.sqrt(disc);
+        double t0 = Math.max(tMin, (-od - root) / dd);
+        double t1 = Math.min(tMax, (-od + root) / dd);
+        if (t0 > t1)
+            return false;
+
+        // Skip the tile if that part of the segment lies entirely above the tile's highest vertex or below its lowest
+        // vertex, measured along the tile's up vector. The tile's triangles lie between those heights.
+        double ux = ri.referenceCenter.x, uy = ri.referenceCenter.y, uz = ri.referenceCenter.z;
+        double invLength = 1 / Math.sqrt(ux * ux + uy * uy + uz * uz);
+        double h0 = ((ox + t0 * dx) * ux + (oy + t0 * dy) * uy + (oz + t0 * dz) * uz) * invLength;
+        double h1 = ((ox + t1 * dx) * ux + (oy + t1 * dy) * uy + (oz + t1 * dz) * uz) * invLength;
+        if (Math.min(h0, h1) > scratch.maxHeights[slot] || Math.max(h0, h1) < scratch.minHeights[slot])
+            return false;
+
+        int n = ri.density + 1;
+        float[] coords = ri.vertices;
+
+        for (int j = 0; j < n - 1; j++)
+        {
+            for (int i = 0; i < n - 1; i++)
+            {
+                int a = (j * n + i) * 3;
+                int b = a + 3;
+                int c = b + n * 3;
+                int d = c - 3;
+
+                if (intersectsTriangle(coords, a, b, c, ox, oy, oz, dx, dy, dz, tMin, tMax)
+                    || intersectsTriangle(coords, a, c, d, ox, oy, oz, dx, dy, dz, tMin, tMax))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates whether a segment intersects a triangle, using the Moller-Trumbore algorithm.
+     *
+     * @param coords the vertex coordinates.
+     * @param a      the index of the first vertex's X coordinate.
+     * @param b      the index of the second vertex's X coordinate.
+     * @param c      the index of the third vertex's X coordinate.
+     * @param ox     the segment origin's X coordinate.
+     * @param oy     the segment origin's Y coordinate.
+     * @param oz     the segment origin's Z coordinate.
+     * @param dx     the segment's X extent.
+     * @param dy     the segment's Y extent.
+     * @param dz     the segment's Z extent.
+     * @param tMin   the minimum segment parameter of an intersection.
+     * @param tMax   the maximum segment parameter of an intersection.
+     *
+     * @return true if the segment intersects the triangle, otherwise false.
+     */
+    protected static boolean intersectsTriangle(float[] coords, int a, int b, int c, double ox, double oy, double oz,
+        double dx, double dy, double dz, double tMin, double tMax)
+    {
+        double ax = coords[a], ay = coords[a + 1], az = coords[a + 2];
+        double e1x = coords[b] - ax, e1y = coords[b + 1] - ay, e1z = coords[b + 2] - az;
+        double e2x = coords[c] - ax, e2y = coords[c + 1] - ay, e2z = coords[c + 2] - az;
+
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (det == 0)
+            return false; // the segment is parallel to the triangle
+
+        double inv = 1 / det;
+        double sx = ox - ax, sy = oy - ay, sz = oz - az;
+
+        double u = (sx * px + sy * py + sz * pz) * inv;
+        if (u < 0 || u > 1)
+            return false;
+
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+
+        double v = (dx * qx + dy * qy + dz * qz) * inv;
+        if (v < 0 || u + v > 1)
+            return false;
+
+        double t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+
+        return t > tMin && t < tMax;
+    }
+
+    /**
+     * Computes the point at a height above the terrain surface, as {@link HighResolutionTerrain#getSurfacePoint(Angle,
+     * Angle, double)} does, without allocating intermediate points.
+     *
+     * @param scratch the calling thread's working storage.
+     * @param lat     the location's latitude, in degrees.
+     * @param lon     the location's longitude, in degrees.
+     * @param height  the height above the terrain, in meters.
+     * @param result  an array in which to return the point's coordinates.
+     *
+     * @return true if the point was computed, false if the location is outside the terrain's sector.
+     *
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    protected boolean computeSurfacePoint(Scratch scratch, double lat, double lon, double height,
+        double[] result) throws InterruptedException
+    {
+        if (!this.terrain.sector.containsDegrees(lat, lon))
+            return false;
+
+        int tileRow = (int) this.rowCoordinate(lat);
+        int tileCol = (int) this.columnCoordinate(lon);
+        int slot = this.getGeometry(scratch, tileRow, tileCol);
+        if (slot < 0)
+            return false;
+
+        HighResolutionTerrain.RenderInfo ri = scratch.geometry[slot];
+
+        // Compute the tile's sector as HighResolutionTerrain.createTile does.
+        double left = Math.max(this.terrain.sector.getMinLongitude().degrees + tileCol * this.terrain.lonTileSize, -180);
+        double right = Math.min(left + this.terrain.lonTileSize, 180);
+        double bottom = Math.max(this.terrain.sector.getMinLatitude().degrees + tileRow * this.terrain.latTileSize, -90);
+        double top = Math.min(bottom + this.terrain.latTileSize, 90);
+
+        double leftDecimal = (lon - left) / (right - left);
+        double bottomDecimal = (lat - bottom) / (top - bottom);
+
+        int density = ri.density;
+        int row = Math.max(0, Math.min(density - 1, (int) (bottomDecimal * density)));
+        int column = Math.max(0, Math.min(density - 1, (int) (leftDecimal * density)));
+
+        double xDec = HighResolutionTerrain.createPosition(column, leftDecimal, density);
+        double yDec = HighResolutionTerrain.createPosition(row, bottomDecimal, density);
+
+        // Interpolate within the cell's triangles, as HighResolutionTerrain.interpolate does.
+        float[] v = ri.vertices;
+        int bL = (row * (density + 1) + column) * 3;
+        int bR = bL + 3;
+        int tL = bL + (density + 1) * 3;
+        int tR = tL + 3;
+
+        double pos = xDec + yDec;
+        for (int i = 0; i < 3; i++)
+        {
+            double value;
+            if (pos == 1)
+                value = v[tL + i] * yDec + v[bR + i] * xDec;
+            else if (pos > 1)
+                value = v[tR + i] + (v[tL + i] - v[tR + i]) * (1 - xDec) + (v[bR + i] - v[tR + i]) * (1 - yDec);
+            else
+                value = v[bL + i] + (v[bR + i] - v[bL + i]) * xDec + (v[tL + i] - v[bL + i]) * yDec;
+            result[i] = value;
+        }
+
+        result[0] += ri.referenceCenter.x;
+        result[1] += ri.referenceCenter.y;
+        result[2] += ri.referenceCenter.z;
+
+        if (height != 0)
+        {
+            Vec4 normal = this.terrain.getGlobe().computeSurfaceNormalAtPoint(
+                new Vec4(result[0], result[1], result[2]));
+            result[0] += normal.x * height;
+            result[1] += normal.y * height;
+            result[2] += normal.z * height;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the geometry of a terrain tile, computing it or retrieving it from the terrain's geometry cache if it is
+     * not already held by the calling thread.
+     *
+     * @param scratch the calling thread's working storage.
+     * @param row     the tile's row.
+     * @param col     the tile's column.
+     *
+     * @return the index of the tile's geometry in the working storage, or -1 if the row or column is outside the
+     * terrain or the geometry cannot be computed.
+     *
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    protected int getGeometry(Scratch scratch, int row, int col) throws InterruptedException
+    {
+        if (row < 0 || col < 0 || row >= this.terrain.numRows || col >= this.terrain.numCols)
+            return -1;
+
+        int slot = scratch.findGeometry(row, col);
+        if (slot < 0)
+        {
+            // Look in the terrain's cache before creating the tile, which computes the tile's extent.
+            double minLon = Math.max(this.terrain.sector.getMinLongitude().degrees + col * this.terrain.lonTileSize,
+                -180);
+            double minLat = Math.max(this.terrain.sector.getMinLatitude().degrees + row * this.terrain.latTileSize,
+                -90);
+            Sector sector = Sector.fromDegrees(minLat, Math.min(minLat + this.terrain.latTileSize, 90), minLon,
+                Math.min(minLon + this.terrain.lonTileSize, 180));
+
+            HighResolutionTerrain.RenderInfo ri =
+                (HighResolutionTerrain.RenderInfo) this.terrain.geometryCache.getObject(sector);
+            if (ri == null)
+            {
+                HighResolutionTerrain.RectTile tile = this.terrain.createTile(sector);
+                this.terrain.makeVerts(tile);
+                ri = tile.ri;
+                if (ri == null)
+                    return -1;
+            }
+
+            slot = scratch.putGeometry(row, col, ri);
+        }
+
+        return slot;
+    }
+
+    /**
+     * Computes the fractional tile row of a latitude, consistent with {@link HighResolutionTerrain#computeRow(Sector,
+     * Angle)}.
+     *
+     * @param latitude the latitude, in degrees.
+     *
+     * @return the fractional tile row.
+     */
+    protected double rowCoordinate(double latitude)
+    {
+        double bot = this.terrain.sector.getMinLatitude().degrees;
+        double top = this.terrain.sector.getMaxLatitude().degrees;
+
+        return (latitude - bot) / (top - bot) * (this.terrain.numRows - 1);
+    }
+
+    /**
+     * Computes the fractional tile column of a longitude, consistent with {@link HighResolutionTerrain#computeColumn(Sector,
+     * Angle)}.
+     *
+     * @param longitude the longitude, in degrees.
+     *
+     * @return the fractional tile column.
+     */
+    protected double columnCoordinate(double longitude)
+    {
+        double left = this.terrain.sector.getMinLongitude().degrees;
+        double right = this.terrain.sector.getMaxLongitude().degrees;
+
+        return (longitude - left) / (right - left) * (this.terrain.numCols - 1);
+    }
+
+    protected static double angularDistance(double latA, double lonA, double latB, double lonB)
+    {
+        double sinDLat = Math.sin((latB - latA) / 2);
+        double sinDLon = Math.sin((lonB - lonA) / 2);
+        double a = sinDLat * sinDLat + Math.cos(latA) * Math.cos(latB) * sinDLon * sinDLon;
+
+        return 2 * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /** The state shared by the threads evaluating a batch of rays. */
+    protected static class Batch
+    {
+        protected final double[] latitudes;
+        protected final double[] longitudes;
+        protected final double targetHeight;
+        protected final byte[] visibility;
+        protected final int raysPerTask;
+        protected final long startTime = System.currentTimeMillis();
+        protected double observerLat;
+        protected double observerLon;
+        /** The observer's model-coordinate point. */
+        protected double ox, oy, oz;
+        /** The observer's unit vector on a sphere, used to interpolate ground tracks. */
+        protected double ux, uy, uz;
+
+        protected Batch(double[] latitudes, double[] longitudes, double targetHeight, byte[] visibility,
+            int raysPerTask)
+        {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.targetHeight = targetHeight;
+            this.visibility = visibility;
+            this.raysPerTask = raysPerTask;
+        }
+
+        protected void setObserver(LatLon location, Vec4 point)
+        {
+            this.observerLat = location.getLatitude().degrees;
+            this.observerLon = location.getLongitude().degrees;
+            this.ox = point.x;
+            this.oy = point.y;
+            this.oz = point.z;
+
+            double lat = location.getLatitude().radians;
+            double lon = location.getLongitude().radians;
+            this.ux = Math.cos(lat) * Math.cos(lon);
+            this.uy = Math.cos(lat) * Math.sin(lon);
+            this.uz = Math.sin(lat);
+        }
+    }
+
+    /** The working storage of one task, reused for each of the rays it evaluates. */
+    protected static class Scratch
+    {
+        protected final double[] target = new double[3];
+        /**
+         * An open-addressed map of the geometry of the tiles used by the task, which holds the geometry while the task
+         * runs and avoids the terrain's cache for tiles used by more than one ray.
+         */
+        protected long[] geometryKeys = new long[1024];
+        protected HighResolutionTerrain.RenderInfo[] geometry = new HighResolutionTerrain.RenderInfo[1024];
+        /** The radius of the sphere about each tile's reference center that encloses the tile's vertices. */
+        protected double[] radii = new double[1024];
+        /** The lowest and highest of each tile's vertices along the direction of the tile's reference center. */
+        protected double[] minHeights = new double[1024];
+        protected double[] maxHeights = new double[1024];
+        protected int numGeometry;
+        /** An open-addressed set of the tiles tested for the current ray. Entries of earlier rays have older stamps. */
+        protected long[] tileKeys = new long[256];
+        protected int[] tileStamps = new int[256];
+        protected int stamp;
+        protected int numTiles;
+
+        /**
+         * Finds a tile's geometry.
+         *
+         * @param row the tile's row.
+         * @param col the tile's column.
+         *
+         * @return the index of the tile's geometry, or -1 if the geometry is not held.
+         */
+        protected int findGeometry(int row, int col)
+        {
+            long key = makeKey(row, col);
+            int mask = this.geometryKeys.length - 1;
+            for (int i = hash(key) & mask; this.geometry[i] != null; i = (i + 1) & mask)
+            {
+                if (this.geometryKeys[i] == key)
+                    return i;
+            }
+
+            return -1;
+        }
+
+        /**
+         * Adds a tile's geometry, which must not already be held.
+         *
+         * @param row the tile's row.
+         * @param col the tile's column.
+         * @param ri  the tile's geometry.
+         *
+         * @return the index of the tile's geometry.
+         */
+        protected int putGeometry(int row, int col, HighResolutionTerrain.RenderInfo ri)
+        {
+            if (2 * (this.numGeometry + 1) > this.geometryKeys.length)
+            {
+                long[] oldKeys = this.geometryKeys;
+                HighResolutionTerrain.RenderInfo[] oldGeometry = this.geometry;
+                double[] oldRadii = this.radii;
+                double[] oldMinHeights = this.minHeights;
+                double[] oldMaxHeights = this.maxHeights;
+                this.geometryKeys = new long[oldKeys.length * 2];
+                this.geometry = new HighResolutionTerrain.RenderInfo[oldKeys.length * 2];
+                this.radii = new double[oldKeys.length * 2];
+                this.minHeights = new double[oldKeys.length * 2];
+                this.maxHeights = new double[oldKeys.length * 2];
+                this.numGeometry = 0;
+
+                for (int j = 0; j < oldKeys.length; j++)
+                {
+                    if (oldGeometry[j] != null)
+                    {
+                        this.insertGeometry(oldKeys[j], oldGeometry[j], oldRadii[j], oldMinHeights[j],
+                            oldMaxHeights[j]);
+                    }
+                }
+            }
+
+            double radius = 0;
+            double minHeight = Double.MAX_VALUE;
+            double maxHeight = -Double.MAX_VALUE;
+            double ux = ri.referenceCenter.x, uy = ri.referenceCenter.y, uz = ri.referenceCenter.z;
+            double invLength = 1 / Math.sqrt(ux * ux + uy * uy + uz * uz);
+            float[] v = ri.vertices;
+            for (int i = 0; i < v.length; i += 3)
+            {
+                radius = Math.max(radius, v[i] * v[i] + v[i + 1] * v[i + 1] + v[i + 2] * v[i + 2]);
+
+                double h = (v[i] * ux + v[i + 1] * uy + v[i + 2] * uz) * invLength;
+                minHeight = Math.min(minHeight, h);
+                maxHeight = Math.max(maxHeight, h);
+            }
+
+            // Enlarge the bounds slightly to absorb rounding of the single precision vertices.
+            return this.insertGeometry(makeKey(row, col), ri, Math.sqrt(radius) * 1.0001 + END_MARGIN,
+                minHeight - END_MARGIN, maxHeight + END_MARGIN);
+        }
+
+        protected int insertGeometry(long key, HighResolutionTerrain.RenderInfo ri, double radius, double minHeight,
+            double maxHeight)
+        {
+            int mask = this.geometryKeys.length - 1;
+            int i = hash(key) & mask;
+            while (this.geometry[i] != null)
+            {
+                i = (i + 1) & mask;
+            }
+
+            this.geometryKeys[i] = key;
+            this.geometry[i] = ri;
+            this.radii[i] = radius;
+            this.minHeights[i] = minHeight;
+            this.maxHeights[i] = maxHeight;
+            this.numGeometry++;
+
+            return i;
+        }
+
+        protected void beginRay()
+        {
+            this.stamp++;
+            this.numTiles = 0;
+        }
+
+        /**
+         * Adds a tile to the set of tiles tested for the current ray.
+         *
+         * @param row the tile's row.
+         * @param col the tile's column.
+         *
+         * @return true if the tile was added, false if it was already in the set.
+         */
+        protected boolean addTile(int row, int col)
+        {
+            if (2 * (this.numTiles + 1) > this.tileKeys.length)
+                this.grow();
+
+            long key = makeKey(row, col);
+            int mask = this.tileKeys.length - 1;
+            int i = hash(key) & mask;
+            while (this.tileStamps[i] == this.stamp)
+            {
+                if (this.tileKeys[i] == key)
+                    return false;
+
+                i = (i + 1) & mask;
+            }
+
+            this.tileKeys[i] = key;
+            this.tileStamps[i] = this.stamp;
+            this.numTiles++;
+
+            return true;
+        }
+
+        protected void grow()
+        {
+            long[] oldKeys = this.tileKeys;
+            int[] oldStamps = this.tileStamps;
+            this.tileKeys = new long[oldKeys.length * 2];
+            this.tileStamps = new int[oldKeys.length * 2];
+
+            int mask = this.tileKeys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++)
+            {
+                if (oldStamps[j] != this.stamp)
+                    continue;
+
+                int i = hash(oldKeys[j]) & mask;
+                while (this.tileStamps[i] == this.stamp)
+                {
+                    i = (i + 1) & mask;
+                }
+                this.tileKeys[i] = oldKeys[j];
+                this.tileStamps[i] = this.stamp;
+            }
+        }
+
+        protected static long makeKey(int row, int col)
+        {
+            return ((long) row << 32) | (col & 0xFFFFFFFFL);
+        }
+
+        protected static int hash(long key)
+        {
+            // The high bits of the product depend on all bits of the key.
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+
+    /** Evaluates a range of a batch's rays, dividing the range among threads when it is large. */
+    protected class VisibilityTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final Batch batch;
+        protected final int from;
+        protected final int to;
+
+        protected VisibilityTask(Batch batch, int from, int to)
+        {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.to - this.from > this.batch.raysPerTask)
+            {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new VisibilityTask(this.batch, this.from, mid), new VisibilityTask(this.batch, mid, this.to));
+                return;
+            }
+
+            // Apply the terrain's timeout to data retrieved by this thread, measured from the start of the batch.
+            Long previousStartTime = terrain.startTime.get();
+            terrain.startTime.set(this.batch.startTime);
+            try
+            {
+                Scratch scratch = new Scratch();
+                for (int i = this.from; i < this.to; i++)
+                {
+                    this.batch.visibility[i] = computeVisibility(this.batch, scratch, i);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                throw new WWRuntimeException(e);
+            }
+            finally
+            {
+                terrain.startTime.set(previousStartTime);
+            }
+        }
+    }
+}
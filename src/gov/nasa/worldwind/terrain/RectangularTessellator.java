@@ -427,7 +427,7 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         if (!WorldWind.getMemoryCacheSet().containsCache(CACHE_ID))
         {
             long size = Configuration.getLongValue(AVKey.SECTOR_GEOMETRY_CACHE_SIZE, 10000000L);
-            MemoryCache cache = new BasicMemoryCache((long) (0.85 * size), size);
+            MemoryCache cache = WorldWind.createMemoryCache((long) (0.85 * size), size);
             cache.setName(CACHE_NAME);
             WorldWind.getMemoryCacheSet().addCache(CACHE_ID, cache);
         }
@@ -458,6 +458,8 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
             this.makeVerts(dc, (RectTile) tile);
         }
 
+        this.prefetchElevations(dc, dc.getGlobe().getElevationModel());
+
         // Make a copy of the SGL because the tessellator may be called multiple times per frame with a different globe.
         // See SceneController2D.
         SectorGeometryList sgl = new SectorGeometryList(this.currentTiles);
@@ -551,6 +553,27 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         this.updateFrequency = updateFrequency;
     }
 
+    /**
+     * Updates the prefetchers of an elevation model and the elevation models it contains with the current view.
+     *
+     * @param dc    the current draw context.
+     * @param model the elevation model.
+     */
+    protected void prefetchElevations(DrawContext dc, ElevationModel model)
+    {
+        if (model instanceof BasicElevationModel)
+        {
+            ((BasicElevationModel) model).prefetch(dc);
+        }
+        else if (model instanceof CompoundElevationModel)
+        {
+            for (ElevationModel child : ((CompoundElevationModel) model).getElevationModels())
+            {
+                this.prefetchElevations(dc, child);
+            }
+        }
+    }
+
     protected void selectVisibleTiles(DrawContext dc, RectTile tile)
     {
         if (dc.is2DGlobe() && this.skipTile(dc, tile.getSector()))
@@ -1741,26 +1764,24 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
 
         int numVertsTimesThree = numVerticesPerEdge * 3;
 
-//        double[] a = new double[6];
-        ri.vertices.position(bottomLeft);
-//        ri.vertices.get(a);
-//        Vec4 bL = new Vec4(a[0], a[1], a[2]);
-//        Vec4 bR = new Vec4(a[3], a[4], a[5]);
-        Vec4 bL = new Vec4(ri.vertices.get(), ri.vertices.get(), ri.vertices.get());
-        Vec4 bR = new Vec4(ri.vertices.get(), ri.vertices.get(), ri.vertices.get());
+        // Use absolute reads, which leave the buffer's position unchanged. This enables threads other than the
+        // rendering thread to compute points on the frame's terrain while the rendering thread draws it.
+        Vec4 bL = getVertex(ri.vertices, bottomLeft);
+        Vec4 bR = getVertex(ri.vertices, bottomLeft + 3);
 
         bottomLeft += numVertsTimesThree;
 
-        ri.vertices.position(bottomLeft);
-//        ri.vertices.get(a);
-//        Vec4 tL = new Vec4(a[0], a[1], a[2]);
-//        Vec4 tR = new Vec4(a[3], a[4], a[5]);
-        Vec4 tL = new Vec4(ri.vertices.get(), ri.vertices.get(), ri.vertices.get());
-        Vec4 tR = new Vec4(ri.vertices.get(), ri.vertices.get(), ri.vertices.get());
+        Vec4 tL = getVertex(ri.vertices, bottomLeft);
+        Vec4 tR = getVertex(ri.vertices, bottomLeft + 3);
 
         return interpolate(bL, bR, tR, tL, xDec, yDec);
     }
 
+    protected static Vec4 getVertex(FloatBuffer vertices, int index)
+    {
+        return new Vec4(vertices.get(index), vertices.get(index + 1), vertices.get(index + 2));
+    }
+
     /**
      * Calculates the point at (xDec, yDec) in the two triangles defined by {bL, bR, tL} and {bR, tR, tL}. If thought of
      * as a quadrilateral, the diagonal runs from tL to bR. Of course, this isn't a quad, it's two triangles.
@@ -0,0 +1,703 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.tracks;
+
+import gov.nasa.worldwind.exception.WWRuntimeException;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.util.Logging;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.*;
+import java.util.*;
+
+/**
+ * Holds track points in columns of primitive values rather than as {@link TrackPoint} objects. Each point has a
+ * latitude and longitude in degrees, an elevation in meters, and a time in milliseconds since the epoch, or {@link
+ * #NO_TIME} if the point's time is unknown. Points are appended to the store a track and segment at a time, and are
+ * identified by their index in the order they were added.
+ * <p/>
+ * Points are stored in fixed size blocks, which are held on the Java heap, in direct buffers outside the heap, or in a
+ * memory-mapped file, depending on the constructor used. The store maintains the time range of each block, so queries
+ * for the points within a time window read only the blocks that overlap the window, and search rather than scan blocks
+ * whose times increase.
+ * <p/>
+ * {@link #getTracks()} presents the store as a list of {@link Track}s for existing consumers of the tracks API. The
+ * tracks, segments and points it returns read and write the store's columns directly; no point data is copied.
+ * <p/>
+ * TrackStore is not thread safe.
+ */
+public class TrackStore implements Closeable
+{
+    /** The time of points whose time is unknown. */
+    public static final long NO_TIME = Long.MIN_VALUE;
+    /** The number of points in each storage block. */
+    protected static final int BLOCK_SIZE = 1 << 16;
+    /** The number of bytes per point: three doubles and a long. */
+    protected static final int BYTES_PER_POINT = 32;
+
+    protected static class Block
+    {
+        protected DoubleBuffer latitudes;
+        protected DoubleBuffer longitudes;
+        protected DoubleBuffer elevations;
+        protected LongBuffer times;
+        protected int size;
+        /** The minimum and maximum known times in this block. */
+        protected long minTime = Long.MAX_VALUE;
+        protected long maxTime = Long.MIN_VALUE;
+        /** Indicates whether every point in this block has a known time, and the times never decrease. */
+        protected boolean ordered = true;
+
+        public Block(ByteBuffer buffer)
+        {
+            // Divide the buffer into four columns.
+            this.latitudes = slice(buffer, 0).asDoubleBuffer();
+            this.longitudes = slice(buffer, 1).asDoubleBuffer();
+            this.elevations = slice(buffer, 2).asDoubleBuffer();
+            this.times = slice(buffer, 3).asLongBuffer();
+        }
+
+        public Block()
+        {
+            this.latitudes = DoubleBuffer.wrap(new double[BLOCK_SIZE]);
+            this.longitudes = DoubleBuffer.wrap(new double[BLOCK_SIZE]);
+            this.elevations = DoubleBuffer.wrap(new double[BLOCK_SIZE]);
+            this.times = LongBuffer.wrap(new long[BLOCK_SIZE]);
+        }
+
+        protected static ByteBuffer slice(ByteBuffer buffer, int column)
+        {
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(column * 8 * BLOCK_SIZE);
+            dup.limit((column + 1) * 8 * BLOCK_SIZE);
+
+            return dup.slice().order(ByteOrder.nativeOrder());
+        }
+
+        protected void indexTime(int index, long time)
+        {
+            if (time == NO_TIME)
+            {
+                this.ordered = false;
+                return;
+            }
+
+            if (index > 0 && (!this.ordered || time < this.times.get(index - 1)))
+                this.ordered = false;
+
+            this.minTime = Math.min(this.minTime, time);
+            this.maxTime = Math.max(this.maxTime, time);
+        }
+
+        protected void reindexTimes()
+        {
+            this.minTime = Long.MAX_VALUE;
+            this.maxTime = Long.MIN_VALUE;
+            this.ordered = true;
+
+            for (int i = 0; i < this.size; i++)
+            {
+                this.indexTime(i, this.times.get(i));
+            }
+        }
+
+        /**
+         * Finds the first point in an ordered block whose time is at least the specified time.
+         *
+         * @param time the time to search for.
+         *
+         * @return the index of the first point at or after the time, or the block's size if there is none.
+         */
+        protected int searchTime(long time)
+        {
+            int low = 0;
+            int high = this.size;
+
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (this.times.get(mid) < time)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            return low;
+        }
+    }
+
+    protected ArrayList<Block> blocks = new ArrayList<Block>();
+    protected int numPoints;
+    /** The index of the first point of each segment. */
+    protected int[] segmentStarts = new int[16];
+    protected int numSegments;
+    /** The index of the first segment of each track. */
+    protected int[] trackStarts = new int[4];
+    protected ArrayList<String> trackNames = new ArrayList<String>();
+    protected boolean offHeap;
+    protected File file;
+    protected RandomAccessFile randomAccessFile;
+
+    /** Creates a track store whose points are held on the Java heap. */
+    public TrackStore()
+    {
+    }
+
+    /**
+     * Creates a track store whose points are held either on the Java heap or in direct buffers outside of it.
+     *
+     * @param offHeap true to hold points in direct buffers, false to hold them on the Java heap.
+     */
+    public TrackStore(boolean offHeap)
+    {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Creates a track store whose points are held in a memory-mapped file. The operating system pages the points in and
+     * out of memory as needed, so the store may hold more points than fit in memory. The file is overwritten, and is
+     * not deleted when the store is closed.
+     *
+     * @param file the file to hold the points.
+     *
+     * @throws IllegalArgumentException if the file is null.
+     * @throws IOException              if the file cannot be opened.
+     */
+    public TrackStore(File file) throws IOException
+    {
+        if (file == null)
+        {
+            String msg = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.randomAccessFile.setLength(0);
+    }
+
+    /**
+     * Closes the file holding a memory-mapped store. Has no effect on other stores. The points of a memory-mapped store
+     * remain readable after it's closed, but no further points may be added.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException
+    {
+        if (this.randomAccessFile != null)
+            this.randomAccessFile.close();
+    }
+
+    public int getNumPoints()
+    {
+        return this.numPoints;
+    }
+
+    public int getNumSegments()
+    {
+        return this.numSegments;
+    }
+
+    public int getNumTracks()
+    {
+        return this.trackNames.size();
+    }
+
+    /**
+     * Starts a new track. Subsequently added points belong to the new track, in a new segment.
+     *
+     * @param name the track's name. May be null.
+     */
+    public void beginTrack(String name)
+    {
+        if (this.trackNames.size() == this.trackStarts.length)
+            this.trackStarts = Arrays.copyOf(this.trackStarts, 2 * this.trackStarts.length);
+
+        this.trackStarts[this.trackNames.size()] = this.numSegments;
+        this.trackNames.add(name);
+    }
+
+    /** Starts a new segment in the current track. Subsequently added points belong to the new segment. */
+    public void beginSegment()
+    {
+        if (this.trackNames.isEmpty())
+            this.beginTrack(null);
+
+        if (this.numSegments == this.segmentStarts.length)
+            this.segmentStarts = Arrays.copyOf(this.segmentStarts, 2 * this.segmentStarts.length);
+
+        this.segmentStarts[this.numSegments++] = this.numPoints;
+    }
+
+    public String getTrackName(int track)
+    {
+        return this.trackNames.get(track);
+    }
+
+    public void setTrackName(int track, String name)
+    {
+        this.trackNames.set(track, name);
+    }
+
+    /**
+     * Appends a point to the current segment. A track and segment are started if there are none.
+     *
+     * @param latitude  the point's latitude, in degrees.
+     * @param longitude the point's longitude, in degrees.
+     * @param elevation the point's elevation, in meters.
+     * @param time      the point's time in milliseconds since the epoch, or {@link #NO_TIME} if the time is unknown.
+     *
+     * @return the index of the new point.
+     *
+     * @throws WWRuntimeException if the store is full, or the points of a memory-mapped store cannot be written.
+     */
+    public int addPoint(double latitude, double longitude, double elevation, long time)
+    {
+        if (this.numSegments == 0 || this.trackStarts[this.trackNames.size() - 1] == this.numSegments)
+            this.beginSegment();
+
+        if (this.numPoints == Integer.MAX_VALUE)
+        {
+            String msg = Logging.getMessage("TrackStore.StoreIsFull", this.numPoints);
+            Logging.logger().severe(msg);
+            throw new WWRuntimeException(msg);
+        }
+
+        Block block = this.numPoints % BLOCK_SIZE == 0 ? this.addBlock() : this.blocks.get(this.blocks.size() - 1);
+        int index = block.size++;
+        block.latitudes.put(index, latitude);
+        block.longitudes.put(index, longitude);
+        block.elevations.put(index, elevation);
+        block.times.put(index, time);
+        block.indexTime(index, time);
+
+        return this.numPoints++;
+    }
+
+    protected Block addBlock()
+    {
+        Block block;
+
+        if (this.randomAccessFile != null)
+        {
+            try
+            {
+                long blockBytes = (long) BYTES_PER_POINT * BLOCK_SIZE;
+                block = new Block(this.randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                    this.blocks.size() * blockBytes, blockBytes));
+            }
+            catch (IOException e)
+            {
+                String msg = Logging.getMessage("generic.ExceptionAttemptingToWriteTo", this.file);
+                Logging.logger().severe(msg);
+                throw new WWRuntimeException(msg, e);
+            }
+        }
+        else if (this.offHeap)
+        {
+            block = new Block(ByteBuffer.allocateDirect(BYTES_PER_POINT * BLOCK_SIZE));
+        }
+        else
+        {
+            block = new Block();
+        }
+
+        this.blocks.add(block);
+
+        return block;
+    }
+
+    protected Block getBlock(int index)
+    {
+        if (index < 0 || index >= this.numPoints)
+        {
+            String msg = Logging.getMessage("generic.indexOutOfRange", index);
+            Logging.logger().severe(msg);
+            throw new IndexOutOfBoundsException(msg);
+        }
+
+        return this.blocks.get(index / BLOCK_SIZE);
+    }
+
+    public double getLatitude(int index)
+    {
+        return this.getBlock(index).latitudes.get(index % BLOCK_SIZE);
+    }
+
+    public double getLongitude(int index)
+    {
+        return this.getBlock(index).longitudes.get(index % BLOCK_SIZE);
+    }
+
+    public double getElevation(int index)
+    {
+        return this.getBlock(index).elevations.get(index % BLOCK_SIZE);
+    }
+
+    public long getTime(int index)
+    {
+        return this.getBlock(index).times.get(index % BLOCK_SIZE);
+    }
+
+    public void setLatitude(int index, double latitude)
+    {
+        this.getBlock(index).latitudes.put(index % BLOCK_SIZE, latitude);
+    }
+
+    public void setLongitude(int index, double longitude)
+    {
+        this.getBlock(index).longitudes.put(index % BLOCK_SIZE, longitude);
+    }
+
+    public void setElevation(int index, double elevation)
+    {
+        this.getBlock(index).elevations.put(index % BLOCK_SIZE, elevation);
+    }
+
+    public void setTime(int index, long time)
+    {
+        Block block = this.getBlock(index);
+        block.times.put(index % BLOCK_SIZE, time);
+        block.reindexTimes();
+    }
+
+    /**
+     * Copies a range of points' positions to an array, as consecutive latitude, longitude and elevation triplets. The
+     * array is suitable for {@link gov.nasa.worldwind.globes.Globe#computePointsFromPositions(double[], int, double[],
+     * boolean)}.
+     *
+     * @param start  the index of the first point to copy.
+     * @param count  the number of points to copy.
+     * @param out    the array to receive the positions.
+     * @param offset the array index at which to write the first position.
+     *
+     * @throws IllegalArgumentException if the array is null or too small.
+     * @throws IndexOutOfBoundsException if the range of points is not in the store.
+     */
+    public void getPositions(int start, int count, double[] out, int offset)
+    {
+        if (out == null)
+        {
+            String msg = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (offset < 0 || out.length - offset < 3L * count)
+        {
+            String msg = Logging.getMessage("generic.ArrayInvalidLength", out.length);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (start < 0 || count < 0 || start > this.numPoints - count)
+        {
+            String msg = Logging.getMessage("generic.indexOutOfRange", start + count);
+            Logging.logger().severe(msg);
+            throw new IndexOutOfBoundsException(msg);
+        }
+
+        for (int i = start; i < start + count; )
+        {
+            Block block = this.blocks.get(i / BLOCK_SIZE);
+            int first = i % BLOCK_SIZE;
+            int last = Math.min(block.size, first + start + count - i);
+
+            for (int j = first; j < last; j++)
+            {
+                out[offset++] = block.latitudes.get(j);
+                out[offset++] = block.longitudes.get(j);
+                out[offset++] = block.elevations.get(j);
+            }
+
+            i += last - first;
+        }
+    }
+
+    /**
+     * Returns the indices of the points whose times are within a specified window, in ascending order. Points with
+     * unknown times are never within the window.
+     *
+     * @param startTime the window's start time, in milliseconds since the epoch, inclusive.
+     * @param endTime   the window's end time, in milliseconds since the epoch, inclusive.
+     *
+     * @return the indices of the points within the window. The array is empty if there are none.
+     */
+    public int[] getPointsInTimeWindow(long startTime, long endTime)
+    {
+        int[] indices = new int[16];
+        int count = 0;
+
+        for (int b = 0; b < this.blocks.size(); b++)
+        {
+            Block block = this.blocks.get(b);
+            if (block.maxTime < startTime || block.minTime > endTime)
+                continue;
+
+            int first = block.ordered ? block.searchTime(startTime) : 0;
+            for (int i = first; i < block.size; i++)
+            {
+                long time = block.times.get(i);
+                if (time > endTime && block.ordered)
+                    break;
+
+                if (time != NO_TIME && time >= startTime && time <= endTime)
+                {
+                    if (count == indices.length)
+                        indices = Arrays.copyOf(indices, 2 * count);
+
+                    indices[count++] = b * BLOCK_SIZE + i;
+                }
+            }
+        }
+
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Returns this store's tracks as {@link Track}s. The tracks, and their segments and points, are views of this store
+     * rather than copies; changing a point changes the store.
+     *
+     * @return this store's tracks.
+     */
+    public List<Track> getTracks()
+    {
+        return new AbstractList<Track>()
+        {
+            @Override
+            public Track get(int index)
+            {
+                if (index < 0 || index >= TrackStore.this.getNumTracks())
+                {
+                    String msg = Logging.getMessage("generic.indexOutOfRange", index);
+                    Logging.logger().severe(msg);
+                    throw new IndexOutOfBoundsException(msg);
+                }
+
+                return new StoreTrack(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return TrackStore.this.getNumTracks();
+            }
+        };
+    }
+
+    protected int getTrackEndSegment(int track)
+    {
+        return track + 1 < this.trackNames.size() ? this.trackStarts[track + 1] : this.numSegments;
+    }
+
+    protected int getSegmentEndPoint(int segment)
+    {
+        return segment + 1 < this.numSegments ? this.segmentStarts[segment + 1] : this.numPoints;
+    }
+
+    protected class StoreTrack implements Track
+    {
+        protected final int track;
+
+        public StoreTrack(int track)
+        {
+            this.track = track;
+        }
+
+        public List<TrackSegment> getSegments()
+        {
+            final int first = trackStarts[this.track];
+            final int last = getTrackEndSegment(this.track);
+
+            return new AbstractList<TrackSegment>()
+            {
+                @Override
+                public TrackSegment get(int index)
+                {
+                    if (index < 0 || index >= last - first)
+                    {
+                        String msg = Logging.getMessage("generic.indexOutOfRange", index);
+                        Logging.logger().severe(msg);
+                        throw new IndexOutOfBoundsException(msg);
+                    }
+
+                    return new StoreTrackSegment(first + index);
+                }
+
+                @Override
+                public int size()
+                {
+                    return last - first;
+                }
+            };
+        }
+
+        public String getName()
+        {
+            return trackNames.get(this.track);
+        }
+
+        public int getNumPoints()
+        {
+            int first = trackStarts[this.track];
+            int last = getTrackEndSegment(this.track);
+
+            return first == last ? 0 : getSegmentEndPoint(last - 1) - segmentStarts[first];
+        }
+    }
+
+    protected class StoreTrackSegment implements TrackSegment
+    {
+        protected final int segment;
+
+        public StoreTrackSegment(int segment)
+        {
+            this.segment = segment;
+        }
+
+        public List<TrackPoint> getPoints()
+        {
+            final int first = segmentStarts[this.segment];
+            final int last = getSegmentEndPoint(this.segment);
+
+            return new AbstractList<TrackPoint>()
+            {
+                @Override
+                public TrackPoint get(int index)
+                {
+                    if (index < 0 || index >= last - first)
+                    {
+                        String msg = Logging.getMessage("generic.indexOutOfRange", index);
+                        Logging.logger().severe(msg);
+                        throw new IndexOutOfBoundsException(msg);
+                    }
+
+                    return new StoreTrackPoint(first + index);
+                }
+
+                @Override
+                public int size()
+                {
+                    return last - first;
+                }
+            };
+        }
+    }
+
+    protected class StoreTrackPoint implements TrackPoint
+    {
+        protected final int index;
+
+        public StoreTrackPoint(int index)
+        {
+            this.index = index;
+        }
+
+        public double getLatitude()
+        {
+            return TrackStore.this.getLatitude(this.index);
+        }
+
+        public void setLatitude(double latitude)
+        {
+            TrackStore.this.setLatitude(this.index, latitude);
+        }
+
+        public double getLongitude()
+        {
+            return TrackStore.this.getLongitude(this.index);
+        }
+
+        public void setLongitude(double longitude)
+        {
+            TrackStore.this.setLongitude(this.index, longitude);
+        }
+
+        public double getElevation()
+        {
+            return TrackStore.this.getElevation(this.index);
+        }
+
+        public void setElevation(double elevation)
+        {
+            TrackStore.this.setElevation(this.index, elevation);
+        }
+
+        public String getTime()
+        {
+            return formatTime(TrackStore.this.getTime(this.index));
+        }
+
+        public void setTime(String time)
+        {
+            TrackStore.this.setTime(this.index, parseTime(time));
+        }
+
+        public Position getPosition()
+        {
+            return Position.fromDegrees(this.getLatitude(), this.getLongitude(), this.getElevation());
+        }
+
+        public void setPosition(Position position)
+        {
+            if (position == null)
+            {
+                String msg = Logging.getMessage("nullValue.PositionIsNull");
+                Logging.logger().severe(msg);
+                throw new IllegalArgumentException(msg);
+            }
+
+            this.setLatitude(position.getLatitude().degrees);
+            this.setLongitude(position.getLongitude().degrees);
+            this.setElevation(position.getElevation());
+        }
+    }
+
+    /**
+     * Converts an ISO 8601 date and time, such as those in GPX files, to milliseconds since the epoch. Times without a
+     * time zone are taken to be UTC.
+     *
+     * @param time the time to convert. May be null.
+     *
+     * @return the time in milliseconds since the epoch, or {@link #NO_TIME} if the time is null or cannot be parsed.
+     */
+    public static long parseTime(String time)
+    {
+        if (time == null || time.trim().length() == 0)
+            return NO_TIME;
+
+        try
+        {
+            TemporalAccessor ta = DateTimeFormatter.ISO_DATE_TIME.parse(time.trim());
+            if (ta.isSupported(ChronoField.OFFSET_SECONDS))
+                return Instant.from(ta).toEpochMilli();
+
+            return LocalDateTime.from(ta).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        catch (DateTimeException e)
+        {
+            Logging.logger().fine(Logging.getMessage("generic.ConversionError", time));
+            return NO_TIME;
+        }
+    }
+
+    /**
+     * Converts a time in milliseconds since the epoch to an ISO 8601 date and time in UTC.
+     *
+     * @param time the time to convert.
+     *
+     * @return the converted time, or null if the time is {@link #NO_TIME}.
+     */
+    public static String formatTime(long time)
+    {
+        return time != NO_TIME ? Instant.ofEpochMilli(time).toString() : null;
+    }
+}
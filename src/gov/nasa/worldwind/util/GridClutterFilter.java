@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.View;
+import gov.nasa.worldwind.render.*;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * A clutter filter that draws the same shapes as {@link BasicClutterFilter}, but indexes the regions already drawn in
+ * a uniform screen-space grid. Each shape's bounds are compared only to the drawn regions sharing a grid cell, so
+ * decluttering n shapes costs O(n) for evenly spread shapes rather than O(n<sup>2</sup>).
+ * <p/>
+ * Shapes are considered in the order given, so earlier shapes have priority over later shapes they overlap. The filter
+ * may be given a time budget, after which it stops considering shapes and the remaining, lowest priority shapes are
+ * not drawn for that frame.
+ * <p/>
+ * When the view has not changed since the previous frame (see {@link DrawContext#getViewStateChanged()}), and the
+ * filter is applied to the same shapes with the same bounds as in its previous application, the previous result is
+ * reused. This is typically the case for the pick and render passes of the same frame, and for frames in which only
+ * shapes other than the declutterables change.
+ * <p/>
+ * The filter retains its arrays between applications, and retains references to the shapes of its most recent
+ * application. It is intended to be used by a single scene controller.
+ */
+public class GridClutterFilter implements ClutterFilter
+{
+    protected static final int DEFAULT_CELL_SIZE = 32; // pixels
+    protected static final int INITIAL_CAPACITY = 256;
+    /** The number of shapes considered between checks of the time budget. */
+    protected static final int BUDGET_CHECK_INTERVAL = 64;
+
+    /** Holds the shapes and bounds of one application of the filter, and the shapes drawn. */
+    protected static class Result
+    {
+        protected Declutterable[] shapes = new Declutterable[INITIAL_CAPACITY];
+        protected double[] bounds = new double[4 * INITIAL_CAPACITY]; // x, y, width and height of each shape
+        protected boolean[] hasBounds = new boolean[INITIAL_CAPACITY];
+        protected boolean[] drawn = new boolean[INITIAL_CAPACITY];
+        protected int numShapes;
+        /** true if all shapes were considered within the time budget. */
+        protected boolean complete;
+
+        protected void ensureCapacity(int capacity)
+        {
+            if (capacity <= this.shapes.length)
+                return;
+
+            capacity = Math.max(capacity, 2 * this.shapes.length);
+            this.shapes = new Declutterable[capacity];
+            this.bounds = new double[4 * capacity];
+            this.hasBounds = new boolean[capacity];
+            this.drawn = new boolean[capacity];
+        }
+
+        protected void clear()
+        {
+            Arrays.fill(this.shapes, 0, this.numShapes, null);
+            this.numShapes = 0;
+            this.complete = false;
+        }
+    }
+
+    protected int cellSize = DEFAULT_CELL_SIZE;
+    protected long timeBudget; // microseconds, or 0 for no budget
+    protected boolean reuseEnabled = true;
+
+    protected Result result = new Result();
+    protected Result previousResult = new Result();
+
+    // The grid. Each cell holds a linked list of entries, and each entry identifies a drawn shape whose region
+    // overlaps the cell.
+    protected int numColumns;
+    protected int numRows;
+    protected double originX;
+    protected double originY;
+    protected int[] cellHeads = new int[0];
+    protected int[] entryShapes = new int[INITIAL_CAPACITY];
+    protected int[] entryNext = new int[INITIAL_CAPACITY];
+    protected int numEntries;
+
+    /**
+     * Indicates the width and height of the grid cells.
+     *
+     * @return the cell size, in pixels.
+     */
+    public int getCellSize()
+    {
+        return this.cellSize;
+    }
+
+    /**
+     * Specifies the width and height of the grid cells. Cells about the size of a typical shape's bounds work best.
+     *
+     * @param cellSize the cell size, in pixels.
+     *
+     * @throws IllegalArgumentException if the cell size is less than 1.
+     */
+    public void setCellSize(int cellSize)
+    {
+        if (cellSize < 1)
+        {
+            String message = Logging.getMessage("generic.SizeOutOfRange", cellSize);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Indicates the time budget for each application of the filter.
+     *
+     * @return the time budget in microseconds, or 0 if the filter has no time budget.
+     */
+    public long getTimeBudget()
+    {
+        return this.timeBudget;
+    }
+
+    /**
+     * Specifies the time budget for each application of the filter. Shapes not considered when the budget is exhausted
+     * are not drawn.
+     *
+     * @param timeBudget the time budget in microseconds, or 0 to consider all shapes.
+     */
+    public void setTimeBudget(long timeBudget)
+    {
+        this.timeBudget = Math.max(0, timeBudget);
+    }
+
+    /**
+     * Indicates whether the result of the previous application is reused when the view and the shapes are unchanged.
+     *
+     * @return true if results are reused, otherwise false.
+     */
+    public boolean isReuseEnabled()
+    {
+        return this.reuseEnabled;
+    }
+
+    /**
+     * Specifies whether the result of the previous application is reused when the view and the shapes are unchanged.
+     *
+     * @param reuseEnabled true to reuse results, otherwise false.
+     */
+    public void setReuseEnabled(boolean reuseEnabled)
+    {
+        this.reuseEnabled = reuseEnabled;
+    }
+
+    public void apply(DrawContext dc, List<Declutterable> shapes)
+    {
+        long deadline = this.timeBudget > 0 ? System.nanoTime() + 1000 * this.timeBudget : Long.MAX_VALUE;
+
+        // The current result becomes the previous result, and the previous result's arrays are reused.
+        Result previous = this.result;
+        Result current = this.previousResult;
+        this.result = current;
+        this.previousResult = previous;
+
+        current.clear();
+        boolean unchanged = this.reuseEnabled && previous.complete && !dc.getViewStateChanged()
+            && previous.numShapes == shapes.size();
+        unchanged &= this.collectShapes(dc, shapes, current, unchanged ? previous : null);
+
+        if (unchanged)
+        {
+            System.arraycopy(previous.drawn, 0, current.drawn, 0, current.numShapes);
+            current.complete = true;
+        }
+        else
+        {
+            this.declutter(dc, current, deadline);
+        }
+
+        for (int i = 0; i < current.numShapes; i++)
+        {
+            if (current.drawn[i])
+                dc.addOrderedRenderable(current.shapes[i]);
+        }
+
+        // Release the previous shapes, which are no longer needed to test for reuse.
+        previous.clear();
+    }
+
+    /**
+     * Records the shapes and their bounds, and optionally compares them to those of a previous application.
+     *
+     * @param dc       the current draw context.
+     * @param shapes   the shapes to record.
+     * @param result   the result to record the shapes in.
+     * @param previous the previous result to compare with, or null to not compare.
+     *
+     * @return true if the shapes and their bounds equal those of the previous result, otherwise false.
+     */
+    protected boolean collectShapes(DrawContext dc, List<Declutterable> shapes, Result result, Result previous)
+    {
+        result.ensureCapacity(shapes.size());
+
+        boolean equal = previous != null;
+        int i = 0;
+        for (Declutterable shape : shapes)
+        {
+            Rectangle2D bounds = shape.getBounds(dc);
+            result.shapes[i] = shape;
+            result.hasBounds[i] = bounds != null;
+            if (bounds != null)
+            {
+                result.bounds[4 * i] = bounds.getX();
+                result.bounds[4 * i + 1] = bounds.getY();
+                result.bounds[4 * i + 2] = bounds.getWidth();
+                result.bounds[4 * i + 3] = bounds.getHeight();
+            }
+
+            if (equal)
+            {
+                equal = shape == previous.shapes[i] && result.hasBounds[i] == previous.hasBounds[i]
+                    && (bounds == null || (result.bounds[4 * i] == previous.bounds[4 * i]
+                    && result.bounds[4 * i + 1] == previous.bounds[4 * i + 1]
+                    && result.bounds[4 * i + 2] == previous.bounds[4 * i + 2]
+                    && result.bounds[4 * i + 3] == previous.bounds[4 * i + 3]));
+            }
+
+            i++;
+        }
+        result.numShapes = i;
+
+        return equal;
+    }
+
+    /**
+     * Determines which of the recorded shapes to draw. A shape is drawn if it has bounds and its bounds do not
+     * intersect the bounds of an earlier shape that is drawn.
+     *
+     * @param dc       the current draw context.
+     * @param result   the result holding the shapes to consider.
+     * @param deadline the {@link System#nanoTime()} after which no further shapes are considered.
+     */
+    protected void declutter(DrawContext dc, Result result, long deadline)
+    {
+        View view = dc.getView();
+        this.initializeGrid(view != null ? view.getViewport() : null);
+
+        result.complete = true;
+        for (int i = 0; i < result.numShapes; i++)
+        {
+            if (i % BUDGET_CHECK_INTERVAL == 0 && deadline != Long.MAX_VALUE && System.nanoTime() > deadline)
+            {
+                Arrays.fill(result.drawn, i, result.numShapes, false);
+                result.complete = false;
+                return;
+            }
+
+            result.drawn[i] = result.hasBounds[i] && !this.intersectsDrawnShape(result, i);
+            if (result.drawn[i])
+                this.addToGrid(result, i);
+        }
+    }
+
+    protected void initializeGrid(Rectangle viewport)
+    {
+        // Cover the viewport, and the shapes outside it with the border cells. With no viewport, a single cell holds
+        // every shape and the filter degenerates to a linear search.
+        if (viewport != null && viewport.width > 0 && viewport.height > 0)
+        {
+            this.originX = viewport.x;
+            this.originY = viewport.y;
+            this.numColumns = viewport.width / this.cellSize + 1;
+            this.numRows = viewport.height / this.cellSize + 1;
+        }
+        else
+        {
+            this.originX = 0;
+            this.originY = 0;
+            this.numColumns = 1;
+            this.numRows = 1;
+        }
+
+        int numCells = this.numColumns * this.numRows;
+        if (this.cellHeads.length < numCells)
+            this.cellHeads = new int[numCells];
+        Arrays.fill(this.cellHeads, 0, numCells, -1);
+        this.numEntries = 0;
+    }
+
+    /**
+     * Indicates whether a shape's bounds intersect the bounds of a drawn shape. Bounds intersect as defined by {@link
+     * Rectangle2D#intersects(Rectangle2D)}, so empty bounds intersect nothing.
+     *
+     * @param result the result holding the shapes.
+     * @param shape  the index of the shape to test.
+     *
+     * @return true if the shape's bounds intersect those of a drawn shape, otherwise false.
+     */
+    protected boolean intersectsDrawnShape(Result result, int shape)
+    {
+        double[] bounds = result.bounds;
+        double x = bounds[4 * shape], y = bounds[4 * shape + 1];
+        double width = bounds[4 * shape + 2], height = bounds[4 * shape + 3];
+        if (width <= 0 || height <= 0)
+            return false;
+
+        int minColumn = this.column(x), maxColumn = this.column(x + width);
+        int minRow = this.row(y), maxRow = this.row(y + height);
+        for (int row = minRow; row <= maxRow; row++)
+        {
+            for (int column = minColumn; column <= maxColumn; column++)
+            {
+                for (int e = this.cellHeads[row * this.numColumns + column]; e >= 0; e = this.entryNext[e])
+                {
+                    int i = 4 * this.entryShapes[e];
+                    if (x < bounds[i] + bounds[i + 2] && y < bounds[i + 1] + bounds[i + 3]
+                        && x + width > bounds[i] && y + height > bounds[i + 1])
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds a drawn shape to each grid cell its bounds overlap. Shapes with empty bounds intersect nothing and are not
+     * added.
+     *
+     * @param result the result holding the shapes.
+     * @param shape  the index of the shape to add.
+     */
+    protected void addToGrid(Result result, int shape)
+    {
+        double[] bounds = result.bounds;
+        double x = bounds[4 * shape], y = bounds[4 * shape + 1];
+        double width = bounds[4 * shape + 2], height = bounds[4 * shape + 3];
+        if (width <= 0 || height <= 0)
+            return;
+
+        int minColumn = this.column(x), maxColumn = this.column(x + width);
+        int minRow = this.row(y), maxRow = this.row(y + height);
+        for (int row = minRow; row <= maxRow; row++)
+        {
+            for (int column = minColumn; column <= maxColumn; column++)
+            {
+                if (this.numEntries == this.entryShapes.length)
+                {
+                    this.entryShapes = Arrays.copyOf(this.entryShapes, 2 * this.numEntries);
+                    this.entryNext = Arrays.copyOf(this.entryNext, 2 * this.numEntries);
+                }
+
+                int cell = row * this.numColumns + column;
+                this.entryShapes[this.numEntries] = shape;
+                this.entryNext[this.numEntries] = this.cellHeads[cell];
+                this.cellHeads[cell] = this.numEntries++;
+            }
+        }
+    }
+
+    protected int column(double x)
+    {
+        return WWMath.clamp((int) Math.floor((x - this.originX) / this.cellSize), 0, this.numColumns - 1);
+    }
+
+    protected int row(double y)
+    {
+        return WWMath.clamp((int) Math.floor((y - this.originY) / this.cellSize), 0, this.numRows - 1);
+    }
+}
@@ -46,6 +46,24 @@ public class ImageUtil
      * @throws IllegalArgumentException if either <code>image</code> or <code>canvas</code> is null.
      */
     public static void getScaledCopy(BufferedImage image, BufferedImage canvas)
+    {
+        getScaledCopy(image, canvas, null);
+    }
+
+    /**
+     * Draws the specified <code>image</code> onto a region of the <code>canvas</code>, scaling or stretching the image
+     * to fit the canvas. The pixels drawn are the same as the corresponding pixels drawn by {@link
+     * #getScaledCopy(java.awt.image.BufferedImage, java.awt.image.BufferedImage)}, and pixels outside the region are
+     * left unchanged. Disjoint regions of one canvas may therefore be drawn concurrently by separate threads.
+     *
+     * @param image  the BufferedImage to draw, potentially scaling or stretching to fit the <code>canvas</code>.
+     * @param canvas the BufferedImage to receive the scaled or stretched <code>image</code>.
+     * @param region the region of the canvas to draw, in canvas pixel coordinates. May be null to draw the entire
+     *               canvas.
+     *
+     * @throws IllegalArgumentException if either <code>image</code> or <code>canvas</code> is null.
+     */
+    public static void getScaledCopy(BufferedImage image, BufferedImage canvas, Rectangle region)
     {
         if (image == null)
         {
@@ -66,6 +84,8 @@ public class ImageUtil
             g2d.setComposite(java.awt.AlphaComposite.Src);
             g2d.setRenderingHint(
                 java.awt.RenderingHints.KEY_INTERPOLATION, java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            if (region != null)
+                g2d.clip(region);
             g2d.drawImage(image, 0, 0, canvas.getWidth(), canvas.getHeight(), null);
         }
         finally
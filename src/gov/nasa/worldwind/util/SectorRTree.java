@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.Sector;
+
+import java.util.*;
+
+/**
+ * An immutable R-tree of items identified by sector. The tree is packed once, when it is constructed, using the
+ * Sort-Tile-Recursive algorithm: at each level the nodes are sorted into vertical slices by longitude, each slice is
+ * sorted by latitude, and runs of adjacent nodes are grouped under a parent node. Finding the items intersecting a
+ * region then visits only the branches whose bounds intersect it, rather than testing every item.
+ * <p/>
+ * Items are returned in the order they were given to the constructor, so callers that depend on that order, such as
+ * callers that draw overlapping items in sequence, can use the tree in place of a linear search of the item list.
+ * <p/>
+ * The tree is not modified after construction and may be searched concurrently by multiple threads.
+ */
+public class SectorRTree<T>
+{
+    protected static final int DEFAULT_NODE_CAPACITY = 16;
+
+    protected final List<T> items;
+    protected final int nodeCapacity;
+    /** The bounds of each node, as minimum latitude, maximum latitude, minimum longitude and maximum longitude. */
+    protected double[] nodeBounds;
+    /**
+     * The children of each node are the entries of <code>childIds</code> from <code>childStart[node]</code> to
+     * <code>childStart[node] + childCount[node]</code>. Leaf nodes have no children and hold the item with index
+     * <code>-1 - childStart[node]</code>.
+     */
+    protected int[] childStart;
+    protected int[] childCount;
+    protected int[] childIds;
+    protected int numNodes;
+    protected int numChildIds;
+    protected int root = -1;
+
+    /**
+     * Constructs a tree of items and their sectors, with the default node capacity.
+     *
+     * @param items   the items to hold in the tree.
+     * @param sectors the sector of each item, in the same order as the items.
+     *
+     * @throws IllegalArgumentException if either list is null, the lists differ in size, or a sector is null.
+     */
+    public SectorRTree(List<? extends T> items, List<Sector> sectors)
+    {
+        this(items, sectors, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs a tree of items and their sectors.
+     *
+     * @param items        the items to hold in the tree.
+     * @param sectors      the sector of each item, in the same order as the items.
+     * @param nodeCapacity the maximum number of children of each node.
+     *
+     * @throws IllegalArgumentException if either list is null, the lists differ in size, a sector is null, or the node
+     *                                  capacity is less than 2.
+     */
+    public SectorRTree(List<? extends T> items, List<Sector> sectors, int nodeCapacity)
+    {
+        if (items == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (sectors == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (sectors.size() != items.size())
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", sectors.size());
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (nodeCapacity < 2)
+        {
+            String message = Logging.getMessage("generic.SizeOutOfRange", nodeCapacity);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.items = new ArrayList<T>(items);
+        this.nodeCapacity = nodeCapacity;
+        this.build(sectors);
+    }
+
+    /**
+     * Constructs a tree of items and their bounds, with the default node capacity.
+     *
+     * @param items  the items to hold in the tree.
+     * @param bounds the bounds of each item, in the same order as the items, as four consecutive values: minimum
+     *               latitude, maximum latitude, minimum longitude and maximum longitude, in degrees.
+     *
+     * @throws IllegalArgumentException if either argument is null, or the bounds do not have four values per item.
+     */
+    public SectorRTree(List<? extends T> items, double[] bounds)
+    {
+        this(items, bounds, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs a tree of items and their bounds. This avoids creating a sector per item when the items' bounds are
+     * already available as coordinates, such as when indexing the records of a large file.
+     *
+     * @param items        the items to hold in the tree.
+     * @param bounds       the bounds of each item, in the same order as the items, as four consecutive values: minimum
+     *                     latitude, maximum latitude, minimum longitude and maximum longitude, in degrees.
+     * @param nodeCapacity the maximum number of children of each node.
+     *
+     * @throws IllegalArgumentException if either argument is null, the bounds do not have four values per item, or the
+     *                                  node capacity is less than 2.
+     */
+    public SectorRTree(List<? extends T> items, double[] bounds, int nodeCapacity)
+    {
+        if (items == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (bounds == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (bounds.length != 4 * items.size())
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", bounds.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (nodeCapacity < 2)
+        {
+            String message = Logging.getMessage("generic.SizeOutOfRange", nodeCapacity);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.items = new ArrayList<T>(items);
+        this.nodeCapacity = nodeCapacity;
+        this.build(bounds);
+    }
+
+    /**
+     * Indicates the number of items in the tree.
+     *
+     * @return the number of items.
+     */
+    public int size()
+    {
+        return this.items.size();
+    }
+
+    /**
+     * Finds the items whose sectors intersect a region. Sectors that only touch the region's edges are considered to
+     * intersect it.
+     *
+     * @param region   the region of interest.
+     * @param outItems a list in which to place the items. If null, a new list is created.
+     *
+     * @return the intersecting items, in the order they were given to the constructor. The same list passed as the
+     *         <code>outItems</code> argument is returned, or a new list if that argument is null.
+     *
+     * @throws IllegalArgumentException if the region is null.
+     */
+    public List<T> getItemsInRegion(Sector region, List<T> outItems)
+    {
+        if (region == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (outItems == null)
+            outItems = new ArrayList<T>();
+
+        if (this.root < 0)
+            return outItems;
+
+        double minLat = region.getMinLatitude().degrees;
+        double maxLat = region.getMaxLatitude().degrees;
+        double minLon = region.getMinLongitude().degrees;
+        double maxLon = region.getMaxLongitude().degrees;
+
+        int[] stack = new int[64];
+        int stackSize = 0;
+        int[] found = new int[16];
+        int numFound = 0;
+
+        stack[stackSize++] = this.root;
+        while (stackSize > 0)
+        {
+            int node = stack[--stackSize];
+            int b = 4 * node;
+            if (this.nodeBounds[b] > maxLat || this.nodeBounds[b + 1] < minLat
+                || this.nodeBounds[b + 2] > maxLon || this.nodeBounds[b + 3] < minLon)
+                continue;
+
+            int start = this.childStart[node];
+            if (start < 0)
+            {
+                if (numFound == found.length)
+                    found = Arrays.copyOf(found, 2 * numFound);
+                found[numFound++] = -1 - start;
+                continue;
+            }
+
+            int count = this.childCount[node];
+            if (stackSize + count > stack.length)
+                stack = Arrays.copyOf(stack, Math.max(2 * stack.length, stackSize + count));
+            System.arraycopy(this.childIds, start, stack, stackSize, count);
+            stackSize += count;
+        }
+
+        Arrays.sort(found, 0, numFound);
+        for (int i = 0; i < numFound; i++)
+        {
+            outItems.add(this.items.get(found[i]));
+        }
+
+        return outItems;
+    }
+
+    protected void build(List<Sector> sectors)
+    {
+        int numItems = sectors.size();
+        this.allocate(numItems);
+
+        if (numItems == 0)
+            return;
+
+        // Create a leaf node for each item.
+        int[] level = new int[numItems];
+        for (int i = 0; i < numItems; i++)
+        {
+            Sector sector = sectors.get(i);
+            if (sector == null)
+            {
+                String message = Logging.getMessage("nullValue.SectorIsNull");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            level[i] = this.addNode(sector.getMinLatitude().degrees, sector.getMaxLatitude().degrees,
+                sector.getMinLongitude().degrees, sector.getMaxLongitude().degrees, -1 - i, 0);
+        }
+
+        this.pack(level);
+    }
+
+    protected void build(double[] bounds)
+    {
+        int numItems = bounds.length / 4;
+        this.allocate(numItems);
+
+        if (numItems == 0)
+            return;
+
+        // Create a leaf node for each item.
+        int[] level = new int[numItems];
+        for (int i = 0; i < numItems; i++)
+        {
+            int b = 4 * i;
+            level[i] = this.addNode(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], -1 - i, 0);
+        }
+
+        this.pack(level);
+    }
+
+    protected void allocate(int numItems)
+    {
+        int capacity = 2 * numItems + 1;
+        this.nodeBounds = new double[4 * capacity];
+        this.childStart = new int[capacity];
+        this.childCount = new int[capacity];
+        this.childIds = new int[capacity];
+    }
+
+    /**
+     * Groups the leaf nodes under parent nodes, level by level, until a single root node remains.
+     *
+     * @param level the ids of the leaf nodes.
+     */
+    protected void pack(int[] level)
+    {
+        // Group each level's nodes under parent nodes until a single node remains.
+        while (level.length > 1)
+        {
+            this.sortTiles(level);
+
+            int[] parents = new int[(level.length + this.nodeCapacity - 1) / this.nodeCapacity];
+            for (int p = 0; p < parents.length; p++)
+            {
+                int start = p * this.nodeCapacity;
+                int count = Math.min(this.nodeCapacity, level.length - start);
+                parents[p] = this.addParentNode(level, start, count);
+            }
+
+            level = parents;
+        }
+
+        this.root = level[0];
+    }
+
+    /**
+     * Orders a level's nodes so that runs of <code>nodeCapacity</code> adjacent nodes are spatially close: the nodes
+     * are sorted by longitude into vertical slices, and each slice is sorted by latitude.
+     *
+     * @param level the ids of the level's nodes, sorted in place.
+     */
+    protected void sortTiles(int[] level)
+    {
+        int numParents = (level.length + this.nodeCapacity - 1) / this.nodeCapacity;
+        int numSlices = (int) Math.ceil(Math.sqrt(numParents));
+        int sliceSize = numSlices * this.nodeCapacity;
+
+        Integer[] ids = new Integer[level.length];
+        for (int i = 0; i < level.length; i++)
+        {
+            ids[i] = level[i];
+        }
+
+        Arrays.sort(ids, new CenterComparator(2));
+        for (int start = 0; start < ids.length; start += sliceSize)
+        {
+            Arrays.sort(ids, start, Math.min(start + sliceSize, ids.length), new CenterComparator(0));
+        }
+
+        for (int i = 0; i < level.length; i++)
+        {
+            level[i] = ids[i];
+        }
+    }
+
+    protected int addParentNode(int[] level, int start, int count)
+    {
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = start; i < start + count; i++)
+        {
+            int b = 4 * level[i];
+            minLat = Math.min(minLat, this.nodeBounds[b]);
+            maxLat = Math.max(maxLat, this.nodeBounds[b + 1]);
+            minLon = Math.min(minLon, this.nodeBounds[b + 2]);
+            maxLon = Math.max(maxLon, this.nodeBounds[b + 3]);
+        }
+
+        if (this.numChildIds + count > this.childIds.length)
+            this.childIds = Arrays.copyOf(this.childIds, Math.max(2 * this.childIds.length, this.numChildIds + count));
+        System.arraycopy(level, start, this.childIds, this.numChildIds, count);
+        int node = this.addNode(minLat, maxLat, minLon, maxLon, this.numChildIds, count);
+        this.numChildIds += count;
+
+        return node;
+    }
+
+    protected int addNode(double minLat, double maxLat, double minLon, double maxLon, int start, int count)
+    {
+        if (this.numNodes == this.childStart.length)
+        {
+            int capacity = 2 * this.numNodes;
+            this.nodeBounds = Arrays.copyOf(this.nodeBounds, 4 * capacity);
+            this.childStart = Arrays.copyOf(this.childStart, capacity);
+            this.childCount = Arrays.copyOf(this.childCount, capacity);
+        }
+
+        int node = this.numNodes++;
+        this.nodeBounds[4 * node] = minLat;
+        this.nodeBounds[4 * node + 1] = maxLat;
+        this.nodeBounds[4 * node + 2] = minLon;
+        this.nodeBounds[4 * node + 3] = maxLon;
+        this.childStart[node] = start;
+        this.childCount[node] = count;
+
+        return node;
+    }
+
+    /** Compares nodes by the center of their bounds in latitude (offset 0) or longitude (offset 2). */
+    protected class CenterComparator implements Comparator<Integer>
+    {
+        protected final int offset;
+
+        public CenterComparator(int offset)
+        {
+            this.offset = offset;
+        }
+
+        public int compare(Integer a, Integer b)
+        {
+            int i = 4 * a + this.offset;
+            int j = 4 * b + this.offset;
+
+            return Double.compare(nodeBounds[i] + nodeBounds[i + 1], nodeBounds[j] + nodeBounds[j + 1]);
+        }
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.render.DrawContext;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requests the tiles a view is about to need, before the view needs them. Each frame, {@link #update(DrawContext)}
+ * estimates the velocity of the view's eye and center points and extrapolates them over a look-ahead interval. The
+ * tiles of the client's level set that cover the predicted view, at the level of detail the predicted eye distance
+ * calls for, are then requested on a background thread at a priority lower than that of the tiles needed by the
+ * current frame. Requests that have not run are cancelled when the prediction no longer includes their tiles, and
+ * nothing is requested while the view is still.
+ * <p/>
+ * The prefetcher limits its load on the application in three ways: it issues at most a specified number of requests
+ * per second, it defers requests while the retrieval service has more than a specified number of retrievals pending,
+ * and it stops loading tiles into memory once the tiles it has loaded for the current prediction reach a specified
+ * share of the client's memory cache.
+ * <p/>
+ * Views driven by the animators of the <code>animation</code> package move smoothly, so their trajectories are
+ * followed closely by the extrapolation. Abrupt changes of direction are detected within a few frames.
+ */
+public class TilePrefetcher
+{
+    /** The tile source served by a prefetcher. */
+    public interface Client
+    {
+        /**
+         * Returns the level set whose tiles are prefetched.
+         *
+         * @return the client's level set.
+         */
+        LevelSet getLevels();
+
+        /**
+         * Indicates whether a tile must be requested: its data is not already in memory and is not known to be
+         * absent. Called on the rendering thread.
+         *
+         * @param dc  the current draw context.
+         * @param key the tile's key.
+         *
+         * @return true if the tile should be prefetched, otherwise false.
+         */
+        boolean isPrefetchNeeded(DrawContext dc, TileKey key);
+
+        /**
+         * Loads a tile into memory if it is available locally, or otherwise starts its retrieval at a specified
+         * priority. Called on the prefetcher's thread.
+         *
+         * @param key      the tile's key.
+         * @param priority the priority at which to retrieve the tile, larger than the priority of the tiles needed by
+         *                 the current frame.
+         *
+         * @return the number of bytes the tile added to the client's memory cache, or 0 if it was not loaded into
+         *         memory.
+         */
+        long prefetchTile(TileKey key, double priority);
+
+        /**
+         * Returns the capacity of the memory cache into which the client loads tiles.
+         *
+         * @return the memory cache's capacity, in bytes.
+         */
+        long getMemoryCacheCapacity();
+    }
+
+    /** The default interval over which the view's motion is extrapolated, in milliseconds. */
+    protected static final long DEFAULT_LOOK_AHEAD_TIME = 2000;
+    /** The default maximum number of tiles in a prediction. */
+    protected static final int DEFAULT_MAX_TILES = 64;
+    /** The default maximum number of tiles requested per second. */
+    protected static final double DEFAULT_MAX_REQUESTS_PER_SECOND = 8;
+    /** The default number of pending retrievals above which prefetch requests are deferred. */
+    protected static final int DEFAULT_MAX_PENDING_RETRIEVALS = 16;
+    /** The default share of the client's memory cache that prefetched tiles may occupy. */
+    protected static final double DEFAULT_MAX_CACHE_SHARE = 0.25;
+    /** The default level of detail, as a power of ten, matching that of {@link gov.nasa.worldwind.layers.TiledImageLayer}. */
+    protected static final double DEFAULT_DETAIL_FACTOR = 2.8;
+    /** The minimum interval between predictions, in milliseconds. */
+    protected static final long MIN_PREDICTION_INTERVAL = 100;
+    /** The interval after which earlier view positions are not used to estimate the view's velocity. */
+    protected static final long MAX_SAMPLE_INTERVAL = 1000;
+    /** The fraction of the eye distance the view must be predicted to move for its motion to be extrapolated. */
+    protected static final double MIN_MOTION = 0.05;
+    /** Added to the distance of prefetched tiles to form their priority, which places them after visible tiles. */
+    protected static final double PRIORITY_OFFSET = 1e9;
+
+    protected final Client client;
+    protected long lookAheadTime = DEFAULT_LOOK_AHEAD_TIME;
+    protected int maxTiles = DEFAULT_MAX_TILES;
+    protected double maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+    protected int maxPendingRetrievals = DEFAULT_MAX_PENDING_RETRIEVALS;
+    protected double maxCacheShare = DEFAULT_MAX_CACHE_SHARE;
+    protected double detailFactor = DEFAULT_DETAIL_FACTOR;
+
+    // Motion state, accessed only on the rendering thread.
+    protected Vec4 lastEyePoint;
+    protected Vec4 lastCenterPoint;
+    protected long lastSampleTime;
+    protected long lastPredictionTime;
+    protected Vec4 eyeVelocity = Vec4.ZERO;
+    protected Vec4 centerVelocity = Vec4.ZERO;
+
+    /** The tiles of the current prediction, mapped to their priority. Replaced, never modified, by each prediction. */
+    protected volatile Map<TileKey, Double> wantedTiles = Collections.emptyMap();
+    /** The tiles waiting in the request queue. */
+    protected final Set<TileKey> queuedTiles = Collections.newSetFromMap(new ConcurrentHashMap<TileKey, Boolean>());
+    /** The tiles of the current prediction already requested, mapped to the bytes they added to the memory cache. */
+    protected final ConcurrentHashMap<TileKey, Long> requestedTiles = new ConcurrentHashMap<TileKey, Long>();
+    protected final AtomicLong prefetchedBytes = new AtomicLong();
+    protected final ThreadPoolExecutor executor;
+    protected long nextRequestTime;
+
+    /**
+     * Creates a prefetcher for a specified client.
+     *
+     * @param client the tile source to prefetch from.
+     *
+     * @throws IllegalArgumentException if the client is null.
+     */
+    public TilePrefetcher(Client client)
+    {
+        if (client == null)
+        {
+            String message = Logging.getMessage("nullValue.ClientIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.client = client;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setName(Logging.getMessage("TilePrefetcher.ThreadName"));
+                    return thread;
+                }
+            });
+    }
+
+    public Client getClient()
+    {
+        return this.client;
+    }
+
+    /**
+     * Returns the interval over which the view's motion is extrapolated.
+     *
+     * @return the look-ahead interval, in milliseconds.
+     */
+    public long getLookAheadTime()
+    {
+        return this.lookAheadTime;
+    }
+
+    /**
+     * Specifies the interval over which the view's motion is extrapolated. The default is 2 seconds.
+     *
+     * @param lookAheadTime the look-ahead interval, in milliseconds.
+     *
+     * @throws IllegalArgumentException if the interval is less than 1.
+     */
+    public void setLookAheadTime(long lookAheadTime)
+    {
+        if (lookAheadTime < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "lookAheadTime=" + lookAheadTime);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.lookAheadTime = lookAheadTime;
+    }
+
+    public int getMaxTiles()
+    {
+        return this.maxTiles;
+    }
+
+    /**
+     * Specifies the maximum number of tiles in a prediction. The tiles nearest the predicted view center are kept. The
+     * default is 64.
+     *
+     * @param maxTiles the maximum number of tiles.
+     *
+     * @throws IllegalArgumentException if the number is less than 1.
+     */
+    public void setMaxTiles(int maxTiles)
+    {
+        if (maxTiles < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "maxTiles=" + maxTiles);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxTiles = maxTiles;
+    }
+
+    public double getMaxRequestsPerSecond()
+    {
+        return this.maxRequestsPerSecond;
+    }
+
+    /**
+     * Specifies the maximum number of tiles requested per second, which bounds the bandwidth used by prefetching. The
+     * default is 8.
+     *
+     * @param maxRequestsPerSecond the maximum request rate.
+     *
+     * @throws IllegalArgumentException if the rate is not positive.
+     */
+    public void setMaxRequestsPerSecond(double maxRequestsPerSecond)
+    {
+        if (maxRequestsPerSecond <= 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange",
+                "maxRequestsPerSecond=" + maxRequestsPerSecond);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    public int getMaxPendingRetrievals()
+    {
+        return this.maxPendingRetrievals;
+    }
+
+    /**
+     * Specifies the number of pending retrievals above which prefetch requests are deferred, so that prefetching does
+     * not delay the retrieval of the tiles the current frame needs. The default is 16.
+     *
+     * @param maxPendingRetrievals the maximum number of pending retrievals.
+     */
+    public void setMaxPendingRetrievals(int maxPendingRetrievals)
+    {
+        this.maxPendingRetrievals = maxPendingRetrievals;
+    }
+
+    public double getMaxCacheShare()
+    {
+        return this.maxCacheShare;
+    }
+
+    /**
+     * Specifies the share of the client's memory cache that the tiles loaded for the current prediction may occupy.
+     * The default is 0.25.
+     *
+     * @param maxCacheShare the maximum cache share, between 0 and 1.
+     *
+     * @throws IllegalArgumentException if the share is less than 0 or greater than 1.
+     */
+    public void setMaxCacheShare(double maxCacheShare)
+    {
+        if (maxCacheShare < 0 || maxCacheShare > 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "maxCacheShare=" + maxCacheShare);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxCacheShare = maxCacheShare;
+    }
+
+    public double getDetailFactor()
+    {
+        return this.detailFactor;
+    }
+
+    /**
+     * Specifies the level of detail of the prefetched tiles, as a power of ten: the tiles' texel size is at most the
+     * predicted eye distance times <code>10<sup>-detailFactor</sup></code>. The default is 2.8, which matches the
+     * default level of detail of {@link gov.nasa.worldwind.layers.TiledImageLayer}.
+     *
+     * @param detailFactor the level of detail.
+     */
+    public void setDetailFactor(double detailFactor)
+    {
+        this.detailFactor = detailFactor;
+    }
+
+    /**
+     * Returns the tiles of the current prediction.
+     *
+     * @return the predicted tiles' keys.
+     */
+    public Set<TileKey> getPredictedTiles()
+    {
+        return Collections.unmodifiableSet(this.wantedTiles.keySet());
+    }
+
+    /** Cancels all requests that have not run and stops the prefetcher's thread. */
+    public void dispose()
+    {
+        this.wantedTiles = Collections.emptyMap();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Samples the view's motion and, at most every 100 milliseconds, predicts the tiles the view is about to need and
+     * requests those not already in memory. Call once per frame.
+     *
+     * @param dc the current draw context.
+     *
+     * @throws IllegalArgumentException if the draw context is null.
+     */
+    public void update(DrawContext dc)
+    {
+        if (dc == null)
+        {
+            String message = Logging.getMessage("nullValue.DrawContextIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        View view = dc.getView();
+        Globe globe = dc.getGlobe();
+        if (view == null || globe == null || this.executor.isShutdown())
+            return;
+
+        Vec4 eyePoint = view.getEyePoint();
+        Vec4 centerPoint = view.getCenterPoint();
+        if (eyePoint == null)
+            return;
+        if (centerPoint == null)
+            centerPoint = eyePoint;
+
+        long time = dc.getFrameTimeStamp();
+        this.updateVelocity(eyePoint, centerPoint, time);
+
+        if (time - this.lastPredictionTime < MIN_PREDICTION_INTERVAL)
+            return;
+        this.lastPredictionTime = time;
+
+        Vec4 eyeMotion = this.eyeVelocity.multiply3(this.lookAheadTime);
+        Vec4 centerMotion = this.centerVelocity.multiply3(this.lookAheadTime);
+        double eyeDistance = eyePoint.distanceTo3(centerPoint);
+        if (Math.max(eyeMotion.getLength3(), centerMotion.getLength3()) < MIN_MOTION * Math.max(eyeDistance, 1))
+        {
+            this.setWantedTiles(Collections.<TileKey, Double>emptyMap());
+            return;
+        }
+
+        Map<TileKey, Double> tiles = this.predictTiles(globe, view, eyePoint.add3(eyeMotion),
+            centerPoint.add3(centerMotion));
+        this.setWantedTiles(tiles);
+        this.requestTiles(dc, tiles);
+    }
+
+    protected void updateVelocity(Vec4 eyePoint, Vec4 centerPoint, long time)
+    {
+        long dt = time - this.lastSampleTime;
+        if (this.lastEyePoint == null || dt > MAX_SAMPLE_INTERVAL)
+        {
+            this.eyeVelocity = Vec4.ZERO;
+            this.centerVelocity = Vec4.ZERO;
+        }
+        else if (dt > 0)
+        {
+            // Smooth the velocity over the last few frames to suppress jitter in the frame times.
+            Vec4 eyeVelocity = eyePoint.subtract3(this.lastEyePoint).divide3(dt);
+            Vec4 centerVelocity = centerPoint.subtract3(this.lastCenterPoint).divide3(dt);
+            this.eyeVelocity = this.eyeVelocity.add3(eyeVelocity).divide3(2);
+            this.centerVelocity = this.centerVelocity.add3(centerVelocity).divide3(2);
+        }
+        else
+        {
+            return;
+        }
+
+        this.lastEyePoint = eyePoint;
+        this.lastCenterPoint = centerPoint;
+        this.lastSampleTime = time;
+    }
+
+    /**
+     * Computes the tiles that cover a predicted view, and their prefetch priorities.
+     *
+     * @param globe       the globe.
+     * @param view        the current view, whose field of view is assumed to remain the same.
+     * @param eyePoint    the predicted eye point.
+     * @param centerPoint the predicted center point.
+     *
+     * @return the tiles of the prediction, mapped to their priorities. At most the maximum number of tiles, nearest the
+     *         predicted center, are returned.
+     */
+    protected Map<TileKey, Double> predictTiles(Globe globe, View view, Vec4 eyePoint, Vec4 centerPoint)
+    {
+        LevelSet levels = this.client.getLevels();
+        double eyeDistance = Math.max(eyePoint.distanceTo3(centerPoint), 1);
+
+        Position center = globe.computePositionFromPoint(centerPoint);
+        double radius = eyeDistance * Math.max(view.getFieldOfView().tanHalfAngle(), 0.1) * 1.5;
+        Sector region = Sector.boundingSector(globe, center, radius).intersection(levels.getSector());
+        if (region == null)
+            return Collections.emptyMap();
+
+        // Select the level whose texel size satisfies the predicted eye distance, as TiledImageLayer does.
+        double texelSize = eyeDistance * Math.pow(10, -this.detailFactor) / globe.getRadius();
+        Level level = null;
+        for (Level l : levels.getLevels())
+        {
+            if (l.isEmpty())
+                continue;
+            level = l;
+            if (l.getTexelSize() <= texelSize)
+                break;
+        }
+        if (level == null)
+            return Collections.emptyMap();
+
+        // Include the parent level, which serves as the fallback while the predicted level's tiles are loaded.
+        List<TileKey> keys = new ArrayList<TileKey>();
+        List<Double> distances = new ArrayList<Double>();
+        this.addTiles(levels, level, region, center, globe, keys, distances);
+        if (level.getLevelNumber() > 0 && !levels.isLevelEmpty(level.getLevelNumber() - 1))
+            this.addTiles(levels, levels.getLevel(level.getLevelNumber() - 1), region, center, globe, keys, distances);
+
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        final List<Double> d = distances;
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return Double.compare(d.get(a), d.get(b));
+            }
+        });
+
+        Map<TileKey, Double> tiles = new HashMap<TileKey, Double>();
+        for (int i = 0; i < Math.min(order.length, this.maxTiles); i++)
+        {
+            tiles.put(keys.get(order[i]), PRIORITY_OFFSET + distances.get(order[i]));
+        }
+
+        return tiles;
+    }
+
+    protected void addTiles(LevelSet levels, Level level, Sector region, LatLon center, Globe globe,
+        List<TileKey> keys, List<Double> distances)
+    {
+        LatLon delta = level.getTileDelta();
+        LatLon origin = levels.getTileOrigin();
+        int firstRow = Tile.computeRow(delta.getLatitude(), region.getMinLatitude(), origin.getLatitude());
+        int lastRow = Tile.computeRow(delta.getLatitude(), region.getMaxLatitude(), origin.getLatitude());
+        int firstCol = Tile.computeColumn(delta.getLongitude(), region.getMinLongitude(), origin.getLongitude());
+        int lastCol = Tile.computeColumn(delta.getLongitude(), region.getMaxLongitude(), origin.getLongitude());
+
+        // Avoid enumerating a huge region; the nearest tiles are taken from a window around the center.
+        int centerRow = Tile.computeRow(delta.getLatitude(), center.getLatitude(), origin.getLatitude());
+        int centerCol = Tile.computeColumn(delta.getLongitude(), center.getLongitude(), origin.getLongitude());
+        int halfWindow = (int) Math.ceil(Math.sqrt(this.maxTiles));
+        firstRow = Math.max(firstRow, centerRow - halfWindow);
+        lastRow = Math.min(lastRow, centerRow + halfWindow);
+        firstCol = Math.max(firstCol, centerCol - halfWindow);
+        lastCol = Math.min(lastCol, centerCol + halfWindow);
+
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            for (int col = firstCol; col <= lastCol; col++)
+            {
+                TileKey key = new TileKey(level.getLevelNumber(), row, col, level.getCacheName());
+                Sector sector = levels.computeSectorForKey(key);
+                keys.add(key);
+                distances.add(LatLon.greatCircleDistance(center, sector.getCentroid()).radians * globe.getRadius());
+            }
+        }
+    }
+
+    /**
+     * Replaces the current prediction. Requests for tiles no longer predicted are cancelled when they reach the head of
+     * the request queue.
+     *
+     * @param tiles the tiles of the new prediction.
+     */
+    protected void setWantedTiles(Map<TileKey, Double> tiles)
+    {
+        for (Iterator<Map.Entry<TileKey, Long>> iter = this.requestedTiles.entrySet().iterator(); iter.hasNext(); )
+        {
+            Map.Entry<TileKey, Long> entry = iter.next();
+            if (!tiles.containsKey(entry.getKey()))
+            {
+                this.prefetchedBytes.addAndGet(-entry.getValue());
+                iter.remove();
+            }
+        }
+
+        this.wantedTiles = tiles;
+    }
+
+    protected void requestTiles(DrawContext dc, Map<TileKey, Double> tiles)
+    {
+        for (Map.Entry<TileKey, Double> entry : tiles.entrySet())
+        {
+            TileKey key = entry.getKey();
+            if (this.requestedTiles.containsKey(key) || this.queuedTiles.contains(key))
+                continue;
+
+            if (!this.client.isPrefetchNeeded(dc, key))
+                continue;
+
+            this.queuedTiles.add(key);
+            try
+            {
+                this.executor.execute(new PrefetchTask(key, entry.getValue()));
+            }
+            catch (RejectedExecutionException e)
+            {
+                this.queuedTiles.remove(key); // the prefetcher has been disposed
+            }
+        }
+    }
+
+    /**
+     * Requests one tile, unless it is no longer predicted or the prefetcher's limits defer it. Deferred tiles are
+     * requested again by a later prediction that still includes them.
+     *
+     * @param key      the tile's key.
+     * @param priority the tile's priority.
+     */
+    protected void prefetchTile(TileKey key, double priority)
+    {
+        this.queuedTiles.remove(key);
+
+        if (!this.wantedTiles.containsKey(key))
+            return; // cancelled by a change of trajectory
+
+        if (this.prefetchedBytes.get() >= this.maxCacheShare * this.client.getMemoryCacheCapacity())
+            return;
+
+        if (WorldWind.getRetrievalService().getNumRetrieversPending() > this.maxPendingRetrievals)
+            return;
+
+        // Space requests evenly to respect the maximum request rate.
+        long now = System.currentTimeMillis();
+        long wait = this.nextRequestTime - now;
+        this.nextRequestTime = Math.max(now, this.nextRequestTime) + (long) (1000 / this.maxRequestsPerSecond);
+        if (wait > 0)
+        {
+            try
+            {
+                Thread.sleep(wait);
+            }
+            catch (InterruptedException e)
+            {
+                return; // the prefetcher has been disposed
+            }
+
+            if (!this.wantedTiles.containsKey(key))
+                return;
+        }
+
+        long bytes = this.client.prefetchTile(key, priority);
+
+        this.requestedTiles.put(key, bytes);
+        this.prefetchedBytes.addAndGet(bytes);
+    }
+
+    protected class PrefetchTask implements Runnable, Comparable<PrefetchTask>
+    {
+        protected final TileKey key;
+        protected final double priority;
+
+        public PrefetchTask(TileKey key, double priority)
+        {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        public void run()
+        {
+            try
+            {
+                prefetchTile(this.key, this.priority);
+            }
+            catch (Exception e)
+            {
+                Logging.logger().log(java.util.logging.Level.FINE,
+                    Logging.getMessage("TilePrefetcher.ExceptionPrefetchingTile", this.key), e);
+            }
+        }
+
+        public int compareTo(PrefetchTask that)
+        {
+            return Double.compare(this.priority, that.priority);
+        }
+    }
+}
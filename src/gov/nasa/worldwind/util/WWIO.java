@@ -505,8 +505,14 @@ public class WWIO
         InputStream is = null;
         try
         {
-            is = url.openStream();
-            return readStreamToBuffer(is, allocateDirect);
+            URLConnection connection = url.openConnection();
+            is = connection.getInputStream();
+
+            if (is instanceof FileInputStream)
+                return readChannelToBuffer(((FileInputStream) is).getChannel(), allocateDirect);
+
+            // Size the buffer from the Content-Length, if the connection reports one.
+            return readChannelToBuffer(Channels.newChannel(is), connection.getContentLengthLong(), allocateDirect);
         }
         finally
         {
@@ -851,7 +857,9 @@ public class WWIO
             throw new IllegalArgumentException(message);
         }
 
-        ReadableByteChannel channel = Channels.newChannel(inputStream);
+        // A file stream's channel reports its size, which lets the buffer be allocated once.
+        ReadableByteChannel channel = inputStream instanceof FileInputStream
+            ? ((FileInputStream) inputStream).getChannel() : Channels.newChannel(inputStream);
         return readChannelToBuffer(channel, allocateDirect);
     }
 
@@ -904,24 +912,142 @@ public class WWIO
             throw new IllegalArgumentException(message);
         }
 
-        final int PAGE_SIZE = (int) Math.round(Math.pow(2, 16));
-        ByteBuffer buffer = WWBufferUtil.newByteBuffer(PAGE_SIZE, allocateDirect);
+        return readChannelToBuffer(channel, -1, allocateDirect);
+    }
+
+    /**
+     * Reads all the available bytes from the specified {@link java.nio.channels.ReadableByteChannel}, returning the
+     * bytes as a {@link ByteBuffer} with the current JVM byte order. The expected length, such as the Content-Length of
+     * an HTTP response, lets the result be allocated once and filled in place. If the channel is a {@link FileChannel}
+     * its remaining size is used instead. When neither is known, the channel is read into a list of chunks of
+     * increasing size, which are copied once into the result when the channel is exhausted. Each byte is therefore
+     * copied at most once, regardless of the content length.
+     * <p/>
+     * The expected length is only a hint. The returned buffer's limit is the number of bytes actually read.
+     *
+     * @param channel        the channel to read.
+     * @param expectedLength the expected number of bytes, or a negative number if the length is not known.
+     * @param allocateDirect true to allocate and return a direct buffer, false to allocate and return a non-direct
+     *                       buffer.
+     *
+     * @return the bytes from the specified channel, with the current JVM byte order.
+     *
+     * @throws IllegalArgumentException if the channel is null.
+     * @throws IOException              if an I/O error occurs.
+     */
+    public static ByteBuffer readChannelToBuffer(ReadableByteChannel channel, long expectedLength,
+        boolean allocateDirect) throws IOException
+    {
+        if (channel == null)
+        {
+            String message = Logging.getMessage("nullValue.ChannelIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (channel instanceof FileChannel)
+        {
+            FileChannel fc = (FileChannel) channel;
+            expectedLength = fc.size() - fc.position();
+        }
+
+        if (expectedLength > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("generic.SizeOutOfRange", expectedLength);
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        if (expectedLength >= 0)
+        {
+            ByteBuffer buffer = WWBufferUtil.newByteBuffer((int) expectedLength, allocateDirect);
+
+            int count = 0;
+            while (count >= 0 && buffer.hasRemaining())
+            {
+                count = channel.read(buffer);
+            }
+            buffer.flip();
+
+            if (count < 0 || channel instanceof FileChannel)
+                return buffer;
+
+            // The expected length may be too small. Probe for more content before assuming the channel is exhausted.
+            ByteBuffer probe = ByteBuffer.allocate(1);
+            while ((count = channel.read(probe)) == 0)
+            {
+                // Wait for the channel to either deliver a byte or signal its end.
+            }
+
+            if (count < 0)
+                return buffer;
+
+            probe.flip();
+            chunks.add(buffer);
+            chunks.add(probe);
+        }
+
+        return readChannelChunks(channel, chunks, allocateDirect);
+    }
+
+    /**
+     * Reads the remainder of a channel into chunks of doubling size, up to a maximum chunk size, then copies the chunks
+     * into a single buffer. This avoids re-copying the content each time a single growing buffer would fill.
+     *
+     * @param channel        the channel to read.
+     * @param chunks         bytes already read from the channel, in order. The list is appended to.
+     * @param allocateDirect true to allocate a direct buffer for the result.
+     *
+     * @return the assembled bytes.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected static ByteBuffer readChannelChunks(ReadableByteChannel channel, List<ByteBuffer> chunks,
+        boolean allocateDirect) throws IOException
+    {
+        final int MIN_CHUNK_SIZE = 1 << 16;
+        final int MAX_CHUNK_SIZE = 1 << 24;
+
+        long totalSize = 0;
+        for (ByteBuffer chunk : chunks)
+        {
+            totalSize += chunk.remaining();
+        }
 
+        int chunkSize = MIN_CHUNK_SIZE;
         int count = 0;
         while (count >= 0)
         {
-            count = channel.read(buffer);
-            if (count > 0 && !buffer.hasRemaining())
+            ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+            while (chunk.hasRemaining() && (count = channel.read(chunk)) >= 0)
             {
-                ByteBuffer biggerBuffer = allocateDirect ? ByteBuffer.allocateDirect(buffer.limit() + PAGE_SIZE)
-                    : ByteBuffer.allocate(buffer.limit() + PAGE_SIZE);
-                biggerBuffer.put((ByteBuffer) buffer.rewind());
-                buffer = biggerBuffer;
+                // Keep reading until the chunk is full or the channel is exhausted.
             }
+
+            chunk.flip();
+            if (chunk.hasRemaining())
+            {
+                chunks.add(chunk);
+                totalSize += chunk.remaining();
+            }
+
+            chunkSize = Math.min(chunkSize << 1, MAX_CHUNK_SIZE);
         }
 
-        if (buffer != null)
-            buffer.flip();
+        if (totalSize > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("generic.SizeOutOfRange", totalSize);
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        ByteBuffer buffer = WWBufferUtil.newByteBuffer((int) totalSize, allocateDirect);
+        for (ByteBuffer chunk : chunks)
+        {
+            buffer.put(chunk);
+        }
+        buffer.flip();
 
         return buffer;
     }
@@ -11,6 +11,7 @@ import gov.nasa.worldwind.avlist.*;
 import gov.nasa.worldwind.exception.WWRuntimeException;
 import gov.nasa.worldwind.geom.*;
 import gov.nasa.worldwind.render.*;
+import gov.nasa.worldwind.util.xml.XMLCursorEventReader;
 import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
@@ -388,6 +389,44 @@ public class WWXML
         return openEventReaderStream(inputStream, true);
     }
 
+    /**
+     * Opens an XML event stream given an input stream, and a namespace-aware processing mode. The returned reader reads
+     * the stream through the StAX cursor API, and does not return events for white space. See {@link
+     * XMLCursorEventReader}.
+     *
+     * @param inputStream      an XML document as an input stream.
+     * @param isNamespaceAware true to enable namespace-aware processing and false to disable it.
+     *
+     * @return an XMLCursorEventReader for the stream content.
+     *
+     * @throws IllegalArgumentException if the input stream is null.
+     * @throws WWRuntimeException       if an exception or error occurs while parsing the stream. The causing exception
+     *                                  is included in this exception's {@link Throwable#initCause(Throwable)}
+     */
+    public static XMLCursorEventReader openCursorEventReaderStream(InputStream inputStream, boolean isNamespaceAware)
+    {
+        if (inputStream == null)
+        {
+            String message = Logging.getMessage("nullValue.InputStreamIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, isNamespaceAware);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        try
+        {
+            return new XMLCursorEventReader(inputFactory.createXMLStreamReader(inputStream));
+        }
+        catch (XMLStreamException e)
+        {
+            String message = Logging.getMessage("generic.ExceptionAttemptingToParseXml", inputStream);
+            throw new WWRuntimeException(message, e);
+        }
+    }
+
     /**
      * Opens an XML event stream given the file's location in the file system or on the classpath.
      *
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util.xml;
+
+import gov.nasa.worldwind.util.Logging;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.*;
+import javax.xml.stream.events.*;
+import java.util.*;
+
+/**
+ * An {@link XMLEventReader} that reads a document through the StAX cursor API, {@link XMLStreamReader}. Events are
+ * created only for the tokens that are returned. Character data consisting entirely of white space is skipped at the
+ * cursor without creating events, since parser contexts discard it (see {@link BasicXMLEventParserContext#nextEvent()}).
+ * <p/>
+ * Parsers that read large amounts of character data, such as KML coordinates, may read it directly from the cursor
+ * rather than through character events. See {@link #isCursorAt(XMLEvent)} and {@link #nextCharacters()}.
+ */
+public class XMLCursorEventReader implements XMLEventReader
+{
+    protected XMLStreamReader reader;
+    protected XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+    /** The event most recently returned by {@link #nextEvent()}, or null if none has been returned. */
+    protected XMLEvent lastEvent;
+    /** The event returned by {@link #peek()} but not yet by {@link #nextEvent()}. */
+    protected XMLEvent peekedEvent;
+    /** Indicates whether the cursor's current token has been returned as an event. */
+    protected boolean consumed;
+    /** The number of elements nested within the element whose content {@link #nextCharacters()} is reading. */
+    protected int nestedDepth;
+
+    /**
+     * Creates an event reader for a stream reader. The stream reader must be positioned at the start of the document.
+     *
+     * @param reader the stream reader to read.
+     *
+     * @throws IllegalArgumentException if the reader is null.
+     */
+    public XMLCursorEventReader(XMLStreamReader reader)
+    {
+        if (reader == null)
+        {
+            String message = Logging.getMessage("nullValue.ReaderIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the stream reader this event reader reads. The stream reader's current token is valid only while {@link
+     * #nextCharacters()} returns true.
+     *
+     * @return the stream reader.
+     */
+    public XMLStreamReader getStreamReader()
+    {
+        return this.reader;
+    }
+
+    public boolean hasNext()
+    {
+        try
+        {
+            return this.peekedEvent != null || !this.consumed || this.reader.hasNext();
+        }
+        catch (XMLStreamException e)
+        {
+            return false;
+        }
+    }
+
+    public XMLEvent nextEvent() throws XMLStreamException
+    {
+        if (this.peekedEvent != null)
+        {
+            this.lastEvent = this.peekedEvent;
+            this.peekedEvent = null;
+            return this.lastEvent;
+        }
+
+        if (!this.advance())
+            throw new NoSuchElementException();
+
+        this.lastEvent = this.createEvent();
+        this.consumed = true;
+
+        return this.lastEvent;
+    }
+
+    public XMLEvent peek() throws XMLStreamException
+    {
+        if (this.peekedEvent == null && this.advance())
+        {
+            this.peekedEvent = this.createEvent();
+            this.consumed = true;
+        }
+
+        return this.peekedEvent;
+    }
+
+    public Object next()
+    {
+        try
+        {
+            return this.nextEvent();
+        }
+        catch (XMLStreamException e)
+        {
+            NoSuchElementException nse = new NoSuchElementException(e.getMessage());
+            nse.initCause(e);
+            throw nse;
+        }
+    }
+
+    public String getElementText() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder();
+
+        for (XMLEvent event = this.nextEvent(); !event.isEndElement(); event = this.nextEvent())
+        {
+            if (event.isCharacters())
+                sb.append(event.asCharacters().getData());
+        }
+
+        return sb.toString();
+    }
+
+    public XMLEvent nextTag() throws XMLStreamException
+    {
+        for (XMLEvent event = this.nextEvent(); ; event = this.nextEvent())
+        {
+            if (event.isStartElement() || event.isEndElement())
+                return event;
+        }
+    }
+
+    public Object getProperty(String name)
+    {
+        return this.reader.getProperty(name);
+    }
+
+    public void close() throws XMLStreamException
+    {
+        this.reader.close();
+    }
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Indicates whether the cursor is positioned at an event most recently returned by {@link #nextEvent()}, with no
+     * events peeked since. {@link #nextCharacters()} may be used to read the content of the element only when this
+     * returns true for the element's start event.
+     *
+     * @param event the event to test.
+     *
+     * @return true if the cursor is positioned at the event, otherwise false.
+     */
+    public boolean isCursorAt(XMLEvent event)
+    {
+        return event != null && event == this.lastEvent && this.peekedEvent == null;
+    }
+
+    /**
+     * Advances the cursor to the next run of character data within the element whose start event was most recently
+     * returned by {@link #nextEvent()}. The character data is then available from the stream reader's {@link
+     * XMLStreamReader#getTextCharacters()}, {@link XMLStreamReader#getTextStart()} and {@link
+     * XMLStreamReader#getTextLength()}. Character data of nested elements is included. When the element's end tag is
+     * reached it is consumed as though returned by <code>nextEvent</code>.
+     *
+     * @return true if the cursor is positioned at character data, false if the element's end has been reached.
+     *
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    public boolean nextCharacters() throws XMLStreamException
+    {
+        while (this.reader.hasNext())
+        {
+            int eventType = this.reader.next();
+
+            if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+                || eventType == XMLStreamConstants.SPACE)
+            {
+                return true;
+            }
+            else if (eventType == XMLStreamConstants.START_ELEMENT)
+            {
+                this.nestedDepth++;
+            }
+            else if (eventType == XMLStreamConstants.END_ELEMENT && this.nestedDepth-- == 0)
+            {
+                this.nestedDepth = 0;
+                this.lastEvent = null;
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves the cursor to the next token to return as an event, skipping white space.
+     *
+     * @return true if the cursor is positioned at a token to return, false if the document has been fully read.
+     *
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    protected boolean advance() throws XMLStreamException
+    {
+        if (!this.consumed)
+            return true;
+
+        while (this.reader.hasNext())
+        {
+            this.reader.next();
+
+            if (!this.reader.isWhiteSpace())
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates an event for the cursor's current token.
+     *
+     * @return an event for the current token.
+     *
+     * @throws XMLStreamException if the token's content cannot be read.
+     */
+    protected XMLEvent createEvent() throws XMLStreamException
+    {
+        XMLStreamReader r = this.reader;
+        this.eventFactory.setLocation(r.getLocation());
+
+        switch (r.getEventType())
+        {
+            case XMLStreamConstants.START_ELEMENT:
+                return this.eventFactory.createStartElement(nonNull(r.getPrefix()), nonNull(r.getNamespaceURI()),
+                    r.getLocalName(), this.createAttributes(), this.createNamespaces());
+            case XMLStreamConstants.END_ELEMENT:
+                return this.eventFactory.createEndElement(nonNull(r.getPrefix()), nonNull(r.getNamespaceURI()),
+                    r.getLocalName());
+            case XMLStreamConstants.CHARACTERS:
+                return this.eventFactory.createCharacters(r.getText());
+            case XMLStreamConstants.CDATA:
+                return this.eventFactory.createCData(r.getText());
+            case XMLStreamConstants.SPACE:
+                return this.eventFactory.createSpace(r.getText());
+            case XMLStreamConstants.COMMENT:
+                return this.eventFactory.createComment(r.getText());
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                return this.eventFactory.createProcessingInstruction(r.getPITarget(), r.getPIData());
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                return this.eventFactory.createEntityReference(r.getLocalName(), null);
+            case XMLStreamConstants.DTD:
+                return this.eventFactory.createDTD(r.getText());
+            case XMLStreamConstants.START_DOCUMENT:
+                return r.getVersion() != null
+                    ? this.eventFactory.createStartDocument(nonNull(r.getCharacterEncodingScheme()), r.getVersion())
+                    : this.eventFactory.createStartDocument();
+            case XMLStreamConstants.END_DOCUMENT:
+                return this.eventFactory.createEndDocument();
+            default:
+                String message = Logging.getMessage("XML.UnrecognizedEventType", r.getEventType());
+                Logging.logger().severe(message);
+                throw new XMLStreamException(message, r.getLocation());
+        }
+    }
+
+    protected Iterator<Attribute> createAttributes()
+    {
+        int count = this.reader.getAttributeCount();
+        if (count == 0)
+            return Collections.<Attribute>emptyList().iterator();
+
+        List<Attribute> attributes = new ArrayList<Attribute>(count);
+        for (int i = 0; i < count; i++)
+        {
+            attributes.add(this.eventFactory.createAttribute(nonNull(this.reader.getAttributePrefix(i)),
+                nonNull(this.reader.getAttributeNamespace(i)), this.reader.getAttributeLocalName(i),
+                this.reader.getAttributeValue(i)));
+        }
+
+        return attributes.iterator();
+    }
+
+    protected Iterator<Namespace> createNamespaces()
+    {
+        int count = this.reader.getNamespaceCount();
+        if (count == 0)
+            return Collections.<Namespace>emptyList().iterator();
+
+        List<Namespace> namespaces = new ArrayList<Namespace>(count);
+        for (int i = 0; i < count; i++)
+        {
+            String prefix = this.reader.getNamespacePrefix(i);
+            String uri = nonNull(this.reader.getNamespaceURI(i));
+            namespaces.add(prefix != null && prefix.length() > 0 ? this.eventFactory.createNamespace(prefix, uri)
+                : this.eventFactory.createNamespace(uri));
+        }
+
+        return namespaces.iterator();
+    }
+
+    protected static String nonNull(String s)
+    {
+        return s != null ? s : XMLConstants.NULL_NS_URI;
+    }
+}
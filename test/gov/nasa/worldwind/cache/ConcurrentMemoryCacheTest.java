@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.cache;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ConcurrentMemoryCacheTest
+{
+    /** Tests that exceeding the capacity evicts the least recently used entries down to the low water level. */
+    @Test
+    public void testEvictionToLowWater()
+    {
+        ConcurrentMemoryCache cache = new ConcurrentMemoryCache(60, 100, 4);
+
+        for (int i = 0; i < 10; i++)
+        {
+            cache.add(i, "value" + i, 10);
+        }
+        assertEquals("Used capacity incorrect ", 100, cache.getUsedCapacity());
+
+        // Touch the oldest entry so that it survives the eviction.
+        assertNotNull(cache.getObject(0));
+
+        cache.add(10, "value10", 10);
+        assertTrue("Used capacity above capacity ", cache.getUsedCapacity() <= cache.getCapacity());
+        // The cache evicts down to the low water level before the new entry is added.
+        assertEquals("Used capacity incorrect after eviction ", 70, cache.getUsedCapacity());
+        assertTrue("Recently used entry evicted ", cache.contains(0));
+        assertTrue("Added entry evicted ", cache.contains(10));
+        assertFalse("Least recently used entry not evicted ", cache.contains(1));
+    }
+
+    /** Tests that replacing an entry notifies listeners and keeps the used capacity consistent. */
+    @Test
+    public void testReplacement()
+    {
+        ConcurrentMemoryCache cache = new ConcurrentMemoryCache(80, 100);
+        final List<Object> removed = new ArrayList<Object>();
+        cache.addCacheListener(new MemoryCache.CacheListener()
+        {
+            public void entryRemoved(Object key, Object clientObject)
+            {
+                removed.add(clientObject);
+            }
+
+            public void removalException(Throwable exception, Object key, Object clientObject)
+            {
+            }
+        });
+
+        cache.add("a", "first", 10);
+        cache.add("a", "second", 20);
+
+        assertEquals("Replaced entry not reported ", Arrays.asList((Object) "first"), removed);
+        assertEquals("Used capacity incorrect ", 20, cache.getUsedCapacity());
+        assertEquals("Replacement not returned ", "second", cache.getObject("a"));
+
+        cache.clear();
+        assertEquals("Cache not empty ", 0, cache.getNumObjects());
+        assertEquals("Used capacity not zero ", 0, cache.getUsedCapacity());
+        assertEquals("Cleared entry not reported ", 2, removed.size());
+    }
+
+    /** Tests that hits, misses, replacements and capacity evictions are counted. */
+    @Test
+    public void testStatistics()
+    {
+        ConcurrentMemoryCache cache = new ConcurrentMemoryCache(20, 40, 2);
+
+        cache.add("a", "a", 10);
+        cache.add("a", "a", 10);
+        cache.getObject("a");
+        cache.getObject("b");
+        for (int i = 0; i < 4; i++)
+        {
+            cache.add(i, i, 10);
+        }
+
+        CacheStatistics stats = cache.getStatistics();
+        assertEquals("Hit count incorrect ", 1, stats.getHitCount());
+        assertEquals("Miss count incorrect ", 1, stats.getMissCount());
+        assertEquals("Add count incorrect ", 6, stats.getAddCount());
+        assertEquals("Replacement count incorrect ", 1, stats.getReplacementEvictionCount());
+        assertEquals("Capacity eviction count incorrect ", 2, stats.getCapacityEvictionCount());
+        assertEquals("Evicted size incorrect ", 20, stats.getEvictedSize());
+        assertEquals("Make space count incorrect ", 1, stats.getMakeSpaceCount());
+        assertTrue("Make space time not recorded ", stats.getMakeSpaceTimeP99() >= stats.getMakeSpaceTimeP50());
+
+        stats.reset();
+        assertEquals("Counters not reset ", 0, stats.getEvictionCount() + stats.getAddCount());
+    }
+
+    /** Tests that concurrent adds and removals leave the used capacity equal to the sum of the cached entries. */
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final ConcurrentMemoryCache cache = new ConcurrentMemoryCache(5000, 10000, 8);
+        final AtomicInteger removals = new AtomicInteger();
+        cache.addCacheListener(new MemoryCache.CacheListener()
+        {
+            public void entryRemoved(Object key, Object clientObject)
+            {
+                removals.incrementAndGet();
+            }
+
+            public void removalException(Throwable exception, Object key, Object clientObject)
+            {
+            }
+        });
+
+        int numThreads = 8;
+        final int numOps = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < numThreads; t++)
+        {
+            final int seed = t;
+            futures.add(executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < numOps; i++)
+                    {
+                        int key = random.nextInt(2000);
+                        if (random.nextInt(10) == 0)
+                            cache.remove(key);
+                        else if (cache.getObject(key) == null)
+                            cache.add(key, key, 1 + random.nextInt(20));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue("Used capacity above capacity ", cache.getUsedCapacity() <= cache.getCapacity());
+        assertTrue("No entries evicted ", removals.get() > 0);
+
+        cache.clear();
+        assertEquals("Used capacity inconsistent ", 0, cache.getUsedCapacity());
+    }
+}
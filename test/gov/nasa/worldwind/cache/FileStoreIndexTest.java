@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.WWIO;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class FileStoreIndexTest
+{
+    protected File location;
+    protected FileStoreIndex index;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.location = File.createTempFile("FileStoreIndexTest", "");
+        assertTrue(this.location.delete());
+        assertTrue(new File(this.location, "a/b").mkdirs());
+        WWIO.writeTextFile("existing", new File(this.location, "a/b/existing.txt"));
+
+        this.index = new FileStoreIndex();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        this.index.dispose();
+        WWIO.deleteDirectory(this.location);
+        this.location.delete();
+    }
+
+    /** Tests that files present when the location is walked are found without creating them again. */
+    @Test
+    public void testIndexLocation()
+    {
+        assertFalse("Location indexed before walk ", this.index.isLocationIndexed(this.location));
+
+        this.index.indexLocation(this.location);
+
+        assertTrue("Location not indexed ", this.index.isLocationIndexed(this.location));
+        assertTrue("Existing file not found ", this.index.contains(new File(this.location, "a/b/existing.txt")));
+        assertTrue("Non-normalized path not found ",
+            this.index.contains(new File(this.location.getPath() + "//a/b/existing.txt")));
+        assertFalse("Absent file found ", this.index.contains(new File(this.location, "a/b/absent.txt")));
+    }
+
+    /** Tests that created files are reported only once they exist, and that removed files are not reported. */
+    @Test
+    public void testCreateAndRemove()
+    {
+        this.index.indexLocation(this.location);
+
+        File file = new File(this.location, "a/b/new.txt");
+        this.index.fileCreated(file);
+        assertFalse("Unwritten file found ", this.index.contains(file));
+
+        WWIO.writeTextFile("new", file);
+        assertTrue("Written file not found ", this.index.contains(file));
+
+        this.index.fileRemoved(file);
+        assertFalse("Removed file found ", this.index.contains(file));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.data.*;
+import gov.nasa.worldwind.exception.WWRuntimeException;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.awt.*;
+import java.io.File;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class MemoryBudgetTest
+{
+    /** Tests that reservations fit within the budget, and that released memory can be reserved again. */
+    @Test
+    public void testReserveAndRelease()
+    {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        assertTrue("Reservation failed ", budget.tryReserve(60));
+        assertFalse("Reservation exceeded budget ", budget.tryReserve(50));
+        assertEquals("Used incorrect ", 60, budget.getUsed());
+
+        budget.release(60);
+        assertTrue("Reservation failed after release ", budget.tryReserve(50));
+        assertFalse("Reservation larger than budget ", budget.tryReserve(101));
+        assertEquals("Available incorrect ", 50, budget.getAvailable());
+    }
+
+    /** Tests that reservations which do not fit ask the reclaimer to free memory. */
+    @Test
+    public void testReclaim()
+    {
+        final MemoryBudget budget = new MemoryBudget(100);
+        budget.setReclaimer(new MemoryBudget.Reclaimer()
+        {
+            public long reclaim(long bytes)
+            {
+                budget.release(bytes);
+                return bytes;
+            }
+        });
+
+        assertTrue("Reservation failed ", budget.tryReserve(80));
+        assertTrue("Reservation not reclaimed ", budget.tryReserve(50));
+        assertEquals("Used incorrect ", 100, budget.getUsed());
+    }
+
+    /** Tests that reservations wait for memory to be released, and give up after the timeout. */
+    @Test
+    public void testReserveWaits() throws Exception
+    {
+        final MemoryBudget budget = new MemoryBudget(100);
+        assertTrue("Reservation failed ", budget.tryReserve(80));
+        assertFalse("Reservation did not time out ", budget.reserve(50, 50));
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            executor.schedule(new Runnable()
+            {
+                public void run()
+                {
+                    budget.release(80);
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+
+            assertTrue("Reservation not made after release ", budget.reserve(50, 10000));
+            assertEquals("Used incorrect ", 50, budget.getUsed());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /** Tests that the raster server cache accounts for its entries and evicts the cheapest to reload first. */
+    @Test
+    public void testCacheEvictsByCost()
+    {
+        BasicRasterServerCache cache = new BasicRasterServerCache(1024);
+        MemoryBudget budget = cache.getMemoryBudget();
+        budget.setCapacity(1000);
+
+        cache.add("expensive", "expensive", 400, 1000000L);
+        cache.add("cheap", "cheap", 400, 400L);
+        assertEquals("Used incorrect ", 800, budget.getUsed());
+
+        assertTrue("Reservation failed ", budget.tryReserve(300));
+        assertTrue("Expensive entry evicted ", cache.contains("expensive"));
+        assertFalse("Cheap entry not evicted ", cache.contains("cheap"));
+        assertEquals("Used incorrect ", 700, budget.getUsed());
+
+        cache.clear();
+        assertEquals("Used incorrect after clear ", 300, budget.getUsed());
+    }
+
+    /** Tests that rasters whose memory cannot be reserved are read a window at a time, or fail without reading. */
+    @Test
+    public void testCachedDataRasterBudget() throws Exception
+    {
+        BasicRasterServerCache cache = new BasicRasterServerCache(1024);
+        MemoryBudget budget = cache.getMemoryBudget();
+        budget.setCapacity(4L * 512 * 512);
+
+        // Leave room for a window, but not the entire raster.
+        long unavailable = budget.getCapacity() - 100000L;
+        assertTrue("Reservation failed ", budget.tryReserve(unavailable));
+
+        GeotiffRasterReader reader = new GeotiffRasterReader();
+        File file = new File("testData/sba_rgb_wgs84_512x512.tif");
+        CachedDataRaster raster = new CachedDataRaster(file, reader.readMetadata(file, null), reader, cache);
+        raster.setReservationTimeout(50);
+
+        BufferedImageRaster canvas = new BufferedImageRaster(64, 64, Transparency.TRANSLUCENT, raster.getSector());
+        raster.drawOnTo(canvas);
+        assertTrue("Window not drawn ", (canvas.getBufferedImage().getRGB(32, 32) >>> 24) != 0);
+        assertFalse("Raster cached ", cache.contains(file));
+        assertEquals("Window memory not released ", unavailable, budget.getUsed());
+
+        // A source which cannot be read a window at a time fails rather than running out of memory.
+        File jpeg = new File("testData/sba_rgb_nogeo_512x512.jpg");
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.SECTOR, raster.getSector());
+        DataRasterReader imageReader = new ImageIORasterReader();
+        imageReader.readMetadata(jpeg, params);
+        CachedDataRaster imageRaster = new CachedDataRaster(jpeg, params, imageReader, cache);
+        imageRaster.setReservationTimeout(50);
+        try
+        {
+            imageRaster.getSubRaster(64, 64, raster.getSector(), null);
+            fail("Raster read beyond budget");
+        }
+        catch (WWRuntimeException e)
+        {
+            assertEquals("Memory not released ", unavailable, budget.getUsed());
+        }
+
+        // Once memory is available the entire raster is read and cached, and accounted for by the cache.
+        budget.release(unavailable);
+        raster.drawOnTo(canvas);
+        assertTrue("Raster not cached ", cache.contains(file));
+        assertEquals("Cached raster not accounted ", cache.getUsedCapacity(), budget.getUsed());
+
+        // A cached raster is drawn without waiting for memory, even when the budget is exhausted. The raster may be
+        // accounted at more than the budget's capacity, which leaves none available.
+        long used = budget.getUsed();
+        long available = budget.getAvailable();
+        budget.forceReserve(available);
+        raster.setReservationTimeout(10000);
+        long start = System.nanoTime();
+        raster.drawOnTo(canvas);
+        long elapsed = System.nanoTime() - start;
+        // The cache drops its entries when the garbage collector needs memory, in which case the raster cannot be read
+        // again with the budget exhausted.
+        Assume.assumeTrue(cache.contains(file));
+        assertTrue("Cached raster waited for memory ", elapsed < TimeUnit.SECONDS.toNanos(5));
+        assertEquals("Memory reserved for cached raster ", used + available, budget.getUsed());
+    }
+}
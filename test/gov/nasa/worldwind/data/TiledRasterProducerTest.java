@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.data;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.util.WWIO;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.beans.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class TiledRasterProducerTest
+{
+    protected static final String IMAGE_SOURCE = "testData/sba_rgb_wgs84_512x512.tif";
+    protected static final String ELEVATION_SOURCE = "testData/sba_elev32_wgs84_512x512.tif";
+
+    protected File tempDir;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        this.tempDir = Files.createTempDirectory("TiledRasterProducerTest").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        WWIO.deleteDirectory(this.tempDir);
+    }
+
+    /** Tests that composing tiles concurrently produces the same tiles as composing them on one thread. */
+    @Test
+    public void testConcurrentProductionMatchesSequential() throws Exception
+    {
+        Map<String, byte[]> expected = this.produce(new TiledImageProducer(), IMAGE_SOURCE, "sequential", 1, null);
+        final List<Object> messages = Collections.synchronizedList(new ArrayList<Object>());
+        Map<String, byte[]> actual = this.produce(new TiledImageProducer(), IMAGE_SOURCE, "concurrent", 4,
+            new PropertyChangeListener()
+            {
+                public void propertyChange(PropertyChangeEvent event)
+                {
+                    if (AVKey.PROGRESS_MESSAGE.equals(event.getPropertyName()))
+                        messages.add(event.getNewValue());
+                }
+            });
+
+        assertTilesEqual(expected, actual);
+        assertFalse("No level progress reported ", messages.isEmpty());
+    }
+
+    /**
+     * Tests that composing elevation tiles concurrently produces the same tiles and the same extreme elevations as
+     * composing them on one thread.
+     */
+    @Test
+    public void testConcurrentElevationProductionMatchesSequential() throws Exception
+    {
+        TiledElevationProducer sequential = new TiledElevationProducer();
+        Map<String, byte[]> expected = this.produce(sequential, ELEVATION_SOURCE, "sequential", 1, null);
+        TiledElevationProducer concurrent = new TiledElevationProducer();
+        Map<String, byte[]> actual = this.produce(concurrent, ELEVATION_SOURCE, "concurrent", 4, null);
+
+        assertTilesEqual(expected, actual);
+        assertNotNull("Extremes not computed ", sequential.extremes);
+        assertArrayEquals("Extremes differ ", sequential.extremes, concurrent.extremes, 0d);
+    }
+
+    protected static void assertTilesEqual(Map<String, byte[]> expected, Map<String, byte[]> actual)
+    {
+        assertFalse("No tiles produced ", expected.isEmpty());
+        assertEquals("Tiles produced differ ", expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet())
+        {
+            assertArrayEquals("Tile differs " + entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    protected Map<String, byte[]> produce(TiledRasterProducer producer, String source, String name,
+        int threadPoolSize, PropertyChangeListener listener) throws Exception
+    {
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.FILE_STORE_LOCATION, this.tempDir.getAbsolutePath());
+        params.setValue(AVKey.DATA_CACHE_NAME, name);
+        params.setValue(AVKey.DATASET_NAME, name);
+        params.setValue(AVKey.TILED_RASTER_PRODUCER_THREAD_POOL_SIZE, threadPoolSize);
+
+        if (listener != null)
+            producer.addPropertyChangeListener(listener);
+        producer.setStoreParameters(params);
+        producer.offerDataSource(new File(source), null);
+        producer.startProduction();
+
+        Map<String, byte[]> tiles = new TreeMap<String, byte[]>();
+        File root = new File(this.tempDir, name);
+        this.collectTiles(root, root, tiles);
+
+        return tiles;
+    }
+
+    protected void collectTiles(File root, File dir, Map<String, byte[]> tiles) throws IOException
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        for (File file : files)
+        {
+            if (file.isDirectory())
+                this.collectTiles(root, file, tiles);
+            else if (!file.getName().endsWith(".xml"))
+                tiles.put(root.toURI().relativize(file.toURI()).getPath(), Files.readAllBytes(file.toPath()));
+        }
+    }
+}
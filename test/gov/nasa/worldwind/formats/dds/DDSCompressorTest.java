@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.formats.dds;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class DDSCompressorTest
+{
+    protected ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.pool.shutdown();
+    }
+
+    /** Tests that compressing concurrently produces the same bytes as compressing on one thread. */
+    @Test
+    public void testConcurrentCompressionMatchesSequential()
+    {
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR};
+        int[] formats = {0, DDSConstants.D3DFMT_DXT1, DDSConstants.D3DFMT_DXT3};
+
+        for (int type : types)
+        {
+            BufferedImage image = createImage(512, 256, type);
+
+            for (int format : formats)
+            {
+                for (boolean buildMipmaps : new boolean[] {true, false})
+                {
+                    DXTCompressionAttributes attributes = DDSCompressor.getDefaultCompressionAttributes();
+                    attributes.setDXTFormat(format);
+                    attributes.setEnableDXT1Alpha(true);
+                    attributes.setBuildMipmaps(buildMipmaps);
+
+                    assertEquals("Compressed bytes differ for type " + type + " and format " + format,
+                        this.compress(image, attributes, null), this.compress(image, attributes, this.pool));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSpeed()
+    {
+        for (int size : new int[] {512, 2048})
+        {
+            BufferedImage image = createImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            DXTCompressionAttributes attributes = DDSCompressor.getDefaultCompressionAttributes();
+
+            for (ForkJoinPool pool : new ForkJoinPool[] {null, this.pool})
+            {
+                long start = System.nanoTime();
+                this.compress(image, attributes, pool);
+                double elapsed = (System.nanoTime() - start) / 1e6;
+                System.out.printf("Compressed %d x %d image %s in %f millis\n", size, size,
+                    pool != null ? "concurrently" : "sequentially", elapsed);
+            }
+        }
+    }
+
+    protected ByteBuffer compress(BufferedImage image, DXTCompressionAttributes attributes, ForkJoinPool pool)
+    {
+        DDSCompressor compressor = new DDSCompressor();
+        compressor.setCompressionPool(pool);
+
+        ByteBuffer buffer = compressor.compressImage(image, attributes);
+        assertEquals("Buffer not filled ", buffer.capacity(), buffer.remaining());
+
+        return buffer;
+    }
+
+    protected static BufferedImage createImage(int width, int height, int type)
+    {
+        // Smooth gradients with noise and transparent regions exercise each of the block compression paths.
+        Random random = new Random(width + height + type);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                int a = (x / 32 + y / 32) % 3 == 0 ? random.nextInt(256) : 255;
+                int r = (255 * x / width + random.nextInt(16)) & 0xFF;
+                int g = (255 * y / height + random.nextInt(16)) & 0xFF;
+                int b = random.nextInt(256);
+                image.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
+            }
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.shapefile;
+
+import gov.nasa.worldwind.WorldWind;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.util.WWIO;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.*;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ShapefilePolygonsTest
+{
+    private static final String STATE_BOUNDS_PATH = "testData/shapefiles/state_bounds.shp";
+
+    //////////////////////////////////////////////////////////
+    // Test Geometry Persistence
+    //////////////////////////////////////////////////////////
+
+    @Test
+    public void testPersistGeometry() throws Exception
+    {
+        Shapefile shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+        File file = null;
+        try
+        {
+            ShapefilePolygons polygons = new ShapefilePolygons(shapefile);
+            polygons.setPersistGeometry(true);
+
+            // The top level tile covering the western United States.
+            ShapefilePolygons.ShapefileGeometry expected = createGeometry(polygons);
+            String path = polygons.composeGeometryPath(expected);
+            assertNotNull("Geometry path is null", path);
+
+            polygons.tessellate(expected);
+            polygons.writeGeometry(expected, path);
+
+            URL url = WorldWind.getDataFileStore().findFile(path, false);
+            assertNotNull("Geometry not persisted", url);
+            file = WWIO.convertURLToFile(url);
+
+            ShapefilePolygons.ShapefileGeometry actual = createGeometry(polygons);
+            assertTrue("Geometry not read", polygons.readGeometry(actual, path));
+            assertGeometryEquals(expected, actual);
+
+            // Geometry persisted with another file version or record count is rejected.
+            int recordCount = polygons.getRecordCount();
+            overwriteInt(file, 0, ShapefilePolygons.GEOMETRY_FILE_VERSION + 1);
+            assertFalse("Geometry read with wrong version", polygons.readGeometry(createGeometry(polygons), path));
+
+            overwriteInt(file, 0, ShapefilePolygons.GEOMETRY_FILE_VERSION);
+            overwriteInt(file, 4, recordCount + 1);
+            assertFalse("Geometry read with wrong record count", polygons.readGeometry(createGeometry(polygons), path));
+
+            overwriteInt(file, 4, recordCount);
+            assertTrue("Geometry not read", polygons.readGeometry(createGeometry(polygons), path));
+        }
+        finally
+        {
+            shapefile.close();
+
+            if (file != null)
+                file.delete();
+        }
+    }
+
+    @Test
+    public void testGeometryPathRequiresPersistence()
+    {
+        Shapefile shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+        try
+        {
+            ShapefilePolygons polygons = new ShapefilePolygons(shapefile);
+            assertNull("Geometry path composed without persistence", polygons.composeGeometryPath(
+                createGeometry(polygons)));
+
+            polygons.setPersistGeometry(true);
+            String path = polygons.composeGeometryPath(createGeometry(polygons));
+            assertNotNull("Geometry path is null", path);
+            assertEquals("Geometry path not stable", path, polygons.composeGeometryPath(createGeometry(polygons)));
+        }
+        finally
+        {
+            shapefile.close();
+        }
+    }
+
+    //////////////////////////////////////////////////////////
+    // Utilities
+    //////////////////////////////////////////////////////////
+
+    private static ShapefilePolygons.ShapefileGeometry createGeometry(ShapefilePolygons polygons)
+    {
+        double resolution = Angle.fromDegrees(45).radians / 512;
+        return new ShapefilePolygons.ShapefileGeometry(polygons, Sector.fromDegrees(0, 45, -135, -90), resolution);
+    }
+
+    private static void overwriteInt(File file, long position, int value) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.seek(position);
+            raf.writeInt(value);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    private static void assertGeometryEquals(ShapefilePolygons.ShapefileGeometry expected,
+        ShapefilePolygons.ShapefileGeometry actual)
+    {
+        assertTrue("Geometry has no vertices", expected.vertexCount > 0);
+        assertEquals("Vertex count not as expected", expected.vertexCount, actual.vertexCount);
+        assertEquals("Vertex stride not as expected", expected.vertexStride, actual.vertexStride);
+        assertEquals("Vertex offset not as expected", expected.vertexOffset, actual.vertexOffset);
+        assertEquals("Vertices not as expected", expected.vertices, actual.vertices);
+
+        assertEquals("Record count not as expected", expected.recordIndices.size(), actual.recordIndices.size());
+        for (int i = 0; i < expected.recordIndices.size(); i++)
+        {
+            ShapefilePolygons.RecordIndices expectedIndices = expected.recordIndices.get(i);
+            ShapefilePolygons.RecordIndices actualIndices = actual.recordIndices.get(i);
+            assertEquals("Record ordinal not as expected", expectedIndices.ordinal, actualIndices.ordinal);
+            assertEquals("Vertex range not as expected", expectedIndices.vertexRange.location,
+                actualIndices.vertexRange.location);
+            assertEquals("Vertex range not as expected", expectedIndices.vertexRange.length,
+                actualIndices.vertexRange.length);
+            assertEquals("Interior indices not as expected", expectedIndices.interiorIndices,
+                actualIndices.interiorIndices);
+            assertEquals("Outline indices not as expected", expectedIndices.outlineIndices,
+                actualIndices.outlineIndices);
+        }
+    }
+}
@@ -8,14 +8,15 @@ package gov.nasa.worldwind.formats.shapefile;
 import gov.nasa.worldwind.avlist.*;
 import gov.nasa.worldwind.exception.WWRuntimeException;
 import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.render.*;
 import gov.nasa.worldwind.util.*;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
-import java.io.File;
+import java.io.*;
 import java.net.*;
-import java.util.Arrays;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -201,10 +202,302 @@ public class ShapefileTest
         shapefile.close();
     }
 
+    //////////////////////////////////////////////////////////
+    // Test Random Access
+    //////////////////////////////////////////////////////////
+
+    @Test
+    public void testRecordIndicesInSector()
+    {
+        Sector[] sectors = new Sector[] {
+            Sector.fromDegrees(37, 42, -125, -110),
+            Sector.fromDegrees(30, 32, -90, -85),
+            Sector.fromDegrees(-10, 10, 0, 10),
+            Sector.FULL_SPHERE};
+
+        Shapefile shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+        try
+        {
+            assertTrue("Shapefile does not support random access", shapefile.isRandomAccess());
+
+            // Read the records' bounds sequentially to find the intersecting records without the spatial index.
+            ArrayList<Sector> recordSectors = new ArrayList<Sector>();
+            while (shapefile.hasNext())
+            {
+                ShapefileRecord record = shapefile.nextRecord();
+                recordSectors.add(Sector.fromDegrees(record.getBoundingRectangle()));
+            }
+
+            for (Sector sector : sectors)
+            {
+                ArrayList<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < recordSectors.size(); i++)
+                {
+                    if (recordSectors.get(i).intersects(sector))
+                        expected.add(i);
+                }
+
+                assertEquals("Records in sector not as expected", expected, shapefile.getRecordIndices(sector));
+            }
+        }
+        finally
+        {
+            shapefile.close();
+        }
+    }
+
+    @Test
+    public void testReadRecordsInAnyOrder()
+    {
+        Shapefile sequential = new Shapefile(new File(STATE_BOUNDS_PATH));
+        Shapefile randomAccess = new Shapefile(new File(STATE_BOUNDS_PATH));
+        try
+        {
+            ArrayList<Integer> indices = new ArrayList<Integer>();
+            for (int i = randomAccess.getNumberOfRecords() - 1; i >= 0; i -= 3)
+            {
+                indices.add(i);
+            }
+
+            ArrayList<ShapefileRecord> records = new ArrayList<ShapefileRecord>();
+            for (ShapefileRecord record : randomAccess.getRecords(indices))
+            {
+                assertNotSame("Record not read into a record set", randomAccess, record.getShapeFile());
+                records.add(record);
+            }
+
+            ShapefileRecord[] expected = new ShapefileRecord[randomAccess.getNumberOfRecords()];
+            for (int i = 0; sequential.hasNext(); i++)
+            {
+                expected[i] = sequential.nextRecord();
+            }
+
+            assertEquals("Number of records not as expected", indices.size(), records.size());
+            for (int i = 0; i < indices.size(); i++)
+            {
+                assertRecordsEqual(expected[indices.get(i)], records.get(i));
+            }
+
+            assertRecordsEqual(expected[1], randomAccess.readRecord(1));
+        }
+        finally
+        {
+            sequential.close();
+            randomAccess.close();
+        }
+    }
+
+    @Test
+    public void testReadRecordRequiresRandomAccess() throws Exception
+    {
+        Shapefile shapefile = new Shapefile(new FileInputStream(STATE_BOUNDS_PATH),
+            new FileInputStream(WWIO.replaceSuffix(STATE_BOUNDS_PATH, ".shx")), null,
+            new FileInputStream(WWIO.replaceSuffix(STATE_BOUNDS_PATH, ".prj")));
+        try
+        {
+            assertFalse("Shapefile read from a stream supports random access", shapefile.isRandomAccess());
+            shapefile.readRecord(0);
+            fail("Record read without random access");
+        }
+        catch (IllegalStateException e)
+        {
+            // Expected.
+        }
+        finally
+        {
+            shapefile.close();
+        }
+    }
+
+    @Test
+    public void testReadRecordsFromMappedWindows()
+    {
+        // Map the Shapefile in windows smaller than the file, but large enough to hold its largest record.
+        Shapefile sequential = new Shapefile(new File(STATE_BOUNDS_PATH));
+        Shapefile windowed = new Shapefile(new File(STATE_BOUNDS_PATH))
+        {
+            @Override
+            protected long getMaxMappedLength()
+            {
+                return 2500000;
+            }
+        };
+        try
+        {
+            assertNull("Shapefile mapped into one buffer", windowed.mappedShpBuffer);
+            assertTrue("Shapefile not mapped in windows", windowed.mappedShpWindows.length > 1);
+            assertTrue("Shapefile does not support random access", windowed.isRandomAccess());
+
+            ArrayList<ShapefileRecord> expected = new ArrayList<ShapefileRecord>();
+            while (sequential.hasNext())
+            {
+                expected.add(sequential.nextRecord());
+            }
+
+            ArrayList<Integer> indices = new ArrayList<Integer>();
+            for (int i = windowed.getNumberOfRecords() - 1; i >= 0; i--)
+            {
+                indices.add(i);
+            }
+
+            int i = 0;
+            for (ShapefileRecord record : windowed.getRecords(indices))
+            {
+                assertRecordsEqual(expected.get(indices.get(i++)), record);
+            }
+
+            assertEquals("Number of records not as expected", expected.size(), i);
+            assertRecordsEqual(expected.get(0), windowed.readRecord(0));
+            assertEquals("Records in sector not as expected", sequential.getRecordIndices(Sector.FULL_SPHERE),
+                windowed.getRecordIndices(Sector.FULL_SPHERE));
+        }
+        finally
+        {
+            sequential.close();
+            windowed.close();
+        }
+    }
+
+    @Test
+    public void testDeferredAttributeDecoding()
+    {
+        String path = WWIO.replaceSuffix(WORLD_BORDERS_PATH, ".dbf");
+        DBaseFile sequential = new DBaseFile(new File(path));
+        DBaseFile randomAccess = new DBaseFile(new File(path));
+        try
+        {
+            assertTrue("DBase file does not support random access", randomAccess.isRandomAccess());
+
+            DBaseField[] fields = randomAccess.getFields();
+            for (int i = 0; sequential.hasNext(); i++)
+            {
+                DBaseRecord expected = sequential.nextRecord();
+                DBaseRecord actual = randomAccess.readRecord(i);
+
+                // Request the fields in reverse order, so that each is decoded independently of the fields before it.
+                for (int j = fields.length - 1; j >= 0; j--)
+                {
+                    assertEquals("Attribute not as expected", expected.getValue(fields[j].getName()),
+                        actual.getValue(fields[j].getName()));
+                }
+
+                assertEquals("Attributes not as expected", expected.getEntries(), actual.getEntries());
+            }
+        }
+        finally
+        {
+            sequential.close();
+            randomAccess.close();
+        }
+    }
+
+    //////////////////////////////////////////////////////////
+    // Test Record Paging
+    //////////////////////////////////////////////////////////
+
+    @Test
+    public void testPageRecords() throws Exception
+    {
+        Shapefile shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+        shapefile.setValue(AVKey.SHAPEFILE_PAGE_RECORDS, true);
+        try
+        {
+            // Assign each record's ID attribute as it's paged in, which decodes the attribute on the rendering thread.
+            ShapefilePolylines polylines = new ShapefilePolylines(shapefile, null, null,
+                new ShapefileRenderable.AttributeDelegate()
+                {
+                    public void assignAttributes(ShapefileRecord shapefileRecord,
+                        ShapefileRenderable.Record renderableRecord)
+                    {
+                        renderableRecord.setValue("ID", shapefileRecord.getAttributes().getValue("ID"));
+                    }
+                });
+            assertTrue("Records not paged", polylines.isPagingRecords());
+            assertEquals("Records read before a page is requested", 0, polylines.getRecordCount());
+
+            Sector[] visibleSectors = new Sector[] {
+                Sector.fromDegrees(37, 42, -125, -110),
+                Sector.fromDegrees(30, 32, -90, -85)};
+
+            for (Sector visibleSector : visibleSectors)
+            {
+                DrawContext dc = new DrawContextImpl();
+                dc.setVisibleSector(visibleSector);
+                awaitPage(polylines, dc);
+
+                Sector pageSector = polylines.getPageSector();
+                assertTrue("Page does not contain the visible sector", pageSector.contains(visibleSector));
+
+                List<Integer> indices = shapefile.getRecordIndices(pageSector);
+                assertEquals("Number of records not as expected", indices.size(), polylines.getRecordCount());
+
+                for (int i = 0; i < indices.size(); i++)
+                {
+                    ShapefileRecord expected = shapefile.readRecord(indices.get(i));
+                    ShapefileRenderable.Record actual = polylines.getRecord(i);
+                    assertEquals("Record sector not as expected", Sector.fromDegrees(expected.getBoundingRectangle()),
+                        actual.getSector());
+                    assertEquals("Record attributes not as expected", expected.getAttributes().getValue("ID"),
+                        actual.getValue("ID"));
+                }
+            }
+        }
+        finally
+        {
+            shapefile.close();
+        }
+    }
+
+    private static void awaitPage(ShapefileRenderable renderable, DrawContext dc) throws InterruptedException
+    {
+        // The page is read on a task service thread, and swapped in by the first call to pageRecords after it's read.
+        long end = System.currentTimeMillis() + 10000;
+        do
+        {
+            renderable.pageRecords(dc);
+            if (renderable.pageRequest == null && renderable.getPageSector() != null
+                && renderable.getPageSector().contains(dc.getVisibleSector()))
+                return;
+
+            Thread.sleep(5);
+        }
+        while (System.currentTimeMillis() < end);
+
+        fail("Page not read");
+    }
+
     //////////////////////////////////////////////////////////
     // Utilities
     //////////////////////////////////////////////////////////
 
+    public static void assertRecordsEqual(ShapefileRecord expected, ShapefileRecord actual)
+    {
+        assertEquals("Record number not as expected", expected.getRecordNumber(), actual.getRecordNumber());
+        assertEquals("Record type not as expected", expected.getShapeType(), actual.getShapeType());
+        assertArrayEquals("Record bounds not as expected", expected.getBoundingRectangle(),
+            actual.getBoundingRectangle(), 0);
+        assertEquals("Record num parts not as expected", expected.getNumberOfParts(), actual.getNumberOfParts());
+
+        for (int i = 0; i < expected.getNumberOfParts(); i++)
+        {
+            Iterator<double[]> actualCoords = actual.getPointBuffer(i).getCoords().iterator();
+            for (double[] coord : expected.getPointBuffer(i).getCoords())
+            {
+                assertArrayEquals("Record point not as expected", coord, actualCoords.next(), 0);
+            }
+
+            assertFalse("Record has too many points", actualCoords.hasNext());
+        }
+
+        // The random access record's attributes are decoded as they're requested.
+        DBaseRecord expectedAttrs = expected.getAttributes();
+        DBaseRecord actualAttrs = actual.getAttributes();
+        assertEquals("Record attributes not as expected", expectedAttrs.getValue("ID"),
+            actualAttrs.getValue("ID"));
+        assertEquals("Record attributes not as expected", expectedAttrs.getEntries(), actualAttrs.getEntries());
+    }
+
+
     public static void assertShapefileAppearsNormal(Shapefile shapefile)
     {
         double[] rect = shapefile.getBoundingRectangle();
@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.formats.tiff;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.cache.BasicMemoryCache;
+import gov.nasa.worldwind.data.*;
+import gov.nasa.worldwind.geom.Sector;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.imageio.*;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.tiff.*;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class GeotiffReaderTest
+{
+    protected static final Rectangle[] WINDOWS = {new Rectangle(0, 0, 512, 512), new Rectangle(100, 37, 150, 201),
+        new Rectangle(500, 500, 50, 50), new Rectangle(-20, 400, 100, 200)};
+
+    protected File tempFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        this.tempFile = File.createTempFile("GeotiffReaderTest", ".tif");
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.tempFile.delete();
+    }
+
+    /** Tests that windows of striped images match the corresponding pixels of the entire image. */
+    @Test
+    public void testWindowsMatchEntireImage() throws IOException
+    {
+        String[] paths = {"testData/sba_rgb_wgs84_512x512.tif", "testData/elev16_wgs84_512x512.tif",
+            "testData/sba_elev32_wgs84_512x512.tif"};
+
+        for (String path : paths)
+        {
+            GeotiffReader reader = new GeotiffReader(path);
+            try
+            {
+                DataRaster full = reader.readDataRaster(0);
+                for (Rectangle window : WINDOWS)
+                {
+                    for (int decimation : new int[] {1, 3})
+                    {
+                        DataRaster raster = reader.readDataRaster(0, window, decimation);
+                        assertWindowEquals(path, full, window.intersection(new Rectangle(0, 0, 512, 512)),
+                            decimation, raster);
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+    }
+
+    /** Tests that reading a sector reads the window of pixels covering it, and georeferences the result. */
+    @Test
+    public void testSectorWindow() throws IOException
+    {
+        GeotiffReader reader = new GeotiffReader("testData/sba_rgb_wgs84_512x512.tif");
+        try
+        {
+            Sector imageSector = (Sector) reader.copyMetadataTo(new AVListImpl()).getValue(AVKey.SECTOR);
+            Sector sector = Sector.fromDegrees(imageSector.getMinLatitude().degrees,
+                imageSector.getMinLatitude().degrees + imageSector.getDeltaLatDegrees() / 4,
+                imageSector.getMinLongitude().degrees + imageSector.getDeltaLonDegrees() / 2,
+                imageSector.getMaxLongitude().degrees + 10);
+
+            DataRaster raster = reader.readDataRaster(0, sector, 1);
+            assertEquals("Width incorrect ", 256, raster.getWidth());
+            assertEquals("Height incorrect ", 128, raster.getHeight());
+            assertWindowEquals("sector", reader.readDataRaster(0), new Rectangle(256, 384, 256, 128), 1, raster);
+            assertEquals("Sector incorrect ", imageSector.intersection(sector).getMinLongitude().degrees,
+                raster.getSector().getMinLongitude().degrees, 1e-9);
+            assertEquals("Sector incorrect ", imageSector.intersection(sector).getMaxLatitude().degrees,
+                raster.getSector().getMaxLatitude().degrees, 1e-9);
+
+            assertNull("Window outside image ", reader.readDataRaster(0, Sector.fromDegrees(0, 1, 0, 1), 1));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /** Tests windows of tiled and compressed images, and that overviews are used for decimated windows. */
+    @Test
+    public void testTiledCompressedImages() throws IOException
+    {
+        BufferedImage image = createImage(512, 512, new Random(1));
+        BufferedImage overview = createImage(256, 256, new Random(2));
+
+        String[] compressions = {null, "LZW", "Deflate"};
+        for (String compression : compressions)
+        {
+            for (boolean tiled : new boolean[] {true, false})
+            {
+                this.writeImage(image, overview, compression, tiled);
+
+                GeotiffReader reader = new GeotiffReader(this.tempFile);
+                try
+                {
+                    for (Rectangle window : WINDOWS)
+                    {
+                        Rectangle clipped = window.intersection(new Rectangle(0, 0, 512, 512));
+                        String message = compression + (tiled ? " tiled " : " striped ") + window;
+                        DataRaster raster = reader.readDataRaster(0, window, 1);
+                        assertImageEquals(message, image, clipped, 1, raster);
+
+                        // Decimations of 2 or more are read from the half resolution overview.
+                        Rectangle overviewWindow = new Rectangle(clipped.x / 2, clipped.y / 2,
+                            (clipped.x + clipped.width + 1) / 2 - clipped.x / 2,
+                            (clipped.y + clipped.height + 1) / 2 - clipped.y / 2);
+                        raster = reader.readDataRaster(0, window, 2);
+                        assertImageEquals(message + " overview", overview, overviewWindow, 1, raster);
+
+                        raster = reader.readDataRaster(0, window, 3);
+                        assertImageEquals(message + " overview", overview, overviewWindow, 1, raster);
+
+                        raster = reader.readDataRaster(0, window, 5);
+                        assertImageEquals(message + " overview", overview, overviewWindow, 2, raster);
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    /** Tests that readers sharing parsed headers read the same windows as the original reader, concurrently. */
+    @Test
+    public void testSharedHeaders() throws Exception
+    {
+        final String path = "testData/sba_elev32_wgs84_512x512.tif";
+        final GeotiffReader headers = new GeotiffReader(path);
+        final DataRaster full;
+        try
+        {
+            full = headers.readDataRaster(0);
+        }
+        finally
+        {
+            headers.close();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 16; i++)
+            {
+                final Rectangle window = WINDOWS[i % WINDOWS.length];
+                final int decimation = 1 + i % 3;
+                futures.add(executor.submit(new Callable<Object>()
+                {
+                    public Object call() throws Exception
+                    {
+                        GeotiffReader reader = new GeotiffReader(headers);
+                        try
+                        {
+                            assertWindowEquals(path, full, window.intersection(new Rectangle(0, 0, 512, 512)),
+                                decimation, reader.readDataRaster(0, window, decimation));
+                        }
+                        finally
+                        {
+                            reader.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Tests that rasters too large for the cache draw the same pixels when read a window at a time. */
+    @Test
+    public void testCachedDataRasterWindows() throws IOException
+    {
+        File file = new File("testData/sba_rgb_wgs84_512x512.tif");
+        GeotiffRasterReader reader = new GeotiffRasterReader();
+        AVList params = reader.readMetadata(file, null);
+
+        CachedDataRaster cached = new CachedDataRaster(file, params, reader, new BasicMemoryCache(1L << 26, 1L << 27));
+        CachedDataRaster windowed = new CachedDataRaster(file, params, reader, new BasicMemoryCache(1L << 10, 1L << 11));
+
+        Sector sector = cached.getSector();
+        Sector tileSector = Sector.fromDegrees(sector.getMinLatitude().degrees + sector.getDeltaLatDegrees() / 3,
+            sector.getMaxLatitude().degrees, sector.getMinLongitude().degrees - sector.getDeltaLonDegrees() / 4,
+            sector.getMinLongitude().degrees + sector.getDeltaLonDegrees() / 2);
+
+        // A full resolution window draws the same pixels as the entire image.
+        BufferedImageRaster expected = new BufferedImageRaster(300, 300, Transparency.TRANSLUCENT, tileSector);
+        BufferedImageRaster actual = new BufferedImageRaster(300, 300, Transparency.TRANSLUCENT, tileSector);
+        cached.drawOnTo(expected);
+        windowed.drawOnTo(actual);
+        assertEquals("Tile differs ", 0, meanDifference(expected.getBufferedImage(), actual.getBufferedImage()), 0);
+
+        // A decimated window samples different pixels than drawing the entire image, so compare blocks of pixels.
+        expected = new BufferedImageRaster(64, 64, Transparency.TRANSLUCENT, tileSector);
+        actual = new BufferedImageRaster(64, 64, Transparency.TRANSLUCENT, tileSector);
+        cached.drawOnTo(expected);
+        windowed.drawOnTo(actual);
+        assertEquals("Tile differs ", 0, meanDifference(blur(expected.getBufferedImage()),
+            blur(actual.getBufferedImage())), 4);
+    }
+
+    protected void writeImage(BufferedImage image, BufferedImage overview, String compression, boolean tiled)
+        throws IOException
+    {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        this.tempFile.delete();
+        ImageOutputStream output = ImageIO.createImageOutputStream(this.tempFile);
+        try
+        {
+            writer.setOutput(output);
+            writer.prepareWriteSequence(null);
+
+            for (BufferedImage img : new BufferedImage[] {image, overview})
+            {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (tiled)
+                {
+                    param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setTiling(96, 64, 0, 0);
+                }
+                if (compression != null)
+                {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionType(compression);
+                }
+
+                IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(img), param);
+                TIFFDirectory dir = TIFFDirectory.createFromMetadata(metadata);
+                BaselineTIFFTagSet tags = BaselineTIFFTagSet.getInstance();
+                if (img == overview)
+                {
+                    dir.addTIFFField(new TIFFField(tags.getTag(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE),
+                        TIFFTag.TIFF_LONG, 1, new long[] {BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION}));
+                }
+                if (compression != null)
+                {
+                    dir.addTIFFField(new TIFFField(tags.getTag(BaselineTIFFTagSet.TAG_PREDICTOR),
+                        BaselineTIFFTagSet.PREDICTOR_HORIZONTAL_DIFFERENCING));
+                }
+                if (!tiled)
+                {
+                    dir.addTIFFField(new TIFFField(tags.getTag(BaselineTIFFTagSet.TAG_ROWS_PER_STRIP), 7));
+                }
+
+                writer.writeToSequence(new IIOImage(img, null, dir.getAsMetadata()), param);
+            }
+
+            writer.endWriteSequence();
+        }
+        finally
+        {
+            output.close();
+            writer.dispose();
+        }
+    }
+
+    protected static BufferedImage createImage(int width, int height, Random random)
+    {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                // Gradients with noise exercise the predictor and compression.
+                int r = (x + random.nextInt(8)) & 0xFF;
+                int g = (y + random.nextInt(8)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | random.nextInt(256));
+            }
+        }
+
+        return image;
+    }
+
+    protected static void assertWindowEquals(String message, DataRaster full, Rectangle window, int decimation,
+        DataRaster raster)
+    {
+        if (full instanceof BufferedImageRaster)
+        {
+            assertImageEquals(message, ((BufferedImageRaster) full).getBufferedImage(), window, decimation, raster);
+            return;
+        }
+
+        ByteBufferRaster expected = (ByteBufferRaster) full;
+        ByteBufferRaster actual = (ByteBufferRaster) raster;
+        assertEquals(message + " width ", (window.width + decimation - 1) / decimation, actual.getWidth());
+        assertEquals(message + " height ", (window.height + decimation - 1) / decimation, actual.getHeight());
+        for (int y = 0; y < actual.getHeight(); y++)
+        {
+            for (int x = 0; x < actual.getWidth(); x++)
+            {
+                assertEquals(message + " elevation ", expected.getDoubleAtPosition(window.y + y * decimation,
+                    window.x + x * decimation), actual.getDoubleAtPosition(y, x), 0);
+            }
+        }
+    }
+
+    protected static void assertImageEquals(String message, BufferedImage image, Rectangle window, int decimation,
+        DataRaster raster)
+    {
+        BufferedImage actual = ((BufferedImageRaster) raster).getBufferedImage();
+        assertEquals(message + " width ", (window.width + decimation - 1) / decimation, actual.getWidth());
+        assertEquals(message + " height ", (window.height + decimation - 1) / decimation, actual.getHeight());
+        for (int y = 0; y < actual.getHeight(); y++)
+        {
+            for (int x = 0; x < actual.getWidth(); x++)
+            {
+                int expected = image.getRGB(window.x + x * decimation, window.y + y * decimation);
+                if (expected != actual.getRGB(x, y))
+                    fail(message + " pixel differs at " + x + ", " + y);
+            }
+        }
+    }
+
+    protected static BufferedImage blur(BufferedImage image)
+    {
+        BufferedImage blurred = new BufferedImage(image.getWidth() / 8, image.getHeight() / 8,
+            BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = blurred.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image.getScaledInstance(blurred.getWidth(), blurred.getHeight(), Image.SCALE_AREA_AVERAGING), 0,
+            0, null);
+        g.dispose();
+
+        return blurred;
+    }
+
+    protected static double meanDifference(BufferedImage a, BufferedImage b)
+    {
+        double sum = 0;
+        for (int y = 0; y < a.getHeight(); y++)
+        {
+            for (int x = 0; x < a.getWidth(); x++)
+            {
+                int p = a.getRGB(x, y);
+                int q = b.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8)
+                {
+                    sum += Math.abs(((p >> shift) & 0xFF) - ((q >> shift) & 0xFF));
+                }
+            }
+        }
+
+        return sum / (4.0 * a.getWidth() * a.getHeight());
+    }
+}
@@ -5,11 +5,15 @@
  */
 package gov.nasa.worldwind.globes;
 
+import gov.nasa.worldwind.avlist.AVKey;
 import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.projections.*;
 import org.junit.*;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.nio.FloatBuffer;
+
 import static org.junit.Assert.assertEquals;
 
 @RunWith(JUnit4.class)
@@ -318,4 +322,88 @@ public class EllipsoidalGlobeTest
             assertEquals(msg, 0, w.z, THRESHOLD);
         }
     }
+
+    @Test
+    public void testBulkTransformsMatchPerPoint()
+    {
+        double[] positions = makeBulkPositions(-89, 89, 20000);
+        assertBulkTransformsMatchPerPoint(this.globe, positions, false);
+        assertBulkTransformsMatchPerPoint(this.globe, positions, true);
+
+        // Points relative to a reference point, written to a buffer.
+        Vec4 referencePoint = this.globe.computePointFromPosition(Position.fromDegrees(30, -100, 0));
+        FloatBuffer buffer = FloatBuffer.allocate(positions.length + 3);
+        buffer.position(3);
+        this.globe.computePointsFromPositions(positions, positions.length / 3, referencePoint, buffer, true);
+        assertEquals("Buffer position changed", 3, buffer.position());
+
+        for (int i = 0; i < positions.length; i += 3)
+        {
+            Vec4 expected = this.globe.computePointFromPosition(
+                Position.fromDegrees(positions[i], positions[i + 1], positions[i + 2])).subtract3(referencePoint);
+            String msg = "At index " + i / 3;
+            assertEquals(msg, expected.x, buffer.get(i + 3), 1.0);
+            assertEquals(msg, expected.y, buffer.get(i + 4), 1.0);
+            assertEquals(msg, expected.z, buffer.get(i + 5), 1.0);
+        }
+    }
+
+    @Test
+    public void testFlatGlobeBulkTransformsMatchPerPoint()
+    {
+        GeographicProjection[] projections = new GeographicProjection[]
+            {
+                new ProjectionEquirectangular(), new ProjectionMercator(), new ProjectionSinusoidal(),
+                new ProjectionModifiedSinusoidal(), new ProjectionPolarEquidistant(AVKey.SOUTH),
+                new ProjectionTransverseMercator(Angle.fromDegrees(-100)), new ProjectionUTM(14),
+                new ProjectionUPS(AVKey.NORTH)
+            };
+
+        FlatGlobe flatGlobe = new EarthFlat();
+        for (GeographicProjection projection : projections)
+        {
+            flatGlobe.setProjection(projection);
+            Sector limits = projection.getProjectionLimits();
+            double[] positions = makeBulkPositions(Math.max(limits.getMinLatitude().degrees, -80),
+                Math.min(limits.getMaxLatitude().degrees, 80), 500);
+            assertBulkTransformsMatchPerPoint(flatGlobe, positions, false);
+        }
+    }
+
+    private static double[] makeBulkPositions(double minLat, double maxLat, int count)
+    {
+        double[] positions = new double[3 * count];
+        for (int i = 0; i < count; i++)
+        {
+            positions[3 * i] = minLat + (maxLat - minLat) * i / count;
+            positions[3 * i + 1] = -179 + (358.0 * ((i * 7919) % count)) / count;
+            positions[3 * i + 2] = (i % 100) * 50;
+        }
+
+        return positions;
+    }
+
+    private static void assertBulkTransformsMatchPerPoint(Globe globe, double[] positions, boolean parallel)
+    {
+        int count = positions.length / 3;
+        double[] points = new double[positions.length];
+        double[] roundTrip = new double[positions.length];
+        globe.computePointsFromPositions(positions, count, points, parallel);
+        globe.computePositionsFromPoints(points, count, roundTrip, parallel);
+
+        for (int i = 0; i < positions.length; i += 3)
+        {
+            String msg = globe + " at index " + i / 3;
+            Vec4 expected = globe.computePointFromPosition(
+                Position.fromDegrees(positions[i], positions[i + 1], positions[i + 2]));
+            assertEquals(msg, expected.x, points[i], 1.0e-6);
+            assertEquals(msg, expected.y, points[i + 1], 1.0e-6);
+            assertEquals(msg, expected.z, points[i + 2], 1.0e-6);
+
+            Position expectedPosition = globe.computePositionFromPoint(expected);
+            assertEquals(msg, expectedPosition.latitude.degrees, roundTrip[i], REQUIRED_PRECISION);
+            assertEquals(msg, expectedPosition.longitude.degrees, roundTrip[i + 1], REQUIRED_PRECISION);
+            assertEquals(msg, expectedPosition.elevation, roundTrip[i + 2], 1.0e-6);
+        }
+    }
 }
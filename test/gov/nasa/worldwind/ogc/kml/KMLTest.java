@@ -658,6 +658,116 @@ public class KMLTest
         assertEquals("Coordinates not as expected", coords, positions);
     }
 
+    /** Test that the incremental coordinate tokenizer matches the string tokenizer when input is split into runs. */
+    @Test
+    public void testCoordinatesTokenizerIncremental()
+    {
+        List<Position> coords = new ArrayList<Position>();
+        coords.add(Position.fromDegrees(23.56, -18.3, 9));
+        coords.add(Position.fromDegrees(56.0, 34.9, 2));
+        coords.add(Position.fromDegrees(19, 56.9));
+        coords.add(Position.fromDegrees(23.9, 90, 44));
+        coords.add(Position.fromDegrees(18, 12.3, 8));
+        coords.add(Position.fromDegrees(57, 3.3, -110.9));
+        coords.add(Position.fromDegrees(80.1, 50, -23.1));
+
+        char[] chars = ("-18.3,23.56,9     34.9, 56.0, 2     \t56.9, 19     90.0,23.9,44   "
+            + " 12.3,18,8,3.3,57,-110.9,50,80.1,-23.1").toCharArray();
+
+        KMLCoordinateTokenizer tokenizer = new KMLCoordinateTokenizer();
+        for (int i = 0; i < chars.length; i += 5)
+        {
+            tokenizer.tokenize(chars, i, Math.min(5, chars.length - i));
+        }
+
+        KMLCoordinateList list = tokenizer.getCoordinateList();
+        assertEquals("Coordinates not as expected", coords, list);
+        assertEquals("Longitude not as expected", -18.3, list.getLongitude(0), 0);
+    }
+
+    /** Test that coordinate values are parsed exactly as Double.parseDouble parses them. */
+    @Test
+    public void testCoordinatesNumberParsing()
+    {
+        List<String> values = new ArrayList<String>(Arrays.asList("0", "-0", "+1", "1.", ".5", "-122.0856545755255",
+            "37.42243077405461", "1e3", "2.5E-4", "0.000000000000000000000123", "12345678901234567890", "1e400",
+            "-1e-400", "NaN", "Infinity", "1d"));
+
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++)
+        {
+            double d = (random.nextDouble() - 0.5) * 360;
+            values.add(Double.toString(d));
+            values.add(String.format("%.6f", d));
+        }
+
+        for (String value : values)
+        {
+            assertEquals("Value not as expected " + value, Double.parseDouble(value),
+                KMLCoordinateTokenizer.parseDouble(value.toCharArray(), value.length()), 0);
+        }
+
+        for (String value : new String[] {"", "-", ".", "1e", "1,5", "a"})
+        {
+            try
+            {
+                KMLCoordinateTokenizer.parseDouble(value.toCharArray(), value.length());
+                fail("Value parsed " + value);
+            }
+            catch (NumberFormatException e)
+            {
+                // Expected.
+            }
+        }
+    }
+
+    /** Test that features are delivered to a feature listener instead of being retained by their containers. */
+    @Test
+    public void testFeatureListener() throws Exception
+    {
+        StringBuilder sb = this.newDocument();
+        sb.append("<Document>");
+        sb.append("<Style id=\"style\"><LineStyle><width>2</width></LineStyle></Style>");
+        sb.append("<Folder>");
+        sb.append("<Placemark id=\"first\"><styleUrl>#style</styleUrl>");
+        sb.append("<LineString><coordinates>1,2,3 4,5,6</coordinates></LineString></Placemark>");
+        sb.append("<Placemark><Point><coordinates>7,8</coordinates></Point></Placemark>");
+        sb.append("</Folder>");
+        sb.append("<Placemark><Point><coordinates>9,10,11</coordinates></Point></Placemark>");
+        sb.append("</Document>");
+        this.endDocument(sb);
+
+        final List<KMLAbstractFeature> features = new ArrayList<KMLAbstractFeature>();
+        KMLRoot root = new KMLRoot(WWIO.getInputStreamFromString(sb.toString()), KMLConstants.KML_MIME_TYPE);
+        root.setFeatureListener(new KMLFeatureListener()
+        {
+            public void featureParsed(KMLAbstractFeature feature)
+            {
+                features.add(feature);
+            }
+        });
+        root.parse();
+
+        KMLDocument document = (KMLDocument) root.getFeature();
+        assertEquals("Containers not retained", 1, document.getFeatures().size());
+        KMLFolder folder = (KMLFolder) document.getFeatures().get(0);
+        assertTrue("Features retained", folder.getFeatures().isEmpty());
+
+        assertEquals("Features not delivered", 3, features.size());
+        assertSame("Parent not as expected", folder, features.get(0).getParent());
+        assertSame("Parent not as expected", document, features.get(2).getParent());
+        assertNull("Delivered feature retained by ID", root.getItemByID("first"));
+        assertNotNull("Style not retained", root.getItemByID("style"));
+
+        KMLLineString lineString = (KMLLineString) ((KMLPlacemark) features.get(0)).getGeometry();
+        assertEquals("Coordinates not as expected",
+            Arrays.asList(Position.fromDegrees(2, 1, 3), Position.fromDegrees(5, 4, 6)),
+            lineString.getCoordinates().list);
+        assertTrue("Coordinates not read from cursor", lineString.getCoordinates().list instanceof KMLCoordinateList);
+        assertEquals("Point not as expected", Position.fromDegrees(8, 7),
+            ((KMLPoint) ((KMLPlacemark) features.get(1)).getGeometry()).getCoordinates());
+    }
+
     @Test
     public void testNestedUnrecognizedElement()
     {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class KMLResourceLoaderTest
+{
+    private static final long TIMEOUT = 10000;
+
+    /** Tests that pending requests start in priority order and that requests for the same address are merged. */
+    @Test
+    public void testPriorityAndMerging() throws Exception
+    {
+        KMLResourceLoader loader = new KMLResourceLoader(1, 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        assertTrue("Request not made ", loader.request("a", 0, new GatedTask("a", order, started, gate)));
+        assertTrue("Request not started ", started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        Runnable c1 = new GatedTask("c1", order, null, null);
+        loader.request("b", 1, new GatedTask("b", order, null, null));
+        loader.request("c", 3, c1);
+        loader.request("d", 2, new GatedTask("d", order, null, null));
+        assertFalse("Request not merged ", loader.request("c", 3, new GatedTask("c2", order, null, null)));
+        assertFalse("Request not merged ", loader.request("c", 3, c1));
+        assertEquals("Pending count incorrect ", 3, loader.getPendingRequestCount());
+
+        gate.countDown();
+        awaitCompletion(loader, 4);
+
+        assertEquals("Order incorrect ", Arrays.asList("a", "c1", "c2", "d", "b"), order);
+        assertEquals("Request count incorrect ", 6, loader.getRequestCount());
+        assertEquals("Merged count incorrect ", 2, loader.getMergedRequestCount());
+        assertTrue("Latency not recorded ", loader.getMaxLatency() > 0 && loader.getMeanLatency() > 0);
+    }
+
+    /** Tests that no more requests to a host run at once than the per-host limit. */
+    @Test
+    public void testHostLimit() throws Exception
+    {
+        KMLResourceLoader loader = new KMLResourceLoader(4, 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        loader.request("http://a.example.com/1.kml", 0, new GatedTask("a1", order, started, gate));
+        loader.request("http://A.example.com/2.kml", 0, new GatedTask("a2", order, started, gate));
+        loader.request("http://b.example.com/1.kml", 0, new GatedTask("b1", order, started, gate));
+        assertTrue("Requests not started ", started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        assertEquals("Active count incorrect ", 2, loader.getActiveRequestCount());
+        assertEquals("Pending count incorrect ", 1, loader.getPendingRequestCount());
+
+        gate.countDown();
+        awaitCompletion(loader, 3);
+
+        assertEquals("Host order incorrect ", "a2", order.get(2));
+    }
+
+    /** Tests that pending requests not renewed within the stale time are discarded. */
+    @Test
+    public void testStaleRequests() throws Exception
+    {
+        KMLResourceLoader loader = new KMLResourceLoader(1, 1);
+        loader.setStaleTime(50);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        loader.request("a", 0, new GatedTask("a", order, started, gate));
+        assertTrue("Request not started ", started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        loader.request("b", 0, new GatedTask("b", order, null, null));
+
+        Thread.sleep(200);
+        loader.request("c", 0, new GatedTask("c", order, null, null));
+        assertEquals("Dropped count incorrect ", 1, loader.getDroppedRequestCount());
+
+        gate.countDown();
+        awaitCompletion(loader, 2);
+
+        assertEquals("Order incorrect ", Arrays.asList("a", "c"), order);
+    }
+
+    /**
+     * Tests that a task waiting for a retrieval releases its thread but not its host slot, and runs again once the
+     * retrieval completes.
+     */
+    @Test
+    public void testDeferredRetrieval() throws Exception
+    {
+        final CompletableFuture<URL> retrieval = new CompletableFuture<URL>();
+        final KMLResourceLoader loader = new KMLResourceLoader(1, 1)
+        {
+            @Override
+            protected CompletableFuture<URL> requestRetrieval(String address, boolean cacheRemoteFile)
+            {
+                return retrieval;
+            }
+        };
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        loader.request("http://a.example.com/1.kml", 0, new Runnable()
+        {
+            public void run()
+            {
+                order.add("a1:" + loader.awaitRetrieval("http://a.example.com/1.dae", true));
+            }
+        });
+        loader.request("http://a.example.com/2.kml", 0, new GatedTask("a2", order, null, null));
+        loader.request("http://b.example.com/1.kml", 0, new GatedTask("b1", order, null, null));
+
+        // The deferred request releases the only thread to the other host, but holds its own host's slot.
+        awaitCompletion(loader, 1, 1);
+        assertEquals("Order incorrect ", Arrays.asList("a1:false", "b1"), order);
+        assertEquals("Pending count incorrect ", 1, loader.getPendingRequestCount());
+
+        retrieval.complete(new URL("file:/a.dae"));
+        awaitCompletion(loader, 3, 0);
+
+        assertEquals("Order incorrect ", Arrays.asList("a1:false", "b1", "a1:true", "a2"), order);
+    }
+
+    private static void awaitCompletion(KMLResourceLoader loader, int count) throws InterruptedException
+    {
+        awaitCompletion(loader, count, 0);
+    }
+
+    private static void awaitCompletion(KMLResourceLoader loader, int count, int active) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (loader.getCompletedRequestCount() < count && System.currentTimeMillis() < end)
+        {
+            Thread.sleep(5);
+        }
+
+        assertEquals("Completed count incorrect ", count, loader.getCompletedRequestCount());
+        assertEquals("Active count incorrect ", active, loader.getActiveRequestCount());
+    }
+
+    /** A task that records its name when it runs, then waits for a gate to open. */
+    private static class GatedTask implements Runnable
+    {
+        private final String name;
+        private final List<String> order;
+        private final CountDownLatch started;
+        private final CountDownLatch gate;
+
+        public GatedTask(String name, List<String> order, CountDownLatch started, CountDownLatch gate)
+        {
+            this.name = name;
+            this.order = order;
+            this.started = started;
+            this.gate = gate;
+        }
+
+        public void run()
+        {
+            this.order.add(this.name);
+
+            if (this.started != null)
+                this.started.countDown();
+
+            try
+            {
+                if (this.gate != null)
+                    this.gate.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                Thread.sleep(2);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.render;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class OrderedRenderableQueueTest
+{
+    /** Tests that renderables are returned behind first, then farthest first, with ties in the order added. */
+    @Test
+    public void testOrder()
+    {
+        Random random = new Random(1);
+        List<TestRenderable> expected = new ArrayList<TestRenderable>();
+        OrderedRenderableQueue queue = new OrderedRenderableQueue();
+        for (int i = 0; i < 1000; i++)
+        {
+            TestRenderable renderable = new TestRenderable(i, random.nextInt(100), random.nextInt(10) == 0);
+            expected.add(renderable);
+            queue.add(renderable, renderable.behind);
+        }
+
+        Collections.sort(expected, new DrawingOrder()); // stable, so ties remain in the order added
+        assertEquals("Size incorrect ", 1000, queue.size());
+        assertSame("Peek incorrect ", expected.get(0), queue.peek());
+        this.assertDrained(expected, queue);
+    }
+
+    /** Tests that renderables added while the queue is drained are merged with those remaining. */
+    @Test
+    public void testAddWhileDraining()
+    {
+        Random random = new Random(2);
+        List<TestRenderable> expected = new ArrayList<TestRenderable>();
+        OrderedRenderableQueue queue = new OrderedRenderableQueue();
+        for (int i = 0; i < 500; i++)
+        {
+            TestRenderable renderable = new TestRenderable(i, random.nextInt(100), false);
+            expected.add(renderable);
+            queue.add(renderable, false);
+        }
+
+        Collections.sort(expected, new DrawingOrder());
+        for (int i = 0; i < 200; i++)
+        {
+            assertSame("Renderable incorrect ", expected.remove(0), queue.poll());
+        }
+
+        for (int i = 500; i < 600; i++)
+        {
+            TestRenderable renderable = new TestRenderable(i, random.nextInt(100), i % 10 == 0);
+            expected.add(renderable);
+            queue.add(renderable, renderable.behind);
+        }
+
+        Collections.sort(expected, new DrawingOrder());
+        this.assertDrained(expected, queue);
+
+        queue.clear();
+        assertEquals("Queue not cleared ", 0, queue.getNumAdded());
+        assertNull("Queue not cleared ", queue.peek());
+    }
+
+    @Test
+    public void testSpeed()
+    {
+        OrderedRenderableQueue queue = new OrderedRenderableQueue();
+        for (int size : new int[] {1000, 10000, 100000})
+        {
+            Random random = new Random(size);
+            TestRenderable[] renderables = new TestRenderable[size];
+            for (int i = 0; i < size; i++)
+            {
+                renderables[i] = new TestRenderable(i, 1e6 * random.nextDouble(), false);
+            }
+
+            for (int j = 0; j < 3; j++)
+            {
+                long start = System.nanoTime();
+                for (TestRenderable renderable : renderables)
+                {
+                    queue.add(renderable, false);
+                }
+                int count = 0;
+                while (queue.poll() != null)
+                {
+                    count++;
+                }
+                queue.clear();
+                double elapsed = (System.nanoTime() - start) / 1e6;
+
+                assertEquals("Renderables lost ", size, count);
+                System.out.printf("Ordered renderable queue of %d in %f millis, %f micros per renderable\n", size,
+                    elapsed, 1e3 * elapsed / size);
+            }
+        }
+    }
+
+    protected void assertDrained(List<TestRenderable> expected, OrderedRenderableQueue queue)
+    {
+        for (TestRenderable renderable : expected)
+        {
+            assertSame("Renderable incorrect ", renderable, queue.poll());
+        }
+
+        assertNull("Queue not empty ", queue.poll());
+        assertEquals("Size incorrect ", 0, queue.size());
+    }
+
+    protected static class DrawingOrder implements Comparator<TestRenderable>
+    {
+        public int compare(TestRenderable a, TestRenderable b)
+        {
+            if (a.behind != b.behind)
+                return a.behind ? -1 : 1;
+
+            if (a.behind)
+                return 0;
+
+            return Double.compare(b.distance, a.distance);
+        }
+    }
+
+    protected static class TestRenderable implements OrderedRenderable
+    {
+        protected final int id;
+        protected final double distance;
+        protected final boolean behind;
+
+        public TestRenderable(int id, double distance, boolean behind)
+        {
+            this.id = id;
+            this.distance = distance;
+            this.behind = behind;
+        }
+
+        public double getDistanceFromEye()
+        {
+            return this.distance;
+        }
+
+        public void pick(DrawContext dc, Point pickPoint)
+        {
+        }
+
+        public void render(DrawContext dc)
+        {
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.id + " " + this.distance + (this.behind ? " behind" : "");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.render;
+
+import gov.nasa.worldwind.cache.BasicGpuResourceCache;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.*;
+import gov.nasa.worldwind.terrain.SectorGeometryList;
+import gov.nasa.worldwind.view.BasicView;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class PathTest
+{
+    private long defaultFrameBudget;
+
+    @Before
+    public void setUp()
+    {
+        this.defaultFrameBudget = AbstractShape.getAsyncGeometryFrameBudget();
+    }
+
+    @After
+    public void tearDown()
+    {
+        AbstractShape.setAsyncGeometryFrameBudget(this.defaultFrameBudget);
+    }
+
+    /**
+     * Tests that asynchronously regenerated geometry is drawn once it's applied, and that the previous geometry is drawn
+     * until then.
+     */
+    @Test
+    public void testAsyncGeometryRegeneration() throws Exception
+    {
+        TestDrawContext dc = new TestDrawContext(new Earth());
+        Path path = createPath();
+
+        // No geometry is drawn until the first geometry is complete.
+        dc.nextFrame(1);
+        path.render(dc);
+        assertTrue("Path drawn before geometry complete ", dc.added.isEmpty());
+        assertNotNull("Geometry not requested ", path.geometryRegeneration);
+        waitForGeometry(path);
+
+        dc.nextFrame(1);
+        path.render(dc);
+        assertEquals("Path not drawn ", 1, dc.added.size());
+        assertNull("Geometry not applied ", path.geometryRegeneration);
+        AbstractShape.AbstractShapeData firstData = path.getCurrentData();
+        assertEquals("Vertical exaggeration incorrect ", 1d, firstData.getVerticalExaggeration(), 0);
+
+        // Changing the vertical exaggeration regenerates the geometry, and the previous geometry is drawn meanwhile.
+        dc.nextFrame(2);
+        path.render(dc);
+        assertEquals("Previous geometry not drawn ", 1, dc.added.size());
+        assertSame("Previous geometry not current ", firstData, path.getCurrentData());
+        waitForGeometry(path);
+
+        dc.nextFrame(2);
+        path.render(dc);
+        assertEquals("Path not drawn ", 1, dc.added.size());
+        assertNotSame("Geometry not swapped ", firstData, path.getCurrentData());
+        assertEquals("Vertical exaggeration incorrect ", 2d, path.getCurrentData().getVerticalExaggeration(), 0);
+        assertSame("Previous data not recycled ", firstData, path.getCurrentData().backBuffer);
+
+        // The regenerated geometry matches geometry regenerated on the rendering thread.
+        Path syncPath = createPath();
+        syncPath.setAsyncGeometryRegeneration(false);
+        syncPath.render(dc);
+        assertEquals("Geometry differs ", syncPath.getCurrentPathData().renderedPath,
+            path.getCurrentPathData().renderedPath);
+    }
+
+    /** Tests that the per-frame budget defers applying geometry to later frames, and applies at least one per frame. */
+    @Test
+    public void testAsyncGeometryFrameBudget() throws Exception
+    {
+        AbstractShape.setAsyncGeometryFrameBudget(0);
+
+        TestDrawContext dc = new TestDrawContext(new Earth());
+        List<Path> paths = Arrays.asList(createPath(), createPath(), createPath());
+
+        dc.nextFrame(1);
+        for (Path path : paths)
+        {
+            path.render(dc);
+        }
+
+        for (Path path : paths)
+        {
+            waitForGeometry(path);
+        }
+
+        for (int frame = 1; frame <= paths.size(); frame++)
+        {
+            dc.nextFrame(1);
+            for (Path path : paths)
+            {
+                path.render(dc);
+            }
+
+            assertEquals("Geometry applied beyond budget ", frame, dc.added.size());
+        }
+    }
+
+    protected static Path createPath()
+    {
+        Path path = new Path(Arrays.asList(
+            Position.fromDegrees(28, -106, 1000),
+            Position.fromDegrees(35, -104, 2000),
+            Position.fromDegrees(30, -100, 1000)));
+        path.setAsyncGeometryRegeneration(true);
+
+        return path;
+    }
+
+    protected static void waitForGeometry(AbstractShape shape) throws InterruptedException
+    {
+        for (int i = 0; i < 1000 && !shape.geometryRegeneration.done; i++)
+        {
+            Thread.sleep(10);
+        }
+
+        assertTrue("Geometry not regenerated ", shape.geometryRegeneration.done);
+    }
+
+    protected static class TestDrawContext extends DrawContextImpl
+    {
+        protected List<OrderedRenderable> added = new ArrayList<OrderedRenderable>();
+
+        public TestDrawContext(Globe globe)
+        {
+            this.globe = globe;
+            this.setView(new TestView());
+            this.setSurfaceGeometry(new SectorGeometryList());
+            this.setGLRuntimeCapabilities(new GLRuntimeCapabilities());
+            this.setGpuResourceCache(new BasicGpuResourceCache(1000000, 2000000));
+        }
+
+        public void nextFrame(double verticalExaggeration)
+        {
+            this.added.clear();
+            this.setVerticalExaggeration(verticalExaggeration);
+            this.setFrameTimeStamp(this.getFrameTimeStamp() + 1);
+        }
+
+        @Override
+        public void addOrderedRenderable(OrderedRenderable orderedRenderable)
+        {
+            this.added.add(orderedRenderable);
+        }
+    }
+
+    protected static class TestView extends BasicView
+    {
+        @Override
+        public Frustum getFrustumInModelCoordinates()
+        {
+            double d = 1e10;
+            return new Frustum(new Plane(1, 0, 0, d), new Plane(-1, 0, 0, d), new Plane(0, 1, 0, d),
+                new Plane(0, -1, 0, d), new Plane(0, 0, 1, d), new Plane(0, 0, -1, d));
+        }
+
+        @Override
+        public Vec4 getEyePoint()
+        {
+            return new Vec4(0, 0, 2e7);
+        }
+
+        @Override
+        public Position getEyePosition()
+        {
+            return Position.fromDegrees(0, 0, 1e7);
+        }
+
+        @Override
+        public double computePixelSizeAtDistance(double distance)
+        {
+            return 1e-3 * distance;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.retrieve;
+
+import gov.nasa.worldwind.WWObjectImpl;
+import gov.nasa.worldwind.avlist.AVKey;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+import static gov.nasa.worldwind.retrieve.Retriever.RETRIEVER_STATE_SUCCESSFUL;
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BasicRetrievalServiceTest
+{
+    protected BasicRetrievalService service;
+    protected CountDownLatch gate = new CountDownLatch(1);
+    protected List<String> runNames = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp()
+    {
+        this.service = new BasicRetrievalService();
+        this.service.setRetrieverPoolSize(1);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.gate.countDown();
+        this.service.shutdown(true);
+    }
+
+    /** Tests that duplicate retrievals are rejected and counted. */
+    @Test
+    public void testDuplicates() throws Exception
+    {
+        RetrievalFuture blocker = this.service.runRetriever(new TestRetriever("blocker"), 1);
+        assertNotNull("Retrieval rejected ", this.service.runRetriever(new TestRetriever("a"), 1));
+        assertNull("Duplicate queued ", this.service.runRetriever(new TestRetriever("a"), 1));
+        assertNull("Duplicate of running retrieval queued ", this.service.runRetriever(new TestRetriever("blocker"), 1));
+
+        assertEquals("Duplicate count incorrect ", 2, this.service.getNumDuplicatesRejected());
+        assertTrue("Queued retriever not found ", this.service.contains(new TestRetriever("a")));
+        assertEquals("Pending count incorrect ", 2, this.service.getNumRetrieversPending());
+
+        this.gate.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    /** Tests that queued retrievals can be re-prioritized. */
+    @Test
+    public void testSetPriority() throws Exception
+    {
+        RetrievalFuture blocker = this.service.runRetriever(new TestRetriever("blocker"), 1);
+        this.awaitRunning("blocker");
+
+        RetrievalFuture a = this.service.runRetriever(new TestRetriever("a"), 2);
+        RetrievalFuture b = this.service.runRetriever(new TestRetriever("b"), 3);
+        assertTrue("Priority not changed ", this.service.setPriority(new TestRetriever("b"), 1));
+        assertFalse("Running retrieval re-prioritized ", this.service.setPriority(new TestRetriever("blocker"), 1));
+
+        this.gate.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        a.get(10, TimeUnit.SECONDS);
+        b.get(10, TimeUnit.SECONDS);
+
+        assertEquals("Run order incorrect ", Arrays.asList("blocker", "b", "a"), this.runNames);
+    }
+
+    /** Tests that queued retrievals can be cancelled in bulk, and then submitted again. */
+    @Test
+    public void testCancelQueued() throws Exception
+    {
+        RetrievalFuture blocker = this.service.runRetriever(new TestRetriever("blocker"), 1);
+        this.awaitRunning("blocker");
+
+        List<RetrievalFuture> futures = new ArrayList<RetrievalFuture>();
+        for (int i = 0; i < 10; i++)
+        {
+            futures.add(this.service.runRetriever(new TestRetriever("tile" + i), 1));
+        }
+
+        int numCancelled = this.service.cancelQueuedRetrievers(new Predicate<Retriever>()
+        {
+            public boolean test(Retriever retriever)
+            {
+                return retriever.getName().compareTo("tile5") < 0;
+            }
+        });
+
+        assertEquals("Cancelled count incorrect ", 5, numCancelled);
+        assertEquals("Cancellation counter incorrect ", 5, this.service.getNumCancelled());
+        assertEquals("Queue depth incorrect ", 5, this.service.getQueueDepth());
+        assertTrue("Retrieval not cancelled ", futures.get(0).isCancelled());
+        assertFalse("Running retrieval cancelled ", blocker.isCancelled());
+        assertNotNull("Cancelled retrieval not resubmitted ", this.service.runRetriever(new TestRetriever("tile0"), 1));
+
+        // Only the retrieval submitted after the time is retained.
+        long time = System.currentTimeMillis() + 1;
+        Thread.sleep(10);
+        this.service.runRetriever(new TestRetriever("tile9"), 1);
+        assertEquals("Cancelled count incorrect ", 5, this.service.cancelQueuedRetrieversNotRequestedSince(time));
+        assertEquals("Queue depth incorrect ", 1, this.service.getQueueDepth());
+        assertFalse("Re-requested retrieval cancelled ", futures.get(9).isCancelled());
+    }
+
+    /** Tests that completion actions run when retrievals complete or are cancelled. */
+    @Test
+    public void testWhenDone() throws Exception
+    {
+        final CountDownLatch done = new CountDownLatch(3);
+        Runnable action = new Runnable()
+        {
+            public void run()
+            {
+                done.countDown();
+            }
+        };
+
+        RetrievalFuture blocker = this.service.runRetriever(new TestRetriever("blocker"), 1);
+        this.awaitRunning("blocker");
+        RetrievalFuture queued = this.service.runRetriever(new TestRetriever("a"), 1);
+        assertTrue("Action not registered ", blocker.whenDone(action));
+        assertTrue("Action not registered ", queued.whenDone(action));
+
+        this.service.cancelQueuedRetrieversNotRequestedSince(System.currentTimeMillis() + 1);
+        assertEquals("Cancelled retrieval's action not run ", 2, done.getCount());
+
+        this.gate.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        assertTrue("Completed retrieval's action not run ", blocker.whenDone(action));
+        assertTrue("Actions not run ", done.await(10, TimeUnit.SECONDS));
+    }
+
+    /** Tests that a retriever submitted again as soon as its retrieval completes runs rather than being dropped. */
+    @Test
+    public void testResubmitOnCompletion() throws Exception
+    {
+        this.gate.countDown();
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<RetrievalFuture> resubmitted = new ArrayList<RetrievalFuture>();
+        RetrievalFuture first = this.service.runRetriever(new TestRetriever("a"), 1);
+        first.whenDone(new Runnable()
+        {
+            public void run()
+            {
+                resubmitted.add(service.runRetriever(new TestRetriever("a"), 1));
+                done.countDown();
+            }
+        });
+
+        assertTrue("Action not run ", done.await(10, TimeUnit.SECONDS));
+        assertNotNull("Resubmitted retrieval rejected ", resubmitted.get(0));
+        assertSame("Resubmitted retrieval failed ", RETRIEVER_STATE_SUCCESSFUL,
+            resubmitted.get(0).get(10, TimeUnit.SECONDS).getState());
+        assertFalse("Resubmitted retrieval cancelled ", resubmitted.get(0).isCancelled());
+        assertEquals("Runs incorrect ", Arrays.asList("a", "a"), this.runNames);
+    }
+
+    /** Tests that the per-frame cancellation cancels only the queued retrievals not requested within the limit. */
+    @Test
+    public void testCancelUnrequested() throws Exception
+    {
+        this.service.setUnrequestedLimit(50);
+
+        RetrievalFuture blocker = this.service.runRetriever(new TestRetriever("blocker"), 1);
+        this.awaitRunning("blocker");
+        RetrievalFuture a = this.service.runRetriever(new TestRetriever("a"), 1);
+        RetrievalFuture b = this.service.runRetriever(new TestRetriever("b"), 1);
+        TestRetriever once = new TestRetriever("once");
+        once.setValue(AVKey.RETRIEVAL_REQUESTED_ONCE, true);
+        RetrievalFuture c = this.service.runRetriever(once, 1);
+
+        Thread.sleep(100);
+        assertNull("Duplicate queued ", this.service.runRetriever(new TestRetriever("b"), 1));
+        assertEquals("Cancelled count incorrect ", 1, this.service.cancelUnrequestedRetrievers());
+
+        assertTrue("Unrequested retrieval not cancelled ", a.isCancelled());
+        assertFalse("Re-requested retrieval cancelled ", b.isCancelled());
+        assertFalse("Retrieval requested once cancelled ", c.isCancelled());
+        assertFalse("Running retrieval cancelled ", blocker.isCancelled());
+        assertFalse("Cancelled retriever still pending ", this.service.contains(new TestRetriever("a")));
+    }
+
+    protected void awaitRunning(String name) throws InterruptedException
+    {
+        for (int i = 0; i < 1000 && !this.runNames.contains(name); i++)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    protected class TestRetriever extends WWObjectImpl implements Retriever
+    {
+        protected final String name;
+        protected long submitTime;
+        protected long beginTime;
+        protected long endTime;
+
+        public TestRetriever(String name)
+        {
+            this.name = name;
+        }
+
+        public Retriever call() throws Exception
+        {
+            runNames.add(this.name);
+            gate.await(10, TimeUnit.SECONDS);
+            return this;
+        }
+
+        public ByteBuffer getBuffer()
+        {
+            return null;
+        }
+
+        public int getContentLength()
+        {
+            return 0;
+        }
+
+        public int getContentLengthRead()
+        {
+            return 0;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        public String getState()
+        {
+            return RETRIEVER_STATE_SUCCESSFUL;
+        }
+
+        public String getContentType()
+        {
+            return null;
+        }
+
+        public long getExpirationTime()
+        {
+            return 0;
+        }
+
+        public long getSubmitTime()
+        {
+            return this.submitTime;
+        }
+
+        public void setSubmitTime(long submitTime)
+        {
+            this.submitTime = submitTime;
+        }
+
+        public long getBeginTime()
+        {
+            return this.beginTime;
+        }
+
+        public void setBeginTime(long beginTime)
+        {
+            this.beginTime = beginTime;
+        }
+
+        public long getEndTime()
+        {
+            return this.endTime;
+        }
+
+        public void setEndTime(long endTime)
+        {
+            this.endTime = endTime;
+        }
+
+        public int getConnectTimeout()
+        {
+            return 0;
+        }
+
+        public int getReadTimeout()
+        {
+            return 0;
+        }
+
+        public void setReadTimeout(int readTimeout)
+        {
+        }
+
+        public void setConnectTimeout(int connectTimeout)
+        {
+        }
+
+        public int getStaleRequestLimit()
+        {
+            return -1;
+        }
+
+        public void setStaleRequestLimit(int staleRequestLimit)
+        {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.retrieve;
+
+import com.sun.net.httpserver.*;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class HttpClientRetrievalServiceTest
+{
+    protected HttpServer server;
+    protected HttpClientRetrievalService service;
+    protected List<String> requestedPaths = Collections.synchronizedList(new ArrayList<String>());
+    protected CountDownLatch gate = new CountDownLatch(0);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String path = exchange.getRequestURI().getPath();
+                requestedPaths.add(path);
+
+                try
+                {
+                    gate.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                byte[] body = path.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+                exchange.sendResponseHeaders(path.startsWith("/missing") ? 404 : 200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        this.server.start();
+
+        this.service = new HttpClientRetrievalService();
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.service.shutdown(true);
+        this.server.stop(0);
+        ((ExecutorService) this.server.getExecutor()).shutdownNow();
+    }
+
+    /** Tests that retrievals complete with the response content and that post-processors are run. */
+    @Test
+    public void testRetrieve() throws Exception
+    {
+        List<RetrievalFuture> futures = new ArrayList<RetrievalFuture>();
+        final Set<String> postProcessed = Collections.synchronizedSet(new HashSet<String>());
+        for (int i = 0; i < 200; i++)
+        {
+            futures.add(this.service.runRetriever(new HTTPRetriever(this.makeURL("/tile" + i),
+                new RetrievalPostProcessor()
+                {
+                    public ByteBuffer run(Retriever retriever)
+                    {
+                        postProcessed.add(((HTTPRetriever) retriever).getUrl().getPath());
+                        return retriever.getBuffer();
+                    }
+                })));
+        }
+
+        for (int i = 0; i < futures.size(); i++)
+        {
+            HTTPRetriever retriever = (HTTPRetriever) futures.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals("Response code incorrect ", HttpURLConnection.HTTP_OK, retriever.getResponseCode());
+            assertEquals("State incorrect ", Retriever.RETRIEVER_STATE_SUCCESSFUL, retriever.getState());
+            assertEquals("Content incorrect ", "/tile" + i, this.getString(retriever.getBuffer()));
+            assertTrue("Expiration time not set ", retriever.getExpirationTime() > System.currentTimeMillis());
+        }
+
+        assertEquals("Post-processors not run ", 200, postProcessed.size());
+        assertEquals("Retrievals still pending ", 0, this.service.getNumRetrieversPending());
+    }
+
+    /** Tests that error responses complete the retrieval without content. */
+    @Test
+    public void testErrorResponse() throws Exception
+    {
+        RetrievalFuture future = this.service.runRetriever(new HTTPRetriever(this.makeURL("/missing"), null));
+
+        HTTPRetriever retriever = (HTTPRetriever) future.get(10, TimeUnit.SECONDS);
+        assertEquals("Response code incorrect ", HttpURLConnection.HTTP_NOT_FOUND, retriever.getResponseCode());
+        assertNull("Content returned ", retriever.getBuffer());
+    }
+
+    /** Tests that queued retrievals are sent in priority order and that duplicates are not queued. */
+    @Test
+    public void testPriorityAndDuplicates() throws Exception
+    {
+        this.gate = new CountDownLatch(1);
+        this.service.setMaxConcurrentRequests(1);
+
+        RetrievalFuture first = this.service.runRetriever(new HTTPRetriever(this.makeURL("/first"), null), 1);
+        RetrievalFuture low = this.service.runRetriever(new HTTPRetriever(this.makeURL("/low"), null), 3);
+        RetrievalFuture high = this.service.runRetriever(new HTTPRetriever(this.makeURL("/high"), null), 2);
+
+        assertNull("Duplicate queued ", this.service.runRetriever(new HTTPRetriever(this.makeURL("/low"), null), 1));
+        assertTrue("Queued retriever not found ", this.service.contains(new HTTPRetriever(this.makeURL("/high"),
+            null)));
+        assertEquals("Pending count incorrect ", 3, this.service.getNumRetrieversPending());
+
+        this.gate.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        low.get(10, TimeUnit.SECONDS);
+        high.get(10, TimeUnit.SECONDS);
+
+        assertEquals("Request order incorrect ", Arrays.asList("/first", "/high", "/low"), this.requestedPaths);
+    }
+
+    /** Tests that a cancelled retrieval is not sent and may be submitted again. */
+    @Test
+    public void testCancel() throws Exception
+    {
+        this.gate = new CountDownLatch(1);
+        this.service.setMaxConcurrentRequests(1);
+
+        RetrievalFuture first = this.service.runRetriever(new HTTPRetriever(this.makeURL("/first"), null), 1);
+        RetrievalFuture cancelled = this.service.runRetriever(new HTTPRetriever(this.makeURL("/second"), null), 2);
+        assertTrue("Retrieval not cancelled ", cancelled.cancel(true));
+
+        RetrievalFuture resubmitted = this.service.runRetriever(new HTTPRetriever(this.makeURL("/second"), null), 2);
+        assertNotNull("Cancelled retrieval not resubmitted ", resubmitted);
+
+        this.gate.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        resubmitted.get(10, TimeUnit.SECONDS);
+
+        assertEquals("Request order incorrect ", Arrays.asList("/first", "/second"), this.requestedPaths);
+    }
+
+    protected URL makeURL(String path) throws MalformedURLException
+    {
+        return new URL("http", this.server.getAddress().getHostString(), this.server.getAddress().getPort(), path);
+    }
+
+    protected String getString(ByteBuffer buffer) throws UnsupportedEncodingException
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.util.*;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BasicElevationModelBulkQueryTest
+{
+    protected static final Sector QUERY_SECTOR = Sector.fromDegrees(0, 40, 0, 40);
+
+    protected BasicElevationModel model;
+
+    @Before
+    public void setUp()
+    {
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.SECTOR, Sector.FULL_SPHERE);
+        params.setValue(AVKey.LEVEL_ZERO_TILE_DELTA, LatLon.fromDegrees(20, 20));
+        params.setValue(AVKey.NUM_LEVELS, 1);
+        params.setValue(AVKey.TILE_WIDTH, 9);
+        params.setValue(AVKey.TILE_HEIGHT, 9);
+        params.setValue(AVKey.DATA_CACHE_NAME, "Test/BulkQuery");
+        params.setValue(AVKey.DATASET_NAME, "test");
+        params.setValue(AVKey.FORMAT_SUFFIX, ".bil");
+        params.setValue(AVKey.NETWORK_RETRIEVAL_ENABLED, false);
+        params.setValue(AVKey.ELEVATION_MIN, -100d);
+        params.setValue(AVKey.ELEVATION_MAX, 1000d);
+        params.setValue(AVKey.MISSING_DATA_SIGNAL, -9999d);
+        this.model = new BasicElevationModel(params);
+
+        // Put the tiles covering the query sector in memory, with one missing sample.
+        Random random = new Random(1);
+        for (int row = 4; row <= 6; row++)
+        {
+            for (int col = 9; col <= 11; col++)
+            {
+                BasicElevationModel.ElevationTile tile = this.model.createTile(
+                    new TileKey(0, row, col, this.model.getLevels().getFirstLevel().getCacheName()));
+                BufferWrapper elevations = new BufferWrapper.ShortBufferWrapper(
+                    WWBufferUtil.newShortBuffer(81, false));
+                for (int i = 0; i < 81; i++)
+                {
+                    elevations.putShort(i, (short) random.nextInt(1000));
+                }
+                if (row == 5 && col == 10)
+                    elevations.putShort(40, (short) -9999);
+
+                tile.setElevations(elevations, this.model);
+                this.model.addTileToCache(tile, elevations);
+            }
+        }
+    }
+
+    /** Tests that the bulk query returns the same elevations and resolution as the list query. */
+    @Test
+    public void testMatchesListQuery()
+    {
+        this.assertMatchesListQuery(1000);
+    }
+
+    /** Tests that a batch divided among threads returns the same elevations as the list query. */
+    @Test
+    public void testParallelMatchesListQuery()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            this.model.setBulkQueryPool(pool);
+            this.assertMatchesListQuery(BasicElevationModel.BulkQuery.PARALLEL_THRESHOLD * 4);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    protected void assertMatchesListQuery(int numLocations)
+    {
+        Random random = new Random(2);
+        double[] lats = new double[numLocations];
+        double[] lons = new double[numLocations];
+        List<LatLon> locations = new ArrayList<LatLon>(numLocations);
+        for (int i = 0; i < numLocations; i++)
+        {
+            // Include tile edges, the missing sample, and locations outside the sector's tiles.
+            if (i % 10 == 0)
+            {
+                lats[i] = 20 * random.nextInt(3);
+                lons[i] = 20 * random.nextInt(3);
+            }
+            else if (i % 10 == 1)
+            {
+                lats[i] = 30;
+                lons[i] = 30;
+            }
+            else
+            {
+                lats[i] = 50 * random.nextDouble();
+                lons[i] = 50 * random.nextDouble();
+            }
+            locations.add(LatLon.fromDegrees(lats[i], lons[i]));
+        }
+
+        double[] expected = new double[numLocations];
+        double[] actual = new double[numLocations];
+        Arrays.fill(expected, Double.NaN);
+        Arrays.fill(actual, Double.NaN);
+
+        double expectedResolution = this.model.getElevations(QUERY_SECTOR, locations, 0, expected);
+        double actualResolution = this.model.getElevations(QUERY_SECTOR, lats, lons, 0, actual);
+
+        assertEquals("Achieved resolution incorrect ", expectedResolution, actualResolution, 0);
+        assertArrayEquals("Elevations incorrect ", expected, actual, 0);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.cache.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.util.*;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElevationTilePackTest
+{
+    protected File location;
+    protected FileStore fileStore;
+    protected LevelSet levels;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.location = File.createTempFile("ElevationTilePackTest", "");
+        assertTrue(this.location.delete());
+        assertTrue(this.location.mkdirs());
+        this.fileStore = new BasicDataFileStore(this.location);
+
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.SECTOR, Sector.FULL_SPHERE);
+        params.setValue(AVKey.LEVEL_ZERO_TILE_DELTA, LatLon.fromDegrees(20, 20));
+        params.setValue(AVKey.NUM_LEVELS, 2);
+        params.setValue(AVKey.TILE_WIDTH, 4);
+        params.setValue(AVKey.TILE_HEIGHT, 4);
+        params.setValue(AVKey.DATA_CACHE_NAME, "Test/Elevations");
+        params.setValue(AVKey.DATASET_NAME, "test");
+        params.setValue(AVKey.FORMAT_SUFFIX, ".bil");
+        this.levels = new LevelSet(params);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        WWIO.deleteDirectory(this.location);
+        this.location.delete();
+    }
+
+    /** Tests that packed tiles are returned with the content of their source files. */
+    @Test
+    public void testWriteAndRead() throws Exception
+    {
+        this.writeTile(0, 1, 2, (short) 100);
+        this.writeTile(0, 3, 0, (short) 200);
+        this.writeTile(1, 5, 7, (short) 300);
+
+        File packFile = new File(this.location, "tiles.pack");
+        assertEquals("Tile count incorrect ", 3, ElevationTilePack.write(packFile, this.levels, this.fileStore));
+
+        ElevationTilePack pack = new ElevationTilePack(packFile);
+        assertEquals("Tile count incorrect ", 3, pack.getTileCount());
+        assertTrue("Packed tile missing ", pack.contains(1, 5, 7));
+        assertFalse("Absent tile found ", pack.contains(1, 7, 5));
+        assertNull("Absent tile returned ", pack.getTile(0, 2, 1));
+
+        this.assertTile(pack.getTile(0, 1, 2), (short) 100);
+        this.assertTile(pack.getTile(0, 3, 0), (short) 200);
+        this.assertTile(pack.getTile(1, 5, 7), (short) 300);
+    }
+
+    protected void writeTile(int levelNumber, int row, int column, short value) throws Exception
+    {
+        String path = this.levels.getLevel(levelNumber).getPath() + "/" + row + "/" + row + "_" + column + ".bil";
+        ByteBuffer buffer = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 16; i++)
+        {
+            buffer.putShort(value);
+        }
+        buffer.flip();
+
+        WWIO.saveBuffer(buffer, this.fileStore.newFile(path));
+    }
+
+    protected void assertTile(ByteBuffer buffer, short value)
+    {
+        assertNotNull("Tile not returned ", buffer);
+        assertEquals("Tile length incorrect ", 32, buffer.remaining());
+
+        ShortBuffer shorts = buffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        for (int i = 0; i < 16; i++)
+        {
+            assertEquals("Tile content incorrect ", value, shorts.get(i));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.data.ByteBufferRaster;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.*;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LineOfSightEngineTest
+{
+    protected HighResolutionTerrain terrain;
+    protected LineOfSightEngine engine;
+
+    @Before
+    public void setUp()
+    {
+        Globe globe = new Earth();
+        globe.setElevationModel(new ZeroElevationModel());
+
+        this.terrain = new HighResolutionTerrain(globe, Sector.fromDegrees(-1, 1, -1, 1), null, 1d);
+        this.engine = new LineOfSightEngine(this.terrain, 4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.engine.dispose();
+    }
+
+    /** Tests that the curvature of a smooth globe hides targets beyond the observer's horizon. */
+    @Test
+    public void testHorizon()
+    {
+        // The horizon of an observer 10 meters above the surface is about 11.3 km away.
+        Position observer = Position.fromDegrees(0, 0, 10);
+        double[] lats = new double[] {0, 0, 0.05, 0.2, 0, 2};
+        double[] lons = new double[] {0.01, 0.05, 0, 0, -0.2, 0};
+        byte[] visibility = new byte[lats.length];
+
+        this.engine.computeVisibility(observer, lats, lons, 0, visibility);
+
+        assertArrayEquals("Visibility incorrect ", new byte[] {LineOfSightEngine.VISIBLE, LineOfSightEngine.VISIBLE,
+            LineOfSightEngine.VISIBLE, LineOfSightEngine.HIDDEN, LineOfSightEngine.HIDDEN, LineOfSightEngine.NO_DATA},
+            visibility);
+    }
+
+    /** Tests that a viewshed marks cells outside its radius as missing and cells near the observer as visible. */
+    @Test
+    public void testViewshed()
+    {
+        Position observer = Position.fromDegrees(0, 0, 10);
+        ByteBufferRaster raster = this.engine.computeViewshed(observer, 20000, 41, 41, 0);
+
+        assertEquals("Width incorrect ", 41, raster.getWidth());
+        assertEquals("Center incorrect ", LineOfSightEngine.VISIBLE, (int) raster.getDoubleAtPosition(20, 20));
+        assertEquals("Corner incorrect ", LineOfSightEngine.NO_DATA, (int) raster.getDoubleAtPosition(0, 0));
+        assertEquals("Edge incorrect ", LineOfSightEngine.HIDDEN, (int) raster.getDoubleAtPosition(20, 1));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.tracks;
+
+import gov.nasa.worldwind.formats.csv.CSVReader;
+import gov.nasa.worldwind.formats.gpx.GpxReader;
+import gov.nasa.worldwind.formats.nmea.NmeaReader;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class TrackStoreTest
+{
+    private static final String GPX_PATH = "src/gov/nasa/worldwindx/examples/data/tuolumne.gpx";
+
+    /** Tests that points added to the store are presented by the track adapters, and that writes pass through. */
+    @Test
+    public void testTrackAdapters()
+    {
+        TrackStore store = new TrackStore();
+        fillStore(store);
+
+        List<Track> tracks = store.getTracks();
+        assertEquals("Track count incorrect ", 2, tracks.size());
+        assertEquals("Track name incorrect ", "first", tracks.get(0).getName());
+        assertEquals("Segment count incorrect ", 2, tracks.get(0).getSegments().size());
+        assertEquals("Track point count incorrect ", 6, tracks.get(0).getNumPoints());
+        assertEquals("Track point count incorrect ", 4, tracks.get(1).getNumPoints());
+
+        TrackPoint point = tracks.get(0).getSegments().get(1).getPoints().get(0);
+        assertEquals("Latitude incorrect ", 3, point.getLatitude(), 0);
+        assertEquals("Longitude incorrect ", -3, point.getLongitude(), 0);
+        assertEquals("Elevation incorrect ", 30, point.getElevation(), 0);
+        assertEquals("Time incorrect ", TrackStore.formatTime(3000), point.getTime());
+
+        point.setElevation(100);
+        assertEquals("Elevation not written to store ", 100, store.getElevation(3), 0);
+
+        double[] positions = new double[6];
+        store.getPositions(8, 2, positions, 0);
+        assertArrayEquals("Positions incorrect ", new double[] {8, -8, 80, 9, -9, 90}, positions, 0);
+    }
+
+    /** Tests time window queries against ordered and unordered times, in heap, direct and memory-mapped stores. */
+    @Test
+    public void testTimeWindow() throws IOException
+    {
+        File file = File.createTempFile("TrackStoreTest", ".dat");
+        file.deleteOnExit();
+
+        TrackStore[] stores = new TrackStore[] {new TrackStore(), new TrackStore(true), new TrackStore(file)};
+        for (TrackStore store : stores)
+        {
+            // Fill more than one block, with the times of the second block out of order.
+            int numPoints = TrackStore.BLOCK_SIZE + 1000;
+            store.beginTrack(null);
+            for (int i = 0; i < numPoints; i++)
+            {
+                long time = i < TrackStore.BLOCK_SIZE ? i : numPoints + TrackStore.BLOCK_SIZE - i;
+                store.addPoint(i % 90, i % 180, i, time);
+            }
+
+            assertArrayEquals("Ordered window incorrect ", new int[] {100, 101, 102},
+                store.getPointsInTimeWindow(100, 102));
+            assertEquals("Unordered window incorrect ", 1000,
+                store.getPointsInTimeWindow(TrackStore.BLOCK_SIZE, numPoints).length);
+            assertEquals("Point incorrect ", numPoints - 1, store.getElevation(numPoints - 1), 0);
+
+            store.setTime(0, TrackStore.NO_TIME);
+            assertEquals("Unknown time included ", 2, store.getPointsInTimeWindow(0, 2).length);
+
+            store.close();
+        }
+    }
+
+    /** Tests that a GPX file streamed into a store matches the tracks read by the reader. */
+    @Test
+    public void testGpxStreaming() throws Exception
+    {
+        GpxReader reader = new GpxReader();
+        reader.readFile(GPX_PATH);
+
+        TrackStore store = new TrackStore();
+        GpxReader storeReader = new GpxReader();
+        storeReader.setTrackStore(store);
+        storeReader.readFile(GPX_PATH);
+        assertTrue("Reader holds tracks ", storeReader.getTracks().isEmpty());
+
+        List<Track> expectedTracks = reader.getTracks();
+        List<Track> tracks = store.getTracks();
+        assertEquals("Track count incorrect ", expectedTracks.size(), tracks.size());
+
+        for (int i = 0; i < tracks.size(); i++)
+        {
+            assertEquals("Track name incorrect ", expectedTracks.get(i).getName().trim(), tracks.get(i).getName());
+
+            Iterator<TrackPoint> expected = new TrackPointIteratorImpl(Arrays.asList(expectedTracks.get(i)));
+            Iterator<TrackPoint> actual = new TrackPointIteratorImpl(Arrays.asList(tracks.get(i)));
+            while (expected.hasNext())
+            {
+                TrackPoint e = expected.next();
+                TrackPoint a = actual.next();
+                assertEquals("Latitude incorrect ", e.getLatitude(), a.getLatitude(), 0);
+                assertEquals("Longitude incorrect ", e.getLongitude(), a.getLongitude(), 0);
+                assertEquals("Elevation incorrect ", e.getElevation(), a.getElevation(), 0);
+                assertEquals("Time incorrect ", e.getTime(), a.getTime());
+            }
+
+            assertFalse("Extra points in store ", actual.hasNext());
+        }
+    }
+
+    /** Tests that NMEA and CSV streams are read into a store. */
+    @Test
+    public void testNmeaAndCsvStreaming() throws IOException
+    {
+        TrackStore store = new TrackStore();
+
+        NmeaReader nmeaReader = new NmeaReader();
+        nmeaReader.setTrackStore(store);
+        nmeaReader.readStream(new ByteArrayInputStream(
+            "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47\r\n".getBytes("US-ASCII")), "nmea");
+
+        CSVReader csvReader = new CSVReader();
+        csvReader.setTrackStore(store);
+        csvReader.readStream(new ByteArrayInputStream("1,10.5,20.5,300\n2,11.5,21.5,400\n".getBytes("US-ASCII")),
+            "csv");
+
+        assertEquals("Track count incorrect ", 2, store.getNumTracks());
+        assertEquals("Track name incorrect ", "nmea", store.getTrackName(0));
+        assertEquals("Point count incorrect ", 3, store.getNumPoints());
+        assertEquals("Reader holds points ", 0, nmeaReader.getNumPoints());
+        assertEquals("NMEA latitude incorrect ", 48 + 7.038 / 60, store.getLatitude(0), 1e-9);
+        assertEquals("NMEA time incorrect ", (12 * 3600 + 35 * 60 + 19) * 1000L, store.getTime(0));
+        assertEquals("CSV latitude incorrect ", 11.5, store.getLatitude(2), 0);
+        assertEquals("CSV elevation incorrect ", 400, store.getElevation(2), 0);
+    }
+
+    private static void fillStore(TrackStore store)
+    {
+        store.beginTrack("first");
+        for (int i = 0; i < 10; i++)
+        {
+            if (i == 3)
+                store.beginSegment();
+            else if (i == 6)
+                store.beginTrack("second");
+
+            store.addPoint(i, -i, 10 * i, 1000 * i);
+        }
+    }
+}
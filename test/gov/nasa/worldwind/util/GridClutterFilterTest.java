@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.render.*;
+import gov.nasa.worldwind.view.orbit.BasicOrbitView;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.*;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class GridClutterFilterTest
+{
+    protected TestDrawContext dc;
+
+    @Before
+    public void setUp()
+    {
+        this.dc = new TestDrawContext();
+        this.dc.setView(new BasicOrbitView()
+        {
+            @Override
+            public Rectangle getViewport()
+            {
+                return new Rectangle(0, 0, 1000, 800);
+            }
+        });
+        this.dc.setViewStateChanged(true);
+    }
+
+    /** Tests that the grid filter draws the same shapes as the basic filter, including shapes outside the viewport. */
+    @Test
+    public void testSameAsBasicFilter()
+    {
+        for (int seed = 0; seed < 10; seed++)
+        {
+            List<Declutterable> shapes = createShapes(new Random(seed), 2000);
+
+            new BasicClutterFilter().apply(this.dc, shapes);
+            List<OrderedRenderable> expected = new ArrayList<OrderedRenderable>(this.dc.added);
+            this.dc.added.clear();
+
+            new GridClutterFilter().apply(this.dc, shapes);
+            assertEquals("Shapes drawn incorrect ", expected, this.dc.added);
+            this.dc.added.clear();
+        }
+    }
+
+    /** Tests that results are reused only when the view and the shapes' bounds are unchanged. */
+    @Test
+    public void testReuse()
+    {
+        List<Declutterable> shapes = createShapes(new Random(1), 500);
+        GridClutterFilter filter = new GridClutterFilter();
+        filter.apply(this.dc, shapes);
+        List<OrderedRenderable> expected = new ArrayList<OrderedRenderable>(this.dc.added);
+
+        this.dc.added.clear();
+        this.dc.setViewStateChanged(false);
+        filter.apply(this.dc, shapes);
+        assertEquals("Reused shapes incorrect ", expected, this.dc.added);
+
+        // Move the first drawn shape onto the second. The second must no longer be drawn.
+        TestShape first = (TestShape) expected.get(0);
+        TestShape second = (TestShape) expected.get(1);
+        first.bounds = new Rectangle2D.Double(second.bounds.getX(), second.bounds.getY(), 10, 10);
+        this.dc.added.clear();
+        filter.apply(this.dc, shapes);
+        assertTrue("Moved shape not drawn ", this.dc.added.contains(first));
+        assertFalse("Overlapped shape drawn ", this.dc.added.contains(second));
+    }
+
+    @Test
+    public void testSpeed()
+    {
+        for (int size : new int[] {1000, 10000, 50000})
+        {
+            List<Declutterable> shapes = createShapes(new Random(size), size);
+            for (ClutterFilter filter : new ClutterFilter[] {new BasicClutterFilter(), new GridClutterFilter()})
+            {
+                long start = System.nanoTime();
+                filter.apply(this.dc, shapes);
+                double elapsed = (System.nanoTime() - start) / 1e6;
+                System.out.printf("%s of %d shapes drew %d in %f millis\n", filter.getClass().getSimpleName(), size,
+                    this.dc.added.size(), elapsed);
+                this.dc.added.clear();
+            }
+        }
+    }
+
+    protected static List<Declutterable> createShapes(Random random, int count)
+    {
+        List<Declutterable> shapes = new ArrayList<Declutterable>(count);
+        for (int i = 0; i < count; i++)
+        {
+            // Some shapes have no bounds, are empty, or lie partly or wholly outside the viewport.
+            int kind = random.nextInt(50);
+            Rectangle2D bounds = kind == 0 ? null : new Rectangle2D.Double(1200 * random.nextDouble() - 100,
+                1000 * random.nextDouble() - 100, kind == 1 ? 0 : 5 + 60 * random.nextDouble(),
+                5 + 20 * random.nextDouble());
+            shapes.add(new TestShape(bounds));
+        }
+
+        return shapes;
+    }
+
+    protected static class TestDrawContext extends DrawContextImpl
+    {
+        protected List<OrderedRenderable> added = new ArrayList<OrderedRenderable>();
+
+        @Override
+        public void addOrderedRenderable(OrderedRenderable orderedRenderable)
+        {
+            this.added.add(orderedRenderable);
+        }
+    }
+
+    protected static class TestShape implements Declutterable
+    {
+        protected Rectangle2D bounds;
+
+        public TestShape(Rectangle2D bounds)
+        {
+            this.bounds = bounds;
+        }
+
+        public boolean isEnableDecluttering()
+        {
+            return true;
+        }
+
+        public Rectangle2D getBounds(DrawContext dc)
+        {
+            return this.bounds;
+        }
+
+        public double getDistanceFromEye()
+        {
+            return 0;
+        }
+
+        public void pick(DrawContext dc, Point pickPoint)
+        {
+        }
+
+        public void render(DrawContext dc)
+        {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.Sector;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class SectorRTreeTest
+{
+    /** Tests that the tree finds the same items as a linear search, in the order the items were given. */
+    @Test
+    public void testItemsInRegion()
+    {
+        for (int size : new int[] {0, 1, 15, 16, 17, 1000, 20000})
+        {
+            Random random = new Random(size);
+            List<Integer> items = new ArrayList<Integer>(size);
+            List<Sector> sectors = new ArrayList<Sector>(size);
+            for (int i = 0; i < size; i++)
+            {
+                items.add(i);
+                sectors.add(randomSector(random, i % 100 == 0 ? 90 : 2));
+            }
+
+            SectorRTree<Integer> tree = new SectorRTree<Integer>(items, sectors);
+            assertEquals("Size incorrect ", size, tree.size());
+
+            for (int j = 0; j < 100; j++)
+            {
+                Sector region = randomSector(random, 10);
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < size; i++)
+                {
+                    if (sectors.get(i).intersects(region))
+                        expected.add(i);
+                }
+
+                assertEquals("Items incorrect ", expected, tree.getItemsInRegion(region, null));
+            }
+        }
+    }
+
+    /** Tests that items whose sectors only touch the region's edges are found. */
+    @Test
+    public void testEdges()
+    {
+        List<String> items = Arrays.asList("west", "east", "north", "outside");
+        List<Sector> sectors = Arrays.asList(Sector.fromDegrees(0, 10, 0, 10), Sector.fromDegrees(0, 10, 10, 20),
+            Sector.fromDegrees(10, 20, 0, 10), Sector.fromDegrees(30, 40, 30, 40));
+        SectorRTree<String> tree = new SectorRTree<String>(items, sectors, 2);
+
+        assertEquals("Items incorrect ", Arrays.asList("west", "east", "north"),
+            tree.getItemsInRegion(Sector.fromDegrees(10, 10, 10, 10), new ArrayList<String>()));
+    }
+
+    protected static Sector randomSector(Random random, double maxSize)
+    {
+        double deltaLat = maxSize * random.nextDouble();
+        double deltaLon = maxSize * random.nextDouble();
+        double minLat = -90 + (180 - deltaLat) * random.nextDouble();
+        double minLon = -180 + (360 - deltaLon) * random.nextDouble();
+
+        return Sector.fromDegrees(minLat, minLat + deltaLat, minLon, minLon + deltaLon);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.*;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.view.orbit.BasicOrbitView;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class TilePrefetcherTest
+{
+    protected Globe globe;
+    protected LevelSet levels;
+    protected List<TileKey> prefetched;
+    protected TilePrefetcher prefetcher;
+
+    @Before
+    public void setUp()
+    {
+        this.globe = new Earth();
+
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.SECTOR, Sector.FULL_SPHERE);
+        params.setValue(AVKey.LEVEL_ZERO_TILE_DELTA, LatLon.fromDegrees(36, 36));
+        params.setValue(AVKey.NUM_LEVELS, 12);
+        params.setValue(AVKey.TILE_WIDTH, 512);
+        params.setValue(AVKey.TILE_HEIGHT, 512);
+        params.setValue(AVKey.DATA_CACHE_NAME, "Test/Prefetch");
+        params.setValue(AVKey.DATASET_NAME, "test");
+        params.setValue(AVKey.FORMAT_SUFFIX, ".dds");
+        this.levels = new LevelSet(params);
+
+        this.prefetched = Collections.synchronizedList(new ArrayList<TileKey>());
+        this.prefetcher = new TilePrefetcher(new TilePrefetcher.Client()
+        {
+            public LevelSet getLevels()
+            {
+                return levels;
+            }
+
+            public boolean isPrefetchNeeded(DrawContext dc, TileKey key)
+            {
+                return true;
+            }
+
+            public long prefetchTile(TileKey key, double priority)
+            {
+                prefetched.add(key);
+                return 0;
+            }
+
+            public long getMemoryCacheCapacity()
+            {
+                return 1000000;
+            }
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.prefetcher.dispose();
+    }
+
+    /** Tests that a prediction selects the level matching the eye distance, nearest tiles first. */
+    @Test
+    public void testPredictTiles()
+    {
+        this.prefetcher.setMaxTiles(10);
+
+        Vec4 centerPoint = this.globe.computePointFromPosition(Position.fromDegrees(10, 20, 0));
+        Vec4 eyePoint = this.globe.computePointFromPosition(Position.fromDegrees(10, 20, 100000));
+        Map<TileKey, Double> tiles = this.prefetcher.predictTiles(this.globe, new BasicOrbitView(), eyePoint,
+            centerPoint);
+
+        assertFalse("No tiles predicted ", tiles.isEmpty());
+        assertTrue("Too many tiles predicted ", tiles.size() <= 10);
+
+        // A 512 texel tile at 100 km and a detail factor of 2.8 spans about 80 km, or 0.7 degrees.
+        TileKey nearest = null;
+        double level = -1;
+        for (Map.Entry<TileKey, Double> entry : tiles.entrySet())
+        {
+            level = Math.max(level, entry.getKey().getLevelNumber());
+            if (nearest == null || entry.getValue() < tiles.get(nearest))
+                nearest = entry.getKey();
+        }
+        assertEquals("Level incorrect ", 6, (int) level);
+        assertEquals("Nearest tile level incorrect ", 6, nearest.getLevelNumber());
+        assertTrue("Nearest tile incorrect ", this.levels.computeSectorForKey(nearest).contains(
+            LatLon.fromDegrees(10, 20)));
+    }
+
+    /** Tests that tiles are requested while predicted, and not requested once the prediction changes. */
+    @Test
+    public void testCancel()
+    {
+        TileKey kept = new TileKey(2, 1, 1, "Test/Prefetch");
+        TileKey dropped = new TileKey(2, 1, 2, "Test/Prefetch");
+
+        this.prefetcher.setWantedTiles(Collections.singletonMap(kept, 1d));
+        this.prefetcher.prefetchTile(kept, 1);
+        this.prefetcher.prefetchTile(dropped, 1);
+
+        assertEquals("Requested tiles incorrect ", Arrays.asList(kept), this.prefetched);
+    }
+}
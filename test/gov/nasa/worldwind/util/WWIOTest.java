@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class WWIOTest
+{
+    /** Tests that content spanning several read chunks is assembled in order. */
+    @Test
+    public void testReadUnknownLength() throws Exception
+    {
+        byte[] content = makeContent(500000);
+
+        ByteBuffer buffer = WWIO.readStreamToBuffer(new ByteArrayInputStream(content), true);
+
+        assertTrue("Buffer not direct ", buffer.isDirect());
+        assertContentEquals(content, buffer);
+    }
+
+    /** Tests that an expected length that is too small or too large does not truncate or pad the content. */
+    @Test
+    public void testReadWrongExpectedLength() throws Exception
+    {
+        byte[] content = makeContent(100000);
+
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(content));
+        assertContentEquals(content, WWIO.readChannelToBuffer(channel, 1000, false));
+
+        channel = Channels.newChannel(new ByteArrayInputStream(content));
+        assertContentEquals(content, WWIO.readChannelToBuffer(channel, 200000, false));
+
+        channel = Channels.newChannel(new ByteArrayInputStream(content));
+        assertContentEquals(content, WWIO.readChannelToBuffer(channel, content.length, false));
+    }
+
+    /** Tests that a file channel is read from its current position to its end. */
+    @Test
+    public void testReadFileChannel() throws Exception
+    {
+        byte[] content = makeContent(70000);
+        File file = File.createTempFile("WWIOTest", ".bin");
+        try
+        {
+            WWIO.saveBuffer(ByteBuffer.wrap(content), file);
+
+            FileInputStream is = new FileInputStream(file);
+            try
+            {
+                assertContentEquals(content, WWIO.readStreamToBuffer(is));
+            }
+            finally
+            {
+                WWIO.closeStream(is, file.getPath());
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static byte[] makeContent(int length)
+    {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            content[i] = (byte) (i * 31);
+        }
+
+        return content;
+    }
+
+    private static void assertContentEquals(byte[] expected, ByteBuffer buffer)
+    {
+        assertEquals("Length incorrect ", expected.length, buffer.remaining());
+
+        byte[] actual = new byte[buffer.remaining()];
+        buffer.get(actual);
+        assertArrayEquals("Content incorrect ", expected, actual);
+    }
+}
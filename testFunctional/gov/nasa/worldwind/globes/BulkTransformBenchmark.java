@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.globes;
+
+import gov.nasa.worldwind.geom.*;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Compares the per-point geodetic and cartesian conversions of {@link Globe} with its bulk conversions, serially and in
+ * parallel, on an ellipsoidal globe and a flat globe. Each case is run repeatedly to let the JIT compiler settle before
+ * it's timed. Pass the number of positions as the first argument; the default is one million.
+ */
+public class BulkTransformBenchmark
+{
+    protected static final int WARMUP_ITERATIONS = 5;
+    protected static final int MEASURED_ITERATIONS = 10;
+
+    protected interface Case
+    {
+        void run();
+    }
+
+    protected static double sink;
+
+    public static void main(String[] args)
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        double[] positions = new double[3 * count];
+        for (int i = 0; i < count; i++)
+        {
+            positions[3 * i] = -80 + 160.0 * i / count;
+            positions[3 * i + 1] = -179 + 358.0 * ((i * 7919L) % count) / count;
+            positions[3 * i + 2] = (i % 100) * 50;
+        }
+
+        run("Ellipsoidal", new Earth(), positions, count);
+        run("Flat", new EarthFlat(), positions, count);
+    }
+
+    protected static void run(String name, final Globe globe, final double[] positions, final int count)
+    {
+        final double[] points = new double[3 * count];
+        final double[] output = new double[3 * count];
+        final FloatBuffer buffer = FloatBuffer.allocate(3 * count);
+        final Vec4 referencePoint = globe.computePointFromPosition(Position.fromDegrees(0, 0, 0));
+        globe.computePointsFromPositions(positions, count, points, false);
+
+        measure(name + " per-point positions to points", count, new Case()
+        {
+            public void run()
+            {
+                for (int i = 0; i < 3 * count; i += 3)
+                {
+                    Vec4 point = globe.computePointFromPosition(
+                        Angle.fromDegrees(positions[i]), Angle.fromDegrees(positions[i + 1]), positions[i + 2]);
+                    output[i] = point.x;
+                    output[i + 1] = point.y;
+                    output[i + 2] = point.z;
+                }
+            }
+        });
+
+        measure(name + " bulk positions to points", count, new Case()
+        {
+            public void run()
+            {
+                globe.computePointsFromPositions(positions, count, output, false);
+            }
+        });
+
+        measure(name + " parallel bulk positions to points", count, new Case()
+        {
+            public void run()
+            {
+                globe.computePointsFromPositions(positions, count, output, true);
+            }
+        });
+
+        measure(name + " bulk positions to relative float points", count, new Case()
+        {
+            public void run()
+            {
+                globe.computePointsFromPositions(positions, count, referencePoint, buffer, false);
+            }
+        });
+
+        measure(name + " per-point points to positions", count, new Case()
+        {
+            public void run()
+            {
+                for (int i = 0; i < 3 * count; i += 3)
+                {
+                    Position position = globe.computePositionFromPoint(
+                        new Vec4(points[i], points[i + 1], points[i + 2]));
+                    output[i] = position.latitude.degrees;
+                    output[i + 1] = position.longitude.degrees;
+                    output[i + 2] = position.elevation;
+                }
+            }
+        });
+
+        measure(name + " bulk points to positions", count, new Case()
+        {
+            public void run()
+            {
+                globe.computePositionsFromPoints(points, count, output, false);
+            }
+        });
+
+        measure(name + " parallel bulk points to positions", count, new Case()
+        {
+            public void run()
+            {
+                globe.computePositionsFromPoints(points, count, output, true);
+            }
+        });
+
+        sink += output[output.length - 1] + buffer.get(buffer.limit() - 1);
+    }
+
+    protected static void measure(String name, int count, Case c)
+    {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            c.run();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++)
+        {
+            long start = System.nanoTime();
+            c.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-50s %8.2f ns/point%n", name, (double) best / count);
+    }
+}
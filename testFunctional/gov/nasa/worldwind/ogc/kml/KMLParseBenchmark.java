@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml;
+
+import gov.nasa.worldwind.util.WWXML;
+
+import javax.xml.stream.XMLEventReader;
+import java.io.*;
+import java.util.Locale;
+
+/**
+ * Measures the throughput of parsing KML and KMZ documents with the XML event reader, with the cursor reader, and with
+ * the cursor reader streaming features to a listener rather than retaining them. Pass the documents to parse as
+ * arguments. With no arguments a synthetic document of placemarks with long line strings is generated and parsed. Each
+ * document is parsed repeatedly to let the JIT compiler settle before it's timed.
+ */
+public class KMLParseBenchmark
+{
+    protected static final int WARMUP_ITERATIONS = 2;
+    protected static final int MEASURED_ITERATIONS = 5;
+
+    /** A root that reads its document through the XML event reader rather than the cursor reader. */
+    protected static class EventReaderRoot extends KMLRoot
+    {
+        public EventReaderRoot(File docSource) throws IOException
+        {
+            super(docSource);
+        }
+
+        @Override
+        protected XMLEventReader createReader(Object docSource, boolean namespaceAware)
+        {
+            return WWXML.openEventReader(docSource, namespaceAware);
+        }
+    }
+
+    protected interface Case
+    {
+        int run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        File[] files = new File[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            files[i] = new File(args[i]);
+        }
+
+        if (files.length == 0)
+            files = new File[] {createDocument(2000, 500)};
+
+        for (final File file : files)
+        {
+            measure(file, "Event reader", new Case()
+            {
+                public int run() throws Exception
+                {
+                    return countFeatures(new EventReaderRoot(file).parse().getFeature());
+                }
+            });
+
+            measure(file, "Cursor reader", new Case()
+            {
+                public int run() throws Exception
+                {
+                    return countFeatures(new KMLRoot(file).parse().getFeature());
+                }
+            });
+
+            measure(file, "Cursor reader, streamed features", new Case()
+            {
+                public int run() throws Exception
+                {
+                    final int[] count = new int[1];
+
+                    KMLRoot root = new KMLRoot(file);
+                    root.setFeatureListener(new KMLFeatureListener()
+                    {
+                        public void featureParsed(KMLAbstractFeature feature)
+                        {
+                            count[0]++;
+                        }
+                    });
+                    root.parse();
+
+                    return count[0];
+                }
+            });
+        }
+    }
+
+    protected static void measure(File file, String name, Case c) throws Exception
+    {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            c.run();
+        }
+
+        long best = Long.MAX_VALUE;
+        int features = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++)
+        {
+            long start = System.nanoTime();
+            features = c.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double seconds = best / 1e9;
+        System.out.printf(Locale.US, "%-30s %-35s %8.2f MB/s %12.0f features/s%n", file.getName(), name,
+            file.length() / 1e6 / seconds, features / seconds);
+    }
+
+    /**
+     * Counts the features that are not containers within a feature.
+     *
+     * @param feature the feature to count.
+     *
+     * @return the number of features that are not containers.
+     */
+    protected static int countFeatures(KMLAbstractFeature feature)
+    {
+        if (!(feature instanceof KMLAbstractContainer))
+            return feature != null ? 1 : 0;
+
+        int count = 0;
+        for (KMLAbstractFeature child : ((KMLAbstractContainer) feature).getFeatures())
+        {
+            count += countFeatures(child);
+        }
+
+        return count;
+    }
+
+    protected static File createDocument(int numPlacemarks, int numCoordinates) throws IOException
+    {
+        File file = File.createTempFile("KMLParseBenchmark", ".kml");
+        file.deleteOnExit();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try
+        {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<kml xmlns=\"" + KMLConstants.KML_NAMESPACE + "\">\n<Document>\n");
+
+            for (int i = 0; i < numPlacemarks; i++)
+            {
+                writer.write("  <Placemark>\n    <name>Placemark " + i + "</name>\n    <LineString>\n");
+                writer.write("      <coordinates>\n");
+
+                for (int j = 0; j < numCoordinates; j++)
+                {
+                    writer.write(String.format(Locale.US, "        %.8f,%.8f,%.2f\n",
+                        -120 + 0.001 * j, 35 + 0.001 * i, 10.0 * j));
+                }
+
+                writer.write("      </coordinates>\n    </LineString>\n  </Placemark>\n");
+            }
+
+            writer.write("</Document>\n</kml>\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        return file;
+    }
+}